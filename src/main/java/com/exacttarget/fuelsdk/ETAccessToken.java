@@ -0,0 +1,167 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.Date;
+
+/**
+ * An <code>ETAccessToken</code> is an immutable snapshot of the
+ * tokens returned by the authentication service. A client replaces
+ * its current <code>ETAccessToken</code> as a whole whenever it
+ * obtains a new token, so it can be read without locking.
+ */
+
+public class ETAccessToken {
+    private final String accessToken;
+    private final String refreshToken;
+    private final String legacyToken;
+    private final int expiresIn;
+    private final long expirationTime;
+    private final String restInstanceUrl;
+    private final String soapInstanceUrl;
+
+    /**
+    * Class constructor, Initializes a new instance of the class.
+    * @param accessToken        The access token
+    * @param refreshToken       The refresh token (may be null)
+    * @param legacyToken        The legacy token (may be null)
+    * @param expiresIn          The lifetime of the access token in seconds
+    * @param expirationTime     The time the access token expires (milliseconds since the epoch)
+    */
+    public ETAccessToken(String accessToken,
+                         String refreshToken,
+                         String legacyToken,
+                         int expiresIn,
+                         long expirationTime)
+    {
+        this(accessToken,
+             refreshToken,
+             legacyToken,
+             expiresIn,
+             expirationTime,
+             null,
+             null);
+    }
+
+    /**
+    * Class constructor, Initializes a new instance of the class.
+    * @param accessToken        The access token
+    * @param refreshToken       The refresh token (may be null)
+    * @param legacyToken        The legacy token (may be null)
+    * @param expiresIn          The lifetime of the access token in seconds
+    * @param expirationTime     The time the access token expires (milliseconds since the epoch)
+    * @param restInstanceUrl    The tenant's REST endpoint returned with the token (may be null)
+    * @param soapInstanceUrl    The tenant's SOAP endpoint returned with the token (may be null)
+    */
+    public ETAccessToken(String accessToken,
+                         String refreshToken,
+                         String legacyToken,
+                         int expiresIn,
+                         long expirationTime,
+                         String restInstanceUrl,
+                         String soapInstanceUrl)
+    {
+        this.accessToken = accessToken;
+        this.refreshToken = refreshToken;
+        this.legacyToken = legacyToken;
+        this.expiresIn = expiresIn;
+        this.expirationTime = expirationTime;
+        this.restInstanceUrl = restInstanceUrl;
+        this.soapInstanceUrl = soapInstanceUrl;
+    }
+
+    /**
+     * @return  The access token
+     */
+    public String getAccessToken() {
+        return accessToken;
+    }
+
+    /**
+     * @return  The refresh token
+     */
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    /**
+     * @return  The legacy token
+     */
+    public String getLegacyToken() {
+        return legacyToken;
+    }
+
+    /**
+     * @return  The lifetime of the access token in seconds
+     */
+    public int getExpiresIn() {
+        return expiresIn;
+    }
+
+    /**
+     * @return  The time the access token expires (milliseconds since the epoch)
+     */
+    public long getExpirationTime() {
+        return expirationTime;
+    }
+
+    /**
+     * @return  The tenant's REST endpoint returned with the token
+     */
+    public String getRestInstanceUrl() {
+        return restInstanceUrl;
+    }
+
+    /**
+     * @return  The tenant's SOAP endpoint returned with the token
+     */
+    public String getSoapInstanceUrl() {
+        return soapInstanceUrl;
+    }
+
+    /**
+     * @param now       The current time (milliseconds since the epoch)
+     * @param window    The time in milliseconds
+     * @return          true if the access token expires within window milliseconds of now, false otherwise
+     */
+    public boolean expiresWithin(long now, long window) {
+        return expirationTime - now <= window;
+    }
+
+    @Override
+    public String toString() {
+        return "accessToken expiring at " + new Date(expirationTime);
+    }
+}
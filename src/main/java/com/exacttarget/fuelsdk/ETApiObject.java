@@ -55,12 +55,23 @@ import org.apache.log4j.Logger;
  * respectively), adding object-specific property
  * getters and setters. In a few cases (e.g., ETDataExtension),
  * API objects are hybrids of both REST and SOAP.
+ * <p>
+ * Once any property is flagged as modified, updates send only
+ * the modified properties (and those identifying the object);
+ * objects with no modified properties are sent in full.
  */
 
 public abstract class ETApiObject extends ETObject {
     private static Logger logger = Logger.getLogger(ETApiObject.class);
 
-    private Map<String, Boolean> isModified = new HashMap<String, Boolean>();
+    //
+    // Flags of external properties are kept by field ordinal;
+    // any other names are kept in a map. Both are created on
+    // first use, since most objects are never modified:
+    //
+
+    private ETModifiedFlags modifiedFields = null;
+    private Map<String, Boolean> isModified = null;
 
     /** 
     * @return The Identifier of the ETApiObject.
@@ -81,8 +92,17 @@ public abstract class ETApiObject extends ETObject {
     * @return               true if the property is modified, false otherwise.
     */
     public Boolean getModified(String property) {
-        logger.trace("isModified[" + property + "] = " + isModified.get(property));
-        return isModified.get(property);
+        Boolean value = null;
+        int ordinal = ETObjectMetadata.get(getClass()).getExternalOrdinal(property);
+        if (ordinal >= 0) {
+            if (modifiedFields != null) {
+                value = modifiedFields.get(ordinal);
+            }
+        } else if (isModified != null) {
+            value = isModified.get(property);
+        }
+        logger.trace("isModified[" + property + "] = " + value);
+        return value;
     }
 
     /** 
@@ -91,7 +111,20 @@ public abstract class ETApiObject extends ETObject {
     * @return               previous value associated with the property or null if there was no mapping.
     */
     public Boolean setModified(String property, Boolean value) {
-        logger.trace("isModified[" + property + "] = " + value);
+        if (logger.isTraceEnabled()) {
+            // setters call this, so don't build the message for nothing
+            logger.trace("isModified[" + property + "] = " + value);
+        }
+        int ordinal = ETObjectMetadata.get(getClass()).getExternalOrdinal(property);
+        if (ordinal >= 0) {
+            if (modifiedFields == null) {
+                modifiedFields = new ETModifiedFlags();
+            }
+            return modifiedFields.set(ordinal, value);
+        }
+        if (isModified == null) {
+            isModified = new HashMap<String, Boolean>();
+        }
         return isModified.put(property, value);
     }
 
@@ -100,11 +133,43 @@ public abstract class ETApiObject extends ETObject {
     */
     public List<String> getAllModified() {
         List<String> modified = new ArrayList<String>();
-        for (Map.Entry<String, Boolean> entry : isModified.entrySet()) {
-            if (entry.getValue() == true) {
-                modified.add(entry.getKey());
+        if (modifiedFields != null) {
+            ETObjectMetadata metadata = ETObjectMetadata.get(getClass());
+            for (int i = modifiedFields.nextModified(0); i >= 0; i = modifiedFields.nextModified(i + 1)) {
+                modified.add(metadata.getExternalName(i));
+            }
+        }
+        if (isModified != null) {
+            for (Map.Entry<String, Boolean> entry : isModified.entrySet()) {
+                if (entry.getValue() == true) {
+                    modified.add(entry.getKey());
+                }
             }
         }
         return modified;
     }
+
+    /**
+     * Clears the modified flags of all properties, so the next
+     * update sends the object in full again.
+     */
+    public void clearModified() {
+        modifiedFields = null;
+        isModified = null;
+    }
+
+    /**
+     * @param ordinal   The ordinal of an external field
+     * @return          true if the field is modified, false otherwise
+     */
+    boolean isFieldModified(int ordinal) {
+        return modifiedFields != null && modifiedFields.isModified(ordinal);
+    }
+
+    /**
+     * @return  true if any external field is modified, false otherwise
+     */
+    boolean hasModifiedFields() {
+        return modifiedFields != null && modifiedFields.hasModified();
+    }
 }
@@ -0,0 +1,425 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * An <code>ETAsyncRequest</code> is the handle of a chunk of data
+ * extension rows submitted to the asynchronous REST API. The server
+ * queues the work and returns a request ID; the handle polls the
+ * request's status, backing off between polls, and once the request
+ * is done returns its results.
+ * <p>
+ * A chunk the server rejected outright has no request ID; its
+ * handle is done, and its results are an error per row.
+ */
+
+public class ETAsyncRequest {
+    private static Logger logger = Logger.getLogger(ETAsyncRequest.class);
+
+    public static final int DEFAULT_INITIAL_POLL_INTERVAL = 1000;
+    public static final int DEFAULT_MAX_POLL_INTERVAL = 30000;
+
+    private static final String PATH = "/data/v1/async/";
+    private static final int RESULTS_PAGE_SIZE = 2500;
+
+    private final ETClient client;
+    private final String requestId;
+    private final List<ETDataExtensionRow> rows;
+
+    private String requestStatus = null;
+    private String resultStatus = null;
+    private boolean hasErrors = false;
+    private String errorMessage = null;
+
+    private long initialPollInterval = DEFAULT_INITIAL_POLL_INTERVAL;
+    private long maxPollInterval = DEFAULT_MAX_POLL_INTERVAL;
+
+    /**
+    * Class constructor, Initializes a new instance of the class.
+    * @param client     The ETClient object
+    * @param requestId  The request ID the server returned
+    * @param rows       The rows submitted
+    */
+    ETAsyncRequest(ETClient client,
+                   String requestId,
+                   List<ETDataExtensionRow> rows)
+    {
+        this.client = client;
+        this.requestId = requestId;
+        this.rows = Collections.unmodifiableList(rows);
+    }
+
+    /**
+     * Creates the handle of a chunk the server rejected.
+     * @param client        The ETClient object
+     * @param rows          The rows submitted
+     * @param errorMessage  The reason the chunk was rejected
+     * @return              The handle, which is done
+     */
+    static ETAsyncRequest rejected(ETClient client,
+                                   List<ETDataExtensionRow> rows,
+                                   String errorMessage)
+    {
+        ETAsyncRequest request = new ETAsyncRequest(client, null, rows);
+        request.requestStatus = "Error";
+        request.resultStatus = "Error";
+        request.hasErrors = true;
+        request.errorMessage = errorMessage;
+        return request;
+    }
+
+    /**
+     * @return  The request ID, or <code>null</code> if the server
+     *          rejected the chunk
+     */
+    public String getRequestId() {
+        return requestId;
+    }
+
+    /**
+     * @return  The rows submitted (unmodifiable)
+     */
+    public List<ETDataExtensionRow> getRows() {
+        return rows;
+    }
+
+    /**
+     * @return  The request status last polled (e.g. Pending,
+     *          Executing or Complete), or <code>null</code> if
+     *          not polled yet
+     */
+    public String getRequestStatus() {
+        return requestStatus;
+    }
+
+    /**
+     * @return  true if the request was done when last polled
+     */
+    public boolean isDone() {
+        return "Complete".equals(requestStatus) || "Error".equals(requestStatus);
+    }
+
+    /**
+     * @param initialPollInterval   The milliseconds to wait before
+     *                              polling the second time
+     * @param maxPollInterval       The maximum milliseconds to wait
+     *                              between polls; the wait doubles
+     *                              up to this after each poll
+     */
+    public void setPollIntervals(long initialPollInterval, long maxPollInterval) {
+        if (initialPollInterval < 1 || maxPollInterval < initialPollInterval) {
+            throw new IllegalArgumentException("invalid poll intervals");
+        }
+        this.initialPollInterval = initialPollInterval;
+        this.maxPollInterval = maxPollInterval;
+    }
+
+    /**
+     * Polls the status of the request once, unless it is done.
+     * @return  true if the request is done
+     * @throws ETSdkException
+     */
+    public boolean poll()
+        throws ETSdkException
+    {
+        if (isDone()) {
+            return true;
+        }
+
+        JsonObject jsonObject = get(PATH + requestId + "/status");
+        JsonElement status = jsonObject.get("requestStatus");
+        if (status == null || !status.isJsonObject()) {
+            throw new ETSdkException("no status for request " + requestId);
+        }
+        JsonObject statusObject = status.getAsJsonObject();
+        requestStatus = getString(statusObject, "requestStatus");
+        resultStatus = getString(statusObject, "resultStatus");
+        JsonElement errors = statusObject.get("hasErrors");
+        hasErrors = errors != null && !errors.isJsonNull() && errors.getAsBoolean();
+
+        logger.trace("request " + requestId + ": " + requestStatus
+                + " (" + resultStatus + ")");
+
+        return isDone();
+    }
+
+    /**
+     * Polls the status of the request until it is done or the
+     * timeout elapses, doubling the wait between polls.
+     * @param timeout   The maximum milliseconds to wait
+     * @return          true if the request is done
+     * @throws ETSdkException
+     */
+    public boolean await(long timeout)
+        throws ETSdkException
+    {
+        long deadline = System.currentTimeMillis() + timeout;
+        long interval = initialPollInterval;
+        while (!poll()) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            try {
+                sleep(Math.min(interval, remaining));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new ETSdkException("interrupted while waiting for request "
+                        + requestId, ex);
+            }
+            interval = Math.min(interval * 2, maxPollInterval);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the results of the request, which must be done. If
+     * the request had errors, the results are the errors the server
+     * reported for the rows, each with the row it reports on (matched
+     * by the item's primary key values or, failing that, its index
+     * in the request) as its object; otherwise there is a result
+     * per row.
+     * @return  The ETResponse of ETDataExtensionRow
+     * @throws ETSdkException
+     */
+    public ETResponse<ETDataExtensionRow> getResults()
+        throws ETSdkException
+    {
+        if (!isDone()) {
+            throw new ETSdkException("request " + requestId + " is not done");
+        }
+
+        ETResponse<ETDataExtensionRow> response = new ETResponse<ETDataExtensionRow>();
+        response.setRequestId(requestId);
+        response.setResponseCode(resultStatus);
+
+        if (requestId == null) {
+            response.setStatus(ETResult.Status.ERROR);
+            response.setResponseMessage(errorMessage);
+            for (ETDataExtensionRow row : rows) {
+                ETResult<ETDataExtensionRow> result = new ETResult<ETDataExtensionRow>();
+                result.setStatus(ETResult.Status.ERROR);
+                result.setResponseCode("Error");
+                result.setResponseMessage(errorMessage);
+                result.setObject(row);
+                response.addResult(result);
+            }
+            return response;
+        }
+
+        if (!hasErrors && "OK".equals(resultStatus)) {
+            response.setStatus(ETResult.Status.OK);
+            response.setResponseMessage(requestStatus);
+            for (ETDataExtensionRow row : rows) {
+                ETResult<ETDataExtensionRow> result = new ETResult<ETDataExtensionRow>();
+                result.setStatus(ETResult.Status.OK);
+                result.setResponseCode("OK");
+                result.setObject(row);
+                response.addResult(result);
+            }
+            return response;
+        }
+
+        //
+        // Page through the errors the server reported:
+        //
+
+        response.setStatus(ETResult.Status.ERROR);
+        response.setResponseMessage(requestStatus);
+        Map<String, Map<String, ETDataExtensionRow>> rowsByKeys =
+                new HashMap<String, Map<String, ETDataExtensionRow>>();
+        int page = 1;
+        while (true) {
+            JsonObject jsonObject = get(PATH + requestId + "/results?$page="
+                    + page + "&$pagesize=" + RESULTS_PAGE_SIZE);
+            JsonElement items = jsonObject.get("items");
+            int count = 0;
+            if (items != null && items.isJsonArray()) {
+                for (JsonElement item : items.getAsJsonArray()) {
+                    JsonObject itemObject = item.getAsJsonObject();
+                    ETResult<ETDataExtensionRow> result = toResult(itemObject);
+                    result.setObject(findRow(itemObject, rowsByKeys));
+                    response.addResult(result);
+                    count++;
+                }
+            }
+            JsonElement totalCount = jsonObject.get("count");
+            if (count < RESULTS_PAGE_SIZE || totalCount == null
+                    || page * RESULTS_PAGE_SIZE >= totalCount.getAsInt()) {
+                break;
+            }
+            page++;
+        }
+        return response;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + requestId + ", "
+                + rows.size() + " rows, " + requestStatus + "]";
+    }
+
+    //
+    // Gets a path of the asynchronous API and parses the response:
+    //
+
+    JsonObject get(String path)
+        throws ETSdkException
+    {
+        ETRestConnection connection = client.requireRestConnection();
+
+        //
+        // Automatically refresh the token if necessary:
+        //
+
+        client.refreshToken();
+
+        logger.trace("GET " + path);
+
+        ETRestConnection.Response r = connection.get(path);
+        if (r.getResponseCode() < 200 || r.getResponseCode() > 299) {
+            throw new ETSdkException("error getting " + path + ": "
+                    + r.getResponseCode() + " " + r.getResponseMessage());
+        }
+        return new JsonParser().parse(r.getResponsePayload()).getAsJsonObject();
+    }
+
+    void sleep(long millis)
+        throws InterruptedException
+    {
+        Thread.sleep(millis);
+    }
+
+    //
+    // Finds the row a result item reports on, by the primary key
+    // values of its "keys" or else by its "index" in the request;
+    // rows are indexed by each set of key names the first time
+    // it is used:
+    //
+
+    private ETDataExtensionRow findRow(JsonObject item,
+                                       Map<String, Map<String, ETDataExtensionRow>> rowsByKeys)
+    {
+        JsonElement keys = item.get("keys");
+        if (keys != null && keys.isJsonObject()) {
+            List<String> names = new ArrayList<String>();
+            List<String> values = new ArrayList<String>();
+            for (Map.Entry<String, JsonElement> key : keys.getAsJsonObject().entrySet()) {
+                // column names are case insensitive:
+                names.add(key.getKey().toLowerCase());
+                values.add(key.getValue().isJsonNull() ? null : key.getValue().getAsString());
+            }
+            String signature = toKey(names);
+            Map<String, ETDataExtensionRow> index = rowsByKeys.get(signature);
+            if (index == null) {
+                index = new HashMap<String, ETDataExtensionRow>();
+                for (ETDataExtensionRow row : rows) {
+                    List<String> rowValues = new ArrayList<String>();
+                    for (String name : names) {
+                        rowValues.add(row.getColumn(name));
+                    }
+                    index.put(toKey(rowValues), row);
+                }
+                rowsByKeys.put(signature, index);
+            }
+            ETDataExtensionRow row = index.get(toKey(values));
+            if (row != null) {
+                return row;
+            }
+        }
+        JsonElement position = item.get("index");
+        if (position != null && position.isJsonPrimitive()
+                && position.getAsJsonPrimitive().isNumber()) {
+            int i = position.getAsInt();
+            if (i >= 0 && i < rows.size()) {
+                return rows.get(i);
+            }
+        }
+        logger.debug("no row of request " + requestId + " matches " + item);
+        return null;
+    }
+
+    private static String toKey(List<String> values) {
+        StringBuilder key = new StringBuilder();
+        for (String value : values) {
+            key.append(value == null ? "\u0001" : value).append('\u0000');
+        }
+        return key.toString();
+    }
+
+    private static ETResult<ETDataExtensionRow> toResult(JsonObject item) {
+        ETResult<ETDataExtensionRow> result = new ETResult<ETDataExtensionRow>();
+        String status = getString(item, "status");
+        if ("OK".equalsIgnoreCase(status)) {
+            result.setStatus(ETResult.Status.OK);
+        } else {
+            result.setStatus(ETResult.Status.ERROR);
+        }
+        result.setResponseCode(status);
+        String message = getString(item, "message");
+        result.setResponseMessage(message);
+        result.setErrorMessage(message);
+        String errorCode = getString(item, "errorCode");
+        if (errorCode != null) {
+            try {
+                result.setErrorCode(Integer.valueOf(errorCode));
+            } catch (NumberFormatException ex) {
+                // some error codes are names rather than numbers
+                result.setErrorMessage(errorCode + ": " + message);
+            }
+        }
+        return result;
+    }
+
+    private static String getString(JsonObject jsonObject, String name) {
+        JsonElement element = jsonObject.get(name);
+        if (element == null || element.isJsonNull()) {
+            return null;
+        }
+        return element.getAsString();
+    }
+}
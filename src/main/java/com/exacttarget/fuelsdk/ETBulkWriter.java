@@ -0,0 +1,421 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.log4j.Logger;
+
+/**
+ * An <code>ETBulkWriter</code> creates, updates or upserts large lists of
+ * SOAP objects, such as data extension rows, in chunks. A list is
+ * split into chunks of at most <code>bulkChunkSize</code> objects
+ * (default 2500) and about <code>bulkChunkBytes</code> bytes of
+ * serialized objects (default 4 MB), and up to
+ * <code>bulkConcurrency</code> chunks (default
+ * <code>soapPoolSize</code>) are sent at a time over the client's
+ * SOAP connection pool. The results of the chunks are merged back
+ * in the order of the objects passed in.
+ * <p>
+ * A chunk that fails with an exception yields an error result for
+ * each of its objects, so the results stay aligned with the input;
+ * the other chunks are still sent.
+ */
+
+public class ETBulkWriter {
+    private static Logger logger = Logger.getLogger(ETBulkWriter.class);
+
+    public static final int DEFAULT_CHUNK_SIZE = 2500;
+    public static final int DEFAULT_CHUNK_BYTES = 4 * 1024 * 1024;
+
+    //
+    // Estimated bytes of the XML around an object and around each
+    // of its data extension columns:
+    //
+
+    private static final int OBJECT_OVERHEAD = 256;
+    private static final int COLUMN_OVERHEAD = 64;
+
+    private static ExecutorService writer = null;
+
+    enum Operation {
+        CREATE,
+        UPDATE,
+        UPSERT
+    }
+
+    private final ETClient client;
+
+    private int chunkSize;
+    private int chunkBytes;
+    private int concurrency;
+
+    /**
+    * Class constructor, Initializes a new instance of the class.
+    * @param client     The ETClient object
+    */
+    public ETBulkWriter(ETClient client) {
+        this(client,
+             client.getConfiguration().getInteger("bulkChunkSize",
+                                                  DEFAULT_CHUNK_SIZE),
+             client.getConfiguration().getInteger("bulkChunkBytes",
+                                                  DEFAULT_CHUNK_BYTES),
+             client.getConfiguration().getInteger("bulkConcurrency",
+                     client.getConfiguration().getInteger("soapPoolSize",
+                                                          ETSoapConnection.DEFAULT_POOL_SIZE)));
+    }
+
+    /**
+    * Class constructor, Initializes a new instance of the class.
+    * @param client         The ETClient object
+    * @param chunkSize      The maximum number of objects per chunk
+    * @param chunkBytes     The estimated maximum of serialized bytes per chunk
+    * @param concurrency    The maximum number of chunks sent at a time
+    */
+    public ETBulkWriter(ETClient client,
+                        int chunkSize,
+                        int chunkBytes,
+                        int concurrency)
+    {
+        this.client = client;
+        setChunkSize(chunkSize);
+        setChunkBytes(chunkBytes);
+        setConcurrency(concurrency);
+    }
+
+    /**
+     * @return  The maximum number of objects per chunk
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * @param chunkSize The maximum number of objects per chunk
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunk size must be positive");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @return  The estimated maximum of serialized bytes per chunk
+     */
+    public int getChunkBytes() {
+        return chunkBytes;
+    }
+
+    /**
+     * @param chunkBytes    The estimated maximum of serialized bytes
+     *                      per chunk; a single larger object is
+     *                      still sent, in a chunk of its own
+     */
+    public void setChunkBytes(int chunkBytes) {
+        if (chunkBytes < 1) {
+            throw new IllegalArgumentException("chunk bytes must be positive");
+        }
+        this.chunkBytes = chunkBytes;
+    }
+
+    /**
+     * @return  The maximum number of chunks sent at a time
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * @param concurrency   The maximum number of chunks sent at a time
+     */
+    public void setConcurrency(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be positive");
+        }
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * @param <T>       The type which extends from ETSoapObject
+     * @param objects   The List of objects to create
+     * @return          The ETResponse object, with the results
+     *                  in the order of the objects
+     * @throws ETSdkException
+     */
+    public <T extends ETSoapObject> ETResponse<T> create(List<T> objects)
+        throws ETSdkException
+    {
+        return write(Operation.CREATE, objects);
+    }
+
+    /**
+     * @param <T>       The type which extends from ETSoapObject
+     * @param objects   The List of objects to update
+     * @return          The ETResponse object, with the results
+     *                  in the order of the objects
+     * @throws ETSdkException
+     */
+    public <T extends ETSoapObject> ETResponse<T> update(List<T> objects)
+        throws ETSdkException
+    {
+        return write(Operation.UPDATE, objects);
+    }
+
+    /**
+     * @param <T>       The type which extends from ETSoapObject
+     * @param objects   The List of objects to update or create
+     * @return          The ETResponse object, with the results
+     *                  in the order of the objects
+     * @throws ETSdkException
+     */
+    public <T extends ETSoapObject> ETResponse<T> upsert(List<T> objects)
+        throws ETSdkException
+    {
+        return write(Operation.UPSERT, objects);
+    }
+
+    <T extends ETSoapObject> ETResponse<T> write(final Operation operation,
+                                                 List<T> objects)
+        throws ETSdkException
+    {
+        List<List<T>> chunks = split(objects);
+
+        if (chunks.size() <= 1) {
+            if (chunks.isEmpty()) {
+                ETResponse<T> response = new ETResponse<T>();
+                response.setStatus(ETResult.Status.OK);
+                return response;
+            }
+            return writeChunk(operation, chunks.get(0));
+        }
+
+        logger.debug("writing " + objects.size() + " objects in "
+                + chunks.size() + " chunks, " + concurrency + " at a time");
+
+        //
+        // Bound the chunks in flight, so the serialized chunks
+        // waiting for a SOAP proxy don't pile up in memory:
+        //
+
+        final Semaphore inFlight = new Semaphore(concurrency);
+        List<Future<ETResponse<T>>> futures = new ArrayList<Future<ETResponse<T>>>();
+        try {
+            for (final List<T> chunk : chunks) {
+                inFlight.acquire();
+                FutureTask<ETResponse<T>> future = new FutureTask<ETResponse<T>>(
+                        new Callable<ETResponse<T>>() {
+                    public ETResponse<T> call()
+                        throws ETSdkException
+                    {
+                        try {
+                            return writeChunk(operation, chunk);
+                        } finally {
+                            inFlight.release();
+                        }
+                    }
+                });
+                futures.add(future);
+                getExecutor().execute(future);
+            }
+        } catch (InterruptedException ex) {
+            for (Future<ETResponse<T>> future : futures) {
+                future.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new ETSdkException("interrupted while writing chunks", ex);
+        }
+
+        //
+        // Merge the chunks' results in order:
+        //
+
+        ETResponse<T> response = new ETResponse<T>();
+        ETResponse<T> failed = null;
+        for (int i = 0; i < chunks.size(); i++) {
+            ETResponse<T> chunkResponse = null;
+            try {
+                chunkResponse = futures.get(i).get();
+            } catch (InterruptedException ex) {
+                for (Future<ETResponse<T>> future : futures) {
+                    future.cancel(true);
+                }
+                Thread.currentThread().interrupt();
+                throw new ETSdkException("interrupted while writing chunks", ex);
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                logger.warn("error writing chunk " + (i + 1) + " of "
+                        + chunks.size(), cause);
+                chunkResponse = createErrorResponse(chunks.get(i), cause);
+            }
+            if (i == 0) {
+                response.setRequestId(chunkResponse.getRequestId());
+                response.setResponseCode(chunkResponse.getResponseCode());
+                response.setResponseMessage(chunkResponse.getResponseMessage());
+            }
+            if (failed == null
+                    && chunkResponse.getStatus() != ETResult.Status.OK) {
+                failed = chunkResponse;
+            }
+            for (ETResult<T> result : chunkResponse.getResults()) {
+                response.addResult(result);
+            }
+        }
+        if (failed == null) {
+            response.setStatus(ETResult.Status.OK);
+        } else {
+            response.setStatus(ETResult.Status.ERROR);
+            response.setResponseCode(failed.getResponseCode());
+            response.setResponseMessage(failed.getResponseMessage());
+        }
+        return response;
+    }
+
+    /**
+     * Splits objects into chunks by count and estimated size.
+     * @param <T>       The type which extends from ETSoapObject
+     * @param objects   The List of objects
+     * @return          The chunks, in order
+     */
+    <T extends ETSoapObject> List<List<T>> split(List<T> objects) {
+        if (objects == null || objects.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<List<T>> chunks = new ArrayList<List<T>>();
+        int start = 0;
+        long bytes = 0;
+        for (int i = 0; i < objects.size(); i++) {
+            int size = estimateSize(objects.get(i));
+            if (i > start
+                    && (i - start == chunkSize || bytes + size > chunkBytes)) {
+                chunks.add(objects.subList(start, i));
+                start = i;
+                bytes = 0;
+            }
+            bytes += size;
+        }
+        chunks.add(objects.subList(start, objects.size()));
+        return chunks;
+    }
+
+    /**
+     * @param object    A SOAP object
+     * @return          The estimated bytes of the serialized object;
+     *                  only data extension rows count their columns
+     */
+    static int estimateSize(ETSoapObject object) {
+        int size = OBJECT_OVERHEAD;
+        if (object instanceof ETDataExtensionRow) {
+            ETColumnMap columns = ((ETDataExtensionRow) object).getColumnMap();
+            for (int i = 0; i < columns.size(); i++) {
+                size += COLUMN_OVERHEAD + columns.getName(i).length();
+                if (columns.getValue(i) != null) {
+                    size += columns.getValue(i).length();
+                }
+            }
+        }
+        return size;
+    }
+
+    //
+    // Sends a chunk; called concurrently for different chunks:
+    //
+
+    <T extends ETSoapObject> ETResponse<T> writeChunk(Operation operation,
+                                                      List<T> chunk)
+        throws ETSdkException
+    {
+        // the SOAP calls keep references to the list, so copy the view:
+        List<T> objects = new ArrayList<T>(chunk);
+        switch (operation) {
+          case CREATE:
+            return ETSoapObject.create(client, objects);
+          case UPDATE:
+            return ETSoapObject.update(client, objects);
+          case UPSERT:
+            return ETSoapObject.upsert(client, objects);
+          default:
+            throw new ETSdkException("unsupported operation: " + operation);
+        }
+    }
+
+    private static <T extends ETSoapObject> ETResponse<T> createErrorResponse(List<T> chunk,
+                                                                              Throwable cause)
+    {
+        ETResponse<T> response = new ETResponse<T>();
+        response.setStatus(ETResult.Status.ERROR);
+        response.setResponseCode("Error");
+        response.setResponseMessage(cause.getMessage());
+        for (T object : chunk) {
+            ETResult<T> result = new ETResult<T>();
+            result.setStatus(ETResult.Status.ERROR);
+            result.setResponseCode("Error");
+            result.setResponseMessage(cause.getMessage());
+            result.setObject(object);
+            response.addResult(result);
+        }
+        return response;
+    }
+
+    //
+    // Runs the chunks and other bulk requests in the background:
+    //
+
+    static synchronized ExecutorService getExecutor() {
+        if (writer == null) {
+            writer = Executors.newCachedThreadPool(new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "fuelsdk-bulk-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return writer;
+    }
+}
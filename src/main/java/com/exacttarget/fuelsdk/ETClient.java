@@ -34,13 +34,28 @@
 
 package com.exacttarget.fuelsdk;
 
+import java.io.UnsupportedEncodingException;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.net.HttpURLConnection;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -74,6 +89,20 @@ public class ETClient {
     private static final String DEFAULT_SOAP_ENDPOINT =
             "https://webservice.exacttarget.com/Service.asmx";
 
+    // tokens are refreshed when they expire within this window:
+    private static final long TOKEN_REFRESH_WINDOW = 5 * 60 * 1000;
+    private static final int DEFAULT_TOKEN_REFRESH_AHEAD = 60 * 1000;
+    private static final long MIN_TOKEN_REFRESH_DELAY = 5 * 1000;
+
+    private static final int DEFAULT_ENDPOINT_CACHE_TTL = 10 * 60 * 1000;
+    private static final int DEFAULT_ENDPOINT_CACHE_REFRESH_AHEAD = 60 * 1000;
+
+    private static final int DEFAULT_COLUMN_CACHE_TTL = 5 * 60 * 1000;
+    private static final int DEFAULT_COLUMN_CACHE_SIZE = 1000;
+
+    private static ScheduledExecutorService tokenRefresher = null;
+    private static ExecutorService connector = null;
+
     private ETConfiguration configuration = null;
 
     private String clientId = null;
@@ -87,13 +116,40 @@ public class ETClient {
 
     private Gson gson = null;
 
+    private ETRestTransport restTransport = null;
+    private ETRetryPolicy retryPolicy = null;
+    private ETRateLimiter restRateLimiter = null;
+    private ETRateLimiter soapRateLimiter = null;
+    private ETRateLimiter authRateLimiter = null;
+    private boolean rateLimitBlocking = true;
     private ETRestConnection authConnection = null;
     private ETRestConnection restConnection = null;
     private ETSoapConnection soapConnection = null;
 
-    private String accessToken = null;
-    private int expiresIn = 0;
-    private String legacyToken = null;
+    //
+    // Set once the connections have been built; a volatile write
+    // after the connection fields so readers that see true also
+    // see the connections:
+    //
+
+    private volatile boolean connected = false;
+    private final Object connectLock = new Object();
+    private final AtomicReference<FutureTask<ETClient>> connectRequest =
+            new AtomicReference<FutureTask<ETClient>>();
+
+    //
+    // The current token is replaced as a whole, never modified,
+    // so it can be read without locking:
+    //
+
+    private volatile ETAccessToken token = null;
+    private final AtomicReference<FutureTask<ETAccessToken>> tokenRequest =
+            new AtomicReference<FutureTask<ETAccessToken>>();
+    private ScheduledFuture<?> tokenRefresh = null;
+    private boolean backgroundTokenRefresh = true;
+    private long tokenRefreshAhead = DEFAULT_TOKEN_REFRESH_AHEAD;
+    private ETTokenStore tokenStore = null;
+    private String tokenKey = null;
 
     public void setRefreshToken(String refreshToken) {
         this.refreshToken = refreshToken;
@@ -103,12 +159,12 @@ public class ETClient {
         return refreshToken;
     }
 
-    private String refreshToken = null;
+    private volatile String refreshToken = null;
 
-    private long tokenExpirationTime = 0;
-    private static long soapEndpointExpiration = 0;
-    private static String fetchedSoapEndpoint = null;
-    private static final long cacheDurationInMillis = 1000 * 60 * 10; // 10 minutes
+    private ETEndpointCache endpointCache = ETEndpointCache.getDefault();
+    private long endpointCacheTtl = DEFAULT_ENDPOINT_CACHE_TTL;
+    private long endpointCacheRefreshAhead = DEFAULT_ENDPOINT_CACHE_REFRESH_AHEAD;
+    private ETColumnCache columnCache = null;
     private boolean useOAuth2Authentication;
 
     private String applicationType;
@@ -194,7 +250,46 @@ public class ETClient {
             }
         }
 
-        buildClients();
+        restTransport = createRestTransport(configuration);
+        retryPolicy = new ETRetryPolicy(configuration);
+
+        //
+        // Rate limiters are shared by all clients of the same tenant:
+        //
+
+        String tenant = clientId + "/";
+        if (!isNullOrBlankOrEmpty(configuration.get("accountId"))) {
+            tenant += configuration.get("accountId");
+        }
+        restRateLimiter = createRateLimiter(configuration, tenant, "rest");
+        soapRateLimiter = createRateLimiter(configuration, tenant, "soap");
+        authRateLimiter = createRateLimiter(configuration, tenant, "auth");
+        if (configuration.isFalse("rateLimitBlocking")) {
+            rateLimitBlocking = false;
+        }
+
+        if (configuration.isFalse("backgroundTokenRefresh")) {
+            backgroundTokenRefresh = false;
+        }
+        tokenRefreshAhead = configuration.getInteger("tokenRefreshAhead",
+                                                     DEFAULT_TOKEN_REFRESH_AHEAD);
+        tokenStore = createTokenStore(configuration);
+        tokenKey = createTokenKey(configuration);
+        endpointCacheTtl = configuration.getInteger("endpointCacheTtl",
+                                                    DEFAULT_ENDPOINT_CACHE_TTL);
+        endpointCacheRefreshAhead = configuration.getInteger("endpointCacheRefreshAhead",
+                                                             DEFAULT_ENDPOINT_CACHE_REFRESH_AHEAD);
+        columnCache = new ETColumnCache(configuration.getInteger("columnCacheTtl",
+                                                                 DEFAULT_COLUMN_CACHE_TTL),
+                                        configuration.getInteger("columnCacheSize",
+                                                                 DEFAULT_COLUMN_CACHE_SIZE));
+
+        authConnection = new ETRestConnection(this, authEndpoint, true);
+        if (configuration.isTrue("lazyConnect")) {
+            logger.debug("lazyConnect enabled, connecting on first use");
+        } else {
+            buildClients();
+        }
 
         if (configuration.isFalse("autoHydrateObjects")) {
             autoHydrateObjects = false;
@@ -208,15 +303,244 @@ public class ETClient {
             logger.trace("  authEndpoint = " + authEndpoint);
             logger.trace("  soapEndpoint = " + soapEndpoint);
             logger.trace("  autoHydrateObjects = " + autoHydrateObjects);
+            logger.trace("  restTransport = " + restTransport.getClass().getName());
+            logger.trace("  tokenStore = " + (tokenStore == null ? null : tokenStore.getClass().getName()));
+        }
+    }
+
+    /**
+     * Builds the SOAP service model shared by all clients ahead of
+     * time. Parsing the WSDL and initializing CXF and JAXB takes a
+     * few seconds on a cold JVM; calling this method at startup
+     * (e.g., from a background thread) moves that cost out of the
+     * first <code>ETClient</code> constructor. Clients created
+     * afterwards reuse the shared model.
+     */
+    public static void warmUp() {
+        ETSoapConnection.warmUp();
+    }
+
+    /**
+     * Connects the client in the background: requests an access
+     * token, discovers the SOAP endpoint and builds the SOAP
+     * service model, overlapping the latter with the network calls.
+     * Clients created with <code>lazyConnect=true</code> connect on
+     * first use; calling this method at startup lets applications
+     * start connecting without waiting for it. Concurrent calls
+     * share a single attempt; if it fails, the next call starts a
+     * new one.
+     * @return      A Future that completes with this client once it is connected
+     */
+    public Future<ETClient> connect() {
+        while (true) {
+            FutureTask<ETClient> task = connectRequest.get();
+            if (task != null) {
+                return task;
+            }
+            FutureTask<ETClient> newTask =
+                    new FutureTask<ETClient>(new Callable<ETClient>() {
+                public ETClient call()
+                    throws ETSdkException
+                {
+                    buildClients();
+                    return ETClient.this;
+                }
+            }) {
+                @Override
+                protected void setException(Throwable t) {
+                    // let the next call try again:
+                    connectRequest.compareAndSet(this, null);
+                    super.setException(t);
+                }
+            };
+            if (connectRequest.compareAndSet(null, newTask)) {
+                if (connected) {
+                    newTask.run();
+                } else {
+                    getConnector().execute(newTask);
+                }
+                return newTask;
+            }
+        }
+    }
+
+    /**
+     * @return      true if the connections have been built, false otherwise
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    private void ensureConnected()
+        throws ETSdkException
+    {
+        if (connected) {
+            return;
+        }
+        try {
+            connect().get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ETSdkException("interrupted waiting for client to connect", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof ETSdkException) {
+                throw (ETSdkException) ex.getCause();
+            }
+            throw new ETSdkException("error connecting client", ex.getCause());
         }
     }
 
     private void buildClients() throws ETSdkException {
-        authConnection = new ETRestConnection(this, authEndpoint, true);
+        synchronized (connectLock) {
+            if (!connected) {
+                doBuildClients();
+            }
+        }
+    }
+
+    private void doBuildClients() throws ETSdkException {
+
+        //
+        // Parsing the WSDL needs no network access, so it runs
+        // while the token request and endpoint discovery are
+        // in flight. The SOAP connection waits for it below:
+        //
+
+        Future<?> warmUp = getConnector().submit(new Runnable() {
+            public void run() {
+                ETSoapConnection.warmUp();
+            }
+        });
+
         requestToken();
         restConnection = new ETRestConnection(this, endpoint);
         fetchSoapEndpoint();
-        soapConnection = new ETSoapConnection(this, soapEndpoint, accessToken);
+        try {
+            warmUp.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ETSdkException("interrupted initializing SOAP service model", ex);
+        } catch (ExecutionException ex) {
+            // the SOAP connection builds the model again below
+            logger.warn("error initializing SOAP service model", ex.getCause());
+        }
+        soapConnection = new ETSoapConnection(this, soapEndpoint, getAccessToken());
+        connected = true;
+    }
+
+    private static synchronized ExecutorService getConnector() {
+        if (connector == null) {
+            connector = Executors.newCachedThreadPool(new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "fuelsdk-connect");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return connector;
+    }
+
+    private static ETRestTransport createRestTransport(ETConfiguration configuration)
+        throws ETSdkException
+    {
+        String className = configuration.get("restTransport");
+        if (isNullOrBlankOrEmpty(className)) {
+            return new ETPooledRestTransport(configuration);
+        }
+        try {
+            Class<?> type = Class.forName(className.trim());
+            try {
+                return (ETRestTransport) type
+                        .getConstructor(ETConfiguration.class)
+                        .newInstance(configuration);
+            } catch (NoSuchMethodException ex) {
+                return (ETRestTransport) type.newInstance();
+            }
+        } catch (Exception ex) {
+            throw new ETSdkException("could not instantiate REST transport "
+                    + className, ex);
+        }
+    }
+
+    private static ETTokenStore createTokenStore(ETConfiguration configuration)
+        throws ETSdkException
+    {
+        String className = configuration.get("tokenStore");
+        if (isNullOrBlankOrEmpty(className) || className.trim().equals("none")) {
+            return null;
+        }
+        if (className.trim().equals("memory")) {
+            return ETMemoryTokenStore.getDefault();
+        }
+        try {
+            Class<?> type = Class.forName(className.trim());
+            try {
+                return (ETTokenStore) type
+                        .getConstructor(ETConfiguration.class)
+                        .newInstance(configuration);
+            } catch (NoSuchMethodException ex) {
+                return (ETTokenStore) type.newInstance();
+            }
+        } catch (Exception ex) {
+            throw new ETSdkException("could not instantiate token store "
+                    + className, ex);
+        }
+    }
+
+    //
+    // Tokens are shared by all clients that authenticate the same
+    // way, with the same secret (so a client with a wrong or revoked
+    // secret fails rather than borrow another client's token). Tokens
+    // obtained with an authorization code belong to a user rather
+    // than to the application, so they are not shared:
+    //
+
+    private String createTokenKey(ETConfiguration configuration)
+        throws ETSdkException
+    {
+        if (useOAuth2Authentication && !applicationType.equals("server")) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder();
+        key.append(useOAuth2Authentication ? "v2" : "v1");
+        key.append("|").append(authEndpoint);
+        key.append("|").append(clientId);
+        key.append("|").append(digest(clientSecret));
+        key.append("|").append(StringUtils.defaultString(configuration.get("accountId")));
+        key.append("|").append(StringUtils.defaultString(configuration.get("scope")));
+        if (!useOAuth2Authentication) {
+            key.append("|").append(StringUtils.defaultString(configuration.get("accessType")));
+        }
+        return key.toString();
+    }
+
+    private static String digest(String secret)
+        throws ETSdkException
+    {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(StringUtils.defaultString(secret).getBytes("UTF-8"));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : hash) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16));
+                hex.append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new ETSdkException("could not compute token key", ex);
+        } catch (UnsupportedEncodingException ex) {
+            throw new ETSdkException("could not compute token key", ex);
+        }
+    }
+
+    private static ETRateLimiter createRateLimiter(ETConfiguration configuration,
+                                                   String tenant,
+                                                   String name)
+    {
+        int rate = configuration.getInteger(name + "RateLimit", 0);
+        int burst = configuration.getInteger(name + "RateLimitBurst", rate);
+        return ETRateLimiter.getInstance(tenant + "/" + name, rate, burst);
     }
 
     public static boolean isNullOrBlankOrEmpty(String str) {
@@ -230,32 +554,75 @@ public class ETClient {
 
         if (soapEndpoint == null || soapEndpoint.equals("")) {
             //
-            // If a SOAP endpoint isn't specified automatically determine it:
+            // If a SOAP endpoint isn't specified automatically determine
+            // it. Discovered endpoints are cached per tenant:
             //
             try {
-                if(System.currentTimeMillis() > soapEndpointExpiration || fetchedSoapEndpoint == null) {
-                    ETRestConnection.Response response = restConnection.get(PATH_ENDPOINTS_SOAP);
-                    if (response.getResponseCode() == 200) {
-                        String responsePayload = response.getResponsePayload();
-                        JsonParser jsonParser = new JsonParser();
-                        JsonObject jsonObject = jsonParser.parse(responsePayload).getAsJsonObject();
-                        soapEndpoint = jsonObject.get("url").getAsString();
-                        fetchedSoapEndpoint = soapEndpoint;
-                        soapEndpointExpiration = System.currentTimeMillis() + cacheDurationInMillis;
-                    } else {
-                        soapEndpoint = DEFAULT_SOAP_ENDPOINT;
+                soapEndpoint = endpointCache.get(getEndpointCacheKey("soap"),
+                                                 endpointCacheTtl,
+                                                 endpointCacheRefreshAhead,
+                                                 new Callable<String>() {
+                    public String call()
+                        throws ETSdkException
+                    {
+                        return discoverSoapEndpoint();
                     }
-                }
-                else {
-                    soapEndpoint = fetchedSoapEndpoint;
-                }
+                });
             }
             catch(ETSdkException ex) {
+                logger.debug("could not discover SOAP endpoint, using default", ex);
                 soapEndpoint = DEFAULT_SOAP_ENDPOINT;
             }
         }
     }
 
+    private String discoverSoapEndpoint()
+        throws ETSdkException
+    {
+        ETRestConnection.Response response = restConnection.get(PATH_ENDPOINTS_SOAP);
+        if (response.getResponseCode() != HttpURLConnection.HTTP_OK) {
+            throw new ETSdkException("error discovering SOAP endpoint "
+                    + "("
+                    + response.getResponseCode()
+                    + " "
+                    + response.getResponseMessage()
+                    + ")");
+        }
+        String responsePayload = response.getResponsePayload();
+        JsonParser jsonParser = new JsonParser();
+        JsonObject jsonObject = jsonParser.parse(responsePayload).getAsJsonObject();
+        return jsonObject.get("url").getAsString();
+    }
+
+    //
+    // Discovered endpoints depend on the stack the credentials
+    // belong to and on the business unit, so they are cached
+    // per endpoint, clientId and accountId:
+    //
+
+    String getEndpointCacheKey(String type) {
+        return type
+            + "|" + endpoint
+            + "|" + clientId
+            + "|" + StringUtils.defaultString(configuration.get("accountId"));
+    }
+
+    /**
+     * 
+     * @return      The ETEndpointCache caching discovered endpoints
+     */
+    public ETEndpointCache getEndpointCache() {
+        return endpointCache;
+    }
+
+    /**
+     * 
+     * @return      The ETColumnCache caching data extension columns
+     */
+    public ETColumnCache getColumnCache() {
+        return columnCache;
+    }
+
     /**
      * 
      * @return The client ID
@@ -269,7 +636,16 @@ public class ETClient {
      * @return The access token 
      */
     public String getAccessToken() {
-        return accessToken;
+        ETAccessToken t = token;
+        return t == null ? null : t.getAccessToken();
+    }
+
+    /**
+     * 
+     * @return The current ETAccessToken (null if no token has been obtained)
+     */
+    public ETAccessToken getToken() {
+        return token;
     }
 
     /**
@@ -277,7 +653,7 @@ public class ETClient {
      * @return The LegacyToken
      */
     public String getLegacyToken() {
-        return accessToken;
+        return getAccessToken();
     }
 
     /**
@@ -306,17 +682,108 @@ public class ETClient {
 
     /**
      * 
+     * @return      The ETRestTransport shared by the REST connections
+     */
+    public ETRestTransport getRestTransport() {
+        return restTransport;
+    }
+
+    /**
+     * 
+     * @return      The ETRetryPolicy shared by the REST and SOAP connections
+     */
+    public ETRetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * 
+     * @return      The ETRateLimiter pacing REST API calls
+     */
+    public ETRateLimiter getRestRateLimiter() {
+        return restRateLimiter;
+    }
+
+    /**
+     * 
+     * @return      The ETRateLimiter pacing SOAP API calls
+     */
+    public ETRateLimiter getSoapRateLimiter() {
+        return soapRateLimiter;
+    }
+
+    /**
+     * 
+     * @return      The ETRateLimiter pacing token requests
+     */
+    public ETRateLimiter getAuthRateLimiter() {
+        return authRateLimiter;
+    }
+
+    /**
+     * 
+     * @return      The ETTokenStore sharing access tokens (null if tokens are not shared)
+     */
+    public ETTokenStore getTokenStore() {
+        return tokenStore;
+    }
+
+    /**
+     * 
+     * @return      true if calls wait for the rate limiter, false if they fail immediately
+     */
+    public boolean isRateLimitBlocking() {
+        return rateLimitBlocking;
+    }
+
+    /**
+     * Returns the REST connection, connecting the client
+     * first if it was created with <code>lazyConnect=true</code>.
      * @return      The ETRestConnection
+     * @throws IllegalStateException if connecting fails; use
+     *                               <code>connect()</code> to handle
+     *                               the ETSdkException instead
      */
     public ETRestConnection getRestConnection() {
-        return restConnection;
+        try {
+            return requireRestConnection();
+        } catch (ETSdkException ex) {
+            throw new IllegalStateException("error connecting client", ex);
+        }
     }
 
     /**
-     * 
+     * Returns the SOAP connection, connecting the client
+     * first if it was created with <code>lazyConnect=true</code>.
      * @return      The ETSoapConnection
+     * @throws IllegalStateException if connecting fails; use
+     *                               <code>connect()</code> to handle
+     *                               the ETSdkException instead
      */
     public ETSoapConnection getSoapConnection() {
+        try {
+            return requireSoapConnection();
+        } catch (ETSdkException ex) {
+            throw new IllegalStateException("error connecting client", ex);
+        }
+    }
+
+    //
+    // The SDK's own callers get connection failures
+    // as ETSdkExceptions:
+    //
+
+    ETRestConnection requireRestConnection()
+        throws ETSdkException
+    {
+        ensureConnected();
+        return restConnection;
+    }
+
+    ETSoapConnection requireSoapConnection()
+        throws ETSdkException
+    {
+        ensureConnected();
         return soapConnection;
     }
 
@@ -343,13 +810,35 @@ public class ETClient {
     /**
      * @return                      The request token
      */
-    public synchronized String requestToken()
+    public String requestToken()
         throws ETSdkException
     {
         return requestToken(null);
     }
 
-    private synchronized String requestOAuth2Token()
+    private String requestOAuth2Token()
+        throws ETSdkException
+    {
+        ETAccessToken newToken = obtainToken(new Callable<ETAccessToken>() {
+            public ETAccessToken call()
+                throws ETSdkException
+            {
+                return fetchOAuth2Token();
+            }
+        });
+
+        this.endpoint = newToken.getRestInstanceUrl();
+        this.soapEndpoint = newToken.getSoapInstanceUrl() + "service.asmx";
+        if (newToken.getRefreshToken() != null) {
+            this.refreshToken = newToken.getRefreshToken();
+        }
+
+        setToken(newToken);
+
+        return newToken.getAccessToken();
+    }
+
+    private ETAccessToken fetchOAuth2Token()
         throws ETSdkException
     {
         JsonObject payload = createPayload(configuration);
@@ -368,18 +857,23 @@ public class ETClient {
         String responsePayload = response.getResponsePayload();
         JsonObject jsonObject = jsonParser.parse(responsePayload).getAsJsonObject();
 
-        this.accessToken = jsonObject.get("access_token").getAsString();
-        this.endpoint = jsonObject.get("rest_instance_url").getAsString();
-        this.soapEndpoint = jsonObject.get("soap_instance_url").getAsString() + "service.asmx";
+        String accessToken = jsonObject.get("access_token").getAsString();
 
-        this.expiresIn = jsonObject.get("expires_in").getAsInt();
-        tokenExpirationTime = System.currentTimeMillis() + (expiresIn * 1000);
+        int expiresIn = jsonObject.get("expires_in").getAsInt();
+        long tokenExpirationTime = System.currentTimeMillis() + (expiresIn * 1000L);
 
+        String newRefreshToken = this.refreshToken;
         if(jsonObject.has("refresh_token")){
-            this.refreshToken = jsonObject.get("refresh_token").getAsString();
+            newRefreshToken = jsonObject.get("refresh_token").getAsString();
         }
 
-        return accessToken;
+        return new ETAccessToken(accessToken,
+                                 newRefreshToken,
+                                 null,
+                                 expiresIn,
+                                 tokenExpirationTime,
+                                 jsonObject.get("rest_instance_url").getAsString(),
+                                 jsonObject.get("soap_instance_url").getAsString());
     }
 
     JsonObject createPayload(ETConfiguration configuration) {
@@ -420,7 +914,7 @@ public class ETClient {
      * @param refreshToken          The refresh token
      * @return                      The request token
      */
-    public synchronized String requestToken(String refreshToken)
+    public String requestToken(final String refreshToken)
         throws ETSdkException
     {
         if(useOAuth2Authentication){
@@ -432,6 +926,26 @@ public class ETClient {
             return null;
         }
 
+        ETAccessToken newToken = obtainToken(new Callable<ETAccessToken>() {
+            public ETAccessToken call()
+                throws ETSdkException
+            {
+                return fetchToken(refreshToken);
+            }
+        });
+
+        if (newToken.getRefreshToken() != null) {
+            this.refreshToken = newToken.getRefreshToken();
+        }
+
+        setToken(newToken);
+
+        return newToken.getAccessToken();
+    }
+
+    private ETAccessToken fetchToken(String refreshToken)
+        throws ETSdkException
+    {
         logger.debug("requesting access token...");
 
         //
@@ -473,20 +987,22 @@ public class ETClient {
         JsonParser jsonParser = new JsonParser();
         jsonObject = jsonParser.parse(responsePayload).getAsJsonObject();
         logger.debug("received token:");
-        this.accessToken = jsonObject.get("accessToken").getAsString();
-        logger.debug("  accessToken: " + this.accessToken);
-        this.expiresIn = jsonObject.get("expiresIn").getAsInt();
-        logger.debug("  expiresIn: " + this.expiresIn);
+        String accessToken = jsonObject.get("accessToken").getAsString();
+        logger.debug("  accessToken: " + accessToken);
+        int expiresIn = jsonObject.get("expiresIn").getAsInt();
+        logger.debug("  expiresIn: " + expiresIn);
+        String legacyToken = null;
         JsonElement jsonElement = jsonObject.get("legacyToken");
         if (jsonElement != null) {
-            this.legacyToken = jsonElement.getAsString();
+            legacyToken = jsonElement.getAsString();
         }
-        logger.debug("  legacyToken: " + this.legacyToken);
+        logger.debug("  legacyToken: " + legacyToken);
+        String newRefreshToken = this.refreshToken;
         if (jsonObject.get("refreshToken") != null){
-        	this.refreshToken = jsonObject.get("refreshToken").getAsString();
+        	newRefreshToken = jsonObject.get("refreshToken").getAsString();
         }
         
-        logger.debug("  refreshToken: " + this.refreshToken);
+        logger.debug("  refreshToken: " + newRefreshToken);
 
         //
         // Calculate the token expiration time. As before,
@@ -494,45 +1010,194 @@ public class ETClient {
         // we multiply expiresIn by 1000:
         //
 
-        tokenExpirationTime = System.currentTimeMillis() + (expiresIn * 1000);
+        long tokenExpirationTime = System.currentTimeMillis() + (expiresIn * 1000L);
 
         logger.debug("access token expires at " + new Date(tokenExpirationTime));
 
-        return accessToken;
+        return new ETAccessToken(accessToken,
+                                 newRefreshToken,
+                                 legacyToken,
+                                 expiresIn,
+                                 tokenExpirationTime);
+    }
+
+    //
+    // Takes a token from the token store if another client already
+    // obtained one that is still good for a full refresh cycle,
+    // otherwise requests one and stores it for the other clients:
+    //
+
+    private ETAccessToken obtainToken(Callable<ETAccessToken> request)
+        throws ETSdkException
+    {
+        if (tokenStore == null || tokenKey == null) {
+            return ETMemoryTokenStore.call(request);
+        }
+        return tokenStore.getToken(tokenKey,
+                                   TOKEN_REFRESH_WINDOW + tokenRefreshAhead,
+                                   request);
+    }
+
+    //
+    // Publishes a new token: readers see either the old or the
+    // new token, never a mix of the two. Also hands the token to
+    // the SOAP connection and schedules the next background refresh.
+    //
+
+    private void setToken(ETAccessToken newToken)
+        throws ETSdkException
+    {
+        token = newToken;
+        if (soapConnection != null) {
+            soapConnection.setAccessToken(newToken.getAccessToken());
+        }
+        scheduleTokenRefresh(newToken);
     }
 
     /**
+     * Returns a valid access token, requesting a new one if the
+     * current token expires within five minutes. In steady state
+     * this only reads the current token: tokens are renewed ahead
+     * of time in the background, and concurrent callers that do
+     * need a new token share a single request.
      * 
-     * @return      The refresh token
+     * @return      The access token
      */
-    public synchronized String refreshToken()
+    public String refreshToken()
         throws ETSdkException
     {
-        if (tokenExpirationTime > 0) {
-            logger.debug("access token expires at " + new Date(tokenExpirationTime));
+        ETAccessToken current = token;
+        if (current != null
+                && !current.expiresWithin(System.currentTimeMillis(),
+                                          TOKEN_REFRESH_WINDOW))
+        {
+            return current.getAccessToken();
+        }
+        if (current != null) {
+            logger.debug("access token expires at "
+                    + new Date(current.getExpirationTime())
+                    + ", refreshing access token...");
+        }
+        ETAccessToken renewed = renewToken(current);
+        return renewed == null ? null : renewed.getAccessToken();
+    }
 
-            //
-            // If the current token expires more than five
-            // minutes from now, we don't need to refresh
-            // (tokenExpirationTime and System.currentTimeMills()
-            // are in milliseconds so we multiply by 1000):
-            //
+    //
+    // Requests a new token unless another thread already has
+    // (single flight): the first caller runs the request, any
+    // concurrent callers wait for and share its result.
+    //
+
+    private ETAccessToken renewToken(ETAccessToken stale)
+        throws ETSdkException
+    {
+        while (true) {
+            ETAccessToken current = token;
+            if (current != stale && current != null) {
+                // somebody else renewed it in the meantime
+                return current;
+            }
+            FutureTask<ETAccessToken> task = tokenRequest.get();
+            if (task == null) {
+                FutureTask<ETAccessToken> newTask =
+                        new FutureTask<ETAccessToken>(new Callable<ETAccessToken>() {
+                    public ETAccessToken call()
+                        throws ETSdkException
+                    {
+                        requestToken(refreshToken);
+                        return token;
+                    }
+                });
+                if (!tokenRequest.compareAndSet(null, newTask)) {
+                    continue;
+                }
+                try {
+                    newTask.run();
+                } finally {
+                    tokenRequest.compareAndSet(newTask, null);
+                }
+                task = newTask;
+            }
+            try {
+                return task.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new ETSdkException("interrupted waiting for access token", ex);
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof ETSdkException) {
+                    throw (ETSdkException) ex.getCause();
+                }
+                throw new ETSdkException("error obtaining access token", ex.getCause());
+            }
+        }
+    }
 
-            if (tokenExpirationTime - System.currentTimeMillis() > 5*60*1000) {
-                logger.debug("not refreshing access token");
-                return accessToken;
+    private void scheduleTokenRefresh(ETAccessToken newToken) {
+        if (!backgroundTokenRefresh) {
+            return;
+        }
+        long delay = newToken.getExpirationTime()
+                - TOKEN_REFRESH_WINDOW
+                - tokenRefreshAhead
+                - System.currentTimeMillis();
+        synchronized (this) {
+            if (tokenRefresh != null) {
+                tokenRefresh.cancel(false);
+                tokenRefresh = null;
+            }
+            if (delay < MIN_TOKEN_REFRESH_DELAY) {
+                // token too short-lived, leave it to refreshToken()
+                return;
             }
+            tokenRefresh = getTokenRefresher().schedule(
+                    new TokenRefreshTask(this, newToken),
+                    delay,
+                    TimeUnit.MILLISECONDS);
+        }
+        logger.debug("scheduled background token refresh in " + delay + " ms");
+    }
 
-            logger.debug("refreshing access token...");
+    private static synchronized ScheduledExecutorService getTokenRefresher() {
+        if (tokenRefresher == null) {
+            tokenRefresher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "fuelsdk-token-refresher");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
         }
+        return tokenRefresher;
+    }
 
-        requestToken(refreshToken);
+    //
+    // Only holds a weak reference to the client so that clients
+    // that are no longer used can be garbage collected:
+    //
 
-        if(soapConnection != null) {
-            soapConnection.setAccessToken(accessToken);
+    private static class TokenRefreshTask implements Runnable {
+        private final WeakReference<ETClient> client;
+        private final ETAccessToken stale;
+
+        TokenRefreshTask(ETClient client, ETAccessToken stale) {
+            this.client = new WeakReference<ETClient>(client);
+            this.stale = stale;
         }
 
-        return accessToken;
+        public void run() {
+            ETClient c = client.get();
+            if (c == null) {
+                return;
+            }
+            try {
+                logger.debug("refreshing access token in the background...");
+                c.renewToken(stale);
+            } catch (Exception ex) {
+                // refreshToken() will try again when the token
+                // enters the refresh window:
+                logger.warn("background token refresh failed", ex);
+            }
+        }
     }
 
     /**
@@ -907,6 +1572,36 @@ public class ETClient {
         return response.getObjects();
     }
 
+    /**
+     * Retrieves SOAP objects as views, which convert properties
+     * only when they are accessed; see <code>ETSoapObjectView</code>.
+     * @param <T>           The type which extends from ETSoapObject
+     * @param type          The class type to retrieve
+     * @param filter        The ETFilter object to be used to retrieve objects
+     * @return              The ETResponse whose views hold the results
+     */
+    public <T extends ETSoapObject> ETResponse<T> retrieveViews(Class<T> type,
+                                                                ETFilter filter)
+        throws ETSdkException
+    {
+        return ETSoapObject.retrieveViews(this, type, filter);
+    }
+
+    /**
+     * Retrieves SOAP objects as views, which convert properties
+     * only when they are accessed; see <code>ETSoapObjectView</code>.
+     * @param <T>           The type which extends from ETSoapObject
+     * @param type          The class type to retrieve
+     * @param filter        The filter to be used to retrieve as variable arguments of String
+     * @return              The ETResponse whose views hold the results
+     */
+    public <T extends ETSoapObject> ETResponse<T> retrieveViews(Class<T> type,
+                                                                String... filter)
+        throws ETSdkException
+    {
+        return retrieveViews(type, ETFilter.parse(filter));
+    }
+
     /**
      * @param <T>                   The type which extends from ETApiObject
      * @param objects               The objects to be created as variable arguments of type T
@@ -951,6 +1646,32 @@ public class ETClient {
         return createUpdateDelete("update", objects);
     }
 
+    /**
+     * Updates objects that exist and creates those that don't,
+     * in a single round trip per call (SOAP objects only).
+     * @param <T>                   The type which extends from ETApiObject
+     * @param objects               The objects to be upserted as variable arguments of type T
+     * @return                      The ETResponse object of type T which extends from ETApiObject
+     */
+    public <T extends ETApiObject> ETResponse<T> upsert(T... objects)
+        throws ETSdkException
+    {
+        return createUpdateDelete("upsert", Arrays.asList(objects));
+    }
+
+    /**
+     * Updates objects that exist and creates those that don't,
+     * in a single round trip per call (SOAP objects only).
+     * @param <T>                   The type which extends from ETApiObject
+     * @param objects               The List of objects of type T to be upserted
+     * @return                      The ETResponse object of type T which extends from ETApiObject
+     */
+    public <T extends ETApiObject> ETResponse<T> upsert(List<T> objects)
+        throws ETSdkException
+    {
+        return createUpdateDelete("upsert", objects);
+    }
+
     /**
      * @param <T>                   The type which extends from ETApiObject
      * @param objects               The objects to be deleted as variable arguments of type T
@@ -1074,7 +1795,7 @@ public class ETClient {
         Class<T> type = (Class<T>) objects.get(0).getClass();
 
         //
-        // Find the appropriate method (create, update, or delete):
+        // Find the appropriate method (create, update, upsert, or delete):
         //
 
         Method m = null;
@@ -1099,8 +1820,37 @@ public class ETClient {
             response = (ETResponse<T>) m.invoke(null, this, objects);
         } catch (Exception ex) {
             throw new ETSdkException("error invoking " + method + " method for type " + type, ex);
+        } finally {
+            invalidateColumnCache(objects);
         }
 
         return response;
     }
+
+    //
+    // Drops the cached columns of data extensions whose schema
+    // may have changed; if the key isn't known, drop them all:
+    //
+
+    private void invalidateColumnCache(List<? extends ETApiObject> objects) {
+        for (ETApiObject object : objects) {
+            String key = null;
+            if (object instanceof ETDataExtension) {
+                key = ((ETDataExtension) object).getKey();
+            } else if (object instanceof ETDataExtensionColumn) {
+                ETDataExtension dataExtension =
+                        ((ETDataExtensionColumn) object).getDataExtension();
+                if (dataExtension != null) {
+                    key = dataExtension.getKey();
+                }
+            } else {
+                continue;
+            }
+            if (key != null) {
+                columnCache.invalidate(key);
+            } else {
+                columnCache.invalidateAll();
+            }
+        }
+    }
 }
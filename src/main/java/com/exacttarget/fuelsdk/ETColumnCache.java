@@ -0,0 +1,278 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/**
+ * An <code>ETColumnCache</code> caches the columns of data
+ * extensions by data extension key, so that selecting, updating
+ * and deleting rows doesn't retrieve the columns on every call.
+ * Entries expire after a time to live; beyond the maximum size
+ * the least recently used entry is evicted. Schema changes made
+ * through <code>ETClient</code> invalidate the affected entries;
+ * changes made elsewhere are picked up when entries expire. A
+ * retrieval still in flight when its entry is invalidated is not
+ * cached. The cache holds copies of the columns and returns copies,
+ * so a caller changing its columns doesn't change anyone else's.
+ * <p>
+ * Each client has its own cache, since clients may belong to
+ * different business units.
+ */
+
+public class ETColumnCache {
+    private static Logger logger = Logger.getLogger(ETColumnCache.class);
+
+    private final long ttl;
+    private final int maximumSize;
+    private final Map<String, Entry> entries;
+    private final Map<String, List<Load>> loads =
+            new HashMap<String, List<Load>>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private static class Entry {
+        final List<ETDataExtensionColumn> columns;
+        final long expirationTime;
+
+        Entry(List<ETDataExtensionColumn> columns, long expirationTime) {
+            this.columns = columns;
+            this.expirationTime = expirationTime;
+        }
+    }
+
+    // a retrieval in flight, made stale by invalidation:
+    private static class Load {
+        boolean stale = false;
+    }
+
+    /**
+    * Class constructor, Initializes a new instance of the class.
+    * @param ttl            The time to live of entries in milliseconds,
+    *                       or 0 to disable caching
+    * @param maximumSize    The maximum number of entries
+    */
+    public ETColumnCache(long ttl, int maximumSize) {
+        this.ttl = ttl;
+        this.maximumSize = maximumSize;
+        // access order, so the eldest entry is the least recently used:
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > ETColumnCache.this.maximumSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the columns cached under the specified data
+     * extension key, calling <code>loader</code> if there is
+     * no entry or it has expired. Concurrent misses may each
+     * call the loader; the last result is kept, unless the entry
+     * was invalidated or put while it was retrieved.
+     * @param key       The data extension key
+     * @param loader    Retrieves the columns
+     * @return          A copy of the columns (unmodifiable)
+     * @throws ETSdkException
+     */
+    public List<ETDataExtensionColumn> get(String key,
+                                           Callable<List<ETDataExtensionColumn>> loader)
+        throws ETSdkException
+    {
+        Load load = new Load();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (System.currentTimeMillis() < entry.expirationTime) {
+                    hits.incrementAndGet();
+                    return copy(entry.columns);
+                }
+                entries.remove(key);
+            }
+            List<Load> keyLoads = loads.get(key);
+            if (keyLoads == null) {
+                keyLoads = new ArrayList<Load>(1);
+                loads.put(key, keyLoads);
+            }
+            keyLoads.add(load);
+        }
+        misses.incrementAndGet();
+
+        // don't hold the lock while retrieving:
+        List<ETDataExtensionColumn> columns = null;
+        try {
+            columns = copy(loader.call());
+        } catch (ETSdkException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new ETSdkException("error retrieving columns of " + key, ex);
+        } finally {
+            synchronized (entries) {
+                List<Load> keyLoads = loads.get(key);
+                if (keyLoads != null) {
+                    keyLoads.remove(load);
+                    if (keyLoads.isEmpty()) {
+                        loads.remove(key);
+                    }
+                }
+                if (columns != null) {
+                    if (load.stale) {
+                        logger.debug("not caching columns of " + key
+                                + ", invalidated while retrieving");
+                    } else {
+                        store(key, columns);
+                    }
+                }
+            }
+        }
+        return copy(columns);
+    }
+
+    /**
+     * Caches the columns of a data extension.
+     * @param key       The data extension key
+     * @param columns   The columns
+     */
+    public void put(String key, List<ETDataExtensionColumn> columns) {
+        // copy, since the caller keeps the columns
+        List<ETDataExtensionColumn> copy = copy(columns);
+        synchronized (entries) {
+            // retrievals in flight may return older columns:
+            markStale(key);
+            store(key, copy);
+        }
+    }
+
+    /**
+     * Removes the entry cached under the specified data extension
+     * key; retrievals of it in flight are not cached.
+     * @param key       The data extension key
+     */
+    public void invalidate(String key) {
+        synchronized (entries) {
+            entries.remove(key);
+            markStale(key);
+        }
+    }
+
+    /**
+     * Removes all entries; retrievals in flight are not cached.
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+            for (String key : new ArrayList<String>(loads.keySet())) {
+                markStale(key);
+            }
+        }
+    }
+
+    //
+    // The following are called with the lock held:
+    //
+
+    private void markStale(String key) {
+        List<Load> keyLoads = loads.remove(key);
+        if (keyLoads != null) {
+            for (Load load : keyLoads) {
+                load.stale = true;
+            }
+        }
+    }
+
+    private void store(String key, List<ETDataExtensionColumn> columns) {
+        if (ttl <= 0 || maximumSize <= 0) {
+            return;
+        }
+        entries.put(key, new Entry(columns, System.currentTimeMillis() + ttl));
+        logger.debug("cached " + columns.size() + " columns of " + key);
+    }
+
+    private static List<ETDataExtensionColumn> copy(List<ETDataExtensionColumn> columns) {
+        List<ETDataExtensionColumn> copy =
+                new ArrayList<ETDataExtensionColumn>(columns.size());
+        for (ETDataExtensionColumn column : columns) {
+            copy.add(column.copy());
+        }
+        return Collections.unmodifiableList(copy);
+    }
+
+    /**
+     * @return  The number of entries
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return  The number of lookups answered from the cache
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return  The number of lookups that had to retrieve the columns
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return  The number of entries evicted to stay within the maximum size
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+}
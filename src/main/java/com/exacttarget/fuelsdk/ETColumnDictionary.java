@@ -0,0 +1,242 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.exacttarget.fuelsdk.internal.APIProperty;
+
+/**
+ * An <code>ETColumnDictionary</code> maps the column names of data
+ * extension rows to ordinals, so rows with the same columns can
+ * share one dictionary and keep only an array of values. Dictionaries
+ * are immutable; adding or removing a column yields another
+ * dictionary. Dictionaries are shared through a registry, so all
+ * rows of a select, and rows built up with the same columns, use
+ * the same instance.
+ */
+
+final class ETColumnDictionary {
+    //
+    // Bounds the registry if an application builds rows with
+    // many different combinations of columns; dictionaries
+    // beyond that are still correct, just not shared:
+    //
+
+    private static final int MAX_REGISTERED = 4096;
+
+    //
+    // Bounds the transitions cached per dictionary, for the same
+    // reason:
+    //
+
+    private static final int MAX_TRANSITIONS = 64;
+
+    private static final Map<String, ETColumnDictionary> registry =
+            new ConcurrentHashMap<String, ETColumnDictionary>();
+
+    static final ETColumnDictionary EMPTY = new ETColumnDictionary(new String[0]);
+
+    //
+    // Rows of a select arrive with the same columns in the same
+    // order, so the last dictionary looked up usually matches:
+    //
+
+    private static volatile ETColumnDictionary last = EMPTY;
+
+    private final String[] names;
+    private final Map<String, Integer> ordinals;
+    private volatile ETColumnDictionary lowerCase = null;
+
+    //
+    // Rows built up with setColumn add the same columns in the
+    // same order, so the dictionary each added column leads to is
+    // cached rather than looked up by all the names every time:
+    //
+
+    private final Map<String, ETColumnDictionary> transitions =
+            new ConcurrentHashMap<String, ETColumnDictionary>(4, 0.75f, 1);
+
+    private ETColumnDictionary(String[] names) {
+        this.names = names;
+        this.ordinals = new HashMap<String, Integer>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            ordinals.put(names[i], i);
+        }
+    }
+
+    /**
+     * @param names     The column names
+     * @return          The dictionary of the columns
+     */
+    static ETColumnDictionary get(String[] names) {
+        if (names.length == 0) {
+            return EMPTY;
+        }
+        StringBuilder key = new StringBuilder();
+        for (String name : names) {
+            key.append(name).append('\0');
+        }
+        ETColumnDictionary dictionary = registry.get(key.toString());
+        if (dictionary == null) {
+            dictionary = new ETColumnDictionary(names.clone());
+            if (registry.size() < MAX_REGISTERED) {
+                // registering it twice in a race is harmless:
+                registry.put(key.toString(), dictionary);
+            }
+        }
+        return dictionary;
+    }
+
+    /**
+     * @param properties    The properties of a data extension object
+     * @return              The dictionary of the properties' names,
+     *                      or <code>null</code> if a name occurs twice
+     */
+    static ETColumnDictionary get(List<APIProperty> properties) {
+        ETColumnDictionary dictionary = last;
+        if (dictionary.matches(properties)) {
+            return dictionary;
+        }
+        String[] names = new String[properties.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = properties.get(i).getName();
+        }
+        dictionary = get(names);
+        if (!dictionary.isUnique()) {
+            return null;
+        }
+        last = dictionary;
+        return dictionary;
+    }
+
+    /**
+     * @return  The number of columns
+     */
+    int size() {
+        return names.length;
+    }
+
+    /**
+     * @param ordinal   The ordinal of a column
+     * @return          The name of the column
+     */
+    String getName(int ordinal) {
+        return names[ordinal];
+    }
+
+    /**
+     * @param name  The name of a column
+     * @return      The ordinal of the column, or -1 if there is none
+     */
+    int getOrdinal(String name) {
+        Integer ordinal = ordinals.get(name);
+        if (ordinal == null) {
+            return -1;
+        }
+        return ordinal;
+    }
+
+    /**
+     * @param name  The name of a column that is not in the dictionary
+     * @return      The dictionary with the column added last
+     */
+    ETColumnDictionary with(String name) {
+        ETColumnDictionary dictionary = transitions.get(name);
+        if (dictionary == null) {
+            String[] names = new String[this.names.length + 1];
+            System.arraycopy(this.names, 0, names, 0, this.names.length);
+            names[this.names.length] = name;
+            dictionary = get(names);
+            if (transitions.size() < MAX_TRANSITIONS) {
+                transitions.put(name, dictionary);
+            }
+        }
+        return dictionary;
+    }
+
+    /**
+     * @param ordinal   The ordinal of a column
+     * @return          The dictionary without the column
+     */
+    ETColumnDictionary without(int ordinal) {
+        String[] names = new String[this.names.length - 1];
+        System.arraycopy(this.names, 0, names, 0, ordinal);
+        System.arraycopy(this.names, ordinal + 1, names, ordinal, names.length - ordinal);
+        return get(names);
+    }
+
+    /**
+     * @return  The dictionary with lower-cased names, or
+     *          <code>null</code> if that would make names collide
+     */
+    ETColumnDictionary toLowerCase() {
+        ETColumnDictionary dictionary = lowerCase;
+        if (dictionary == null) {
+            String[] names = new String[this.names.length];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = this.names[i].toLowerCase();
+            }
+            dictionary = get(names);
+            if (!dictionary.isUnique()) {
+                dictionary = EMPTY;
+            }
+            lowerCase = dictionary;
+        }
+        if (dictionary == EMPTY && names.length > 0) {
+            return null;
+        }
+        return dictionary;
+    }
+
+    private boolean isUnique() {
+        return ordinals.size() == names.length;
+    }
+
+    private boolean matches(List<APIProperty> properties) {
+        if (properties.size() != names.length) {
+            return false;
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (!names[i].equals(properties.get(i).getName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
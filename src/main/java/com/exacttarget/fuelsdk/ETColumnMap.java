@@ -0,0 +1,352 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.exacttarget.fuelsdk.internal.APIProperty;
+
+/**
+ * An <code>ETColumnMap</code> is the map of columns of a data
+ * extension row. Column names are kept in a shared
+ * <code>ETColumnDictionary</code> and values in an array indexed
+ * by column ordinal, so a row costs one array rather than a hash
+ * table with an entry and a key per column. Modified flags are
+ * kept by column ordinal too.
+ */
+
+final class ETColumnMap extends AbstractMap<String, String> {
+    private static final String[] NO_VALUES = new String[0];
+
+    private ETColumnDictionary dictionary = ETColumnDictionary.EMPTY;
+    private String[] values = NO_VALUES;
+    private ETModifiedFlags modified = null;
+
+    //
+    // Maps converted from a data extension object belong to no row
+    // yet, so a row can take over their values instead of copying:
+    //
+
+    private final boolean owned;
+
+    /**
+    * Class constructor, Initializes a new instance of the class.
+    */
+    ETColumnMap() {
+        this(true);
+    }
+
+    private ETColumnMap(boolean owned) {
+        this.owned = owned;
+    }
+
+    /**
+     * @param properties    The properties of a data extension object
+     * @return              The columns, named as in the properties
+     */
+    static ETColumnMap fromProperties(List<APIProperty> properties) {
+        ETColumnMap columns = new ETColumnMap(false);
+        ETColumnDictionary dictionary = ETColumnDictionary.get(properties);
+        if (dictionary == null) {
+            // duplicate names, the last one wins:
+            for (APIProperty property : properties) {
+                columns.put(property.getName(), property.getValue());
+            }
+            return columns;
+        }
+        String[] values = new String[properties.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = properties.get(i).getValue();
+        }
+        columns.dictionary = dictionary;
+        columns.values = values;
+        return columns;
+    }
+
+    /**
+     * Takes over the columns of a map converted from a data
+     * extension object, lower-casing their names, if this map
+     * is empty.
+     * @param source    The map to take the columns of
+     * @return          true if the columns were taken over,
+     *                  false if they have to be copied
+     */
+    boolean takeLowerCase(ETColumnMap source) {
+        if (source.owned || !isEmpty()) {
+            return false;
+        }
+        ETColumnDictionary dictionary = source.dictionary.toLowerCase();
+        if (dictionary == null) {
+            return false;
+        }
+        this.dictionary = dictionary;
+        this.values = source.values;
+        this.modified = source.modified;
+        source.dictionary = ETColumnDictionary.EMPTY;
+        source.values = NO_VALUES;
+        source.modified = null;
+        return true;
+    }
+
+    /**
+     * @param ordinal   The ordinal of a column
+     * @return          The name of the column
+     */
+    String getName(int ordinal) {
+        return dictionary.getName(ordinal);
+    }
+
+    /**
+     * @param ordinal   The ordinal of a column
+     * @return          The value of the column
+     */
+    String getValue(int ordinal) {
+        return values[ordinal];
+    }
+
+    /**
+     * @param key   The name of a column
+     * @return      The modified flag of the column, or <code>null</code>
+     *              if it is unset or there is no such column
+     */
+    Boolean getModified(String key) {
+        int ordinal = dictionary.getOrdinal(key);
+        if (ordinal < 0 || modified == null) {
+            return null;
+        }
+        return modified.get(ordinal);
+    }
+
+    /**
+     * @param key   The name of a column that is in the map
+     * @param value The modified flag, or <code>null</code> to unset it
+     * @return      The previous flag, or <code>null</code> if it was unset
+     */
+    Boolean setModified(String key, Boolean value) {
+        int ordinal = dictionary.getOrdinal(key);
+        assert ordinal >= 0;
+        if (modified == null) {
+            modified = new ETModifiedFlags();
+        }
+        return modified.set(ordinal, value);
+    }
+
+    /**
+     * @param ordinal   The ordinal of a column
+     * @return          true if the column is modified, false otherwise
+     */
+    boolean isModified(int ordinal) {
+        return modified != null && modified.isModified(ordinal);
+    }
+
+    /**
+     * @return  true if any column is modified, false otherwise
+     */
+    boolean hasModified() {
+        return modified != null && modified.hasModified();
+    }
+
+    /**
+     * Clears the modified flags of all columns.
+     */
+    void clearModified() {
+        modified = null;
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String
+            && dictionary.getOrdinal((String) key) >= 0;
+    }
+
+    @Override
+    public String get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        int ordinal = dictionary.getOrdinal((String) key);
+        if (ordinal < 0) {
+            return null;
+        }
+        return values[ordinal];
+    }
+
+    @Override
+    public String put(String key, String value) {
+        int ordinal = dictionary.getOrdinal(key);
+        if (ordinal >= 0) {
+            String previous = values[ordinal];
+            values[ordinal] = value;
+            return previous;
+        }
+        String[] values = new String[this.values.length + 1];
+        System.arraycopy(this.values, 0, values, 0, this.values.length);
+        values[this.values.length] = value;
+        this.dictionary = dictionary.with(key);
+        this.values = values;
+        return null;
+    }
+
+    @Override
+    public String remove(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        int ordinal = dictionary.getOrdinal((String) key);
+        if (ordinal < 0) {
+            return null;
+        }
+        String previous = values[ordinal];
+        removeOrdinal(ordinal);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        dictionary = ETColumnDictionary.EMPTY;
+        values = NO_VALUES;
+        modified = null;
+    }
+
+    @Override
+    public Set<Map.Entry<String, String>> entrySet() {
+        return new AbstractSet<Map.Entry<String, String>>() {
+            @Override
+            public int size() {
+                return values.length;
+            }
+
+            @Override
+            public Iterator<Map.Entry<String, String>> iterator() {
+                return new EntryIterator();
+            }
+        };
+    }
+
+    private void removeOrdinal(int ordinal) {
+        String[] values = new String[this.values.length - 1];
+        System.arraycopy(this.values, 0, values, 0, ordinal);
+        System.arraycopy(this.values, ordinal + 1, values, ordinal, values.length - ordinal);
+        this.dictionary = dictionary.without(ordinal);
+        this.values = values;
+        if (modified != null) {
+            modified.remove(ordinal);
+        }
+    }
+
+    private class EntryIterator implements Iterator<Map.Entry<String, String>> {
+        private int next = 0;
+        private int current = -1;
+
+        public boolean hasNext() {
+            return next < values.length;
+        }
+
+        public Map.Entry<String, String> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            current = next++;
+            return new Entry(current);
+        }
+
+        public void remove() {
+            if (current < 0) {
+                throw new IllegalStateException();
+            }
+            removeOrdinal(current);
+            next = current;
+            current = -1;
+        }
+    }
+
+    private class Entry implements Map.Entry<String, String> {
+        private final String key;
+        private final int ordinal;
+
+        Entry(int ordinal) {
+            this.key = dictionary.getName(ordinal);
+            this.ordinal = ordinal;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getValue() {
+            return values[ordinal];
+        }
+
+        public String setValue(String value) {
+            String previous = values[ordinal];
+            values[ordinal] = value;
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) obj;
+            return key.equals(entry.getKey())
+                && (getValue() == null
+                    ? entry.getValue() == null
+                    : getValue().equals(entry.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode()
+                ^ (getValue() == null ? 0 : getValue().hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + getValue();
+        }
+    }
+}
@@ -89,6 +89,24 @@ public class ETConfiguration {
         return properties.getProperty(key);
     }
 
+    /**
+    * @param key            The key of a property.
+    * @param defaultValue   The value to return if the key is unspecified or not an integer.
+    * @return               The value of the key as an Integer.
+    */
+    public Integer getInteger(String key, Integer defaultValue) {
+        String value = get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return new Integer(value.trim());
+        } catch (NumberFormatException ex) {
+            logger.warn("ignoring non-integer value \"" + value + "\" for " + key);
+            return defaultValue;
+        }
+    }
+
     /** 
     * @param key        The key of a property.
     * @param value      The value of the key.
@@ -34,15 +34,26 @@
 
 package com.exacttarget.fuelsdk;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
 
 import org.apache.log4j.Logger;
 
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+
 import com.exacttarget.fuelsdk.ETDataExtensionColumn.Type;
 import com.exacttarget.fuelsdk.annotations.ExternalName;
 import com.exacttarget.fuelsdk.annotations.InternalName;
@@ -69,6 +80,7 @@ import com.exacttarget.fuelsdk.internal.DataExtensionObject;
 })
 public class ETDataExtension extends ETSoapObject {
 	static final int DEFAULT_PAGE_SIZE = 2500;
+    static final int DEFAULT_ASYNC_CHUNK_SIZE = 5000;
     private static Logger logger = Logger.getLogger(ETDataExtension.class);
 
     @ExternalName("id")
@@ -464,7 +476,11 @@ public class ETDataExtension extends ETSoapObject {
     }
 
     /**
-     *
+     * A specific page of a data extension specified by key is
+     * fetched from the server through the REST rowset endpoint;
+     * otherwise this pages through the first batch of rows the
+     * server returns, so use <code>selectAll</code> to retrieve
+     * every row.
      * @param client        The ETClient object
      * @param dataExtension The data extension 
      * @param page          The page number
@@ -480,37 +496,24 @@ public class ETDataExtension extends ETSoapObject {
                                                         ETFilter filter)
         throws ETSdkException
     {
-        String name = null;
-
         //
-        // The data extension can be specified using key or name:
+        // When the caller asks for a specific page, have the
+        // server paginate, sort and filter the rows; the rowset
+        // endpoint needs the key:
         //
 
-        ETExpression e = ETExpression.parse(dataExtension);
-        if (e.getProperty().toLowerCase().equals("key")
-                && e.getOperator() == ETExpression.Operator.EQUALS) {
-            name = e.getValue();
-            // if no columns are explicitly requested
-            // retrieve all columns
-            if (filter.getProperties().isEmpty()) {
-                filter.setProperties(retrieveColumnNames(client, name));
-            }
-        } else if (e.getProperty().toLowerCase().equals("name")
-                && e.getOperator() == ETExpression.Operator.EQUALS) {
-            name = e.getValue();
-            // if no columns are explicitly requested
-            // throw an exception
-            // because we need the key
-            // to retrieve columns
-            if (filter.getProperties().isEmpty()) {
-                throw new ETSdkException("columns must be specified "
-                        + "when retrieving data extensions by name");
+        if (page != null) {
+            String key = parseKey(dataExtension);
+            if (key != null) {
+                if (pageSize == null) {
+                    pageSize = DEFAULT_PAGE_SIZE;
+                }
+                return selectPage(client, key, page, pageSize, filter);
             }
-
-        } else {
-            throw new ETSdkException("invalid data extension filter string");
         }
 
+        String name = resolveDataExtension(client, dataExtension, filter);
+
         ETResponse<ETDataExtensionRow> response =
                 ETSoapObject.retrieve(client,
                                       "DataExtensionObject[" + name + "]",
@@ -547,50 +550,264 @@ public class ETDataExtension extends ETSoapObject {
          response = createResponse(response, paginatedRowSet, page, pageSize, pageEnd, rowSet.size());
          logger.debug("final response: " + response);
 
+        return response;
+    }
+
+    /**
+     * Selects all rows batch by batch: the cursor follows up
+     * with continue requests until every row matching the
+     * filter has been returned, holding one batch at a time.
+     * Rows come in the order the server returns them.
+     * @param client        The ETClient object
+     * @param dataExtension The data extension
+     * @param filter        The ETFilter to be used to select rows
+     * @return              The ETRetrieveCursor returning the rows
+     * @throws ETSdkException
+     */
+    public static ETRetrieveCursor<ETDataExtensionRow> selectAll(ETClient client,
+                                                                 String dataExtension,
+                                                                 ETFilter filter)
+        throws ETSdkException
+    {
+        if (filter.getOrderBy() != null && filter.getOrderBy().size() > 0) {
+            throw new ETSdkException("can't order rows when selecting all rows");
+        }
+        String name = resolveDataExtension(client, dataExtension, filter);
+        return ETSoapObject.retrieveAll(client,
+                                        "DataExtensionObject[" + name + "]",
+                                        filter,
+                                        ETDataExtensionRow.class);
+    }
+
+    /**
+     * Selects all rows batch by batch.
+     * @param client        The ETClient object
+     * @param dataExtension The data extension
+     * @param filter        The filter to be used to select rows as variable arguments of String
+     * @return              The ETRetrieveCursor returning the rows
+     * @throws ETSdkException
+     */
+    public static ETRetrieveCursor<ETDataExtensionRow> selectAll(ETClient client,
+                                                                 String dataExtension,
+                                                                 String... filter)
+        throws ETSdkException
+    {
+        return selectAll(client, dataExtension, ETFilter.parse(filter));
+    }
+
+    //
+    // Fetches one page of rows through the REST rowset endpoint:
+    //
+
+    private static ETResponse<ETDataExtensionRow> selectPage(ETClient client,
+                                                             String key,
+                                                             int page,
+                                                             int pageSize,
+                                                             ETFilter filter)
+        throws ETSdkException
+    {
+        ETRestConnection connection = client.requireRestConnection();
+
         //
-        // XXX reenable support for paginated retrieves via REST API
+        // Automatically refresh the token if necessary:
         //
 
-//        String json = restResponse.getPayload();
-//
-//        JsonParser jsonParser = new JsonParser();
-//        JsonObject jsonObject = jsonParser.parse(json).getAsJsonObject();
-//
-//        if (jsonObject.get("page") != null) {
-//            response.setPage(jsonObject.get("page").getAsInt());
-//            logger.trace("page = " + response.getPage());
-//            response.setPageSize(jsonObject.get("pageSize").getAsInt());
-//            logger.trace("pageSize = " + response.getPageSize());
-//            response.setTotalCount(jsonObject.get("count").getAsInt());
-//            logger.trace("totalCount = " + response.getTotalCount());
-//
-//            if (response.getPage() * response.getPageSize() < response.getTotalCount()) {
-//                response.setMoreResults(true);
-//            }
-//
-//            JsonElement elements = jsonObject.get("items");
-//            if (elements != null) {
-//                for (JsonElement element : elements.getAsJsonArray()) {
-//                    JsonObject object = element.getAsJsonObject();
-//                    ETDataExtensionRow row = new ETDataExtensionRow();
-//                    JsonObject keys = object.get("keys").getAsJsonObject();
-//                    for (Map.Entry<String, JsonElement> entry : keys.entrySet()) {
-//                        row.setColumn(entry.getKey(), entry.getValue().getAsString(), false);
-//                    }
-//                    JsonObject values = object.get("values").getAsJsonObject();
-//                    for (Map.Entry<String, JsonElement> entry : values.entrySet()) {
-//                        row.setColumn(entry.getKey(), entry.getValue().getAsString(), false);
-//                    }
-//                    row.setClient(client);
-//                    ETResult<ETDataExtensionRow> result = new ETResult<ETDataExtensionRow>();
-//                    result.setObject(row);
-//                    response.addResult(result);
-//                }
-//            }
-//        }
+        client.refreshToken();
+
+        String path = getRowsetPath(key, page, pageSize, filter);
+
+        logger.trace("GET " + path);
+
+        ETRestConnection.Response r = connection.get(path);
+
+        ETResponse<ETDataExtensionRow> response = new ETResponse<ETDataExtensionRow>();
+        response.setRequestId(r.getRequestId());
+        response.setResponseCode(r.getResponseCode().toString());
+        response.setResponseMessage(r.getResponseMessage());
+        if (r.getResponseCode() >= 200 && r.getResponseCode() <= 299) {
+            response.setStatus(ETResult.Status.OK);
+        } else {
+            response.setStatus(ETResult.Status.ERROR);
+            return response;
+        }
+
+        JsonParser jsonParser = new JsonParser();
+        JsonObject jsonObject = jsonParser.parse(r.getResponsePayload()).getAsJsonObject();
+        addRows(client, jsonObject, filter, response);
 
         return response;
     }
+
+    static String getRowsetPath(String key,
+                                int page,
+                                int pageSize,
+                                ETFilter filter)
+        throws ETSdkException
+    {
+        RestObject annotations = ETDataExtension.class.getAnnotation(RestObject.class);
+
+        StringBuilder stringBuilder = new StringBuilder(annotations.path().replace("{key}", encodeKey(key)));
+        stringBuilder.append("?$page=");
+        stringBuilder.append(page);
+        stringBuilder.append("&$pagesize=");
+        stringBuilder.append(pageSize);
+
+        if (filter.getOrderBy() != null && filter.getOrderBy().size() != 0) {
+            stringBuilder.append("&$orderBy=");
+            boolean firstOrderBy = true;
+            for (String orderBy : filter.getOrderBy()) {
+                if (firstOrderBy) {
+                    firstOrderBy = false;
+                } else {
+                    stringBuilder.append(",");
+                }
+                stringBuilder.append(ETRestObject.encode(orderBy));
+                if (filter.getOrderByAsc()) {
+                    stringBuilder.append("%20asc");
+                } else {
+                    stringBuilder.append("%20desc");
+                }
+            }
+        }
+
+        String filterString = ETRestObject.toFilterString(filter.getExpression());
+        if (filterString != null) {
+            stringBuilder.append("&");
+            stringBuilder.append(filterString);
+        }
+
+        return stringBuilder.toString();
+    }
+
+    static String encodeKey(String key)
+        throws ETSdkException
+    {
+        return ETRestObject.encode(key);
+    }
+
+    //
+    // Adds the rows of a rowset page to the response, keeping
+    // only the requested columns (the endpoint returns them all):
+    //
+
+    static void addRows(ETClient client,
+                        JsonObject jsonObject,
+                        ETFilter filter,
+                        ETResponse<ETDataExtensionRow> response)
+    {
+        RestObject annotations = ETDataExtension.class.getAnnotation(RestObject.class);
+
+        response.setPage(jsonObject.get("page").getAsInt());
+        logger.trace("page = " + response.getPage());
+        response.setPageSize(jsonObject.get("pageSize").getAsInt());
+        logger.trace("pageSize = " + response.getPageSize());
+        response.setTotalCount(jsonObject.get(annotations.totalCount()).getAsInt());
+        logger.trace("totalCount = " + response.getTotalCount());
+
+        if (response.getPage() * response.getPageSize() < response.getTotalCount()) {
+            response.setMoreResults(true);
+        }
+
+        Set<String> columns = null;
+        if (!filter.getProperties().isEmpty()) {
+            columns = new HashSet<String>();
+            for (String property : filter.getProperties()) {
+                columns.add(property.toLowerCase());
+            }
+        }
+
+        JsonElement elements = jsonObject.get(annotations.collection());
+        if (elements == null) {
+            return;
+        }
+        for (JsonElement element : elements.getAsJsonArray()) {
+            JsonObject object = element.getAsJsonObject();
+            ETDataExtensionRow row = new ETDataExtensionRow();
+            addColumns(row, object.get("keys"), columns);
+            addColumns(row, object.get("values"), columns);
+            row.setClient(client);
+            ETResult<ETDataExtensionRow> result = new ETResult<ETDataExtensionRow>();
+            result.setObject(row);
+            response.addResult(result);
+        }
+    }
+
+    private static void addColumns(ETDataExtensionRow row,
+                                   JsonElement element,
+                                   Set<String> columns)
+    {
+        if (element == null || !element.isJsonObject()) {
+            return;
+        }
+        for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet()) {
+            if (columns != null && !columns.contains(entry.getKey().toLowerCase())) {
+                continue;
+            }
+            String value = null;
+            if (!entry.getValue().isJsonNull()) {
+                value = entry.getValue().getAsString();
+            }
+            row.setColumn(entry.getKey(), value, false);
+        }
+    }
+
+    //
+    // Returns the key of a data extension specified as "key=...",
+    // or null if it's specified by name:
+    //
+
+    private static String parseKey(String dataExtension)
+        throws ETSdkException
+    {
+        ETExpression e = ETExpression.parse(dataExtension);
+        if (e.getProperty().toLowerCase().equals("key")
+                && e.getOperator() == ETExpression.Operator.EQUALS) {
+            return e.getValue();
+        }
+        return null;
+    }
+
+    //
+    // Resolves the data extension, which can be specified using
+    // key or name, to its name, requesting all columns if none
+    // are requested and the key is known:
+    //
+
+    private static String resolveDataExtension(ETClient client,
+                                               String dataExtension,
+                                               ETFilter filter)
+        throws ETSdkException
+    {
+        String name = null;
+
+        ETExpression e = ETExpression.parse(dataExtension);
+        if (e.getProperty().toLowerCase().equals("key")
+                && e.getOperator() == ETExpression.Operator.EQUALS) {
+            name = e.getValue();
+            // if no columns are explicitly requested
+            // retrieve all columns
+            if (filter.getProperties().isEmpty()) {
+                filter.setProperties(retrieveColumnNames(client, name));
+            }
+        } else if (e.getProperty().toLowerCase().equals("name")
+                && e.getOperator() == ETExpression.Operator.EQUALS) {
+            name = e.getValue();
+            // if no columns are explicitly requested
+            // throw an exception
+            // because we need the key
+            // to retrieve columns
+            if (filter.getProperties().isEmpty()) {
+                throw new ETSdkException("columns must be specified "
+                        + "when retrieving data extensions by name");
+            }
+
+        } else {
+            throw new ETSdkException("invalid data extension filter string");
+        }
+
+        return name;
+    }
+
     private static List<ETResult<ETDataExtensionRow>> sortRowSet(List<ETResult<ETDataExtensionRow>> rowSet, ETFilter filter) throws ETSdkException {
         logger.debug("rowSet: " + rowSet);
         logger.debug("filter: " + filter);
@@ -769,6 +986,101 @@ public class ETDataExtension extends ETSoapObject {
         return select(page, pageSize, ETFilter.parse(filter));
     }
 
+    /**
+     * Selects all rows batch by batch.
+     * @param filter        The ETFilter to be used to select rows
+     * @return              The ETRetrieveCursor returning the rows
+     * @throws ETSdkException
+     */
+    public ETRetrieveCursor<ETDataExtensionRow> selectAll(ETFilter filter)
+        throws ETSdkException
+    {
+        // if no columns are explicitly requested retrieve all columns
+        if (filter.getProperties().isEmpty()) {
+            filter.setProperties(getColumnNames());
+        }
+        return ETDataExtension.selectAll(getClient(), "key=" + getKey(), filter);
+    }
+
+    /**
+     * Selects all rows batch by batch.
+     * @param filter        The filter to be used to select rows as variable arguments of String
+     * @return              The ETRetrieveCursor returning the rows
+     * @throws ETSdkException
+     */
+    public ETRetrieveCursor<ETDataExtensionRow> selectAll(String... filter)
+        throws ETSdkException
+    {
+        return selectAll(ETFilter.parse(filter));
+    }
+
+    /**
+     * Selects all rows in disjoint partitions concurrently, each
+     * partition with its own cursor, scanning up to
+     * <code>scanConcurrency</code> (default <code>soapPoolSize</code>)
+     * partitions at a time. Use
+     * <code>ETParallelScan.rangePartitions</code> or
+     * <code>bucketPartitions</code> to build the partitions.
+     * @param filter        The ETFilter to be used to select rows
+     * @param partitions    The expressions of the partitions
+     * @return              The ETParallelScan returning the rows
+     * @throws ETSdkException
+     */
+    public ETParallelScan parallelScan(ETFilter filter,
+                                       List<ETExpression> partitions)
+        throws ETSdkException
+    {
+        return parallelScan(filter,
+                            partitions,
+                            getConcurrency(getClient(), "scanConcurrency"));
+    }
+
+    /**
+     * Selects all rows in disjoint partitions concurrently, each
+     * partition with its own cursor.
+     * @param filter        The ETFilter to be used to select rows
+     * @param partitions    The expressions of the partitions
+     * @param concurrency   The maximum number of partitions scanned at a time
+     * @return              The ETParallelScan returning the rows
+     * @throws ETSdkException
+     */
+    public ETParallelScan parallelScan(ETFilter filter,
+                                       List<ETExpression> partitions,
+                                       int concurrency)
+        throws ETSdkException
+    {
+        if (concurrency < 1) {
+            throw new ETSdkException("concurrency must be at least 1");
+        }
+        if (partitions.isEmpty()) {
+            throw new ETSdkException("no partitions to scan");
+        }
+        // if no columns are explicitly requested retrieve all columns
+        if (filter.getProperties().isEmpty()) {
+            filter.setProperties(getColumnNames());
+        }
+        List<ETRetrieveCursor<ETDataExtensionRow>> cursors =
+                new ArrayList<ETRetrieveCursor<ETDataExtensionRow>>();
+        for (ETExpression partition : partitions) {
+            cursors.add(selectAll(ETParallelScan.partition(filter, partition)));
+        }
+        return new ETParallelScan(cursors, concurrency);
+    }
+
+    /**
+     * Selects all rows in disjoint partitions concurrently.
+     * @param partitions    The expressions of the partitions
+     * @param filter        The filter to be used to select rows as variable arguments of String
+     * @return              The ETParallelScan returning the rows
+     * @throws ETSdkException
+     */
+    public ETParallelScan parallelScan(List<ETExpression> partitions,
+                                       String... filter)
+        throws ETSdkException
+    {
+        return parallelScan(ETFilter.parse(filter), partitions);
+    }
+
     /**
      * @deprecated
      * Pass columns in <code>filter</code> argument.
@@ -837,6 +1149,41 @@ public class ETDataExtension extends ETSoapObject {
     public ETResponse<ETDataExtensionRow> insert(List<ETDataExtensionRow> rows)
         throws ETSdkException
     {
+        prepareInsert(rows);
+        return super.create(getClient(), rows);
+    }
+
+    /**
+     * Inserts rows in chunks sent concurrently, as configured
+     * for the client (see <code>ETBulkWriter</code>).
+     * @param rows              The rows to insert as List of ETDataExtensionRow
+     * @return                  The ETResponse of ETDataExtensionRow, with
+     *                          the results in the order of the rows
+     * @throws ETSdkException
+     */
+    public ETResponse<ETDataExtensionRow> bulkInsert(List<ETDataExtensionRow> rows)
+        throws ETSdkException
+    {
+        return bulkInsert(rows, new ETBulkWriter(getClient()));
+    }
+
+    /**
+     * Inserts rows in chunks sent concurrently.
+     * @param rows              The rows to insert as List of ETDataExtensionRow
+     * @param writer            The ETBulkWriter that chunks and sends the rows
+     * @return                  The ETResponse of ETDataExtensionRow, with
+     *                          the results in the order of the rows
+     * @throws ETSdkException
+     */
+    public ETResponse<ETDataExtensionRow> bulkInsert(List<ETDataExtensionRow> rows,
+                                                     ETBulkWriter writer)
+        throws ETSdkException
+    {
+        prepareInsert(rows);
+        return writer.create(rows);
+    }
+
+    private void prepareInsert(List<ETDataExtensionRow> rows) {
         for (ETDataExtensionRow row : rows) {
             //
             // Set the data extension name if it isn't already set:
@@ -846,8 +1193,6 @@ public class ETDataExtension extends ETSoapObject {
                 row.setDataExtensionKey(key);
             }
         }
-
-        return super.create(getClient(), rows);
     }
 
     /**
@@ -868,6 +1213,43 @@ public class ETDataExtension extends ETSoapObject {
      */
     public ETResponse<ETDataExtensionRow> update(List<ETDataExtensionRow> rows)
         throws ETSdkException
+    {
+        prepareUpdate(rows);
+        return super.update(getClient(), rows);
+    }
+
+    /**
+     * Updates rows in chunks sent concurrently, as configured
+     * for the client (see <code>ETBulkWriter</code>).
+     * @param rows              The rows to update as List of ETDataExtensionRow
+     * @return                  The ETResponse of ETDataExtensionRow, with
+     *                          the results in the order of the rows
+     * @throws ETSdkException
+     */
+    public ETResponse<ETDataExtensionRow> bulkUpdate(List<ETDataExtensionRow> rows)
+        throws ETSdkException
+    {
+        return bulkUpdate(rows, new ETBulkWriter(getClient()));
+    }
+
+    /**
+     * Updates rows in chunks sent concurrently.
+     * @param rows              The rows to update as List of ETDataExtensionRow
+     * @param writer            The ETBulkWriter that chunks and sends the rows
+     * @return                  The ETResponse of ETDataExtensionRow, with
+     *                          the results in the order of the rows
+     * @throws ETSdkException
+     */
+    public ETResponse<ETDataExtensionRow> bulkUpdate(List<ETDataExtensionRow> rows,
+                                                     ETBulkWriter writer)
+        throws ETSdkException
+    {
+        prepareUpdate(rows);
+        return writer.update(rows);
+    }
+
+    private void prepareUpdate(List<ETDataExtensionRow> rows)
+        throws ETSdkException
     {
         for (ETDataExtensionRow row : rows) {
             //
@@ -879,7 +1261,199 @@ public class ETDataExtension extends ETSoapObject {
             }
         }
 
-        return super.update(getClient(), rows);
+        //
+        // Rows with modified columns send only those and the
+        // primary key columns, so look the primary keys up
+        // if any row would leave out a column:
+        //
+
+        Set<String> keyColumns = null;
+        for (ETDataExtensionRow row : rows) {
+            if (row.hasUnmodifiedColumns()) {
+                if (keyColumns == null) {
+                    hydrate(); // make sure we've retrieved all columns
+                    keyColumns = new HashSet<String>();
+                    for (ETDataExtensionColumn column : columns) {
+                        if (column.getIsPrimaryKey()) {
+                            keyColumns.add(column.getName().toLowerCase());
+                        }
+                    }
+                }
+                if (!keyColumns.isEmpty()) {
+                    // without primary keys rows are sent in full
+                    row.setKeyColumns(keyColumns);
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates rows that exist and inserts those that don't,
+     * in a single call.
+     * @param rows              The rows to upsert as variable arguments of ETDataExtensionRow
+     * @return                  The ETResponse of ETDataExtensionRow
+     * @throws ETSdkException
+     */
+    public ETResponse<ETDataExtensionRow> upsert(ETDataExtensionRow... rows)
+        throws ETSdkException
+    {
+        return upsert(Arrays.asList(rows));
+    }
+
+    /**
+     * Updates rows that exist and inserts those that don't,
+     * in a single call.
+     * @param rows              The rows to upsert as List of ETDataExtensionRow
+     * @return                  The ETResponse of ETDataExtensionRow
+     * @throws ETSdkException
+     */
+    public ETResponse<ETDataExtensionRow> upsert(List<ETDataExtensionRow> rows)
+        throws ETSdkException
+    {
+        prepareInsert(rows);
+        return super.upsert(getClient(), rows);
+    }
+
+    /**
+     * Upserts rows in chunks sent concurrently, as configured
+     * for the client (see <code>ETBulkWriter</code>).
+     * @param rows              The rows to upsert as List of ETDataExtensionRow
+     * @return                  The ETResponse of ETDataExtensionRow, with
+     *                          the results in the order of the rows
+     * @throws ETSdkException
+     */
+    public ETResponse<ETDataExtensionRow> bulkUpsert(List<ETDataExtensionRow> rows)
+        throws ETSdkException
+    {
+        return bulkUpsert(rows, new ETBulkWriter(getClient()));
+    }
+
+    /**
+     * Upserts rows in chunks sent concurrently.
+     * @param rows              The rows to upsert as List of ETDataExtensionRow
+     * @param writer            The ETBulkWriter that chunks and sends the rows
+     * @return                  The ETResponse of ETDataExtensionRow, with
+     *                          the results in the order of the rows
+     * @throws ETSdkException
+     */
+    public ETResponse<ETDataExtensionRow> bulkUpsert(List<ETDataExtensionRow> rows,
+                                                     ETBulkWriter writer)
+        throws ETSdkException
+    {
+        prepareInsert(rows);
+        return writer.upsert(rows);
+    }
+
+    /**
+     * Submits rows to the asynchronous REST API to be upserted,
+     * in chunks of up to <code>asyncChunkSize</code> rows (default
+     * 5000) and about <code>bulkChunkBytes</code> bytes. The server
+     * queues each chunk and the call returns without waiting for it.
+     * @param rows              The rows to upsert as variable arguments of ETDataExtensionRow
+     * @return                  The handles of the chunks, in order
+     * @throws ETSdkException
+     */
+    public List<ETAsyncRequest> upsertAsync(ETDataExtensionRow... rows)
+        throws ETSdkException
+    {
+        return upsertAsync(Arrays.asList(rows));
+    }
+
+    /**
+     * Submits rows to the asynchronous REST API to be upserted,
+     * in chunks of up to <code>asyncChunkSize</code> rows (default
+     * 5000) and about <code>bulkChunkBytes</code> bytes. The server
+     * queues each chunk and the call returns without waiting for it.
+     * @param rows              The rows to upsert as List of ETDataExtensionRow
+     * @return                  The handles of the chunks, in order
+     * @throws ETSdkException
+     */
+    public List<ETAsyncRequest> upsertAsync(List<ETDataExtensionRow> rows)
+        throws ETSdkException
+    {
+        if (key == null) {
+            throw new ETSdkException("data extension key is not set");
+        }
+
+        ETClient client = getClient();
+        ETConfiguration configuration = client.getConfiguration();
+        ETBulkWriter writer = new ETBulkWriter(client,
+                configuration.getInteger("asyncChunkSize",
+                                         DEFAULT_ASYNC_CHUNK_SIZE),
+                configuration.getInteger("bulkChunkBytes",
+                                         ETBulkWriter.DEFAULT_CHUNK_BYTES),
+                1);
+
+        ETRestConnection connection = client.requireRestConnection();
+
+        String path = getAsyncPath(key);
+
+        List<ETAsyncRequest> requests = new ArrayList<ETAsyncRequest>();
+        for (List<ETDataExtensionRow> chunk : writer.split(rows)) {
+            //
+            // Automatically refresh the token if necessary:
+            //
+
+            client.refreshToken();
+
+            logger.trace("PUT " + path + " (" + chunk.size() + " rows)");
+
+            ETRestConnection.Response r = connection.put(path, toAsyncPayload(chunk));
+
+            chunk = new ArrayList<ETDataExtensionRow>(chunk);
+            if (r.getResponseCode() >= 200 && r.getResponseCode() <= 299) {
+                JsonParser jsonParser = new JsonParser();
+                JsonObject jsonObject = jsonParser.parse(r.getResponsePayload()).getAsJsonObject();
+                requests.add(new ETAsyncRequest(client,
+                                                jsonObject.get("requestId").getAsString(),
+                                                chunk));
+            } else {
+                logger.warn("chunk of " + chunk.size() + " rows rejected: "
+                        + r.getResponseCode() + " " + r.getResponseMessage());
+                requests.add(ETAsyncRequest.rejected(client,
+                        chunk,
+                        r.getResponseCode() + " " + r.getResponseMessage()));
+            }
+        }
+        return requests;
+    }
+
+    static String getAsyncPath(String key)
+        throws ETSdkException
+    {
+        return "/data/v1/async/dataextensions/key:" + encodeKey(key) + "/rows";
+    }
+
+    //
+    // Writes the rows' columns straight to the request body, without
+    // building a JSON tree or a map per row first:
+    //
+
+    static String toAsyncPayload(List<ETDataExtensionRow> rows)
+        throws ETSdkException
+    {
+        StringWriter stringWriter = new StringWriter();
+        JsonWriter jsonWriter = new JsonWriter(stringWriter);
+        try {
+            jsonWriter.beginObject();
+            jsonWriter.name("items");
+            jsonWriter.beginArray();
+            for (ETDataExtensionRow row : rows) {
+                jsonWriter.beginObject();
+                ETColumnMap columns = row.getColumnMap();
+                for (int i = 0; i < columns.size(); i++) {
+                    jsonWriter.name(columns.getName(i));
+                    jsonWriter.value(columns.getValue(i));
+                }
+                jsonWriter.endObject();
+            }
+            jsonWriter.endArray();
+            jsonWriter.endObject();
+            jsonWriter.close();
+        } catch (IOException ex) {
+            throw new ETSdkException("error serializing rows", ex);
+        }
+        return stringWriter.toString();
     }
 
     /**
@@ -901,6 +1475,18 @@ public class ETDataExtension extends ETSoapObject {
     public ETResponse<ETDataExtensionRow> delete(List<ETDataExtensionRow> rows)
         throws ETSdkException
     {
+        hydrate(); // make sure we've retrieved all columns
+
+        // call delete method that operates on internal objects
+        return super.delete(getClient(), toDeleteObjects(rows), true);
+    }
+
+    //
+    // Converts rows to the internal objects of a DeleteRequest;
+    // the columns must have been retrieved:
+    //
+
+    private List<APIObject> toDeleteObjects(List<ETDataExtensionRow> rows) {
         List<APIObject> internalRows = new ArrayList<APIObject>();
 
         for (ETDataExtensionRow row : rows) {
@@ -914,7 +1500,6 @@ public class ETDataExtension extends ETSoapObject {
 
             DataExtensionObject internalRow = new DataExtensionObject();
             DataExtensionObject.Keys keys = new DataExtensionObject.Keys();
-            hydrate(); // make sure we've retrieved all columns
             for (ETDataExtensionColumn column : columns) {
                 if (column.getIsPrimaryKey()) {
                     APIProperty property = new APIProperty();
@@ -928,8 +1513,7 @@ public class ETDataExtension extends ETSoapObject {
             internalRows.add(internalRow);
         }
 
-        // call delete method that operates on internal objects
-        return super.delete(getClient(), internalRows, true);
+        return internalRows;
     }
 
     /**
@@ -956,25 +1540,150 @@ public class ETDataExtension extends ETSoapObject {
     }
 
     /**
+     * Deletes the rows matching a filter, as <code>deleteAll</code>
+     * does. Only the results of the rows that could not be deleted
+     * are kept, so memory use grows with the number of failures
+     * rather than the number of matching rows; use
+     * <code>deleteAll</code> with a listener to follow the progress
+     * of large purges.
      * @param filter            The filter to be used to delete rows
-     * @return                  The ETResponse of ETDataExtensionRow 
+     * @return                  The ETResponse of ETDataExtensionRow, with
+     *                          the number of rows deleted as its total
+     *                          count and a result for each row that
+     *                          could not be deleted
      * @throws ETSdkException
      */
     public ETResponse<ETDataExtensionRow> delete(String filter)
         throws ETSdkException
     {
-        List<ETDataExtensionRow> rows = getMatchingRows(filter);
-        return delete(rows);
+        return deleteAll(filter, null, true);
+    }
+
+    /**
+     * Listens to the progress of <code>deleteAll</code>.
+     */
+    public interface DeleteListener {
+        /**
+         * Called, in batch order, as each batch is deleted.
+         * @param batch     The number of the batch, from 1
+         * @param rows      The rows of the batch (primary keys only)
+         * @param response  The response of the batch's delete; a batch
+         *                  that failed with an exception has an error
+         *                  status and no results
+         * @param deleted   The number of rows deleted so far
+         */
+        void batchDeleted(int batch,
+                          List<ETDataExtensionRow> rows,
+                          ETResponse<ETDataExtensionRow> response,
+                          long deleted);
+    }
+
+    /**
+     * Deletes the rows matching a filter as they are selected: each
+     * batch of primary keys is deleted in the background while the
+     * next batch is selected, with up to <code>deleteConcurrency</code>
+     * (default <code>soapPoolSize</code>) deletes in flight. Memory use doesn't grow with the number of
+     * matching rows, since the per-row results are only passed to
+     * the listener.
+     * @param filter            The filter to be used to delete rows
+     * @param listener          The listener to report each batch to,
+     *                          or <code>null</code>
+     * @return                  The ETResponse of ETDataExtensionRow, with
+     *                          the number of rows deleted as its total
+     *                          count and an error status if any
+     *                          batch failed
+     * @throws ETSdkException if selecting fails; the deletes in flight
+     *                        finish and are reported to the listener
+     *                        first, and the message tells how many
+     *                        rows were deleted
+     */
+    public ETResponse<ETDataExtensionRow> deleteAll(String filter,
+                                                    DeleteListener listener)
+        throws ETSdkException
+    {
+        return deleteAll(filter, listener, false);
+    }
+
+    private ETResponse<ETDataExtensionRow> deleteAll(String filter,
+                                                     DeleteListener listener,
+                                                     boolean keepErrors)
+        throws ETSdkException
+    {
+        ETRetrieveCursor<ETDataExtensionRow> cursor = selectAll(getPrimaryKeyFilter(filter));
+
+        ETDeletePipeline pipeline = new ETDeletePipeline(getClient(),
+                getConcurrency(getClient(), "deleteConcurrency"),
+                listener,
+                keepErrors);
+        return deleteAll(cursor, pipeline);
+    }
+
+    //
+    // Reads the number of requests a background operation may have
+    // in flight, by default as many as there are SOAP proxies:
+    //
+
+    private static int getConcurrency(ETClient client, String name) {
+        ETConfiguration configuration = client.getConfiguration();
+        return Math.max(1, configuration.getInteger(name,
+                configuration.getInteger("soapPoolSize",
+                                         ETSoapConnection.DEFAULT_POOL_SIZE)));
+    }
+
+    //
+    // Deletes the rows the cursor returns. If the scan fails, the
+    // deletes in flight still finish and are reported to the
+    // listener before the error is thrown:
+    //
+
+    ETResponse<ETDataExtensionRow> deleteAll(ETRetrieveCursor<ETDataExtensionRow> cursor,
+                                             ETDeletePipeline pipeline)
+        throws ETSdkException
+    {
+        boolean finished = false;
+        try {
+            while (cursor.hasNext()) {
+                ETResponse<ETDataExtensionRow> response = cursor.next();
+                if (response.getStatus() == ETResult.Status.ERROR) {
+                    throw new ETSdkException("could not select rows: "
+                            + response.getResponseMessage());
+                }
+                List<ETDataExtensionRow> rows = response.getObjects();
+                if (!rows.isEmpty()) {
+                    pipeline.submit(rows, toDeleteObjects(rows));
+                }
+            }
+            finished = true;
+            return pipeline.finish();
+        } catch (ETSdkException ex) {
+            if (finished) {
+                throw ex;
+            }
+            finished = true;
+            ETResponse<ETDataExtensionRow> response = pipeline.finish();
+            throw new ETSdkException(ex.getMessage() + " (deleted "
+                    + response.getTotalCount() + " rows before the error)", ex);
+        } finally {
+            if (!finished) {
+                try {
+                    pipeline.finish();
+                } catch (ETSdkException ex) {
+                    logger.warn("error finishing deletes in flight", ex);
+                }
+            }
+        }
     }
 
     /**
-     * Calls the retrieveColumns() method
+     * Retrieves the columns, unless the client's column cache
+     * holds them.
      * @throws ETSdkException 
      */
     public void hydrate()
         throws ETSdkException
     {
-        retrieveColumns();
+        // copy, since columns can be added to this object
+        columns = new ArrayList<ETDataExtensionColumn>(getColumns(getClient(), getKey()));
     }
 
     /**
@@ -986,6 +1695,43 @@ public class ETDataExtension extends ETSoapObject {
     public static List<ETDataExtensionColumn> retrieveColumns(ETClient client,
                                                               String key)
         throws ETSdkException
+    {
+        ETResponse<ETDataExtensionColumn> response = retrieveColumnsUncached(client, key);
+        if (response.getStatus() == ETResult.Status.OK) {
+            client.getColumnCache().put(key, response.getObjects());
+        }
+        return response.getObjects();
+    }
+
+    //
+    // Returns the columns from the client's column cache,
+    // retrieving them if they aren't cached:
+    //
+
+    private static List<ETDataExtensionColumn> getColumns(final ETClient client,
+                                                          final String key)
+        throws ETSdkException
+    {
+        return client.getColumnCache().get(key,
+                new Callable<List<ETDataExtensionColumn>>() {
+            public List<ETDataExtensionColumn> call()
+                throws ETSdkException
+            {
+                ETResponse<ETDataExtensionColumn> response =
+                        retrieveColumnsUncached(client, key);
+                if (response.getStatus() != ETResult.Status.OK) {
+                    // don't cache the columns of a failed retrieve
+                    throw new ETSdkException("could not retrieve columns of "
+                            + key + ": " + response.getResponseMessage());
+                }
+                return response.getObjects();
+            }
+        });
+    }
+
+    private static ETResponse<ETDataExtensionColumn> retrieveColumnsUncached(ETClient client,
+                                                                             String key)
+        throws ETSdkException
     {
         //
         // Automatically refresh the token if necessary:
@@ -1012,7 +1758,7 @@ public class ETDataExtension extends ETSoapObject {
                                                null, // pageSize
                                                filter);
 
-        return response.getObjects();
+        return response;
     }
 
     /**
@@ -1037,7 +1783,7 @@ public class ETDataExtension extends ETSoapObject {
                                                     String key)
         throws ETSdkException
     {
-        return getColumnNames(retrieveColumns(client, key));
+        return getColumnNames(getColumns(client, key));
     }
 
     /**
@@ -1049,6 +1795,22 @@ public class ETDataExtension extends ETSoapObject {
     {
         List<ETDataExtensionRow> rows = new ArrayList<ETDataExtensionRow>();
 
+        ETRetrieveCursor<ETDataExtensionRow> cursor = selectAll(getPrimaryKeyFilter(filter));
+        while (cursor.hasNext()) {
+            ETResponse<ETDataExtensionRow> response = cursor.next();
+            if (response.getStatus() == ETResult.Status.ERROR) {
+                throw new ETSdkException("could not select rows: "
+                        + response.getResponseMessage());
+            }
+            rows.addAll(response.getObjects());
+        }
+
+        return rows;
+    }
+
+    private ETFilter getPrimaryKeyFilter(String filter)
+        throws ETSdkException
+    {
         hydrate(); // make sure we've retrieved all columns
 
         //
@@ -1062,18 +1824,9 @@ public class ETDataExtension extends ETSoapObject {
             }
         }
 
-        int page = 1;
-        int page_size = 2500;
-
-        ETResponse<ETDataExtensionRow> response = null;
-        do {
-            ETFilter parsedFilter = ETFilter.parse(filter);
-            parsedFilter.setProperties(primaryKeyColumnNames);
-            response = select(page++, page_size, parsedFilter);
-            rows.addAll(response.getObjects());
-        } while (response.hasMoreResults() == true);
-
-        return rows;
+        ETFilter parsedFilter = ETFilter.parse(filter);
+        parsedFilter.setProperties(primaryKeyColumnNames);
+        return parsedFilter;
     }
 
     /**
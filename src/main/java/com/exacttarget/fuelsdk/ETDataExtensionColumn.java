@@ -87,6 +87,31 @@ public class ETDataExtensionColumn extends ETSoapObject {
     */    
     public ETDataExtensionColumn() {}
 
+    //
+    // Copies the column, so callers can't change
+    // the columns a cache holds:
+    //
+
+    ETDataExtensionColumn copy() {
+        ETDataExtensionColumn copy = new ETDataExtensionColumn();
+        copy.setClient(getClient());
+        copy.id = id;
+        copy.key = key;
+        copy.name = name;
+        copy.description = description;
+        copy.createdDate = createdDate;
+        copy.modifiedDate = modifiedDate;
+        copy.dataExtension = dataExtension;
+        copy.type = type;
+        copy.defaultValue = defaultValue;
+        copy.isPrimaryKey = isPrimaryKey;
+        copy.isRequired = isRequired;
+        copy.length = length;
+        copy.precision = precision;
+        copy.scale = scale;
+        return copy;
+    }
+
     /** 
     * @return The Identifier of the ETDataExtensionColumn object.
     */    
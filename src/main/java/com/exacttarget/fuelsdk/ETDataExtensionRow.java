@@ -34,28 +34,46 @@
 
 package com.exacttarget.fuelsdk;
 
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import com.exacttarget.fuelsdk.annotations.ExternalName;
 import com.exacttarget.fuelsdk.annotations.InternalName;
 import com.exacttarget.fuelsdk.annotations.SoapObject;
+import com.exacttarget.fuelsdk.internal.APIObject;
+import com.exacttarget.fuelsdk.internal.APIProperty;
 import com.exacttarget.fuelsdk.internal.DataExtensionObject;
+import com.exacttarget.fuelsdk.internal.ObjectExtension;
 
 /**
  * An <code>ETDataExtensionRow</code> object represents a
  * data extension row in the Salesforce Marketing Cloud.
+ * <p>
+ * Rows with the same columns share the column names; each
+ * row keeps only its values.
+ * <p>
+ * Rows updated through <code>ETDataExtension</code> send only
+ * their modified columns and the primary key columns.
  */
 
-@SoapObject(internalType = DataExtensionObject.class)
+@SoapObject(internalType = DataExtensionObject.class,
+            identity = { "dataExtensionKey" })
 public class ETDataExtensionRow extends ETSoapObject {
     @ExternalName("dataExtensionKey")
     @InternalName("customerKey")
     private String dataExtensionKey = null;
     @ExternalName("columns")
     @InternalName("properties")
-    private Map<String, String> columns = new HashMap<String, String>();
+    private ETColumnMap columns = new ETColumnMap();
+
+    //
+    // The (lower-cased) primary key columns, known only when
+    // the row is updated through its data extension; without
+    // them a row can't be updated sparsely:
+    //
+
+    private Set<String> keyColumns = null;
 
     /** 
     * Class constructor, Initializes a new instance of the class.
@@ -115,10 +133,10 @@ public class ETDataExtensionRow extends ETSoapObject {
     * @param setModified    To set if the value is modified or not.
     */    
     public void setColumn(String name, String value, boolean setModified) {
+        columns.put(name.toLowerCase(), value);
         if (setModified) {
             setModified(name, true);
         }
-        columns.put(name.toLowerCase(), value);
     }
 
     /** 
@@ -137,6 +155,14 @@ public class ETDataExtensionRow extends ETSoapObject {
         return columns;
     }
 
+    //
+    // The columns by ordinal, for serializing rows in bulk:
+    //
+
+    ETColumnMap getColumnMap() {
+        return columns;
+    }
+
     /**
      * @deprecated
      * Use <code>getColumn</code> and <code>setColumn</code>.
@@ -144,11 +170,109 @@ public class ETDataExtensionRow extends ETSoapObject {
     @Deprecated
     public void setColumns(Map<String, String> columns) {
         // note: this needs to be here because reflection needs it
+        if (columns instanceof ETColumnMap && this.columns.isEmpty()) {
+            // converted from the internal object; take the values
+            // over rather than copying them column by column:
+            if (this.columns.takeLowerCase((ETColumnMap) columns)) {
+                return;
+            }
+        }
         for (Map.Entry<String, String> column : columns.entrySet()) {
             setColumn(column.getKey(), column.getValue());
         }
     }
     
+    /**
+    * @param property       The property or column name of the ETDataExtensionRow object.
+    * @return               true if the property is modified, false otherwise.
+    */
+    @Override
+    public Boolean getModified(String property) {
+        if (getField(property) == null && columns.containsKey(property.toLowerCase())) {
+            return columns.getModified(property.toLowerCase());
+        }
+        return super.getModified(property);
+    }
+
+    /**
+    * @param property       The property or column name of the ETDataExtensionRow object.
+    * @param value          The Boolean value of the property.
+    * @return               previous value associated with the property or null if there was no mapping.
+    */
+    @Override
+    public Boolean setModified(String property, Boolean value) {
+        if (getField(property) == null && columns.containsKey(property.toLowerCase())) {
+            return columns.setModified(property.toLowerCase(), value);
+        }
+        return super.setModified(property, value);
+    }
+
+    /**
+    * @return The List of properties and (lower-cased) columns whose values are true.
+    */
+    @Override
+    public List<String> getAllModified() {
+        List<String> modified = super.getAllModified();
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.isModified(i)) {
+                modified.add(columns.getName(i));
+            }
+        }
+        return modified;
+    }
+
+    /**
+     * Clears the modified flags of all properties and columns, so
+     * the next update sends the row in full again.
+     */
+    @Override
+    public void clearModified() {
+        super.clearModified();
+        columns.clearModified();
+    }
+
+    void setKeyColumns(Set<String> keyColumns) {
+        this.keyColumns = keyColumns;
+    }
+
+    //
+    // True if a sparse update would leave out any column:
+    //
+
+    boolean hasUnmodifiedColumns() {
+        if (!columns.hasModified()) {
+            return false;
+        }
+        for (int i = 0; i < columns.size(); i++) {
+            if (!columns.isModified(i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    APIObject toInternalModified()
+        throws ETSdkException
+    {
+        if (keyColumns == null || !hasUnmodifiedColumns()) {
+            return toInternal();
+        }
+        DataExtensionObject internalObject = new DataExtensionObject();
+        internalObject.setCustomerKey(dataExtensionKey);
+        ObjectExtension.Properties properties = new ObjectExtension.Properties();
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.isModified(i) || keyColumns.contains(columns.getName(i))) {
+                APIProperty property = new APIProperty();
+                property.setName(columns.getName(i));
+                property.setValue(columns.getValue(i));
+                properties.getProperty().add(property);
+            }
+        }
+        internalObject.setProperties(properties);
+        return internalObject;
+    }
+
     public boolean equals(Object obj) {
         if (obj == null)    return false;
         if (!obj.getClass().equals(getClass())) {
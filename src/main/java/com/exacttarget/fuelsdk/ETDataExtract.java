@@ -28,7 +28,7 @@ import java.util.logging.Logger;
 
 public class ETDataExtract 
 {
-    private Soap soap;
+    private ETSoapConnection connection;
     
     public HashMap<String, String> extractType;
     private SimpleDateFormat dateFormat;
@@ -60,7 +60,7 @@ public class ETDataExtract
         try {
             extractType = new HashMap<String, String>();
             
-            soap = client.getSoapConnection().getSoap("Extract");  
+            connection = client.requireSoapConnection();
             dateFormat = new SimpleDateFormat("yyyy-MM-dd hh:mm aa");
             
             ExtractBounces = false;
@@ -160,8 +160,13 @@ public class ETDataExtract
         ExtractRequestMsg erm = new ExtractRequestMsg();
         erm.getRequests().add(request);  
         
-        ExtractResponseMsg resp = soap.extract(erm);
-        return resp;
+        Soap soap = connection.borrowSoap("Extract", null);
+        try {
+            ExtractResponseMsg resp = soap.extract(erm);
+            return resp;
+        } finally {
+            connection.releaseSoap(soap);
+        }
     }
     
     private void validate() throws ETSdkException
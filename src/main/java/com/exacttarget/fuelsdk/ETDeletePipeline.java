@@ -0,0 +1,236 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.log4j.Logger;
+
+import com.exacttarget.fuelsdk.internal.APIObject;
+
+/**
+ * An <code>ETDeletePipeline</code> deletes batches of data extension
+ * rows as a scan produces them: each batch's DeleteRequest is sent
+ * in the background while the scan fetches the next batch, with at
+ * most <code>concurrency</code> requests in flight. Batches are
+ * reported to the listener in order, as they complete, so only the
+ * batches in flight are held in memory.
+ * <p>
+ * A pipeline is driven from a single thread.
+ */
+
+class ETDeletePipeline {
+    private static Logger logger = Logger.getLogger(ETDeletePipeline.class);
+
+    private final ETClient client;
+    private final int concurrency;
+    private final ETDataExtension.DeleteListener listener;
+    private final boolean keepErrors;
+
+    private final LinkedList<Batch> pending = new LinkedList<Batch>();
+    private final ETResponse<ETDataExtensionRow> response =
+            new ETResponse<ETDataExtensionRow>();
+    private ETResponse<ETDataExtensionRow> failed = null;
+    private int batches = 0;
+    private long deleted = 0;
+
+    private static class Batch {
+        int number;
+        List<ETDataExtensionRow> rows;
+        FutureTask<ETResponse<ETDataExtensionRow>> future;
+    }
+
+    /**
+    * Class constructor, Initializes a new instance of the class.
+    * @param client         The ETClient object
+    * @param concurrency    The maximum number of requests in flight
+    * @param listener       The listener to report batches to,
+    *                       or <code>null</code>
+    * @param keepErrors     true to collect the results of the rows
+    *                       that could not be deleted in the final
+    *                       response
+    */
+    ETDeletePipeline(ETClient client,
+                     int concurrency,
+                     ETDataExtension.DeleteListener listener,
+                     boolean keepErrors)
+    {
+        this.client = client;
+        this.concurrency = concurrency;
+        this.listener = listener;
+        this.keepErrors = keepErrors;
+    }
+
+    /**
+     * Sends a batch's DeleteRequest in the background, first
+     * waiting for the oldest batch if the pipeline is full.
+     * @param rows  The rows of the batch
+     * @param keys  The internal objects holding the rows' keys
+     * @throws ETSdkException
+     */
+    void submit(List<ETDataExtensionRow> rows, final List<APIObject> keys)
+        throws ETSdkException
+    {
+        while (pending.size() >= concurrency) {
+            complete(pending.removeFirst());
+        }
+
+        Batch batch = new Batch();
+        batch.number = ++batches;
+        batch.rows = rows;
+        batch.future = new FutureTask<ETResponse<ETDataExtensionRow>>(
+                new Callable<ETResponse<ETDataExtensionRow>>() {
+            public ETResponse<ETDataExtensionRow> call()
+                throws ETSdkException
+            {
+                return delete(keys);
+            }
+        });
+        pending.add(batch);
+        ETBulkWriter.getExecutor().execute(batch.future);
+
+        //
+        // Report the batches that are done already:
+        //
+
+        while (!pending.isEmpty() && pending.getFirst().future.isDone()) {
+            complete(pending.removeFirst());
+        }
+    }
+
+    /**
+     * Waits for the batches in flight.
+     * @return  The response of the whole delete: its status is OK
+     *          if all batches succeeded, its total count is the
+     *          number of rows deleted
+     * @throws ETSdkException
+     */
+    ETResponse<ETDataExtensionRow> finish()
+        throws ETSdkException
+    {
+        while (!pending.isEmpty()) {
+            complete(pending.removeFirst());
+        }
+
+        if (failed == null) {
+            response.setStatus(ETResult.Status.OK);
+            if (response.getResponseCode() == null) {
+                response.setResponseCode("OK");
+                response.setResponseMessage("OK");
+            }
+        } else {
+            response.setStatus(ETResult.Status.ERROR);
+            response.setResponseCode(failed.getResponseCode());
+            response.setResponseMessage(failed.getResponseMessage());
+        }
+        response.setTotalCount((int) deleted);
+
+        logger.debug("deleted " + deleted + " rows in " + batches + " batch(es)");
+
+        return response;
+    }
+
+    //
+    // Sends a DeleteRequest; called concurrently for different batches:
+    //
+
+    ETResponse<ETDataExtensionRow> delete(List<APIObject> keys)
+        throws ETSdkException
+    {
+        return ETSoapObject.<ETDataExtensionRow>delete(client, keys, true);
+    }
+
+    private void complete(Batch batch)
+        throws ETSdkException
+    {
+        ETResponse<ETDataExtensionRow> batchResponse = null;
+        try {
+            batchResponse = batch.future.get();
+        } catch (InterruptedException ex) {
+            for (Batch b : pending) {
+                b.future.cancel(true);
+            }
+            pending.clear();
+            Thread.currentThread().interrupt();
+            throw new ETSdkException("interrupted while deleting rows", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            logger.warn("error deleting batch " + batch.number, cause);
+            batchResponse = new ETResponse<ETDataExtensionRow>();
+            batchResponse.setStatus(ETResult.Status.ERROR);
+            batchResponse.setResponseCode("Error");
+            batchResponse.setResponseMessage(cause.getMessage());
+        }
+
+        if (batch.number == 1) {
+            response.setRequestId(batchResponse.getRequestId());
+            response.setResponseCode(batchResponse.getResponseCode());
+            response.setResponseMessage(batchResponse.getResponseMessage());
+        }
+        for (ETResult<ETDataExtensionRow> result : batchResponse.getResults()) {
+            if (result.getStatus() == ETResult.Status.OK) {
+                deleted++;
+            } else if (keepErrors) {
+                response.addResult(result);
+            }
+        }
+        if (keepErrors && batchResponse.getStatus() != ETResult.Status.OK
+                && batchResponse.getResults().isEmpty())
+        {
+            // the whole batch failed, so none of its rows were deleted:
+            for (ETDataExtensionRow row : batch.rows) {
+                ETResult<ETDataExtensionRow> result = new ETResult<ETDataExtensionRow>();
+                result.setStatus(ETResult.Status.ERROR);
+                result.setErrorMessage(batchResponse.getResponseMessage());
+                result.setObject(row);
+                response.addResult(result);
+            }
+        }
+        if (failed == null && batchResponse.getStatus() != ETResult.Status.OK) {
+            failed = batchResponse;
+        }
+
+        if (listener != null) {
+            listener.batchDeleted(batch.number, batch.rows, batchResponse, deleted);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/**
+ * An <code>ETEndpointCache</code> caches the results of endpoint
+ * discovery calls per tenant. Entries expire after a time to live;
+ * an entry that is about to expire is still returned, but refreshed
+ * in the background so that callers do not wait for discovery.
+ * Concurrent lookups of an entry that is missing or expired share
+ * a single discovery call.
+ * <p>
+ * All clients in the JVM share the instance returned by
+ * <code>getDefault()</code>. Keys identify the kind of endpoint and
+ * the tenant (e.g., <code>soap|endpoint|clientId|accountId</code>),
+ * so tenants never see each other's endpoints.
+ */
+
+public class ETEndpointCache {
+    private static Logger logger = Logger.getLogger(ETEndpointCache.class);
+
+    private static final ETEndpointCache defaultInstance =
+            new ETEndpointCache();
+
+    private static ExecutorService refresher = null;
+
+    private final Map<String, Entry> entries =
+            new ConcurrentHashMap<String, Entry>();
+    private final Map<String, FutureTask<String>> pending =
+            new ConcurrentHashMap<String, FutureTask<String>>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+
+    private static class Entry {
+        final String url;
+        final long expirationTime;
+
+        Entry(String url, long expirationTime) {
+            this.url = url;
+            this.expirationTime = expirationTime;
+        }
+    }
+
+    /**
+    * Class constructor, Initializes a new instance of the class.
+    */
+    public ETEndpointCache() {}
+
+    /**
+     * @return  The instance shared by all clients in the JVM
+     */
+    public static ETEndpointCache getDefault() {
+        return defaultInstance;
+    }
+
+    /**
+     * Returns the endpoint cached under the specified key,
+     * calling <code>discovery</code> if there is no entry or it
+     * has expired. Entries that expire within
+     * <code>refreshAhead</code> milliseconds are returned and
+     * refreshed in the background.
+     * @param key           The key
+     * @param ttl           The time to live of new entries in milliseconds
+     * @param refreshAhead  The time in milliseconds before expiration entries are refreshed
+     * @param discovery     Looks up the endpoint
+     * @return              The endpoint URL
+     * @throws ETSdkException
+     */
+    public String get(String key,
+                      long ttl,
+                      long refreshAhead,
+                      Callable<String> discovery)
+        throws ETSdkException
+    {
+        Entry entry = entries.get(key);
+        long now = System.currentTimeMillis();
+        if (entry != null && now < entry.expirationTime) {
+            hits.incrementAndGet();
+            if (entry.expirationTime - now <= refreshAhead) {
+                refreshInBackground(key, ttl, discovery);
+            }
+            return entry.url;
+        }
+        misses.incrementAndGet();
+        FutureTask<String> task = discover(key, ttl, discovery);
+        try {
+            return task.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ETSdkException("interrupted discovering endpoint", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof ETSdkException) {
+                throw (ETSdkException) ex.getCause();
+            }
+            throw new ETSdkException("error discovering endpoint", ex.getCause());
+        }
+    }
+
+    /**
+     * Removes the entry cached under the specified key.
+     * @param key           The key
+     */
+    public void invalidate(String key) {
+        entries.remove(key);
+    }
+
+    /**
+     * @return  The number of lookups answered from the cache
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return  The number of lookups that had to wait for discovery
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return  The number of background refreshes started
+     */
+    public long getRefreshes() {
+        return refreshes.get();
+    }
+
+    //
+    // Returns the discovery in flight for key, starting one
+    // (in the calling thread) if there is none:
+    //
+
+    private FutureTask<String> discover(final String key,
+                                        final long ttl,
+                                        final Callable<String> discovery)
+    {
+        FutureTask<String> task = pending.get(key);
+        if (task != null) {
+            return task;
+        }
+        FutureTask<String> newTask = new FutureTask<String>(new Callable<String>() {
+            public String call()
+                throws Exception
+            {
+                try {
+                    String url = discovery.call();
+                    entries.put(key, new Entry(url, System.currentTimeMillis() + ttl));
+                    logger.debug("discovered endpoint " + url + " for " + key);
+                    return url;
+                } finally {
+                    pending.remove(key);
+                }
+            }
+        });
+        synchronized (pending) {
+            task = pending.get(key);
+            if (task != null) {
+                return task;
+            }
+            pending.put(key, newTask);
+        }
+        newTask.run();
+        return newTask;
+    }
+
+    private void refreshInBackground(final String key,
+                                     final long ttl,
+                                     final Callable<String> discovery)
+    {
+        if (pending.containsKey(key)) {
+            return;
+        }
+        refreshes.incrementAndGet();
+        getRefresher().execute(new Runnable() {
+            public void run() {
+                try {
+                    discover(key, ttl, discovery).get();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException ex) {
+                    // keep the current entry until it expires
+                    logger.warn("error refreshing endpoint for " + key, ex.getCause());
+                }
+            }
+        });
+    }
+
+    private static synchronized ExecutorService getRefresher() {
+        if (refresher == null) {
+            refresher = Executors.newCachedThreadPool(new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "fuelsdk-endpoint-refresher");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return refresher;
+    }
+}
@@ -0,0 +1,414 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/**
+ * An <code>ETFileTokenStore</code> is an <code>ETTokenStore</code>
+ * that keeps each token in a file in a shared directory, so that
+ * all processes on a host that use the same directory share one
+ * token per key. Access to a token file is serialized with an
+ * exclusive file lock, so only one process at a time requests a
+ * new token; the others wait and then read it from the file.
+ * <p>
+ * The directory is set via the <code>tokenStoreDirectory</code>
+ * property and defaults to <code>.fuelsdk/tokens</code> in the
+ * user's home directory. The store refuses a directory that is not
+ * owned by the current user or that other users can write to, and
+ * token files that are symbolic links; new directories and token
+ * files are created accessible by their owner only. (The ownership,
+ * permission and link checks need Java 7; on Java 6 the store only
+ * restricts access to what it creates.)
+ */
+
+public class ETFileTokenStore implements ETTokenStore {
+    private static Logger logger = Logger.getLogger(ETFileTokenStore.class);
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    //
+    // File locks are held on behalf of the whole JVM, so threads
+    // of the same process serialize on a monitor per file first:
+    //
+
+    private static final boolean NIO = isNioAvailable();
+
+    private static final Map<String, Object> locks =
+            new ConcurrentHashMap<String, Object>();
+
+    private final File directory;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+    * Class constructor, Initializes a new instance of the class.
+    * @param configuration  The ETConfiguration object
+    */
+    public ETFileTokenStore(ETConfiguration configuration)
+        throws ETSdkException
+    {
+        this(getDirectory(configuration));
+    }
+
+    /**
+    * Class constructor, Initializes a new instance of the class.
+    * @param directory      The directory to keep token files in
+    */
+    public ETFileTokenStore(File directory)
+        throws ETSdkException
+    {
+        this.directory = directory;
+        if (!directory.isDirectory()) {
+            if (!directory.mkdirs() && !directory.isDirectory()) {
+                throw new ETSdkException("could not create token store directory "
+                        + directory);
+            }
+            restrictToOwner(directory);
+            directory.setExecutable(false, false);
+            directory.setExecutable(true, true);
+        }
+        if (NIO) {
+            Nio.checkDirectory(directory);
+        }
+    }
+
+    /**
+     * @return  The directory token files are kept in
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    public ETAccessToken getToken(String key,
+                                  long minValidity,
+                                  Callable<ETAccessToken> request)
+        throws ETSdkException
+    {
+        File file = getFile(key);
+        synchronized (getLock(file)) {
+            FileChannel channel = null;
+            try {
+                channel = open(file);
+                FileLock lock = channel.lock();
+                try {
+                    ETAccessToken token = read(channel);
+                    if (ETMemoryTokenStore.isValid(token, minValidity)) {
+                        hits.incrementAndGet();
+                        return token;
+                    }
+                    misses.incrementAndGet();
+                    logger.trace("no valid token stored in " + file);
+                    token = ETMemoryTokenStore.call(request);
+                    if (token != null) {
+                        write(channel, token);
+                    }
+                    return token;
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException ex) {
+                throw new ETSdkException("error accessing token store " + file, ex);
+            } finally {
+                if (channel != null) {
+                    try {
+                        channel.close();
+                    } catch (IOException ex) {
+                        logger.debug("error closing " + file, ex);
+                    }
+                }
+            }
+        }
+    }
+
+    public void removeToken(String key)
+        throws ETSdkException
+    {
+        File file = getFile(key);
+        synchronized (getLock(file)) {
+            if (file.exists() && !file.delete()) {
+                throw new ETSdkException("could not delete " + file);
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    //
+    // Keys contain endpoints and client IDs, so file
+    // names are derived from a digest of the key:
+    //
+
+    File getFile(String key)
+        throws ETSdkException
+    {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(key.getBytes(UTF_8));
+            StringBuilder name = new StringBuilder("token-");
+            for (byte b : hash) {
+                name.append(Character.forDigit((b >> 4) & 0xf, 16));
+                name.append(Character.forDigit(b & 0xf, 16));
+            }
+            return new File(directory, name.toString());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new ETSdkException("could not compute token file name", ex);
+        }
+    }
+
+    //
+    // Opens a token file for reading and writing, creating it
+    // accessible by its owner only if it does not exist:
+    //
+
+    private static FileChannel open(File file)
+        throws IOException, ETSdkException
+    {
+        if (NIO) {
+            return Nio.open(file);
+        }
+        if (!file.getCanonicalFile().equals(
+                new File(file.getParentFile().getCanonicalFile(), file.getName()))) {
+            throw new ETSdkException("refusing token file " + file
+                    + ": it is a symbolic link");
+        }
+        if (file.createNewFile()) {
+            restrictToOwner(file);
+        }
+        return new RandomAccessFile(file, "rw").getChannel();
+    }
+
+    private static ETAccessToken read(FileChannel channel)
+        throws IOException
+    {
+        long size = channel.size();
+        if (size == 0) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        channel.position(0);
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {}
+        Properties properties = new Properties();
+        properties.load(new ByteArrayInputStream(buffer.array(), 0, buffer.position()));
+        String accessToken = properties.getProperty("accessToken");
+        String expirationTime = properties.getProperty("expirationTime");
+        if (accessToken == null || expirationTime == null) {
+            return null;
+        }
+        try {
+            return new ETAccessToken(accessToken,
+                    properties.getProperty("refreshToken"),
+                    properties.getProperty("legacyToken"),
+                    Integer.parseInt(properties.getProperty("expiresIn", "0")),
+                    Long.parseLong(expirationTime),
+                    properties.getProperty("restInstanceUrl"),
+                    properties.getProperty("soapInstanceUrl"));
+        } catch (NumberFormatException ex) {
+            logger.warn("ignoring malformed token file", ex);
+            return null;
+        }
+    }
+
+    private static void write(FileChannel channel, ETAccessToken token)
+        throws IOException
+    {
+        Properties properties = new Properties();
+        properties.setProperty("accessToken", token.getAccessToken());
+        setProperty(properties, "refreshToken", token.getRefreshToken());
+        setProperty(properties, "legacyToken", token.getLegacyToken());
+        properties.setProperty("expiresIn", Integer.toString(token.getExpiresIn()));
+        properties.setProperty("expirationTime", Long.toString(token.getExpirationTime()));
+        setProperty(properties, "restInstanceUrl", token.getRestInstanceUrl());
+        setProperty(properties, "soapInstanceUrl", token.getSoapInstanceUrl());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        properties.store(out, null);
+        ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+        channel.truncate(0);
+        channel.position(0);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    private static void setProperty(Properties properties, String key, String value) {
+        if (value != null) {
+            properties.setProperty(key, value);
+        }
+    }
+
+    private static void restrictToOwner(File file) {
+        if (!(file.setReadable(false, false) && file.setReadable(true, true)
+                && file.setWritable(false, false) && file.setWritable(true, true))) {
+            logger.warn("could not restrict access to " + file + " to its owner");
+        }
+    }
+
+    private static File getDirectory(ETConfiguration configuration) {
+        String directory = configuration.get("tokenStoreDirectory");
+        if (directory == null) {
+            return new File(new File(System.getProperty("user.home"), ".fuelsdk"),
+                            "tokens");
+        }
+        return new File(directory);
+    }
+
+    private static Object getLock(File file) {
+        String path = file.getAbsolutePath();
+        Object lock = locks.get(path);
+        if (lock == null) {
+            synchronized (locks) {
+                lock = locks.get(path);
+                if (lock == null) {
+                    lock = new Object();
+                    locks.put(path, lock);
+                }
+            }
+        }
+        return lock;
+    }
+
+    private static boolean isNioAvailable() {
+        try {
+            Class.forName("java.nio.file.Files");
+            return true;
+        } catch (ClassNotFoundException ex) {
+            return false;
+        }
+    }
+
+    //
+    // The checks that need java.nio.file, in a class of their
+    // own so that the store still loads on Java 6:
+    //
+
+    private static class Nio {
+        private static final String OWNER_ONLY = "rw-------";
+
+        static void checkDirectory(File directory)
+            throws ETSdkException
+        {
+            Path path = directory.toPath();
+            try {
+                if (Files.isSymbolicLink(path)) {
+                    throw new ETSdkException("refusing token store directory "
+                            + directory + ": it is a symbolic link");
+                }
+                UserPrincipal owner = Files.getOwner(path);
+                UserPrincipal user = path.getFileSystem()
+                        .getUserPrincipalLookupService()
+                        .lookupPrincipalByName(System.getProperty("user.name"));
+                if (!owner.equals(user)) {
+                    throw new ETSdkException("refusing token store directory "
+                            + directory + ": it is owned by " + owner.getName());
+                }
+                PosixFileAttributeView view = Files.getFileAttributeView(path,
+                        PosixFileAttributeView.class);
+                if (view != null) {
+                    Set<PosixFilePermission> permissions =
+                            view.readAttributes().permissions();
+                    if (permissions.contains(PosixFilePermission.GROUP_WRITE)
+                            || permissions.contains(PosixFilePermission.OTHERS_WRITE)) {
+                        throw new ETSdkException("refusing token store directory "
+                                + directory + ": it is writable by other users");
+                    }
+                }
+            } catch (IOException ex) {
+                throw new ETSdkException("could not check token store directory "
+                        + directory, ex);
+            }
+        }
+
+        static FileChannel open(File file)
+            throws IOException, ETSdkException
+        {
+            Path path = file.toPath();
+            boolean posix = Files.getFileAttributeView(path.getParent(),
+                    PosixFileAttributeView.class) != null;
+            try {
+                if (posix) {
+                    Files.createFile(path, PosixFilePermissions.asFileAttribute(
+                            PosixFilePermissions.fromString(OWNER_ONLY)));
+                } else {
+                    Files.createFile(path);
+                    restrictToOwner(file);
+                }
+            } catch (FileAlreadyExistsException ex) {
+                if (Files.isSymbolicLink(path)) {
+                    throw new ETSdkException("refusing token file " + file
+                            + ": it is a symbolic link");
+                }
+            }
+            return FileChannel.open(path,
+                                    StandardOpenOption.READ,
+                                    StandardOpenOption.WRITE,
+                                    LinkOption.NOFOLLOW_LINKS);
+        }
+    }
+}
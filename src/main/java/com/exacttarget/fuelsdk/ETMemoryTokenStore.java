@@ -0,0 +1,148 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/**
+ * An <code>ETMemoryTokenStore</code> is an <code>ETTokenStore</code>
+ * that keeps tokens in memory. Clients configured with
+ * <code>tokenStore=memory</code> share the instance returned by
+ * <code>getDefault()</code>.
+ */
+
+public class ETMemoryTokenStore implements ETTokenStore {
+    private static Logger logger = Logger.getLogger(ETMemoryTokenStore.class);
+
+    private static final ETMemoryTokenStore defaultInstance =
+            new ETMemoryTokenStore();
+
+    private final Map<String, ETAccessToken> tokens =
+            new ConcurrentHashMap<String, ETAccessToken>();
+    private final Map<String, Object> locks =
+            new ConcurrentHashMap<String, Object>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+    * Class constructor, Initializes a new instance of the class.
+    */
+    public ETMemoryTokenStore() {}
+
+    /**
+     * @return  The instance shared by all clients in the JVM
+     */
+    public static ETMemoryTokenStore getDefault() {
+        return defaultInstance;
+    }
+
+    public ETAccessToken getToken(String key,
+                                  long minValidity,
+                                  Callable<ETAccessToken> request)
+        throws ETSdkException
+    {
+        ETAccessToken token = tokens.get(key);
+        if (isValid(token, minValidity)) {
+            hits.incrementAndGet();
+            return token;
+        }
+        synchronized (getLock(key)) {
+            // another thread may have stored a token in the meantime:
+            token = tokens.get(key);
+            if (isValid(token, minValidity)) {
+                hits.incrementAndGet();
+                return token;
+            }
+            misses.incrementAndGet();
+            logger.trace("no valid token stored for " + key);
+            token = call(request);
+            if (token != null) {
+                tokens.put(key, token);
+            }
+            return token;
+        }
+    }
+
+    public void removeToken(String key) {
+        tokens.remove(key);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    static boolean isValid(ETAccessToken token, long minValidity) {
+        return token != null
+            && !token.expiresWithin(System.currentTimeMillis(), minValidity);
+    }
+
+    static ETAccessToken call(Callable<ETAccessToken> request)
+        throws ETSdkException
+    {
+        try {
+            return request.call();
+        } catch (ETSdkException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new ETSdkException("error obtaining access token", ex);
+        }
+    }
+
+    private Object getLock(String key) {
+        Object lock = locks.get(key);
+        if (lock == null) {
+            synchronized (locks) {
+                lock = locks.get(key);
+                if (lock == null) {
+                    lock = new Object();
+                    locks.put(key, lock);
+                }
+            }
+        }
+        return lock;
+    }
+}
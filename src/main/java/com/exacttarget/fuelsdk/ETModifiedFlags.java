@@ -0,0 +1,131 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.BitSet;
+
+/**
+ * An <code>ETModifiedFlags</code> records which properties of an
+ * object are modified, indexed by property ordinal. A flag is
+ * either unset, true, or false, so two bitsets replace a map
+ * with an entry per property.
+ */
+
+final class ETModifiedFlags {
+    private final BitSet recorded = new BitSet();
+    private final BitSet modified = new BitSet();
+
+    /**
+     * @param ordinal   The ordinal of the property
+     * @return          The flag, or <code>null</code> if it is unset
+     */
+    Boolean get(int ordinal) {
+        if (!recorded.get(ordinal)) {
+            return null;
+        }
+        return modified.get(ordinal);
+    }
+
+    /**
+     * @param ordinal   The ordinal of the property
+     * @param value     The flag, or <code>null</code> to unset it
+     * @return          The previous flag, or <code>null</code> if it was unset
+     */
+    Boolean set(int ordinal, Boolean value) {
+        Boolean previous = get(ordinal);
+        if (value == null) {
+            recorded.clear(ordinal);
+            modified.clear(ordinal);
+        } else {
+            recorded.set(ordinal);
+            modified.set(ordinal, value);
+        }
+        return previous;
+    }
+
+    /**
+     * @param ordinal   The ordinal of the property
+     * @return          true if the property is modified, false otherwise
+     */
+    boolean isModified(int ordinal) {
+        return modified.get(ordinal);
+    }
+
+    /**
+     * @return  true if any property is modified, false otherwise
+     */
+    boolean hasModified() {
+        return !modified.isEmpty();
+    }
+
+    /**
+     * @param from  The ordinal to start from
+     * @return      The ordinal of the next modified property,
+     *              or -1 if there is none
+     */
+    int nextModified(int from) {
+        return modified.nextSetBit(from);
+    }
+
+    /**
+     * Removes a property, shifting the flags of the properties
+     * after it down by one.
+     * @param ordinal   The ordinal of the property
+     */
+    void remove(int ordinal) {
+        remove(recorded, ordinal);
+        remove(modified, ordinal);
+    }
+
+    /**
+     * Unsets all flags.
+     */
+    void clear() {
+        recorded.clear();
+        modified.clear();
+    }
+
+    private static void remove(BitSet bits, int ordinal) {
+        int length = bits.length();
+        if (length <= ordinal) {
+            return;
+        }
+        BitSet above = bits.get(ordinal + 1, length);
+        bits.clear(ordinal, length);
+        for (int i = above.nextSetBit(0); i >= 0; i = above.nextSetBit(i + 1)) {
+            bits.set(ordinal + i);
+        }
+    }
+}
@@ -35,9 +35,7 @@
 package com.exacttarget.fuelsdk;
 
 import java.lang.reflect.Field;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.ListIterator;
 
 import com.exacttarget.fuelsdk.annotations.ExternalName;
 import com.exacttarget.fuelsdk.annotations.PrettyPrint;
@@ -161,14 +159,7 @@ public abstract class ETObject {
     * @return     The Field of the ETObject.
     */    
     protected Field getField(String property) {
-        for (Field field : getAllFields()) {
-            ExternalName externalName =
-                    field.getAnnotation(ExternalName.class);
-            if (externalName != null && externalName.value().equals(property)) {
-                return field;
-            }
-        }
-        return null;
+        return ETObjectMetadata.get(getClass()).getFieldByExternalName(property);
     }
 
     /** 
@@ -179,16 +170,7 @@ public abstract class ETObject {
     protected static Field getField(Class<?> type, String name)
         throws ETSdkException
     {
-        Field field = null;
-
-        for (Class<?> t = type; t != null; t = t.getSuperclass()) {
-            try {
-                field = t.getDeclaredField(name);
-                break;
-            } catch (NoSuchFieldException ex) {
-                continue;
-            }
-        }
+        Field field = ETObjectMetadata.get(type).getField(name);
 
         if (field == null) {
             throw new ETSdkException("field \""
@@ -209,30 +191,13 @@ public abstract class ETObject {
 
     /** 
     * @param type   The class type whose Fields will be retrieved.
-    * @return       The List of Field of the class type.
+    * @return       The List of Field of the class type (unmodifiable).
     */    
     protected static List<Field> getAllFields(Class<?> type) {
-        List<Field> fields = new ArrayList<Field>();
-
         // XXX this needs to account for overrides
 
-        // account for fields of superclasses too
-
-        List<Class<?>> types = new ArrayList<Class<?>>();
-        for (Class<?> t = type; t != null; t = t.getSuperclass()) {
-            types.add(t);
-        }
-
-        // make sure superclass fields are first for readability
-
-        ListIterator<Class<?>> li = types.listIterator(types.size());
-        while (li.hasPrevious()) {
-            Class<?> t = li.previous();
-            for (Field field : t.getDeclaredFields()) {
-                fields.add(field);
-            }
-        }
+        // superclass fields are first for readability
 
-        return fields;
+        return ETObjectMetadata.get(type).getFields();
     }
 }
@@ -0,0 +1,259 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.Logger;
+
+import com.exacttarget.fuelsdk.annotations.ExternalName;
+import com.exacttarget.fuelsdk.annotations.SoapObject;
+
+/**
+ * An <code>ETObjectMetadata</code> holds what the SDK reflects
+ * about a class: its fields, superclass fields first, the
+ * ordinals of its external fields, and for
+ * SOAP objects the internal property names of its external
+ * properties and the properties retrieved by default. It is
+ * computed once per class and never modified afterwards.
+ */
+
+final class ETObjectMetadata {
+    private static Logger logger = Logger.getLogger(ETObjectMetadata.class);
+
+    //
+    // ClassValue would let classes be unloaded, but the SDK still
+    // targets Java 6; a class is only registered once mapped, and
+    // the metadata is small:
+    //
+
+    private static final Map<Class<?>, ETObjectMetadata> registry =
+            new ConcurrentHashMap<Class<?>, ETObjectMetadata>();
+
+    private final List<Field> fields;
+    private final Map<String, Field> fieldsByName;
+    private final Map<String, Field> fieldsByExternalName;
+    private final List<Field> externalFields;
+    private final Map<String, Integer> externalOrdinals;
+    private final Map<String, String> internalProperties;
+    private final List<String> retrievableProperties;
+
+    private ETObjectMetadata(Class<?> type) {
+        List<Class<?>> types = new ArrayList<Class<?>>();
+        for (Class<?> t = type; t != null; t = t.getSuperclass()) {
+            types.add(t);
+        }
+
+        //
+        // Superclass fields are first for readability; by name,
+        // a field hides the fields of the same name it overrides:
+        //
+
+        List<Field> fields = new ArrayList<Field>();
+        Map<String, Field> fieldsByName = new HashMap<String, Field>();
+        Map<String, Field> fieldsByExternalName = new HashMap<String, Field>();
+        ListIterator<Class<?>> li = types.listIterator(types.size());
+        while (li.hasPrevious()) {
+            for (Field field : li.previous().getDeclaredFields()) {
+                try {
+                    // the fields are shared, so don't toggle this later
+                    field.setAccessible(true);
+                } catch (SecurityException ex) {
+                    logger.debug("could not make " + field + " accessible", ex);
+                }
+                fields.add(field);
+                fieldsByName.put(field.getName(), field);
+                ExternalName externalName = field.getAnnotation(ExternalName.class);
+                if (externalName != null
+                        && !fieldsByExternalName.containsKey(externalName.value())) {
+                    fieldsByExternalName.put(externalName.value(), field);
+                }
+            }
+        }
+        this.fields = Collections.unmodifiableList(fields);
+        this.fieldsByName = fieldsByName;
+        this.fieldsByExternalName = fieldsByExternalName;
+
+        //
+        // Number the external fields, so per-object state such as
+        // modification flags can be kept by ordinal:
+        //
+
+        List<Field> externalFields = new ArrayList<Field>();
+        Map<String, Integer> externalOrdinals = new HashMap<String, Integer>();
+        for (Field field : fields) {
+            ExternalName externalName = field.getAnnotation(ExternalName.class);
+            if (externalName != null
+                    && fieldsByExternalName.get(externalName.value()) == field) {
+                externalOrdinals.put(externalName.value(), externalFields.size());
+                externalFields.add(field);
+            }
+        }
+        this.externalFields = Collections.unmodifiableList(externalFields);
+        this.externalOrdinals = externalOrdinals;
+
+        //
+        // Resolve the internal property names of SOAP objects;
+        // if any can't be resolved, lookups fall back to
+        // resolving on each call so the error is reported
+        // the way it always was:
+        //
+
+        Map<String, String> internalProperties = new HashMap<String, String>();
+        List<String> retrievableProperties = null;
+        SoapObject soapObject = type.getAnnotation(SoapObject.class);
+        if (soapObject != null && ETSoapObject.class.isAssignableFrom(type)) {
+            Class<? extends ETSoapObject> soapType = type.asSubclass(ETSoapObject.class);
+            retrievableProperties = new ArrayList<String>();
+            for (Field field : fields) {
+                if (field.getAnnotation(ExternalName.class) == null) {
+                    continue;
+                }
+                String internalProperty = null;
+                try {
+                    internalProperty =
+                            ETSoapObject.resolveInternalProperty(soapType, field);
+                } catch (ETSdkException ex) {
+                    logger.debug("could not resolve internal property of " + field, ex);
+                }
+                if (internalProperty == null) {
+                    retrievableProperties = null;
+                    break;
+                }
+                internalProperties.put(field.getName(), internalProperty);
+                retrievableProperties.add(internalProperty);
+            }
+            if (retrievableProperties != null) {
+                for (String property : soapObject.unretrievable()) {
+                    retrievableProperties.remove(property);
+                }
+                retrievableProperties = Collections.unmodifiableList(retrievableProperties);
+            }
+        }
+        this.internalProperties = internalProperties;
+        this.retrievableProperties = retrievableProperties;
+    }
+
+    /**
+     * @param type  The class
+     * @return      The metadata of the class
+     */
+    static ETObjectMetadata get(Class<?> type) {
+        ETObjectMetadata metadata = registry.get(type);
+        if (metadata == null) {
+            // computing it twice in a race is harmless:
+            metadata = new ETObjectMetadata(type);
+            registry.put(type, metadata);
+        }
+        return metadata;
+    }
+
+    /**
+     * @return  The fields of the class and its superclasses,
+     *          superclass fields first (unmodifiable)
+     */
+    List<Field> getFields() {
+        return fields;
+    }
+
+    /**
+     * @param name  The name of the field
+     * @return      The field, or <code>null</code> if there is none
+     */
+    Field getField(String name) {
+        return fieldsByName.get(name);
+    }
+
+    /**
+     * @param externalName  The value of the field's <code>@ExternalName</code>
+     * @return              The field, or <code>null</code> if there is none
+     */
+    Field getFieldByExternalName(String externalName) {
+        return fieldsByExternalName.get(externalName);
+    }
+
+    /**
+     * @return  The fields with an <code>@ExternalName</code>, in
+     *          ordinal order (unmodifiable)
+     */
+    List<Field> getExternalFields() {
+        return externalFields;
+    }
+
+    /**
+     * @param externalName  The value of the field's <code>@ExternalName</code>
+     * @return              The ordinal of the field, or -1 if there is none
+     */
+    int getExternalOrdinal(String externalName) {
+        Integer ordinal = externalOrdinals.get(externalName);
+        if (ordinal == null) {
+            return -1;
+        }
+        return ordinal;
+    }
+
+    /**
+     * @param ordinal   The ordinal of an external field
+     * @return          The value of the field's <code>@ExternalName</code>
+     */
+    String getExternalName(int ordinal) {
+        return externalFields.get(ordinal).getAnnotation(ExternalName.class).value();
+    }
+
+    /**
+     * @param name  The name of an external field of a SOAP object
+     * @return      The internal property name, or <code>null</code>
+     *              if it could not be resolved
+     */
+    String getInternalProperty(String name) {
+        return internalProperties.get(name);
+    }
+
+    /**
+     * @return  The internal properties of a SOAP object that are
+     *          retrieved by default (unmodifiable), or
+     *          <code>null</code> if they could not all be resolved
+     */
+    List<String> getRetrievableProperties() {
+        return retrievableProperties;
+    }
+}
@@ -0,0 +1,492 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/**
+ * An <code>ETParallelScan</code> scans a data extension in disjoint
+ * partitions, such as ranges of a numeric or date primary key or
+ * the buckets of a hash column, each partition with its own
+ * retrieve cursor. Up to <code>concurrency</code> partitions are
+ * scanned at a time.
+ * <p>
+ * The batches can either be consumed as one stream, with
+ * <code>hasNext</code> and <code>next</code> as from an
+ * <code>ETRetrieveCursor</code>, in the order they arrive, or be
+ * handed to a <code>Sink</code> per partition with <code>run</code>.
+ * A scan is consumed once, one way or the other. The stream holds
+ * a few batches per partition scanned at a time, so a slow
+ * consumer holds the partitions back rather than filling memory.
+ * <p>
+ * Rows outside the partitions, such as those with a null
+ * partition column, are not scanned.
+ */
+
+public class ETParallelScan {
+    private static Logger logger = Logger.getLogger(ETParallelScan.class);
+
+    /**
+     * Receives the batches of a partition. It is called from the
+     * partitions' threads, so must be thread safe if it is shared
+     * between partitions.
+     */
+    public interface Sink {
+        /**
+         * @param partition The index of the partition
+         * @param batch     The next batch of the partition
+         * @throws ETSdkException
+         */
+        void batchSelected(int partition, ETResponse<ETDataExtensionRow> batch)
+            throws ETSdkException;
+    }
+
+    // marks the end of a partition in the stream:
+    private static final ETResponse<ETDataExtensionRow> END =
+            new ETResponse<ETDataExtensionRow>();
+
+    private final List<ETRetrieveCursor<ETDataExtensionRow>> cursors;
+    private final int concurrency;
+
+    private final AtomicLong count = new AtomicLong();
+    private final List<Future<?>> futures = new ArrayList<Future<?>>();
+    private volatile ETResponse<ETDataExtensionRow> failed = null;
+    private boolean started = false;
+
+    private BlockingQueue<ETResponse<ETDataExtensionRow>> queue = null;
+    private ETResponse<ETDataExtensionRow> next = null;
+    private int ended = 0;
+
+    /**
+    * Class constructor, Initializes a new instance of the class.
+    * @param cursors        The cursors of the partitions
+    * @param concurrency    The maximum number of partitions
+    *                       scanned at a time
+    */
+    ETParallelScan(List<ETRetrieveCursor<ETDataExtensionRow>> cursors,
+                   int concurrency)
+    {
+        this.cursors = cursors;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * @return  The number of partitions
+     */
+    public int getPartitions() {
+        return cursors.size();
+    }
+
+    /**
+     * @return  The number of rows scanned so far
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Waits for the next batch from any partition.
+     * @return  true if there is another batch, false if all
+     *          partitions are exhausted
+     * @throws ETSdkException
+     */
+    public boolean hasNext()
+        throws ETSdkException
+    {
+        if (queue == null) {
+            queue = new ArrayBlockingQueue<ETResponse<ETDataExtensionRow>>(
+                    2 * getWorkers());
+            start(new Sink() {
+                public void batchSelected(int partition,
+                                          ETResponse<ETDataExtensionRow> batch)
+                    throws ETSdkException
+                {
+                    put(batch);
+                }
+            }, true);
+        }
+        try {
+            while (next == null && ended < cursors.size()) {
+                ETResponse<ETDataExtensionRow> batch = queue.take();
+                if (batch == END) {
+                    ended++;
+                } else {
+                    next = batch;
+                }
+            }
+        } catch (InterruptedException ex) {
+            close();
+            Thread.currentThread().interrupt();
+            throw new ETSdkException("interrupted while scanning", ex);
+        }
+        return next != null;
+    }
+
+    /**
+     * Returns the next batch from any partition, in the order the
+     * batches arrive.
+     * @return  The ETResponse holding the batch; its status tells
+     *          whether the partition failed, in which case it is
+     *          the partition's last batch
+     * @throws ETSdkException
+     */
+    public ETResponse<ETDataExtensionRow> next()
+        throws ETSdkException
+    {
+        if (!hasNext()) {
+            throw new ETSdkException("no more results");
+        }
+        ETResponse<ETDataExtensionRow> batch = next;
+        next = null;
+        return batch;
+    }
+
+    /**
+     * Scans all partitions, handing each batch to the sink.
+     * @param sink  The sink for the batches
+     * @return      The ETResponse of the scan, with the number of
+     *              rows scanned as its total count and an error
+     *              status if any partition failed
+     * @throws ETSdkException
+     */
+    public ETResponse<ETDataExtensionRow> run(Sink sink)
+        throws ETSdkException
+    {
+        start(sink, false);
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            close();
+            Thread.currentThread().interrupt();
+            throw new ETSdkException("interrupted while scanning", ex);
+        } catch (java.util.concurrent.ExecutionException ex) {
+            // partitions catch their exceptions, so this is an Error
+            throw (Error) ex.getCause();
+        }
+
+        ETResponse<ETDataExtensionRow> response = new ETResponse<ETDataExtensionRow>();
+        if (failed == null) {
+            response.setStatus(ETResult.Status.OK);
+            response.setResponseCode("OK");
+            response.setResponseMessage("OK");
+        } else {
+            response.setStatus(ETResult.Status.ERROR);
+            response.setResponseCode(failed.getResponseCode());
+            response.setResponseMessage(failed.getResponseMessage());
+        }
+        response.setTotalCount((int) count.get());
+        return response;
+    }
+
+    /**
+     * Stops scanning; partitions stop after their current batch.
+     */
+    public void close() {
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+        if (queue != null) {
+            queue.clear();
+        }
+    }
+
+    /**
+     * Partitions a numeric column into ranges.
+     * @param column    The name of the column
+     * @param min       The minimum value to scan
+     * @param max       The maximum value to scan
+     * @param count     The number of partitions
+     * @return          The partitions, which cover
+     *                  <code>min</code> to <code>max</code>
+     */
+    public static List<ETExpression> rangePartitions(String column,
+                                                     long min,
+                                                     long max,
+                                                     int count)
+    {
+        if (count < 1 || max < min) {
+            throw new IllegalArgumentException("invalid partitions");
+        }
+        long size = Math.max(1, (max - min) / count + 1);
+        List<ETExpression> partitions = new ArrayList<ETExpression>();
+        for (long from = min; from <= max; from += size) {
+            long to = from + size;
+            if (to > max || to < from) {
+                partitions.add(range(column, Long.toString(from), Long.toString(max), true));
+                break;
+            }
+            partitions.add(range(column, Long.toString(from), Long.toString(to), false));
+        }
+        return partitions;
+    }
+
+    /**
+     * Partitions a date column into ranges, to the second.
+     * @param column    The name of the column
+     * @param min       The minimum date to scan
+     * @param max       The maximum date to scan
+     * @param count     The number of partitions
+     * @return          The partitions, which cover
+     *                  <code>min</code> to <code>max</code>
+     */
+    public static List<ETExpression> rangePartitions(String column,
+                                                     Date min,
+                                                     Date max,
+                                                     int count)
+    {
+        if (count < 1 || max.before(min)) {
+            throw new IllegalArgumentException("invalid partitions");
+        }
+        SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+        formatter.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        //
+        // Neighboring partitions share the formatted bound,
+        // so they stay disjoint when it is truncated:
+        //
+
+        List<ETExpression> partitions = new ArrayList<ETExpression>();
+        String from = formatter.format(min);
+        long size = (max.getTime() - min.getTime()) / count;
+        for (int i = 1; i < count; i++) {
+            String to = formatter.format(new Date(min.getTime() + size * i));
+            if (!to.equals(from)) {
+                partitions.add(range(column, from, to, false));
+                from = to;
+            }
+        }
+        partitions.add(range(column, from, formatter.format(max), true));
+        return partitions;
+    }
+
+    /**
+     * Partitions a column holding bucket numbers, such as a hash
+     * of the primary key modulo <code>count</code>.
+     * @param column    The name of the column
+     * @param count     The number of buckets
+     * @return          The partitions, one per bucket from 0
+     */
+    public static List<ETExpression> bucketPartitions(String column, int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("invalid partitions");
+        }
+        List<ETExpression> partitions = new ArrayList<ETExpression>();
+        for (int i = 0; i < count; i++) {
+            partitions.add(compare(column, ETExpression.Operator.EQUALS, Integer.toString(i)));
+        }
+        return partitions;
+    }
+
+    /**
+     * Combines a filter with a partition.
+     * @param filter    The filter of the scan
+     * @param partition The partition
+     * @return          A filter selecting the filter's rows in the
+     *                  partition, with its own copy of the properties
+     */
+    static ETFilter partition(ETFilter filter, ETExpression partition) {
+        ETFilter partitionFilter = new ETFilter();
+        partitionFilter.setProperties(new ArrayList<String>(filter.getProperties()));
+        ETExpression expression = filter.getExpression();
+        if (expression == null || expression.getOperator() == null) {
+            partitionFilter.setExpression(copy(partition));
+        } else {
+            ETExpression and = new ETExpression();
+            and.setOperator(ETExpression.Operator.AND);
+            and.addSubexpression(copy(expression));
+            and.addSubexpression(copy(partition));
+            partitionFilter.setExpression(and);
+        }
+        return partitionFilter;
+    }
+
+    private void start(final Sink sink, final boolean stream)
+        throws ETSdkException
+    {
+        if (started) {
+            throw new ETSdkException("scan already started");
+        }
+        started = true;
+
+        logger.debug("scanning " + cursors.size() + " partitions, "
+                + concurrency + " at a time");
+
+        //
+        // Each worker scans partitions one after another, taking
+        // the next partition not yet taken, so only as many
+        // threads as partitions scanned at a time are used:
+        //
+
+        final AtomicInteger next = new AtomicInteger();
+        for (int i = 0; i < getWorkers(); i++) {
+            futures.add(ETBulkWriter.getExecutor().submit(new Runnable() {
+                public void run() {
+                    while (!Thread.currentThread().isInterrupted()) {
+                        int partition = next.getAndIncrement();
+                        if (partition >= cursors.size()) {
+                            return;
+                        }
+                        try {
+                            scan(partition, cursors.get(partition), sink);
+                        } finally {
+                            if (stream) {
+                                try {
+                                    put(END);
+                                } catch (ETSdkException ex) {
+                                    // closed
+                                }
+                            }
+                        }
+                    }
+                }
+            }));
+        }
+    }
+
+    private int getWorkers() {
+        return Math.max(1, Math.min(concurrency, cursors.size()));
+    }
+
+    private void scan(int partition,
+                      ETRetrieveCursor<ETDataExtensionRow> cursor,
+                      Sink sink)
+    {
+        try {
+            while (cursor.hasNext() && !Thread.currentThread().isInterrupted()) {
+                ETResponse<ETDataExtensionRow> batch = cursor.next();
+                if (batch.getStatus() == ETResult.Status.ERROR) {
+                    fail(partition, batch);
+                    sink.batchSelected(partition, batch);
+                    return;
+                }
+                count.addAndGet(batch.getResults().size());
+                sink.batchSelected(partition, batch);
+            }
+        } catch (Exception ex) {
+            logger.warn("error scanning partition " + partition, ex);
+            ETResponse<ETDataExtensionRow> batch = new ETResponse<ETDataExtensionRow>();
+            batch.setStatus(ETResult.Status.ERROR);
+            batch.setResponseCode("Error");
+            batch.setResponseMessage(ex.getMessage());
+            fail(partition, batch);
+            try {
+                sink.batchSelected(partition, batch);
+            } catch (Exception e) {
+                // the sink is what failed
+            }
+        }
+    }
+
+    private void fail(int partition, ETResponse<ETDataExtensionRow> batch) {
+        logger.debug("partition " + partition + " failed: "
+                + batch.getResponseMessage());
+        synchronized (this) {
+            if (failed == null) {
+                failed = batch;
+            }
+        }
+    }
+
+    private void put(ETResponse<ETDataExtensionRow> batch)
+        throws ETSdkException
+    {
+        try {
+            queue.put(batch);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ETSdkException("scan closed", ex);
+        }
+    }
+
+    private static ETExpression range(String column,
+                                      String from,
+                                      String to,
+                                      boolean inclusive)
+    {
+        ETExpression and = new ETExpression();
+        and.setOperator(ETExpression.Operator.AND);
+        and.addSubexpression(compare(column,
+                                     ETExpression.Operator.GREATER_THAN_OR_EQUALS,
+                                     from));
+        and.addSubexpression(compare(column,
+                                     inclusive
+                                         ? ETExpression.Operator.LESS_THAN_OR_EQUALS
+                                         : ETExpression.Operator.LESS_THAN,
+                                     to));
+        return and;
+    }
+
+    private static ETExpression compare(String column,
+                                        ETExpression.Operator operator,
+                                        String value)
+    {
+        ETExpression expression = new ETExpression();
+        expression.setProperty(column);
+        expression.setOperator(operator);
+        expression.setValue(value);
+        return expression;
+    }
+
+    //
+    // Retrieves rename properties in place, and partitions
+    // are retrieved concurrently, so each gets a copy:
+    //
+
+    private static ETExpression copy(ETExpression expression) {
+        ETExpression copy = new ETExpression();
+        copy.setProperty(expression.getProperty());
+        copy.setOperator(expression.getOperator());
+        for (String value : expression.getValues()) {
+            copy.addValue(value);
+        }
+        for (ETExpression subexpression : expression.getSubexpressions()) {
+            copy.addSubexpression(copy(subexpression));
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,539 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.net.HttpURLConnection;
+import java.net.ProtocolException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * An <code>ETPooledRestTransport</code> is an <code>ETRestTransport</code>
+ * that sends requests over a bounded pool of keep-alive connections
+ * per host, so concurrent REST calls reuse sockets (and their TLS
+ * sessions) instead of opening a new one for every call.
+ * <p>
+ * The pool is an Apache HttpClient
+ * <code>PoolingHttpClientConnectionManager</code>; the connections
+ * returned by <code>open</code> are <code>HttpURLConnection</code>s
+ * backed by it. A connection is leased from the pool when the
+ * request is sent and goes back to it on <code>release</code>.
+ * Connections that have been idle for longer than the idle timeout
+ * are closed in the background, and connections older than the
+ * maximum lifetime are closed rather than reused.
+ * <p>
+ * The following properties are read from <code>ETConfiguration</code>:
+ * <ul>
+ * <li><code>restMaxConnectionsPerHost</code> (default 20)</li>
+ * <li><code>restConnectionIdleTimeout</code> in milliseconds (default 5000)</li>
+ * <li><code>restConnectionMaxLifetime</code> in milliseconds (default 0, unlimited)</li>
+ * <li><code>restConnectionRequestTimeout</code> in milliseconds (default 0, wait indefinitely)</li>
+ * </ul>
+ */
+
+public class ETPooledRestTransport implements ETRestTransport {
+    private static Logger logger = Logger.getLogger(ETPooledRestTransport.class);
+
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 20;
+    public static final int DEFAULT_IDLE_TIMEOUT = 5000;
+    public static final int DEFAULT_MAX_LIFETIME = 0;
+    public static final int DEFAULT_REQUEST_TIMEOUT = 0;
+
+    private static ScheduledExecutorService evictor = null;
+
+    private final int maxConnectionsPerHost;
+    private final long idleTimeout;
+    private final long maxLifetime;
+    private final long requestTimeout;
+
+    private final PoolingHttpClientConnectionManager manager;
+    private final CloseableHttpClient client;
+    private final Eviction eviction;
+
+    /**
+    * Class constructor, Initializes a new instance of the class
+    * using the default settings.
+    */
+    public ETPooledRestTransport() {
+        this(DEFAULT_MAX_CONNECTIONS_PER_HOST,
+             DEFAULT_IDLE_TIMEOUT,
+             DEFAULT_MAX_LIFETIME,
+             DEFAULT_REQUEST_TIMEOUT);
+    }
+
+    /**
+    * Class constructor, Initializes a new instance of the class.
+    * @param configuration      The ETConfiguration object
+    */
+    public ETPooledRestTransport(ETConfiguration configuration) {
+        this(configuration.getInteger("restMaxConnectionsPerHost",
+                                      DEFAULT_MAX_CONNECTIONS_PER_HOST),
+             configuration.getInteger("restConnectionIdleTimeout",
+                                      DEFAULT_IDLE_TIMEOUT),
+             configuration.getInteger("restConnectionMaxLifetime",
+                                      DEFAULT_MAX_LIFETIME),
+             configuration.getInteger("restConnectionRequestTimeout",
+                                      DEFAULT_REQUEST_TIMEOUT));
+    }
+
+    /**
+    * Class constructor, Initializes a new instance of the class.
+    * @param maxConnectionsPerHost  The maximum number of connections to a host
+    * @param idleTimeout            The time in milliseconds after which an idle connection is closed (0 means never)
+    * @param maxLifetime            The time in milliseconds after which a connection is no longer reused (0 means never)
+    * @param requestTimeout         The time in milliseconds to wait for a free connection (0 means wait indefinitely)
+    */
+    public ETPooledRestTransport(int maxConnectionsPerHost,
+                                 long idleTimeout,
+                                 long maxLifetime,
+                                 long requestTimeout)
+    {
+        if (maxConnectionsPerHost < 1) {
+            throw new IllegalArgumentException("maxConnectionsPerHost must be at least 1");
+        }
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.idleTimeout = idleTimeout;
+        this.maxLifetime = maxLifetime;
+        this.requestTimeout = requestTimeout;
+
+        manager = new PoolingHttpClientConnectionManager(
+                maxLifetime > 0 ? maxLifetime : -1, TimeUnit.MILLISECONDS);
+        manager.setDefaultMaxPerRoute(maxConnectionsPerHost);
+        // the SDK talks to a handful of hosts, so only
+        // the number of connections per host is bounded:
+        manager.setMaxTotal(Integer.MAX_VALUE);
+
+        //
+        // Retries, redirects and gzip are left to ETRestConnection
+        // and its retry policy, as with a plain HttpURLConnection:
+        //
+
+        client = HttpClients.custom()
+                .setConnectionManager(manager)
+                .useSystemProperties()
+                .disableAutomaticRetries()
+                .disableContentCompression()
+                .disableCookieManagement()
+                .build();
+
+        if (idleTimeout > 0) {
+            eviction = new Eviction(this);
+            eviction.future = getEvictor().scheduleWithFixedDelay(eviction,
+                    idleTimeout, idleTimeout, TimeUnit.MILLISECONDS);
+        } else {
+            eviction = null;
+        }
+    }
+
+    /**
+     * @return  The maximum number of connections to a host
+     */
+    public int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    /**
+     * @return  The idle timeout in milliseconds
+     */
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * @return  The maximum connection lifetime in milliseconds
+     */
+    public long getMaxLifetime() {
+        return maxLifetime;
+    }
+
+    /**
+     * @param url   The URL of the host
+     * @return      The number of connections currently leased to the host
+     */
+    public int getLeasedConnections(URL url) {
+        return manager.getStats(getRoute(url)).getLeased();
+    }
+
+    /**
+     * @param url   The URL of the host
+     * @return      The number of idle (kept alive) connections to the host
+     */
+    public int getIdleConnections(URL url) {
+        return manager.getStats(getRoute(url)).getAvailable();
+    }
+
+    public HttpURLConnection open(URL url)
+        throws IOException
+    {
+        if (!url.getProtocol().equals("http") && !url.getProtocol().equals("https")) {
+            throw new IOException("unsupported protocol: " + url);
+        }
+        return new PooledConnection(url);
+    }
+
+    public void release(HttpURLConnection connection, boolean reusable) {
+        if (connection == null) {
+            return;
+        }
+        if (connection instanceof PooledConnection) {
+            ((PooledConnection) connection).release(reusable);
+        } else if (!reusable) {
+            // not ours, but the socket can't be reused:
+            connection.disconnect();
+        }
+    }
+
+    public void close() {
+        if (eviction != null) {
+            eviction.future.cancel(false);
+        }
+        try {
+            client.close();
+        } catch (IOException ex) {
+            logger.debug("error closing REST connections", ex);
+        }
+    }
+
+    //
+    // Closes idle and expired connections (called in the
+    // background every idleTimeout milliseconds):
+    //
+
+    void evict() {
+        manager.closeExpiredConnections();
+        manager.closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+    }
+
+    //
+    // Only holds on to the transport weakly so that a transport
+    // that is never closed doesn't stay around forever:
+    //
+
+    private static class Eviction implements Runnable {
+        private final WeakReference<ETPooledRestTransport> transport;
+        private volatile ScheduledFuture<?> future = null;
+
+        Eviction(ETPooledRestTransport transport) {
+            this.transport = new WeakReference<ETPooledRestTransport>(transport);
+        }
+
+        public void run() {
+            ETPooledRestTransport t = transport.get();
+            if (t == null) {
+                future.cancel(false);
+                return;
+            }
+            t.evict();
+        }
+    }
+
+    private static HttpRoute getRoute(URL url) {
+        int port = url.getPort();
+        if (port == -1) {
+            port = url.getDefaultPort();
+        }
+        HttpHost host = new HttpHost(url.getHost(), port, url.getProtocol());
+        return new HttpRoute(host, null, url.getProtocol().equals("https"));
+    }
+
+    private static synchronized ScheduledExecutorService getEvictor() {
+        if (evictor == null) {
+            evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "fuelsdk-rest-evictor");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return evictor;
+    }
+
+    //
+    // An HttpURLConnection sending its request through the pool.
+    // The request body is buffered, and the request is sent when
+    // the response (code, headers or body) is first asked for:
+    //
+
+    private class PooledConnection extends HttpURLConnection {
+        private ByteArrayOutputStream body = null;
+        private CloseableHttpResponse response = null;
+        private InputStream content = null;
+
+        PooledConnection(URL url) {
+            super(url);
+        }
+
+        @Override
+        public void setRequestMethod(String method)
+            throws ProtocolException
+        {
+            // unlike HttpURLConnection, allow PATCH:
+            if (connected) {
+                throw new ProtocolException("request already sent");
+            }
+            this.method = method;
+        }
+
+        @Override
+        public void connect() {
+            // the request is sent when the response is asked for
+        }
+
+        @Override
+        public OutputStream getOutputStream()
+            throws IOException
+        {
+            if (!doOutput) {
+                throw new ProtocolException("output not enabled");
+            }
+            if (response != null) {
+                throw new ProtocolException("request already sent");
+            }
+            if (body == null) {
+                body = new ByteArrayOutputStream();
+            }
+            return body;
+        }
+
+        @Override
+        public int getResponseCode()
+            throws IOException
+        {
+            send();
+            return responseCode;
+        }
+
+        @Override
+        public String getResponseMessage()
+            throws IOException
+        {
+            send();
+            return responseMessage;
+        }
+
+        @Override
+        public String getHeaderField(String name) {
+            if (!sent()) {
+                return null;
+            }
+            Header header = response.getLastHeader(name);
+            return header != null ? header.getValue() : null;
+        }
+
+        @Override
+        public String getHeaderFieldKey(int n) {
+            if (!sent() || n < 1 || n > response.getAllHeaders().length) {
+                return null;
+            }
+            return response.getAllHeaders()[n - 1].getName();
+        }
+
+        @Override
+        public String getHeaderField(int n) {
+            if (!sent()) {
+                return null;
+            }
+            if (n == 0) {
+                return response.getStatusLine().toString();
+            }
+            if (n < 1 || n > response.getAllHeaders().length) {
+                return null;
+            }
+            return response.getAllHeaders()[n - 1].getValue();
+        }
+
+        @Override
+        public Map<String, List<String>> getHeaderFields() {
+            if (!sent()) {
+                return Collections.emptyMap();
+            }
+            Map<String, List<String>> fields = new LinkedHashMap<String, List<String>>();
+            for (Header header : response.getAllHeaders()) {
+                List<String> values = fields.get(header.getName());
+                if (values == null) {
+                    values = new ArrayList<String>();
+                    fields.put(header.getName(), values);
+                }
+                values.add(header.getValue());
+            }
+            return Collections.unmodifiableMap(fields);
+        }
+
+        @Override
+        public InputStream getInputStream()
+            throws IOException
+        {
+            send();
+            if (responseCode >= 400) {
+                throw new IOException("server returned HTTP response code "
+                        + responseCode + " for URL: " + url);
+            }
+            return content;
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            if (response == null || responseCode < 400) {
+                return null;
+            }
+            return content;
+        }
+
+        @Override
+        public void disconnect() {
+            release(false);
+        }
+
+        @Override
+        public boolean usingProxy() {
+            return false;
+        }
+
+        void release(boolean reusable) {
+            if (response == null) {
+                return;
+            }
+            try {
+                if (reusable) {
+                    // puts the connection back in the pool once
+                    // the rest of the body (if any) is read:
+                    EntityUtils.consume(response.getEntity());
+                }
+                // closes the connection unless it went back:
+                response.close();
+            } catch (IOException ex) {
+                logger.debug("error releasing connection to " + url, ex);
+            }
+        }
+
+        private boolean sent() {
+            try {
+                send();
+                return true;
+            } catch (IOException ex) {
+                return false;
+            }
+        }
+
+        private void send()
+            throws IOException
+        {
+            if (response != null) {
+                return;
+            }
+
+            final String requestMethod = method;
+            HttpEntityEnclosingRequestBase request = new HttpEntityEnclosingRequestBase() {
+                @Override
+                public String getMethod() {
+                    return requestMethod;
+                }
+            };
+            try {
+                request.setURI(url.toURI());
+            } catch (URISyntaxException ex) {
+                throw new IOException(url + ": bad URL");
+            }
+            for (Map.Entry<String, List<String>> property : getRequestProperties().entrySet()) {
+                if (property.getKey() == null
+                        || property.getKey().equalsIgnoreCase("Content-Length")
+                        || property.getKey().equalsIgnoreCase("Transfer-Encoding"))
+                {
+                    // set by the client from the body
+                    continue;
+                }
+                for (String value : property.getValue()) {
+                    request.addHeader(property.getKey(), value);
+                }
+            }
+            if (body != null) {
+                request.setEntity(new ByteArrayEntity(body.toByteArray()));
+            }
+
+            RequestConfig.Builder config = RequestConfig.custom()
+                    .setConnectionRequestTimeout((int) requestTimeout)
+                    .setRedirectsEnabled(instanceFollowRedirects);
+            if (getConnectTimeout() > 0) {
+                config.setConnectTimeout(getConnectTimeout());
+            }
+            if (getReadTimeout() > 0) {
+                config.setSocketTimeout(getReadTimeout());
+            }
+            request.setConfig(config.build());
+
+            connected = true;
+            response = client.execute(request);
+            responseCode = response.getStatusLine().getStatusCode();
+            responseMessage = response.getStatusLine().getReasonPhrase();
+            HttpEntity entity = response.getEntity();
+            if (entity != null) {
+                content = entity.getContent();
+            } else {
+                content = new ByteArrayInputStream(new byte[0]);
+            }
+        }
+    }
+}
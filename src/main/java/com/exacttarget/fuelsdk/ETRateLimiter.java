@@ -0,0 +1,326 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/**
+ * An <code>ETRateLimiter</code> paces outgoing API calls using a
+ * token bucket: tokens are added at a fixed rate (calls per second)
+ * up to a maximum burst, and every call takes one token.
+ * <p>
+ * Limiters are shared by all <code>ETClient</code>s of the same
+ * tenant (<code>clientId</code>/<code>accountId</code>) so that the
+ * budget holds across clients and threads. Each client has separate
+ * limiters for REST, SOAP and auth calls, configured via the
+ * <code>restRateLimit</code>, <code>soapRateLimit</code> and
+ * <code>authRateLimit</code> properties (and the corresponding
+ * <code>...Burst</code> properties). A rate of 0 means unlimited.
+ * <p>
+ * A client configured with a different rate or burst than the
+ * tenant's current limiter gets a new limiter, which clients
+ * created from then on share; clients created before keep the
+ * old one. Unlimited limiters are not shared, and a limiter is
+ * dropped from the registry once no client uses it any more.
+ */
+
+public class ETRateLimiter {
+    private static Logger logger = Logger.getLogger(ETRateLimiter.class);
+
+    // guarded by itself; clients hold on to their limiters:
+    private static final Map<String, WeakReference<ETRateLimiter>> limiters =
+            new HashMap<String, WeakReference<ETRateLimiter>>();
+
+    private final String name;
+    private final int rate;
+    private final int burst;
+
+    private double tokens;
+    private long lastRefill;
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong waitTime = new AtomicLong();
+
+    /**
+    * Class constructor, Initializes a new instance of the class.
+    * @param name       The name of the limiter (used in log and error messages)
+    * @param rate       The number of calls per second (0 means unlimited)
+    * @param burst      The maximum number of calls that can be made at once
+    */
+    public ETRateLimiter(String name, int rate, int burst) {
+        if (rate < 0) {
+            throw new IllegalArgumentException("rate must not be negative");
+        }
+        this.name = name;
+        this.rate = rate;
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Returns the limiter registered under the specified key with
+     * the specified rate and burst, creating (and registering) it
+     * if there is none. Callers getting the same limiter share a
+     * single budget. An unlimited limiter (a rate of 0) is never
+     * registered.
+     * @param key       The key (e.g. <code>clientId/accountId/rest</code>)
+     * @param rate      The number of calls per second (0 means unlimited)
+     * @param burst     The maximum number of calls that can be made at once
+     * @return          The ETRateLimiter object
+     */
+    public static ETRateLimiter getInstance(String key, int rate, int burst) {
+        if (rate == 0) {
+            // there is no budget to share:
+            return new ETRateLimiter(key, rate, burst);
+        }
+        synchronized (limiters) {
+            WeakReference<ETRateLimiter> reference = limiters.get(key);
+            ETRateLimiter limiter = reference != null ? reference.get() : null;
+            if (limiter != null
+                    && limiter.rate == rate
+                    && limiter.burst == Math.max(1, burst))
+            {
+                return limiter;
+            }
+            if (limiter != null) {
+                logger.info(key + ": limit changed from " + limiter.rate
+                        + "/s (burst " + limiter.burst + ") to "
+                        + rate + "/s (burst " + Math.max(1, burst) + ")");
+            }
+            removeUnused();
+            limiter = new ETRateLimiter(key, rate, burst);
+            limiters.put(key, new WeakReference<ETRateLimiter>(limiter));
+            return limiter;
+        }
+    }
+
+    //
+    // Drops the limiters no client uses any more (called
+    // with the registry locked):
+    //
+
+    private static void removeUnused() {
+        Iterator<WeakReference<ETRateLimiter>> i = limiters.values().iterator();
+        while (i.hasNext()) {
+            if (i.next().get() == null) {
+                i.remove();
+            }
+        }
+    }
+
+    //
+    // For testing:
+    //
+
+    static int getRegistered() {
+        synchronized (limiters) {
+            removeUnused();
+            return limiters.size();
+        }
+    }
+
+    /**
+     * @return  The name of the limiter
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return  The number of calls per second (0 means unlimited)
+     */
+    public int getRate() {
+        return rate;
+    }
+
+    /**
+     * @return  The maximum number of calls that can be made at once
+     */
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * @return  The number of threads currently waiting for a token
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * @return  The largest number of threads that have waited for a token at once
+     */
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    /**
+     * @return  The number of tokens handed out
+     */
+    public long getAcquired() {
+        return acquired.get();
+    }
+
+    /**
+     * @return  The number of calls rejected by <code>tryAcquire</code>
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * @return  The total time in milliseconds callers have waited for tokens
+     */
+    public long getWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(waitTime.get());
+    }
+
+    /**
+     * Takes a token, waiting for one if necessary.
+     */
+    public void acquire()
+        throws ETSdkException
+    {
+        sleep(reserve(Long.MAX_VALUE));
+    }
+
+    /**
+     * Takes a token, either waiting for one or failing
+     * immediately if none is available.
+     * @param blocking      true to wait for a token, false to fail immediately
+     */
+    public void acquire(boolean blocking)
+        throws ETSdkException
+    {
+        if (blocking) {
+            acquire();
+        } else if (!tryAcquire()) {
+            throw new ETSdkException(name + ": rate limit of "
+                    + rate + " calls per second exceeded");
+        }
+    }
+
+    /**
+     * Takes a token if one is available.
+     * @return  true if a token was taken, false otherwise
+     */
+    public boolean tryAcquire() {
+        return reserve(0) == 0;
+    }
+
+    /**
+     * Takes a token, waiting up to the specified amount of time.
+     * @param timeout   The maximum time to wait in milliseconds
+     * @return          true if a token was taken, false otherwise
+     */
+    public boolean tryAcquire(long timeout)
+        throws ETSdkException
+    {
+        long wait = reserve(TimeUnit.MILLISECONDS.toNanos(timeout));
+        if (wait < 0) {
+            return false;
+        }
+        sleep(wait);
+        return true;
+    }
+
+    //
+    // Reserves a token and returns the number of nanoseconds the
+    // caller has to wait before using it, or -1 (without reserving
+    // the token) if that would be longer than maxWait. Tokens may
+    // go negative, which queues callers up in arrival order.
+    //
+
+    private long reserve(long maxWait) {
+        if (rate == 0) {
+            acquired.incrementAndGet();
+            return 0;
+        }
+        long wait = 0;
+        synchronized (this) {
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (now - lastRefill) * rate / 1e9);
+            lastRefill = now;
+            if (tokens < 1.0) {
+                wait = (long) Math.ceil((1.0 - tokens) * 1e9 / rate);
+                if (wait > maxWait) {
+                    rejected.incrementAndGet();
+                    return -1;
+                }
+            }
+            tokens -= 1.0;
+        }
+        acquired.incrementAndGet();
+        return wait;
+    }
+
+    private void sleep(long nanos)
+        throws ETSdkException
+    {
+        if (nanos <= 0) {
+            return;
+        }
+        int depth = queueDepth.incrementAndGet();
+        int max = maxQueueDepth.get();
+        while (depth > max && !maxQueueDepth.compareAndSet(max, depth)) {
+            max = maxQueueDepth.get();
+        }
+        if (logger.isTraceEnabled()) {
+            logger.trace(name + ": waiting " + TimeUnit.NANOSECONDS.toMillis(nanos)
+                    + " ms for a token (" + depth + " waiting)");
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ETSdkException(name + ": interrupted waiting for a token", ex);
+        } finally {
+            queueDepth.decrementAndGet();
+            waitTime.addAndGet(nanos);
+        }
+    }
+}
@@ -35,6 +35,7 @@
 package com.exacttarget.fuelsdk;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import org.apache.log4j.Logger;
 import com.exacttarget.fuelsdk.annotations.PrettyPrint;
@@ -50,6 +51,7 @@ public class ETResponse<T extends ETApiObject> extends ETObject {
     private ETResult<T> batchResult = null;
     @PrettyPrint
     private List<ETResult<T>> individualResults = new ArrayList<ETResult<T>>();
+    private List<ETSoapObjectView<T>> views = null;
     @PrettyPrint
     private Boolean moreResults = false;
     @PrettyPrint
@@ -184,6 +186,27 @@ public class ETResponse<T extends ETApiObject> extends ETObject {
         individualResults.add(result);
     }
 
+    /** 
+    * @return The List of views of the results of a view retrieve
+    *         (empty otherwise, the results are in <code>getResults()</code>).
+    */    
+    public List<ETSoapObjectView<T>> getViews() {
+        if (views == null) {
+            return Collections.emptyList();
+        }
+        return views;
+    }
+
+    /** 
+    * @param  view The ETSoapObjectView object to add.
+    */    
+    public void addView(ETSoapObjectView<T> view) {
+        if (views == null) {
+            views = new ArrayList<ETSoapObjectView<T>>();
+        }
+        views.add(view);
+    }
+
     /** 
     * @return true if there are more results, false otherwise.
     */    
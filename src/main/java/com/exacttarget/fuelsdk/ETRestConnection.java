@@ -34,17 +34,22 @@
 
 package com.exacttarget.fuelsdk;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.ProtocolException;
 import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.zip.GZIPInputStream;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import com.google.gson.JsonParser;
 import java.util.List;
 import java.util.Map;
@@ -67,6 +72,14 @@ public class ETRestConnection {
 
     private boolean isAuthConnection = false;
 
+    private ETRestTransport transport = null;
+
+    private ETRetryPolicy retryPolicy = null;
+
+    private final static Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final static int BUFFER_SIZE = 8192;
+
     /** 
     * Class constructor, Initializes a new instance of the class.
      * @param client    The ETClient object
@@ -94,6 +107,17 @@ public class ETRestConnection {
         this.endpoint = endpoint;
 
         this.isAuthConnection = isAuthConnection;
+
+        this.transport = client.getRestTransport();
+
+        this.retryPolicy = client.getRetryPolicy();
+    }
+
+    /**
+     * @return  The ETRestTransport used to open HTTP connections
+     */
+    public ETRestTransport getTransport() {
+        return transport;
     }
 
     /**
@@ -103,23 +127,7 @@ public class ETRestConnection {
     public Response get(String path)
         throws ETSdkException
     {
-        HttpURLConnection connection = null;
-        try {
-            Response response = new Response();
-            connection = sendRequest(path, Method.GET);
-            String json = receiveResponse(connection);
-            response.setRequestId(connection.getHeaderField("X-Mashery-Message-ID"));
-            response.setResponseCode(connection.getResponseCode());
-            response.setResponseMessage(connection.getResponseMessage());
-            response.setResponsePayload(json);
-            return response;
-        } catch (IOException ex) {
-            throw new ETSdkException(ex);
-        } finally {
-            if (connection != null) {
-                connection.disconnect();
-            }
-        }
+        return execute(path, Method.GET, null);
     }
 
     /**
@@ -129,23 +137,7 @@ public class ETRestConnection {
     public Response post(String path, String payload)
         throws ETSdkException
     {
-        HttpURLConnection connection = null;
-        try {
-            Response response = new Response();
-            connection = sendRequest(path, Method.POST, payload);
-            String json = receiveResponse(connection);
-            response.setRequestId(connection.getHeaderField("X-Mashery-Message-ID"));
-            response.setResponseCode(connection.getResponseCode());
-            response.setResponseMessage(connection.getResponseMessage());
-            response.setResponsePayload(json);
-            return response;
-        } catch (IOException ex) {
-            throw new ETSdkException(ex);
-        } finally {
-            if (connection != null) {
-                connection.disconnect();
-            }
-        }
+        return execute(path, Method.POST, payload);
     }
 
     /**
@@ -155,23 +147,17 @@ public class ETRestConnection {
     public Response patch(String path, String payload)
         throws ETSdkException
     {
-        HttpURLConnection connection = null;
-        try {
-            Response response = new Response();
-            connection = sendRequest(path, Method.PATCH, payload);
-            String json = receiveResponse(connection);
-            response.setRequestId(connection.getHeaderField("X-Mashery-Message-ID"));
-            response.setResponseCode(connection.getResponseCode());
-            response.setResponseMessage(connection.getResponseMessage());
-            response.setResponsePayload(json);
-            return response;
-        } catch (IOException ex) {
-            throw new ETSdkException(ex);
-        } finally {
-            if (connection != null) {
-                connection.disconnect();
-            }
-        }
+        return execute(path, Method.PATCH, payload);
+    }
+
+    /**
+     * @param   path    The path to PUT or replace
+     * @return  The Response object
+     */
+    public Response put(String path, String payload)
+        throws ETSdkException
+    {
+        return execute(path, Method.PUT, payload);
     }
 
     /**
@@ -181,23 +167,131 @@ public class ETRestConnection {
     public Response delete(String path)
         throws ETSdkException
     {
-        HttpURLConnection connection = null;
+        return execute(path, Method.DELETE, null);
+    }
+
+    /**
+     * Performs a GET and hands the response body to the specified
+     * handler as it arrives, without buffering it in memory.
+     * @param   path        The path to GET the response
+     * @param   handler     The handler that consumes the response body
+     * @return  The value returned by the handler
+     */
+    public <T> T get(String path, ResponseHandler<T> handler)
+        throws ETSdkException
+    {
+        return execute(path, Method.GET, null, handler);
+    }
+
+    /**
+     * Performs a POST and hands the response body to the specified
+     * handler as it arrives, without buffering it in memory.
+     * @param   path        The path to POST or create
+     * @param   payload     The request payload
+     * @param   handler     The handler that consumes the response body
+     * @return  The value returned by the handler
+     */
+    public <T> T post(String path, String payload, ResponseHandler<T> handler)
+        throws ETSdkException
+    {
+        return execute(path, Method.POST, payload, handler);
+    }
+
+    private Response execute(String path, Method method, String payload)
+        throws ETSdkException
+    {
+        return execute(path, method, payload, new ResponseHandler<Response>() {
+            public Response handle(Response response, Reader reader)
+                throws IOException
+            {
+                response.setResponsePayload(readFully(reader));
+                return response;
+            }
+        });
+    }
+
+    private <T> T execute(String path,
+                          Method method,
+                          String payload,
+                          ResponseHandler<T> handler)
+        throws ETSdkException
+    {
+        String operation = isAuthConnection ? "auth" : "rest." + method;
+        ETRetryPolicy.Retry retry = retryPolicy.begin(operation);
+
+        while (true) {
+            HttpURLConnection connection = null;
+            boolean reusable = false;
+            boolean handled = false;
+            try {
+                if (payload == null) {
+                    connection = sendRequest(path, method);
+                } else {
+                    connection = sendRequest(path, method, payload);
+                }
+                int responseCode = getResponseCode(connection);
+                if (!retry.shouldRetry(responseCode,
+                        connection.getHeaderField("Retry-After")))
+                {
+                    handled = true;
+                    T result = receiveResponse(connection, handler);
+                    // the body has been read to the end so the
+                    // connection can be kept alive for reuse:
+                    reusable = true;
+                    return result;
+                }
+                reusable = discardResponse(connection);
+            } catch (ETSdkException ex) {
+                //
+                // Once the handler has seen the response it may
+                // have consumed part of it, so only failures to
+                // send the request or get the status are retried:
+                //
+                if (handled || !retry.shouldRetry(ex)) {
+                    throw ex;
+                }
+            } finally {
+                if (connection != null) {
+                    transport.release(connection, reusable);
+                }
+            }
+            retry.backoff();
+        }
+    }
+
+    private int getResponseCode(HttpURLConnection connection)
+        throws ETSdkException
+    {
         try {
-            Response response = new Response();
-            connection = sendRequest(path, Method.DELETE);
-            String json = receiveResponse(connection);
-            response.setRequestId(connection.getHeaderField("X-Mashery-Message-ID"));
-            response.setResponseCode(connection.getResponseCode());
-            response.setResponseMessage(connection.getResponseMessage());
-            response.setResponsePayload(json);
-            return response;
+            return connection.getResponseCode();
         } catch (IOException ex) {
-            throw new ETSdkException(ex);
-        } finally {
-            if (connection != null) {
-                connection.disconnect();
+            throw new ETSdkException("error getting response code from "
+                    + connection.getURL(), ex);
+        }
+    }
+
+    private boolean discardResponse(HttpURLConnection connection) {
+        InputStream is = connection.getErrorStream();
+        if (is == null) {
+            try {
+                is = connection.getInputStream();
+            } catch (IOException ex) {
+                return false;
             }
         }
+        try {
+            try {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                while (is.read(buffer) != -1) {
+                    // discard
+                }
+            } finally {
+                is.close();
+            }
+            return true;
+        } catch (IOException ex) {
+            return false;
+        }
     }
 
     private final static int URL_MAX_LENGTH = 2048;
@@ -226,8 +320,6 @@ public class ETRestConnection {
     private HttpURLConnection sendRequest(URL url, Method method, String payload)
         throws ETSdkException
     {
-        Gson gson = client.getGson();
-
         logger.debug(method + " " + url);
         String[] token = url.getPath().split("/");
         String object = "";
@@ -236,16 +328,62 @@ public class ETRestConnection {
         else 
             object = token[token.length-1];
         
+        //
+        // Obtain the access token before taking a connection
+        // from the transport so a token refresh never holds
+        // on to a pooled connection:
+        //
+
+        String authorization = null;
+        if (!isAuthConnection) {
+            authorization = "Bearer " + client.refreshToken();
+        }
+
+        //
+        // Wait for the rate limiter before taking a connection
+        // from the transport, too:
+        //
+
+        ETRateLimiter rateLimiter = isAuthConnection
+                ? client.getAuthRateLimiter()
+                : client.getRestRateLimiter();
+        rateLimiter.acquire(client.isRateLimitBlocking());
+
         HttpURLConnection connection = null;
         try {
-            connection = (HttpURLConnection) url.openConnection();
-            
+            connection = transport.open(url);
+        } catch (IOException ex) {
+            throw new ETSdkException("error opening " + url, ex);
+        }
+
+        boolean sent = false;
+        try {
+            writeRequest(connection, url, method, object, authorization, payload);
+            sent = true;
+        } finally {
+            if (!sent) {
+                transport.release(connection, false);
+            }
+        }
+
+        return connection;
+    }
+
+    private void writeRequest(HttpURLConnection connection,
+                              URL url,
+                              Method method,
+                              String object,
+                              String authorization,
+                              String payload)
+        throws ETSdkException
+    {
+        Gson gson = client.getGson();
+
+        try {
             connection.setRequestProperty("User-Agent", "FuelSDK-Java-v1.5.0-REST-"+method+"-"+object);
             connection.setRequestMethod(method.toString());
         } catch (ProtocolException ex) {
             throw new ETSdkException("error setting request method: " + method.toString(), ex);
-        } catch (IOException ex) {
-            throw new ETSdkException("error opening " + url, ex);
         }
   
         switch(method) {
@@ -254,6 +392,7 @@ public class ETRestConnection {
             connection.setRequestProperty("Accept", "application/json");
             break;
           case POST:
+          case PUT:
           case PATCH:
           case DELETE:
             connection.setDoOutput(true);
@@ -263,10 +402,12 @@ public class ETRestConnection {
             throw new ETSdkException("unsupported request method: " + method.toString());
         }
 
-        if (!isAuthConnection) {
-            connection.setRequestProperty("Authorization", "Bearer " + client.refreshToken());
+        if (authorization != null) {
+            connection.setRequestProperty("Authorization", authorization);
         }
 
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+
         if (logger.isDebugEnabled()) {
             for (String key : connection.getRequestProperties().keySet()) {
                 logger.debug(key + ": " + connection.getRequestProperty(key));
@@ -285,7 +426,7 @@ public class ETRestConnection {
             OutputStream os = null;
             try {
                 os = connection.getOutputStream();
-                os.write(payload.getBytes());
+                os.write(payload.getBytes(UTF_8));
                 os.flush();
             } catch (IOException ex) {
                 throw new ETSdkException("error writing " + url, ex);
@@ -305,17 +446,18 @@ public class ETRestConnection {
         } catch (IOException ex) {
             throw new ETSdkException("error getting response code / message", ex);
         }
-        
-        return connection;
     }
 
-    private String receiveResponse(HttpURLConnection connection)
+    private <T> T receiveResponse(HttpURLConnection connection,
+                                  ResponseHandler<T> handler)
         throws ETSdkException
     {
-        Gson gson = client.getGson();
-
+        Response response = new Response();
         InputStream is = null;
         try {
+            response.setRequestId(connection.getHeaderField("X-Mashery-Message-ID"));
+            response.setResponseCode(connection.getResponseCode());
+            response.setResponseMessage(connection.getResponseMessage());
             if (connection.getResponseCode() < 400) {
                 is = connection.getInputStream();
             } else {
@@ -325,41 +467,119 @@ public class ETRestConnection {
             throw new ETSdkException("error opening " + connection.getURL(), ex);
         }
 
-        StringBuilder stringBuilder = new StringBuilder();
-        BufferedReader reader = new BufferedReader(new InputStreamReader(is));
+        if (is == null) {
+            // no response body (e.g. 204 or an error without content)
+            is = new ByteArrayInputStream(new byte[0]);
+        }
+
         try {
-            String line = null;
-            while ((line = reader.readLine()) != null) {
-                stringBuilder.append(line);
+            InputStream body = is;
+            if ("gzip".equalsIgnoreCase(connection.getContentEncoding())) {
+                body = new GZIPInputStream(is, BUFFER_SIZE);
+            }
+            Reader reader = new InputStreamReader(body,
+                    getCharset(connection.getContentType()));
+
+            if (logger.isDebugEnabled()) {
+                //
+                // Debug logging needs the whole payload so
+                // buffer it here and hand the handler a copy:
+                //
+                String payload = readFully(reader);
+                logPayload(payload);
+                reader = new StringReader(payload);
             }
+
+            T result = handler.handle(response, reader);
+
+            //
+            // Drain anything the handler left unread so the
+            // socket can go back to the keep-alive cache:
+            //
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (body.read(buffer) != -1) {
+                // discard
+            }
+
+            return result;
         } catch (IOException ex) {
             throw new ETSdkException("error reading " + connection.getURL(), ex);
         } finally {
             try {
-                reader.close();
+                is.close();
             } catch (IOException ex) {
                 throw new ETSdkException("error closing " + connection.getURL(), ex);
             }
         }
+    }
 
-        String response = stringBuilder.toString();
-
-        if (logger.isDebugEnabled()) {
+    private void logPayload(String payload) {
+        Gson gson = client.getGson();
+        if (payload.length() == 0) {
+            return;
+        }
+        try {
             JsonParser jsonParser = new JsonParser();
-            String responsePrettyPrinted = gson.toJson(jsonParser.parse(response));
-            for (String line : responsePrettyPrinted.split("\\n")) {
+            String payloadPrettyPrinted = gson.toJson(jsonParser.parse(payload));
+            for (String line : payloadPrettyPrinted.split("\\n")) {
                 logger.debug(line);
             }
+        } catch (JsonParseException ex) {
+            logger.debug(payload);
+        }
+    }
+
+    private static Charset getCharset(String contentType) {
+        if (contentType != null) {
+            for (String parameter : contentType.split(";")) {
+                parameter = parameter.trim();
+                if (parameter.toLowerCase().startsWith("charset=")) {
+                    String name = parameter.substring(8).replace("\"", "").trim();
+                    try {
+                        return Charset.forName(name);
+                    } catch (IllegalArgumentException ex) {
+                        logger.warn("ignoring unsupported charset " + name);
+                    }
+                }
+            }
+        }
+        // JSON is UTF-8 unless stated otherwise
+        return UTF_8;
+    }
+
+    private static String readFully(Reader reader)
+        throws IOException
+    {
+        StringBuilder stringBuilder = new StringBuilder();
+        char[] buffer = new char[BUFFER_SIZE];
+        int n;
+        while ((n = reader.read(buffer)) != -1) {
+            stringBuilder.append(buffer, 0, n);
         }
+        return stringBuilder.toString();
+    }
 
-        return response;
+    /**
+     * A <code>ResponseHandler</code> consumes the body of a
+     * REST API response as a stream of characters. The body has
+     * already been decompressed and decoded (UTF-8 unless the
+     * server specifies otherwise) when the handler sees it.
+     */
+    public interface ResponseHandler<T> {
+        /**
+         * @param   response    The response (without payload)
+         * @param   reader      The response body
+         * @return  The result to return to the caller
+         */
+        public T handle(Response response, Reader reader)
+            throws IOException, ETSdkException;
     }
 
     /**
      *  types of HTTP method that can be used for CRUD operation
      */
     public enum Method {
-        GET, POST, PATCH, DELETE
+        GET, POST, PUT, PATCH, DELETE
     }
     
     /**
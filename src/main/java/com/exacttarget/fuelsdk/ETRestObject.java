@@ -34,17 +34,25 @@
 
 package com.exacttarget.fuelsdk;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Field;
 import java.net.URLEncoder;
 import java.util.List;
 
 import com.google.gson.Gson;
-import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
 import org.apache.log4j.Logger;
 
@@ -53,6 +61,7 @@ import com.exacttarget.fuelsdk.ETRestConnection.Method;
 import static com.exacttarget.fuelsdk.ETRestConnection.Method.*;
 
 import com.exacttarget.fuelsdk.ETRestConnection.Response;
+import com.exacttarget.fuelsdk.ETRestConnection.ResponseHandler;
 import com.exacttarget.fuelsdk.annotations.RestObject;
 
 /**
@@ -82,7 +91,7 @@ public abstract class ETRestObject extends ETApiObject {
     {
         ETResponse<T> response = new ETResponse<T>();
 
-        ETRestConnection connection = client.getRestConnection();
+        ETRestConnection connection = client.requireRestConnection();
 
         //
         // Automatically refresh the token if necessary:
@@ -235,51 +244,11 @@ public abstract class ETRestObject extends ETApiObject {
 
         logger.trace("GET " + path);
 
-        Response r = connection.get(path);
-
-        response.setRequestId(r.getRequestId());
-        if (r.getResponseCode() >= 200 && r.getResponseCode() <= 299) {
-            response.setStatus(ETResult.Status.OK);
-        } else if (r.getResponseCode() >= 400 && r.getResponseCode() <= 599) {
-            response.setStatus(ETResult.Status.ERROR);
-        }
-        response.setResponseCode(r.getResponseCode().toString());
-        response.setResponseMessage(r.getResponseMessage());
-
-        Gson gson = client.getGson();
-        JsonParser jsonParser = new JsonParser();
-        JsonObject jsonObject = jsonParser.parse(r.getResponsePayload()).getAsJsonObject();
-
-        if (jsonObject.get("page") != null) {
-            response.setPage(jsonObject.get("page").getAsInt());
-            logger.trace("page = " + response.getPage());
-            response.setPageSize(jsonObject.get("pageSize").getAsInt());
-            logger.trace("pageSize = " + response.getPageSize());
-            response.setTotalCount(jsonObject.get(totalCount).getAsInt());
-            logger.trace("totalCount = " + response.getTotalCount());
-
-            if (response.getPage() * response.getPageSize() < response.getTotalCount()) {
-                response.setMoreResults(true);
-            }
-
-            JsonArray elements = jsonObject.get(collection).getAsJsonArray();
-
-            for (JsonElement element : elements) {
-                // XXX duplicate code A
-                T object = gson.fromJson(element, type);
-                object.setClient(client); // XXX
-                ETResult<T> result = new ETResult<T>();
-                result.setObject(object);
-                response.addResult(result);
-            }
-        } else {
-            // XXX duplicate code A
-            T object = gson.fromJson(jsonObject, type);
-            object.setClient(client); // XXX
-            ETResult<T> result = new ETResult<T>();
-            result.setObject(object);
-            response.addResult(result);
-        }
+        connection.get(path, new PageHandler<T>(client,
+                                                 type,
+                                                 totalCount,
+                                                 collection,
+                                                 response));
 
         return response;
     }
@@ -336,7 +305,7 @@ public abstract class ETRestObject extends ETApiObject {
             return response;
         }
 
-        ETRestConnection connection = client.getRestConnection();
+        ETRestConnection connection = client.requireRestConnection();
 
         //
         // Automatically refresh the token if necessary:
@@ -386,9 +355,14 @@ public abstract class ETRestObject extends ETApiObject {
             }
 
             String requestPayload = null;
-            if (method != DELETE) {
+            if (method == PATCH && object.hasModifiedFields()) {
+                // only send the properties that changed
+                requestPayload = gson.toJson(toModifiedJson(gson, object));
+            } else if (method != DELETE) {
                 // no request payload for deletes
                 requestPayload = gson.toJson(object);
+            }
+            if (requestPayload != null) {
                 if (logger.isTraceEnabled()) {
                     JsonParser jsonParser = new JsonParser();
                     JsonObject jsonObject = jsonParser.parse(requestPayload).getAsJsonObject();
@@ -472,9 +446,7 @@ public abstract class ETRestObject extends ETApiObject {
                                                          Class<T> type)
     {
         Gson gson = client.getGson();
-        JsonParser jsonParser = new JsonParser();
-        JsonObject jsonObject = jsonParser.parse(payload).getAsJsonObject();
-        T object = gson.fromJson(jsonObject, type);
+        T object = gson.fromJson(payload, type);
         object.setClient(client);
         return object;
     }
@@ -496,36 +468,156 @@ public abstract class ETRestObject extends ETApiObject {
                                                                      String collection)
     {
         ETResponse<T> response = new ETResponse<T>();
+        try {
+            deserialize(client,
+                        client.getGson(),
+                        new StringReader(payload),
+                        type,
+                        totalCount,
+                        collection,
+                        response);
+        } catch (IOException ex) {
+            // can't happen reading from a String
+            throw new JsonIOException(ex);
+        }
+        return response;
+    }
 
-        JsonParser jsonParser = new JsonParser();
-        JsonObject jsonObject = jsonParser.parse(payload).getAsJsonObject();
+    //
+    // Reads a REST API response in a single streaming pass. For
+    // paginated responses the page, pageSize and totalCount fields
+    // are picked up as they go by and the elements of the collection
+    // array are decoded straight into T without building a tree.
+    // Anything else is kept as a JsonElement in case the response
+    // turns out not to be paginated, in which case the whole object
+    // is decoded into a single T.
+    //
+
+    static <T extends ETRestObject> void deserialize(ETClient client,
+                                                     Gson gson,
+                                                     Reader reader,
+                                                     Class<T> type,
+                                                     String totalCount,
+                                                     String collection,
+                                                     ETResponse<T> response)
+        throws IOException
+    {
+        JsonReader jsonReader = new JsonReader(reader);
 
-        if (jsonObject.get("page") != null) {
-            response.setPage(jsonObject.get("page").getAsInt());
+        try {
+            jsonReader.peek();
+        } catch (EOFException ex) {
+            // empty response body
+            return;
+        }
+
+        TypeAdapter<JsonElement> elementAdapter = gson.getAdapter(JsonElement.class);
+        TypeAdapter<T> typeAdapter = gson.getAdapter(type);
+
+        JsonObject fields = new JsonObject();
+        boolean paginated = false;
+        boolean streamed = false;
+
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            String name = jsonReader.nextName();
+            if (name.equals("page")) {
+                paginated = true;
+            }
+            if (paginated
+                    && !streamed
+                    && name.equals(collection)
+                    && jsonReader.peek() == JsonToken.BEGIN_ARRAY)
+            {
+                jsonReader.beginArray();
+                while (jsonReader.hasNext()) {
+                    addResult(client, typeAdapter.read(jsonReader), response);
+                }
+                jsonReader.endArray();
+                streamed = true;
+            } else {
+                fields.add(name, elementAdapter.read(jsonReader));
+            }
+        }
+        jsonReader.endObject();
+
+        if (paginated) {
+            response.setPage(fields.get("page").getAsInt());
             logger.trace("page = " + response.getPage());
-            response.setPageSize(jsonObject.get("pageSize").getAsInt());
+            response.setPageSize(fields.get("pageSize").getAsInt());
             logger.trace("pageSize = " + response.getPageSize());
-            response.setTotalCount(jsonObject.get(totalCount).getAsInt());
+            response.setTotalCount(fields.get(totalCount).getAsInt());
             logger.trace("totalCount = " + response.getTotalCount());
 
             if (response.getPage() * response.getPageSize() < response.getTotalCount()) {
                 response.setMoreResults(true);
             }
 
-            JsonArray elements = jsonObject.get(collection).getAsJsonArray();
-
-            for (JsonElement element : elements) {
-                ETResult<T> result = new ETResult<T>();
-                result.setObject(deserialize(client, element.toString(), type));
-                response.addResult(result);
+            if (!streamed && fields.get(collection) != null) {
+                // the collection came before the page field
+                for (JsonElement element : fields.get(collection).getAsJsonArray()) {
+                    addResult(client, typeAdapter.fromJsonTree(element), response);
+                }
             }
         } else {
-            ETResult<T> result = new ETResult<T>();
-            result.setObject(deserialize(client, jsonObject.toString(), type));
-            response.addResult(result);
+            addResult(client, typeAdapter.fromJsonTree(fields), response);
         }
+    }
 
-        return response;
+    private static <T extends ETRestObject> void addResult(ETClient client,
+                                                           T object,
+                                                           ETResponse<T> response)
+    {
+        object.setClient(client); // XXX
+        ETResult<T> result = new ETResult<T>();
+        result.setObject(object);
+        response.addResult(result);
+    }
+
+    private static class PageHandler<T extends ETRestObject>
+        implements ResponseHandler<ETResponse<T>>
+    {
+        private final ETClient client;
+        private final Class<T> type;
+        private final String totalCount;
+        private final String collection;
+        private final ETResponse<T> response;
+
+        PageHandler(ETClient client,
+                    Class<T> type,
+                    String totalCount,
+                    String collection,
+                    ETResponse<T> response)
+        {
+            this.client = client;
+            this.type = type;
+            this.totalCount = totalCount;
+            this.collection = collection;
+            this.response = response;
+        }
+
+        public ETResponse<T> handle(Response r, Reader reader)
+            throws IOException
+        {
+            response.setRequestId(r.getRequestId());
+            if (r.getResponseCode() >= 200 && r.getResponseCode() <= 299) {
+                response.setStatus(ETResult.Status.OK);
+            } else if (r.getResponseCode() >= 400 && r.getResponseCode() <= 599) {
+                response.setStatus(ETResult.Status.ERROR);
+            }
+            response.setResponseCode(r.getResponseCode().toString());
+            response.setResponseMessage(r.getResponseMessage());
+
+            deserialize(client,
+                        client.getGson(),
+                        reader,
+                        type,
+                        totalCount,
+                        collection,
+                        response);
+
+            return response;
+        }
     }
 
     protected static String getInternalProperty(Class<? extends ETRestObject> type,
@@ -551,6 +643,46 @@ public abstract class ETRestObject extends ETApiObject {
         return internalProperty;
     }
 
+    //
+    // Serializes only the modified properties of an object:
+    //
+
+    static JsonObject toModifiedJson(Gson gson, ETRestObject object)
+        throws ETSdkException
+    {
+        JsonObject jsonObject = new JsonObject();
+        List<Field> externalFields =
+                ETObjectMetadata.get(object.getClass()).getExternalFields();
+        for (int i = 0; i < externalFields.size(); i++) {
+            Field externalField = externalFields.get(i);
+            if (!object.isFieldModified(i)
+                    || externalField.getAnnotation(Expose.class) == null) {
+                continue;
+            }
+            Object value = null;
+            try {
+                value = externalField.get(object);
+            } catch (IllegalAccessException ex) {
+                throw new ETSdkException("could not get field \""
+                        + externalField.getName()
+                        + "\" of object "
+                        + object,
+                        ex);
+            }
+            if (value == null) {
+                continue;
+            }
+            SerializedName serializedNameAnnotation =
+                    externalField.getAnnotation(SerializedName.class);
+            String name = serializedNameAnnotation != null
+                    ? serializedNameAnnotation.value()
+                    : externalField.getName();
+            jsonObject.add(name,
+                    gson.toJsonTree(value, externalField.getGenericType()));
+        }
+        return jsonObject;
+    }
+
     private static String toFilterString(String value)
         throws ETSdkException
     {
@@ -594,6 +726,21 @@ public abstract class ETRestObject extends ETApiObject {
         }
     }
 
+    //
+    // Encodes a name for a path or query string; URLEncoder
+    // encodes for forms, so spaces are fixed up:
+    //
+
+    static String encode(String value)
+        throws ETSdkException
+    {
+        try {
+            return URLEncoder.encode(value, "UTF-8").replace("+", "%20");
+        } catch (UnsupportedEncodingException ex) {
+            throw new ETSdkException("error URL encoding " + value, ex);
+        }
+    }
+
     /**
      * 
      * @param expression    The ETExpression object as filter
@@ -643,56 +790,56 @@ public abstract class ETRestObject extends ETApiObject {
             stringBuilder.append(toFilterString(expression.getSubexpressions().get(0), false));
             break;
           case EQUALS:
-            stringBuilder.append(expression.getProperty());
+            stringBuilder.append(encode(expression.getProperty()));
             stringBuilder.append("%20");
             stringBuilder.append("eq");
             stringBuilder.append("%20");
             stringBuilder.append(toFilterString(expression.getValue(), false));
             break;
           case NOT_EQUALS:
-            stringBuilder.append(expression.getProperty());
+            stringBuilder.append(encode(expression.getProperty()));
             stringBuilder.append("%20");
             stringBuilder.append("neq");
             stringBuilder.append("%20");
             stringBuilder.append(toFilterString(expression.getValue(), false));
             break;
           case LESS_THAN:
-            stringBuilder.append(expression.getProperty());
+            stringBuilder.append(encode(expression.getProperty()));
             stringBuilder.append("%20");
             stringBuilder.append("lt");
             stringBuilder.append("%20");
             stringBuilder.append(toFilterString(expression.getValue(), false));
             break;
           case LESS_THAN_OR_EQUALS:
-            stringBuilder.append(expression.getProperty());
+            stringBuilder.append(encode(expression.getProperty()));
             stringBuilder.append("%20");
             stringBuilder.append("lte");
             stringBuilder.append("%20");
             stringBuilder.append(toFilterString(expression.getValue(), false));
             break;
           case GREATER_THAN:
-            stringBuilder.append(expression.getProperty());
+            stringBuilder.append(encode(expression.getProperty()));
             stringBuilder.append("%20");
             stringBuilder.append("gt");
             stringBuilder.append("%20");
             stringBuilder.append(toFilterString(expression.getValue(), false));
             break;
           case GREATER_THAN_OR_EQUALS:
-            stringBuilder.append(expression.getProperty());
+            stringBuilder.append(encode(expression.getProperty()));
             stringBuilder.append("%20");
             stringBuilder.append("gte");
             stringBuilder.append("%20");
             stringBuilder.append(toFilterString(expression.getValue(), false));
             break;
           case IS_NULL:
-            stringBuilder.append(expression.getProperty());
+            stringBuilder.append(encode(expression.getProperty()));
             stringBuilder.append("%20");
             stringBuilder.append("is");
             stringBuilder.append("%20");
             stringBuilder.append("null");
             break;
           case IS_NOT_NULL:
-            stringBuilder.append(expression.getProperty());
+            stringBuilder.append(encode(expression.getProperty()));
             stringBuilder.append("%20");
             stringBuilder.append("is");
             stringBuilder.append("%20");
@@ -701,7 +848,7 @@ public abstract class ETRestObject extends ETApiObject {
             stringBuilder.append("null");
             break;
           case IN:
-            stringBuilder.append(expression.getProperty());
+            stringBuilder.append(encode(expression.getProperty()));
             stringBuilder.append("%20");
             stringBuilder.append("in");
             stringBuilder.append("%20");
@@ -718,7 +865,7 @@ public abstract class ETRestObject extends ETApiObject {
             stringBuilder.append(")");
             break;
           case BETWEEN:
-            stringBuilder.append(expression.getProperty());
+            stringBuilder.append(encode(expression.getProperty()));
             stringBuilder.append("%20");
             stringBuilder.append("between");
             stringBuilder.append("%20");
@@ -729,7 +876,7 @@ public abstract class ETRestObject extends ETApiObject {
             stringBuilder.append(toFilterString(expression.getValues().get(1), false));
             break;
           case LIKE:
-            stringBuilder.append(expression.getProperty());
+            stringBuilder.append(encode(expression.getProperty()));
             stringBuilder.append("%20");
             stringBuilder.append("like");
             stringBuilder.append("%20");
@@ -0,0 +1,77 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * An <code>ETRestTransport</code> manages the HTTP connections
+ * used by <code>ETRestConnection</code>. The default implementation
+ * is <code>ETPooledRestTransport</code>; a different implementation
+ * can be plugged in by setting the <code>restTransport</code>
+ * property to the name of a class implementing this interface.
+ * Implementations must be thread safe and must provide either a
+ * public constructor taking an <code>ETConfiguration</code> or a
+ * public no-argument constructor.
+ */
+
+public interface ETRestTransport {
+    /**
+     * Opens a connection to the specified URL. Every connection
+     * returned by this method must be handed back via
+     * <code>release</code> once the response has been consumed.
+     * @param url       The URL to connect to
+     * @return          The (unconnected) HttpURLConnection
+     * @throws IOException
+     */
+    public HttpURLConnection open(URL url)
+        throws IOException;
+
+    /**
+     * Releases a connection obtained from <code>open</code>.
+     * @param connection    The connection to release
+     * @param reusable      true if the response body has been fully
+     *                      consumed and the underlying socket can be
+     *                      kept alive, false otherwise
+     */
+    public void release(HttpURLConnection connection, boolean reusable);
+
+    /**
+     * Releases any resources held by the transport.
+     */
+    public void close();
+}
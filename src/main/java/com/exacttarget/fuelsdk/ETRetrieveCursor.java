@@ -0,0 +1,153 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import org.apache.log4j.Logger;
+
+/**
+ * An <code>ETRetrieveCursor</code> streams the results of a SOAP
+ * retrieve batch by batch: each call to <code>next</code> returns
+ * the next batch the server sends, following up with a
+ * <code>ContinueRequest</code> for as long as the server reports
+ * more data available. Only one batch is held at a time, so
+ * result sets of any size can be scanned in bounded memory.
+ * <p>
+ * Like other SDK objects, cursors are not thread safe.
+ */
+
+public class ETRetrieveCursor<T extends ETSoapObject> {
+    private static Logger logger = Logger.getLogger(ETRetrieveCursor.class);
+
+    private final ETClient client;
+    private final String soapObjectName;
+    private final ETFilter filter;
+    private final Class<T> type;
+
+    private String continueRequest = null;
+    private boolean exhausted = false;
+    private int batches = 0;
+    private long count = 0;
+
+    /**
+    * Class constructor, Initializes a new instance of the class.
+    * @param client         The ETClient object
+    * @param soapObjectName The object name to retrieve for SOAP,
+    *                       or <code>null</code> for the type's
+    * @param filter         The ETFilter object
+    * @param type           The class type to retrieve
+    */
+    ETRetrieveCursor(ETClient client,
+                     String soapObjectName,
+                     ETFilter filter,
+                     Class<T> type)
+    {
+        this.client = client;
+        this.soapObjectName = soapObjectName;
+        this.filter = filter;
+        this.type = type;
+    }
+
+    /**
+     * @return  true if there may be another batch, false if
+     *          the result set is exhausted
+     */
+    public boolean hasNext() {
+        return !exhausted;
+    }
+
+    /**
+     * Retrieves the next batch of results. The batch's objects
+     * are no longer referenced by the cursor once it returns.
+     * @return  The ETResponse holding the batch, which may be
+     *          empty; its status tells whether the call failed
+     * @throws ETSdkException
+     */
+    public ETResponse<T> next()
+        throws ETSdkException
+    {
+        if (exhausted) {
+            throw new ETSdkException("no more results");
+        }
+
+        ETResponse<T> response = retrieve(continueRequest);
+
+        batches++;
+        count += response.getResults().size();
+
+        //
+        // The request ID of a batch is what the next
+        // ContinueRequest continues from:
+        //
+
+        if (response.hasMoreResults()) {
+            continueRequest = response.getRequestId();
+        } else {
+            continueRequest = null;
+            exhausted = true;
+            logger.debug("retrieved " + count + " results in "
+                    + batches + " batch(es)");
+        }
+
+        return response;
+    }
+
+    //
+    // Retrieves a batch; the first batch has no continue request:
+    //
+
+    ETResponse<T> retrieve(String continueRequest)
+        throws ETSdkException
+    {
+        return ETSoapObject.retrieve(client,
+                                     soapObjectName,
+                                     filter,
+                                     continueRequest,
+                                     type);
+    }
+
+    /**
+     * @return  The number of batches retrieved so far
+     */
+    public int getBatches() {
+        return batches;
+    }
+
+    /**
+     * @return  The number of results retrieved so far
+     */
+    public long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,407 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.cxf.transport.http.HTTPException;
+import org.apache.log4j.Logger;
+
+/**
+ * An <code>ETRetryPolicy</code> decides whether a failed REST or SOAP
+ * call is retried and how long to wait before retrying it. It is
+ * shared by all connections of an <code>ETClient</code>.
+ * <p>
+ * Calls are retried on transient failures only: HTTP 408, 429, 502,
+ * 503 and 504 responses, socket timeouts and refused or reset
+ * connections. The delay between attempts grows exponentially (with
+ * jitter) from <code>retryInitialBackoff</code> up to
+ * <code>retryMaxBackoff</code> milliseconds. A <code>Retry-After</code>
+ * header sent by the server is honored; if it asks for a longer wait
+ * than <code>retryMaxBackoff</code> the call is not retried.
+ * <p>
+ * Only idempotent operations are retried by default:
+ * <code>rest.GET</code>, <code>rest.DELETE</code>,
+ * <code>soap.retrieve</code>, <code>soap.delete</code> and
+ * <code>auth</code> (token requests). The list can be replaced via
+ * the <code>retryableOperations</code> property, and individual
+ * operations can be overridden with <code>setRetryable</code> and
+ * <code>setMaxRetries</code>.
+ * <p>
+ * To keep retries from amplifying an outage they are drawn from a
+ * budget: every call adds <code>retryBudgetPercent</code> percent of
+ * a retry to the budget, every retry takes one, and the budget never
+ * holds more than <code>retryBudgetReserve</code> retries.
+ */
+
+public class ETRetryPolicy {
+    private static Logger logger = Logger.getLogger(ETRetryPolicy.class);
+
+    public static final int DEFAULT_MAX_RETRIES = 3;
+    public static final int DEFAULT_INITIAL_BACKOFF = 500;
+    public static final int DEFAULT_MAX_BACKOFF = 30000;
+    public static final int DEFAULT_BUDGET_PERCENT = 10;
+    public static final int DEFAULT_BUDGET_RESERVE = 10;
+    public static final String DEFAULT_RETRYABLE_OPERATIONS =
+            "rest.GET,rest.DELETE,soap.retrieve,soap.delete,auth";
+
+    private static final Set<Integer> RETRYABLE_STATUS_CODES =
+            new HashSet<Integer>(Arrays.asList(408, 429, 502, 503, 504));
+
+    private final int maxRetries;
+    private final long initialBackoff;
+    private final long maxBackoff;
+    private final double budgetRatio;
+    private final double budgetReserve;
+
+    private final Map<String, Boolean> retryable =
+            new ConcurrentHashMap<String, Boolean>();
+    private final Map<String, Integer> maxRetriesOverrides =
+            new ConcurrentHashMap<String, Integer>();
+
+    private double budget;
+    private final Random random = new Random();
+
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong budgetExhausted = new AtomicLong();
+
+    /**
+    * Class constructor, Initializes a new instance of the class
+    * using the default settings.
+    */
+    public ETRetryPolicy() {
+        this(new ETConfiguration());
+    }
+
+    /**
+    * Class constructor, Initializes a new instance of the class.
+    * @param configuration      The ETConfiguration object
+    */
+    public ETRetryPolicy(ETConfiguration configuration) {
+        maxRetries = configuration.getInteger("retryMaxRetries",
+                                              DEFAULT_MAX_RETRIES);
+        initialBackoff = configuration.getInteger("retryInitialBackoff",
+                                                  DEFAULT_INITIAL_BACKOFF);
+        maxBackoff = configuration.getInteger("retryMaxBackoff",
+                                              DEFAULT_MAX_BACKOFF);
+        budgetRatio = configuration.getInteger("retryBudgetPercent",
+                                               DEFAULT_BUDGET_PERCENT) / 100.0;
+        budgetReserve = configuration.getInteger("retryBudgetReserve",
+                                                 DEFAULT_BUDGET_RESERVE);
+        budget = budgetReserve;
+
+        String operations = configuration.get("retryableOperations");
+        if (operations == null) {
+            operations = DEFAULT_RETRYABLE_OPERATIONS;
+        }
+        for (String operation : operations.split(",")) {
+            if (operation.trim().length() > 0) {
+                retryable.put(operation.trim(), true);
+            }
+        }
+    }
+
+    /**
+     * @param operation     The operation name (e.g. <code>rest.POST</code>)
+     * @return              true if the operation is retried on transient failures, false otherwise
+     */
+    public boolean isRetryable(String operation) {
+        Boolean value = retryable.get(operation);
+        return value != null && value;
+    }
+
+    /**
+     * @param operation     The operation name (e.g. <code>rest.POST</code>)
+     * @param value         true if the operation may be retried, false otherwise
+     */
+    public void setRetryable(String operation, boolean value) {
+        retryable.put(operation, value);
+    }
+
+    /**
+     * @param operation     The operation name
+     * @return              The maximum number of retries for the operation
+     */
+    public int getMaxRetries(String operation) {
+        Integer value = maxRetriesOverrides.get(operation);
+        if (value == null) {
+            return maxRetries;
+        }
+        return value;
+    }
+
+    /**
+     * @param operation     The operation name
+     * @param value         The maximum number of retries for the operation
+     */
+    public void setMaxRetries(String operation, int value) {
+        maxRetriesOverrides.put(operation, value);
+    }
+
+    /**
+     * @return  The number of retries performed so far
+     */
+    public long getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * @return  The number of retries skipped because the budget was exhausted
+     */
+    public long getBudgetExhausted() {
+        return budgetExhausted.get();
+    }
+
+    /**
+     * Starts a call. The returned <code>Retry</code> tracks
+     * the attempts of this one call and must not be shared.
+     * @param operation     The operation name
+     * @return              The Retry object
+     */
+    public Retry begin(String operation) {
+        synchronized (this) {
+            budget = Math.min(budget + budgetRatio, budgetReserve);
+        }
+        return new Retry(operation);
+    }
+
+    /**
+     * Calls <code>callable</code>, retrying it on transient failures.
+     * Runtime exceptions and <code>ETSdkException</code>s are passed
+     * on to the caller unchanged once retries are exhausted.
+     * @param operation     The operation name
+     * @param callable      The call to perform
+     * @return              The value returned by the callable
+     */
+    public <T> T execute(String operation, Callable<T> callable)
+        throws ETSdkException
+    {
+        Retry retry = begin(operation);
+        while (true) {
+            try {
+                return callable.call();
+            } catch (RuntimeException ex) {
+                if (!retry.shouldRetry(ex)) {
+                    throw ex;
+                }
+            } catch (ETSdkException ex) {
+                if (!retry.shouldRetry(ex)) {
+                    throw ex;
+                }
+            } catch (Exception ex) {
+                if (!retry.shouldRetry(ex)) {
+                    throw new ETSdkException(ex);
+                }
+            }
+            retry.backoff();
+        }
+    }
+
+    /**
+     * @param statusCode    The HTTP status code
+     * @return              true if the status code indicates a transient failure, false otherwise
+     */
+    public static boolean isTransient(int statusCode) {
+        return RETRYABLE_STATUS_CODES.contains(statusCode);
+    }
+
+    /**
+     * @param throwable     The exception
+     * @return              true if the exception (or one of its causes) indicates a transient failure, false otherwise
+     */
+    public static boolean isTransient(Throwable throwable) {
+        for (Throwable t = throwable; t != null; t = t.getCause()) {
+            if (t instanceof SocketTimeoutException
+                    || t instanceof ConnectException
+                    || t instanceof SocketException) {
+                return true;
+            }
+            if (t instanceof HTTPException) {
+                return isTransient(((HTTPException) t).getResponseCode());
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param value     The value of a <code>Retry-After</code> header
+     * @return          The delay in milliseconds, or -1 if the value is missing or malformed
+     */
+    public static long parseRetryAfter(String value) {
+        if (value == null || value.trim().length() == 0) {
+            return -1;
+        }
+        value = value.trim();
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000);
+        } catch (NumberFormatException ex) {
+            // not delta-seconds, try HTTP-date
+        }
+        SimpleDateFormat format =
+                new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        try {
+            Date date = format.parse(value);
+            return Math.max(0, date.getTime() - System.currentTimeMillis());
+        } catch (ParseException ex) {
+            logger.warn("ignoring malformed Retry-After: " + value);
+            return -1;
+        }
+    }
+
+    long getBackoff(int attempt) {
+        long backoff = maxBackoff;
+        if (attempt < 30) {
+            backoff = Math.min(maxBackoff, initialBackoff << attempt);
+        }
+        // equal jitter: half fixed, half random
+        long half = backoff / 2;
+        long jitter;
+        synchronized (random) {
+            jitter = (long) (random.nextDouble() * (backoff - half));
+        }
+        return half + jitter;
+    }
+
+    private synchronized boolean withdraw() {
+        if (budget >= 1.0) {
+            budget -= 1.0;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * A <code>Retry</code> tracks the attempts of a single call.
+     */
+    public class Retry {
+        private final String operation;
+        private int attempt = 0;
+        private long delay = 0;
+
+        Retry(String operation) {
+            this.operation = operation;
+        }
+
+        /**
+         * @return  The number of retries performed so far for this call
+         */
+        public int getAttempt() {
+            return attempt;
+        }
+
+        /**
+         * @param statusCode    The HTTP status code of the response
+         * @param retryAfter    The value of the <code>Retry-After</code> header (may be null)
+         * @return              true if the call should be retried, false otherwise
+         */
+        public boolean shouldRetry(int statusCode, String retryAfter) {
+            if (!isTransient(statusCode)) {
+                return false;
+            }
+            return shouldRetry("HTTP " + statusCode, parseRetryAfter(retryAfter));
+        }
+
+        /**
+         * @param throwable     The exception thrown by the attempt
+         * @return              true if the call should be retried, false otherwise
+         */
+        public boolean shouldRetry(Throwable throwable) {
+            if (!isTransient(throwable)) {
+                return false;
+            }
+            return shouldRetry(throwable.toString(), -1);
+        }
+
+        private boolean shouldRetry(String reason, long retryAfter) {
+            if (!isRetryable(operation)) {
+                return false;
+            }
+            if (attempt >= getMaxRetries(operation)) {
+                logger.debug(operation + ": giving up after "
+                        + attempt + " retries (" + reason + ")");
+                return false;
+            }
+            if (retryAfter > maxBackoff) {
+                logger.debug(operation + ": not retrying, server asked to wait "
+                        + retryAfter + " ms (" + reason + ")");
+                return false;
+            }
+            if (!withdraw()) {
+                budgetExhausted.incrementAndGet();
+                logger.debug(operation + ": not retrying, retry budget exhausted ("
+                        + reason + ")");
+                return false;
+            }
+            delay = Math.max(retryAfter, getBackoff(attempt));
+            attempt++;
+            retries.incrementAndGet();
+            logger.debug(operation + ": " + reason + ", retrying in "
+                    + delay + " ms (retry " + attempt + " of "
+                    + getMaxRetries(operation) + ")");
+            return true;
+        }
+
+        /**
+         * Waits before the next attempt.
+         */
+        public void backoff()
+            throws ETSdkException
+        {
+            if (delay <= 0) {
+                return;
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new ETSdkException("interrupted waiting to retry " + operation, ex);
+            }
+        }
+    }
+}
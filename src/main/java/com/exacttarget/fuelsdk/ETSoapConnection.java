@@ -39,11 +39,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import javax.xml.namespace.QName;
 import javax.xml.soap.SOAPElement;
 import javax.xml.soap.SOAPException;
 import javax.xml.soap.SOAPFactory;
+import javax.xml.ws.WebServiceException;
 
 import org.apache.cxf.configuration.jsse.TLSClientParameters;
 import org.apache.cxf.endpoint.Client;
@@ -67,6 +71,14 @@ import org.apache.cxf.transport.http.Headers;
 /**
  * An <code>ETSoapConnection</code> represents an active
  * connection to the SOAP API.
+ * <p>
+ * Each SOAP call should borrow a proxy with <code>borrowSoap</code>
+ * and hand it back with <code>releaseSoap</code>. Borrowed proxies
+ * come from a pool of up to <code>soapPoolSize</code> (default 10)
+ * independently configured proxies, each with its own request
+ * context, headers and HTTP conduit, so concurrent calls neither
+ * race on headers nor share a conduit. <code>getSoap</code> returns
+ * a single shared proxy and is kept for compatibility.
  */
 
 public class ETSoapConnection {
@@ -75,12 +87,40 @@ public class ETSoapConnection {
     private static final String WSSE_NAMESPACE_URI =
             "http://docs.oasis-open.org/wss/2004/01/oasis-200401-wss-wssecurity-secext-1.0.xsd";
 
+    public static final int DEFAULT_POOL_SIZE = 10;
+
+    //
+    // Creating the service parses etframework.wsdl, so a single
+    // instance is shared by all connections (CXF additionally
+    // caches the JAXB context for the generated classes):
+    //
+
+    private static PartnerAPI sharedService = null;
+    private static volatile boolean warmedUp = false;
+
+    private ETClient client = null;
+
     private String endpoint = null;
 
     private Soap soap = null;
     private Client soapClient = null;
     private SOAPFactory soapFactory = null;
-    private SOAPElement accessTokenElement = null;
+
+    //
+    // Authentication: either a WS-Security header (username and
+    // password) or a fueloauth header carrying the access token.
+    // Headers are never modified once handed to a proxy; a new
+    // header list is created whenever the token changes.
+    //
+
+    private List<Header> securityHeaders = null;
+    private boolean useAccessToken = false;
+    private volatile String accessToken = null;
+
+    private int poolSize = DEFAULT_POOL_SIZE;
+    private final List<PooledSoap> pooled = new ArrayList<PooledSoap>();
+    private final BlockingQueue<PooledSoap> idle =
+            new LinkedBlockingQueue<PooledSoap>();
 
     /** 
     * Class constructor, Initializes a new instance of the class.
@@ -91,66 +131,57 @@ public class ETSoapConnection {
     public ETSoapConnection(ETClient client, String endpoint)
         throws ETSdkException
     {
+        this.client = client;
+
         this.endpoint = endpoint;
 
-        //
-        // Initialize the SOAP proxy:
-        //
+        this.poolSize = client.getConfiguration().getInteger("soapPoolSize",
+                                                             DEFAULT_POOL_SIZE);
+        if (poolSize < 1) {
+            poolSize = 1;
+        }
 
         try {
-            PartnerAPI service = new PartnerAPI();
-            soap = service.getSoap();
-            soapClient = ClientProxy.getClient(soap);
-            soapClient.getInInterceptors().add(new ClearAttachmentsOutInterceptor());
-            soapClient.getOutInterceptors().add(new ClearAttachmentsOutInterceptor());  //
-
-            Endpoint soapEndpoint = soapClient.getEndpoint();
             soapFactory = SOAPFactory.newInstance();
-            soapClient.getRequestContext().put(Message.ENDPOINT_ADDRESS,
-                    endpoint);
-            HTTPConduit conduit = (HTTPConduit) soapClient.getConduit();
-            Integer cxfConnectTimeout = null;
-            Integer cxfReceiveTimeout = null;
-            try {
-                cxfConnectTimeout = new Integer(
-                        client.getConfiguration().get("cxfConnectTimeout"));
-            } catch (NumberFormatException ex) {
-                // Ignore--this just means the value specified in
-                // the fuelsdk.properties file is not an integer.
-            }
-            try {
-                cxfReceiveTimeout = new Integer(
-                        client.getConfiguration().get("cxfReceiveTimeout"));
-            } catch (NumberFormatException ex) {
-                // Ignore--this just means the value specified in
-                // the fuelsdk.properties file is not an integer.
-            }
-            HTTPClientPolicy clientPolicy = new HTTPClientPolicy();
-            if (cxfConnectTimeout != null) {
-                clientPolicy.setConnectionTimeout(cxfConnectTimeout);
-            }
-            if (cxfReceiveTimeout != null) {
-                clientPolicy.setReceiveTimeout(cxfReceiveTimeout);
-            }
-            conduit.setClient(clientPolicy);
-            if (client.getConfiguration().isTrue("cxfDisableCNCheck")) {
-                TLSClientParameters tlsClientParameters = new TLSClientParameters();
-                tlsClientParameters.setDisableCNCheck(true);
-                conduit.setTlsClientParameters(tlsClientParameters);
-            }
-            soapClient.getRequestContext().put(Message.ENCODING, "UTF-8");
-            
-            LoggingInInterceptor loggingInInterceptor =
-                    new LoggingInInterceptor();
-            loggingInInterceptor.setPrettyLogging(true);
-            LoggingOutInterceptor loggingOutInterceptor =
-                    new LoggingOutInterceptor();
-            loggingOutInterceptor.setPrettyLogging(true);
-            soapEndpoint.getInInterceptors().add(loggingInInterceptor);
-            soapEndpoint.getOutInterceptors().add(loggingOutInterceptor);
         } catch (SOAPException ex) {
             throw new ETSdkException("could not initialize SOAP proxy", ex);
         }
+
+        //
+        // Proxies are created on first use:
+        //
+
+        getService();
+    }
+
+    /**
+     * Parses the WSDL and builds the CXF service model and JAXB
+     * context ahead of time, so that the first
+     * <code>ETSoapConnection</code> (and the first SOAP call)
+     * does not pay for it. Safe to call more than once.
+     */
+    public static void warmUp() {
+        if (warmedUp) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        PartnerAPI service = getService();
+        synchronized (service) {
+            ClientProxy.getClient(service.getSoap());
+        }
+        warmedUp = true;
+        logger.debug("SOAP service model initialized in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    private static synchronized PartnerAPI getService() {
+        if (sharedService == null) {
+            long start = System.currentTimeMillis();
+            sharedService = new PartnerAPI();
+            logger.debug("parsed SOAP service definition in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        }
+        return sharedService;
     }
 
     /** 
@@ -191,7 +222,7 @@ public class ETSoapConnection {
             headers.add(new Header(new QName(WSSE_NAMESPACE_URI, "Security", "wsse"),
                     securityElement));
 
-            soapClient.getRequestContext().put(Header.HEADER_LIST, headers);
+            securityHeaders = Collections.unmodifiableList(headers);
         } catch (SOAPException ex) {
             throw new ETSdkException("could not initialize SOAP proxy", ex);
         }
@@ -209,39 +240,220 @@ public class ETSoapConnection {
     {
         this(client, endpoint);
 
-        try {
-            List<Header> headers = new ArrayList<Header>();
+        useAccessToken = true;
+        setAccessToken(accessToken);
+    }
 
-            accessTokenElement =
-                    soapFactory.createElement(new QName(null, "fueloauth"));
-            if (accessToken != null) {
-                setAccessToken(accessToken);
-            }
+    private Soap createSoap() {
+        PartnerAPI service = getService();
+        Soap soap = null;
+        synchronized (service) {
+            soap = service.getSoap();
+        }
+        Client soapClient = ClientProxy.getClient(soap);
+        soapClient.getInInterceptors().add(new ClearAttachmentsOutInterceptor());
+        soapClient.getOutInterceptors().add(new ClearAttachmentsOutInterceptor());  //
+        soapClient.getOutInterceptors().add(new RateLimitOutInterceptor(
+                client.getSoapRateLimiter(), client.isRateLimitBlocking()));
 
-            headers.add(new Header(new QName(null, "fueloauth"), accessTokenElement));
-            
-            soapClient.getRequestContext().put(Header.HEADER_LIST, headers);
-        } catch (SOAPException ex) {
-            throw new ETSdkException("could not initialize SOAP proxy", ex);
+        Endpoint soapEndpoint = soapClient.getEndpoint();
+        soapClient.getRequestContext().put(Message.ENDPOINT_ADDRESS,
+                endpoint);
+        HTTPConduit conduit = (HTTPConduit) soapClient.getConduit();
+        Integer cxfConnectTimeout = null;
+        Integer cxfReceiveTimeout = null;
+        try {
+            cxfConnectTimeout = new Integer(
+                    client.getConfiguration().get("cxfConnectTimeout"));
+        } catch (NumberFormatException ex) {
+            // Ignore--this just means the value specified in
+            // the fuelsdk.properties file is not an integer.
+        }
+        try {
+            cxfReceiveTimeout = new Integer(
+                    client.getConfiguration().get("cxfReceiveTimeout"));
+        } catch (NumberFormatException ex) {
+            // Ignore--this just means the value specified in
+            // the fuelsdk.properties file is not an integer.
+        }
+        HTTPClientPolicy clientPolicy = new HTTPClientPolicy();
+        if (cxfConnectTimeout != null) {
+            clientPolicy.setConnectionTimeout(cxfConnectTimeout);
+        }
+        if (cxfReceiveTimeout != null) {
+            clientPolicy.setReceiveTimeout(cxfReceiveTimeout);
         }
+        conduit.setClient(clientPolicy);
+        if (client.getConfiguration().isTrue("cxfDisableCNCheck")) {
+            TLSClientParameters tlsClientParameters = new TLSClientParameters();
+            tlsClientParameters.setDisableCNCheck(true);
+            conduit.setTlsClientParameters(tlsClientParameters);
+        }
+        soapClient.getRequestContext().put(Message.ENCODING, "UTF-8");
+        
+        LoggingInInterceptor loggingInInterceptor =
+                new LoggingInInterceptor();
+        loggingInInterceptor.setPrettyLogging(true);
+        LoggingOutInterceptor loggingOutInterceptor =
+                new LoggingOutInterceptor();
+        loggingOutInterceptor.setPrettyLogging(true);
+        soapEndpoint.getInInterceptors().add(loggingInInterceptor);
+        soapEndpoint.getOutInterceptors().add(loggingOutInterceptor);
+
+        return soap;
     }
 
     /**
-     * @return  The Soap object
+     * @return  The shared Soap object
+     * @deprecated
+     * Use <code>borrowSoap</code> and <code>releaseSoap</code>;
+     * the request context of the shared proxy is not thread safe.
      */
+    @Deprecated
     public Soap getSoap() {
-        return soap;
+        return getSharedSoap();
     }
 
+    /**
+     * @deprecated
+     * Use <code>borrowSoap(m, null)</code>.
+     */
+    @Deprecated
     public Soap getSoap(String m) {
-        soapClient.getRequestContext().put("HTTP_HEADER_USER_AGENT", "FuelSDK-Java-v1.5.0-SOAP-"+m);
+        Soap soap = getSharedSoap();
+        soapClient.getRequestContext().put("HTTP_HEADER_USER_AGENT", getUserAgent(m, null));
         return soap;
     }
     
+    /**
+     * @deprecated
+     * Use <code>borrowSoap(m, o)</code>.
+     */
+    @Deprecated
     public Soap getSoap(String m, String o) {
-        soapClient.getRequestContext().put("HTTP_HEADER_USER_AGENT", "FuelSDK-Java-v1.5.0-SOAP-"+m+"-"+o);
+        Soap soap = getSharedSoap();
+        soapClient.getRequestContext().put("HTTP_HEADER_USER_AGENT", getUserAgent(m, o));
         return soap;
     }    
+
+    private synchronized Soap getSharedSoap() {
+        if (soap == null) {
+            Soap s = createSoap();
+            Client c = ClientProxy.getClient(s);
+            try {
+                if (useAccessToken) {
+                    c.getRequestContext().put(Header.HEADER_LIST,
+                            createAccessTokenHeaders(accessToken));
+                } else if (securityHeaders != null) {
+                    c.getRequestContext().put(Header.HEADER_LIST, securityHeaders);
+                }
+            } catch (ETSdkException ex) {
+                throw new WebServiceException(ex);
+            }
+            soapClient = c;
+            soap = s;
+        }
+        return soap;
+    }
+
+    /**
+     * Borrows a proxy from the pool, waiting for one to become
+     * available if <code>soapPoolSize</code> proxies are in use.
+     * The proxy must be handed back with <code>releaseSoap</code>.
+     * @param m     The SOAP method (used in the User-Agent header)
+     * @param o     The object type (used in the User-Agent header, may be null)
+     * @return      The Soap object
+     * @throws ETSdkException
+     */
+    public Soap borrowSoap(String m, String o)
+        throws ETSdkException
+    {
+        PooledSoap pooledSoap = idle.poll();
+        if (pooledSoap == null) {
+            synchronized (pooled) {
+                if (pooled.size() < poolSize) {
+                    pooledSoap = new PooledSoap(createSoap());
+                    pooled.add(pooledSoap);
+                    logger.trace("created SOAP proxy " + pooled.size()
+                            + " of " + poolSize);
+                }
+            }
+        }
+        if (pooledSoap == null) {
+            try {
+                pooledSoap = idle.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new ETSdkException("interrupted waiting for a SOAP proxy", ex);
+            }
+        }
+
+        Map<String, Object> requestContext = pooledSoap.client.getRequestContext();
+        requestContext.put("HTTP_HEADER_USER_AGENT", getUserAgent(m, o));
+        String token = accessToken;
+        if (useAccessToken) {
+            if (pooledSoap.accessToken == null
+                    || !pooledSoap.accessToken.equals(token))
+            {
+                requestContext.put(Header.HEADER_LIST, createAccessTokenHeaders(token));
+                pooledSoap.accessToken = token;
+            }
+        } else if (securityHeaders != null) {
+            requestContext.put(Header.HEADER_LIST, securityHeaders);
+        }
+
+        return pooledSoap.soap;
+    }
+
+    /**
+     * Returns a proxy obtained from <code>borrowSoap</code> to the pool.
+     * @param soap  The Soap object
+     */
+    public void releaseSoap(Soap soap) {
+        if (soap == null) {
+            return;
+        }
+        synchronized (pooled) {
+            for (PooledSoap pooledSoap : pooled) {
+                if (pooledSoap.soap == soap) {
+                    idle.offer(pooledSoap);
+                    return;
+                }
+            }
+        }
+        logger.warn("ignoring release of a SOAP proxy not borrowed from this connection");
+    }
+
+    /**
+     * @return  The maximum number of pooled proxies
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    private static String getUserAgent(String m, String o) {
+        if (o == null) {
+            return "FuelSDK-Java-v1.5.0-SOAP-" + m;
+        }
+        return "FuelSDK-Java-v1.5.0-SOAP-" + m + "-" + o;
+    }
+
+    private List<Header> createAccessTokenHeaders(String accessToken)
+        throws ETSdkException
+    {
+        try {
+            SOAPElement accessTokenElement =
+                    soapFactory.createElement(new QName(null, "fueloauth"));
+            if (accessToken != null) {
+                accessTokenElement.addTextNode(accessToken);
+            }
+            List<Header> headers = new ArrayList<Header>();
+            headers.add(new Header(new QName(null, "fueloauth"), accessTokenElement));
+            return Collections.unmodifiableList(headers);
+        } catch (SOAPException ex) {
+            throw new ETSdkException("could not set access token", ex);
+        }
+    }
     
     /**
      * @return  The end point URL
@@ -257,15 +469,28 @@ public class ETSoapConnection {
     public void setAccessToken(String accessToken)
         throws ETSdkException
     {
-        if (accessTokenElement != null) {
-            accessTokenElement.removeContents();
-            try {
-                accessTokenElement.addTextNode(accessToken);
-            } catch (SOAPException ex) {
-                throw new ETSdkException("could not set access token", ex);
+        if (useAccessToken) {
+            // pooled proxies pick up the new token when borrowed:
+            this.accessToken = accessToken;
+            synchronized (this) {
+                if (soapClient != null) {
+                    soapClient.getRequestContext().put(Header.HEADER_LIST,
+                            createAccessTokenHeaders(accessToken));
+                }
             }
             logger.debug("updated SOAP header with new access token "
                     + accessToken);
         }
     }
+
+    private static class PooledSoap {
+        private final Soap soap;
+        private final Client client;
+        private String accessToken = null;
+
+        PooledSoap(Soap soap) {
+            this.soap = soap;
+            this.client = ClientProxy.getClient(soap);
+        }
+    }
 }
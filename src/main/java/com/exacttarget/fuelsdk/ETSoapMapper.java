@@ -0,0 +1,74 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import com.exacttarget.fuelsdk.internal.APIObject;
+
+/**
+ * An <code>ETSoapMapper</code> copies the properties of an
+ * <code>ETSoapObject</code> to and from its internal (SOAP) type.
+ * Mappers are generated at build time by
+ * <code>SoapMapperProcessor</code> for every class annotated with
+ * <code>@SoapObject</code> and looked up via
+ * <code>ETSoapMappers.getMapper</code>.
+ */
+
+public interface ETSoapMapper<E extends ETSoapObject, I extends APIObject> {
+    /**
+     * @return  The external (SDK) type
+     */
+    public Class<E> getExternalType();
+
+    /**
+     * @return  The internal (SOAP) type
+     */
+    public Class<I> getInternalType();
+
+    /**
+     * @param internalObject    The internal object to copy from
+     * @param externalObject    The external object to copy to
+     * @throws ETSdkException
+     */
+    public void fromInternal(I internalObject, E externalObject)
+        throws ETSdkException;
+
+    /**
+     * @param externalObject    The external object to copy from
+     * @return                  A new internal object
+     * @throws ETSdkException
+     */
+    public I toInternal(E externalObject)
+        throws ETSdkException;
+}
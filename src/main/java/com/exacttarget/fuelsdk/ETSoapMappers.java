@@ -0,0 +1,171 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.beanutils.PropertyUtils;
+import org.apache.log4j.Logger;
+
+import com.exacttarget.fuelsdk.annotations.SoapMapperProcessor;
+import com.exacttarget.fuelsdk.internal.APIObject;
+import com.exacttarget.fuelsdk.internal.APIProperty;
+import com.exacttarget.fuelsdk.internal.ObjectExtension;
+
+/**
+ * Looks up the <code>ETSoapMapper</code>s generated by
+ * <code>SoapMapperProcessor</code> and provides the helpers the
+ * generated code calls.
+ */
+
+public final class ETSoapMappers {
+    private static Logger logger = Logger.getLogger(ETSoapMappers.class);
+
+    private static final Object NONE = new Object();
+
+    private static final Map<Class<?>, Object> mappers =
+            new ConcurrentHashMap<Class<?>, Object>();
+
+    private ETSoapMappers() {}
+
+    /**
+     * Returns the mapper generated for the specified type, or
+     * null if there is none (e.g., for subclasses defined outside
+     * the SDK); <code>ETSoapObject</code> then maps the object
+     * using reflection.
+     * @param type      The external type
+     * @return          The ETSoapMapper object, or null
+     */
+    @SuppressWarnings("unchecked")
+    public static ETSoapMapper<ETSoapObject, APIObject> getMapper(Class<? extends ETSoapObject> type) {
+        Object mapper = mappers.get(type);
+        if (mapper == null) {
+            mapper = NONE;
+            String name = type.getName().replace('$', '_')
+                    + SoapMapperProcessor.SUFFIX;
+            try {
+                Class<?> mapperType = Class.forName(name, true, type.getClassLoader());
+                ETSoapMapper<?, ?> instance = (ETSoapMapper<?, ?>) mapperType.newInstance();
+                if (instance.getExternalType() == type) {
+                    mapper = instance;
+                }
+            } catch (ClassNotFoundException ex) {
+                logger.debug("no generated mapper for " + type.getName());
+            } catch (Exception ex) {
+                logger.warn("could not instantiate mapper " + name, ex);
+            }
+            mappers.put(type, mapper);
+        }
+        return mapper == NONE ? null : (ETSoapMapper<ETSoapObject, APIObject>) mapper;
+    }
+
+    /**
+     * Copies a property the generated code could not map
+     * statically, converting it with the converters
+     * <code>ETSoapObject</code> registers.
+     * @param source        The object to copy from
+     * @param sourceName    The name of the property to copy from
+     * @param target        The object to copy to
+     * @param targetName    The name of the property to copy to
+     * @throws ETSdkException
+     */
+    public static void copyProperty(Object source,
+                                    String sourceName,
+                                    Object target,
+                                    String targetName)
+        throws ETSdkException
+    {
+        Object value = null;
+        try {
+            value = PropertyUtils.getProperty(source, sourceName);
+        } catch (Exception ex) {
+            throw new ETSdkException("could not get property \""
+                    + sourceName
+                    + "\" of object "
+                    + source,
+                    ex);
+        }
+        if (value == null) {
+            return;
+        }
+        try {
+            ETSoapObject.getBeanUtils().setProperty(target, targetName, value);
+        } catch (Exception ex) {
+            throw new ETSdkException("could not set property \""
+                    + targetName
+                    + "\" of object "
+                    + target,
+                    ex);
+        }
+    }
+
+    /**
+     * @param value         The value to convert
+     * @return              The value as an Integer
+     * @throws ETSdkException if the value does not fit into an Integer
+     */
+    public static Integer toInteger(Long value)
+        throws ETSdkException
+    {
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new ETSdkException("value " + value + " is too large for an Integer");
+        }
+        return Integer.valueOf(value.intValue());
+    }
+
+    /**
+     * @param properties    The properties of a data extension object
+     * @return              The columns of a data extension row
+     */
+    public static Map<String, String> toColumns(ObjectExtension.Properties properties) {
+        return ETColumnMap.fromProperties(properties.getProperty());
+    }
+
+    /**
+     * @param columns       The columns of a data extension row
+     * @return              The properties of a data extension object
+     */
+    public static ObjectExtension.Properties toProperties(Map<String, String> columns) {
+        ObjectExtension.Properties properties = new ObjectExtension.Properties();
+        for (Map.Entry<String, String> column : columns.entrySet()) {
+            APIProperty property = new APIProperty();
+            property.setName(column.getKey());
+            property.setValue(column.getValue());
+            properties.getProperty().add(property);
+        }
+        return properties;
+    }
+}
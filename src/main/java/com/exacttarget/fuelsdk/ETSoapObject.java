@@ -40,14 +40,14 @@ import java.lang.reflect.Type;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlElementRef;
 
-import org.apache.commons.beanutils.BeanUtils;
 import org.apache.commons.beanutils.BeanUtilsBean;
 import org.apache.commons.beanutils.ConversionException;
 import org.apache.commons.beanutils.ConvertUtilsBean;
@@ -60,7 +60,6 @@ import com.exacttarget.fuelsdk.annotations.InternalName;
 import com.exacttarget.fuelsdk.annotations.InternalProperty;
 import com.exacttarget.fuelsdk.annotations.SoapObject;
 import com.exacttarget.fuelsdk.internal.APIObject;
-import com.exacttarget.fuelsdk.internal.APIProperty;
 import com.exacttarget.fuelsdk.internal.Attribute;
 import com.exacttarget.fuelsdk.internal.ComplexFilterPart;
 import com.exacttarget.fuelsdk.internal.CreateOptions;
@@ -84,9 +83,12 @@ import com.exacttarget.fuelsdk.internal.ListClassificationEnum;
 import com.exacttarget.fuelsdk.internal.ListTypeEnum;
 import com.exacttarget.fuelsdk.internal.LogicalOperators;
 import com.exacttarget.fuelsdk.internal.ObjectExtension;
+import com.exacttarget.fuelsdk.internal.Options;
 import com.exacttarget.fuelsdk.internal.RetrieveRequest;
 import com.exacttarget.fuelsdk.internal.RetrieveRequestMsg;
 import com.exacttarget.fuelsdk.internal.RetrieveResponseMsg;
+import com.exacttarget.fuelsdk.internal.SaveAction;
+import com.exacttarget.fuelsdk.internal.SaveOption;
 import com.exacttarget.fuelsdk.internal.SimpleFilterPart;
 import com.exacttarget.fuelsdk.internal.SimpleOperators;
 import com.exacttarget.fuelsdk.internal.Soap;
@@ -112,12 +114,19 @@ public abstract class ETSoapObject extends ETApiObject {
      */
     public final static int PAGE_SIZE = 2500;
 
+    //
+    // The SDK's converters are registered once, with a BeanUtilsBean
+    // of its own rather than the global one, and never modified
+    // afterwards, so creating objects does no registration work and
+    // lookups do not contend:
+    //
+
+    private static final BeanUtilsBean beanUtils = createBeanUtils();
+
     /** 
     * Class constructor, Initializes a new instance of the class.
     */
-    public ETSoapObject() {
-        registerConverters();
-    }
+    public ETSoapObject() {}
 
     /**
      * 
@@ -209,6 +218,82 @@ public abstract class ETSoapObject extends ETApiObject {
                                                                      String continueRequest,
                                                                      Class<T> type)
         throws ETSdkException
+    {
+        return retrieve(client, soapObjectName, filter, continueRequest, type, false);
+    }
+
+    /**
+     * Retrieves objects as views: instead of converting each
+     * result, the response holds an <code>ETSoapObjectView</code>
+     * per result, which converts properties when they are accessed.
+     * @param <T>           The type which extends from ETSoapObject
+     * @param client        The ETClient object
+     * @param type          The class type to retrieve
+     * @param filter        The ETFilter object
+     * @return              The ETResponse object whose views hold the results
+     * @throws ETSdkException 
+     */
+    public static <T extends ETSoapObject> ETResponse<T> retrieveViews(ETClient client,
+                                                                       Class<T> type,
+                                                                       ETFilter filter)
+        throws ETSdkException
+    {
+        return retrieve(client, null, filter, null, type, true);
+    }
+
+    /**
+     * Retrieves all objects batch by batch: the cursor follows
+     * up with continue requests until the server has returned
+     * every result.
+     * @param <T>           The type which extends from ETSoapObject
+     * @param client        The ETClient object
+     * @param type          The class type to retrieve
+     * @param filter        The ETFilter object
+     * @return              The ETRetrieveCursor returning the batches
+     */
+    public static <T extends ETSoapObject> ETRetrieveCursor<T> retrieveAll(ETClient client,
+                                                                           Class<T> type,
+                                                                           ETFilter filter)
+    {
+        return retrieveAll(client, null, filter, type);
+    }
+
+    /**
+     * 
+     * @param <T>           The type which extends from ETSoapObject
+     * @param client        The ETClient object
+     * @param soapObjectName The object name to retrieve for SOAP
+     * @param filter        The ETFilter object
+     * @param type          The class type to retrieve
+     * @return              The ETRetrieveCursor returning the batches
+     */
+    protected static <T extends ETSoapObject> ETRetrieveCursor<T> retrieveAll(ETClient client,
+                                                                              String soapObjectName,
+                                                                              ETFilter filter,
+                                                                              Class<T> type)
+    {
+        return new ETRetrieveCursor<T>(client, soapObjectName, filter, type);
+    }
+
+    /**
+     * 
+     * @param <T>           The type which extends from ETSoapObject
+     * @param client        The ETClient object
+     * @param soapObjectName The object name to retrieve for SOAP
+     * @param filter        The ETFilter object
+     * @param continueRequest The continue request
+     * @param type          The class type to retrieve
+     * @param views         true to return views instead of converted objects
+     * @return              The ETResponse object of type T which extends from ETSoapObject
+     * @throws ETSdkException 
+     */
+    protected static <T extends ETSoapObject> ETResponse<T> retrieve(ETClient client,
+                                                                     String soapObjectName,
+                                                                     ETFilter filter,
+                                                                     String continueRequest,
+                                                                     Class<T> type,
+                                                                     boolean views)
+        throws ETSdkException
     {
         ETResponse<T> response = new ETResponse<T>();
 
@@ -216,7 +301,7 @@ public abstract class ETSoapObject extends ETApiObject {
         // Get handle to the SOAP connection:
         //
 
-        ETSoapConnection connection = client.getSoapConnection();
+        ETSoapConnection connection = client.requireSoapConnection();
 
         //
         // Automatically refresh the token if necessary:
@@ -263,14 +348,19 @@ public abstract class ETSoapObject extends ETApiObject {
             // No properties were explicitly requested:
             //
 
-            internalProperties = getInternalProperties(externalType);
+            internalProperties =
+                    ETObjectMetadata.get(externalType).getRetrievableProperties();
 
-            //
-            // Remove properties that are unretrievable:
-            //
+            if (internalProperties == null) {
+                internalProperties = getInternalProperties(externalType);
 
-            for (String property : internalTypeAnnotation.unretrievable()) {
-                internalProperties.remove(property);
+                //
+                // Remove properties that are unretrievable:
+                //
+
+                for (String property : internalTypeAnnotation.unretrievable()) {
+                    internalProperties.remove(property);
+                }
             }
         }
 
@@ -279,7 +369,7 @@ public abstract class ETSoapObject extends ETApiObject {
         //
 
         //Soap soap = connection.getSoap();
-        Soap soap = null;
+        String soapObjectType = null;
 
         RetrieveRequest retrieveRequest = new RetrieveRequest();
 
@@ -288,10 +378,10 @@ public abstract class ETSoapObject extends ETApiObject {
             // to the name of the internal class representing the object:
             if (soapObjectName != null) {
                 retrieveRequest.setObjectType(soapObjectName);
-                soap = connection.getSoap("retrieve", soapObjectName);
+                soapObjectType = soapObjectName;
             } else {
                 retrieveRequest.setObjectType(internalType.getSimpleName());
-                soap = connection.getSoap("retrieve", internalType.getSimpleName());
+                soapObjectType = internalType.getSimpleName();
             }
             retrieveRequest.getProperties().addAll(internalProperties);
 
@@ -346,10 +436,21 @@ public abstract class ETSoapObject extends ETApiObject {
 
         logger.trace("calling soap.retrieve...");
 
-        RetrieveRequestMsg retrieveRequestMsg = new RetrieveRequestMsg();
+        final RetrieveRequestMsg retrieveRequestMsg = new RetrieveRequestMsg();
         retrieveRequestMsg.setRetrieveRequest(retrieveRequest);
 
-        RetrieveResponseMsg retrieveResponseMsg = soap.retrieve(retrieveRequestMsg);
+        final Soap soap = connection.borrowSoap("retrieve", soapObjectType);
+        RetrieveResponseMsg retrieveResponseMsg = null;
+        try {
+            retrieveResponseMsg = client.getRetryPolicy().execute("soap.retrieve",
+                    new Callable<RetrieveResponseMsg>() {
+                public RetrieveResponseMsg call() {
+                    return soap.retrieve(retrieveRequestMsg);
+                }
+            });
+        } finally {
+            connection.releaseSoap(soap);
+        }
 
         if (logger.isTraceEnabled()) {
             logger.trace("RetrieveResponseMsg:");
@@ -371,6 +472,13 @@ public abstract class ETSoapObject extends ETApiObject {
         response.setResponseCode(retrieveResponseMsg.getOverallStatus());
         response.setResponseMessage(retrieveResponseMsg.getOverallStatus());
         for (APIObject internalObject : retrieveResponseMsg.getResults()) {
+            if (views) {
+                response.addView(new ETSoapObjectView<T>(client,
+                                                         externalType,
+                                                         internalObject));
+                continue;
+            }
+
             //
             // Allocate a new (external) object:
             //
@@ -429,7 +537,7 @@ public abstract class ETSoapObject extends ETApiObject {
         // Get handle to the SOAP connection:
         //
 
-        ETSoapConnection connection = client.getSoapConnection();
+        ETSoapConnection connection = client.requireSoapConnection();
 
         //
         // Automatically refresh the token if necessary:
@@ -445,14 +553,14 @@ public abstract class ETSoapObject extends ETApiObject {
 //        Soap soap = connection.getSoap("create");
         String obj = "";
         
-        CreateRequest createRequest = new CreateRequest();
+        final CreateRequest createRequest = new CreateRequest();
         createRequest.setOptions(new CreateOptions());
         for (T object : objects) {
             object.setClient(client);
             createRequest.getObjects().add(object.toInternal());
             obj += object.getClass().getSimpleName().substring(2);
         }
-        Soap soap = connection.getSoap("create", obj);
+        final Soap soap = connection.borrowSoap("create", obj);
 
         if (logger.isTraceEnabled()) {
             logger.trace("CreateRequest:");
@@ -465,7 +573,17 @@ public abstract class ETSoapObject extends ETApiObject {
 
         logger.trace("calling soap.create...");
 
-        CreateResponse createResponse = soap.create(createRequest);
+        CreateResponse createResponse = null;
+        try {
+            createResponse = client.getRetryPolicy().execute("soap.create",
+                    new Callable<CreateResponse>() {
+                public CreateResponse call() {
+                    return soap.create(createRequest);
+                }
+            });
+        } finally {
+            connection.releaseSoap(soap);
+        }
 
         if (logger.isTraceEnabled()) {
             logger.trace("CreateResponse:");
@@ -549,6 +667,31 @@ public abstract class ETSoapObject extends ETApiObject {
     public static <T extends ETSoapObject> ETResponse<T> update(ETClient client,
                                                                 List<T> objects)
         throws ETSdkException
+    {
+        return update(client, objects, null);
+    }
+
+    /**
+     * Updates objects that exist and creates those that don't,
+     * in a single call (an update with the UpdateAdd save action).
+     * Objects are sent in full, since any of them may be created.
+     * @param <T>                   The type which extends from ETSoapObject
+     * @param client                The ETClient object
+     * @param objects               The List of objects to update or create
+     * @return                      The ETResponse object of type T which extends from ETSoapObject
+     * @throws ETSdkException
+     */
+    public static <T extends ETSoapObject> ETResponse<T> upsert(ETClient client,
+                                                                List<T> objects)
+        throws ETSdkException
+    {
+        return update(client, objects, SaveAction.UPDATE_ADD);
+    }
+
+    private static <T extends ETSoapObject> ETResponse<T> update(ETClient client,
+                                                                 List<T> objects,
+                                                                 SaveAction saveAction)
+        throws ETSdkException
     {
         ETResponse<T> response = new ETResponse<T>();
 
@@ -561,7 +704,7 @@ public abstract class ETSoapObject extends ETApiObject {
         // Get handle to the SOAP connection:
         //
 
-        ETSoapConnection connection = client.getSoapConnection();
+        ETSoapConnection connection = client.requireSoapConnection();
 
         //
         // Automatically refresh the token if necessary:
@@ -577,14 +720,12 @@ public abstract class ETSoapObject extends ETApiObject {
 //        Soap soap = connection.getSoap("update");
         String obj = "";
 
-        UpdateRequest updateRequest = new UpdateRequest();
-        updateRequest.setOptions(new UpdateOptions());
         for (T object : objects) {
             object.setClient(client);
-            updateRequest.getObjects().add(object.toInternal());
             obj += object.getClass().getSimpleName().substring(2);
         }
-        Soap soap = connection.getSoap("update", obj);
+        final UpdateRequest updateRequest = createUpdateRequest(objects, saveAction);
+        final Soap soap = connection.borrowSoap("update", obj);
 
         if (logger.isTraceEnabled()) {
             logger.trace("UpdateRequest:");
@@ -597,7 +738,17 @@ public abstract class ETSoapObject extends ETApiObject {
 
         logger.trace("calling soap.update...");
 
-        UpdateResponse updateResponse = soap.update(updateRequest);
+        UpdateResponse updateResponse = null;
+        try {
+            updateResponse = client.getRetryPolicy().execute("soap.update",
+                    new Callable<UpdateResponse>() {
+                public UpdateResponse call() {
+                    return soap.update(updateRequest);
+                }
+            });
+        } finally {
+            connection.releaseSoap(soap);
+        }
 
         if (logger.isTraceEnabled()) {
             logger.trace("UpdateResponse:");
@@ -670,6 +821,40 @@ public abstract class ETSoapObject extends ETApiObject {
         return response;
     }
 
+    /**
+     * @param <T>                   The type which extends from ETSoapObject
+     * @param objects               The List of objects to update
+     * @param saveAction            The save action applying to all
+     *                              properties, or <code>null</code>
+     *                              for a plain update
+     * @return                      The UpdateRequest
+     * @throws ETSdkException
+     */
+    static <T extends ETSoapObject> UpdateRequest createUpdateRequest(List<T> objects,
+                                                                      SaveAction saveAction)
+        throws ETSdkException
+    {
+        UpdateRequest updateRequest = new UpdateRequest();
+        UpdateOptions updateOptions = new UpdateOptions();
+        if (saveAction != null) {
+            SaveOption saveOption = new SaveOption();
+            saveOption.setPropertyName("*");
+            saveOption.setSaveAction(saveAction);
+            Options.SaveOptions saveOptions = new Options.SaveOptions();
+            saveOptions.getSaveOption().add(saveOption);
+            updateOptions.setSaveOptions(saveOptions);
+        }
+        updateRequest.setOptions(updateOptions);
+        for (T object : objects) {
+            if (saveAction != null) {
+                updateRequest.getObjects().add(object.toInternal());
+            } else {
+                updateRequest.getObjects().add(object.toInternalModified());
+            }
+        }
+        return updateRequest;
+    }
+
     /**
      * @param <T>                   The type which extends from ETSoapObject
      * @param client                The ETClient object
@@ -719,7 +904,7 @@ public abstract class ETSoapObject extends ETApiObject {
         // Get handle to the SOAP connection:
         //
 
-        ETSoapConnection connection = client.getSoapConnection();
+        ETSoapConnection connection = client.requireSoapConnection();
 
         //
         // Automatically refresh the token if necessary:
@@ -734,10 +919,10 @@ public abstract class ETSoapObject extends ETApiObject {
         for (APIObject object : objects)
             obj += object.getClass().getSimpleName();//.substring(2);
 
-        Soap soap = connection.getSoap("delete", obj);
+        final Soap soap = connection.borrowSoap("delete", obj);
         
 
-        DeleteRequest deleteRequest = new DeleteRequest();
+        final DeleteRequest deleteRequest = new DeleteRequest();
         deleteRequest.setOptions(new DeleteOptions());
         deleteRequest.getObjects().addAll(objects);
 
@@ -752,7 +937,17 @@ public abstract class ETSoapObject extends ETApiObject {
 
         logger.trace("calling soap.delete...");
 
-        DeleteResponse deleteResponse = soap.delete(deleteRequest);
+        DeleteResponse deleteResponse = null;
+        try {
+            deleteResponse = client.getRetryPolicy().execute("soap.delete",
+                    new Callable<DeleteResponse>() {
+                public DeleteResponse call() {
+                    return soap.delete(deleteRequest);
+                }
+            });
+        } finally {
+            connection.releaseSoap(soap);
+        }
 
         if (logger.isTraceEnabled()) {
             logger.trace("DeleteResponse:");
@@ -789,12 +984,16 @@ public abstract class ETSoapObject extends ETApiObject {
         return response;
     }
 
-    private void registerConverters() {
+    static BeanUtilsBean getBeanUtils() {
+        return beanUtils;
+    }
+
+    private static BeanUtilsBean createBeanUtils() {
         //
         // Register converters:
         //
 
-        ConvertUtilsBean convertUtils = BeanUtilsBean.getInstance().getConvertUtils();
+        ConvertUtilsBean convertUtils = new ConvertUtilsBean();
 
         // ETDataExtension
         convertUtils.register(new ExternalObjectConverter(),
@@ -904,9 +1103,11 @@ public abstract class ETSoapObject extends ETApiObject {
                 ETTriggeredEmail.Status.class);
         convertUtils.register(new EnumConverter(),
                 TriggeredSendStatusEnum.class);
+
+        return new BeanUtilsBean(convertUtils);
     }
 
-    public class ExternalObjectConverter implements Converter {
+    public static class ExternalObjectConverter implements Converter {
         @SuppressWarnings("rawtypes")
         /**
          * @param type      The class type to convert
@@ -929,7 +1130,7 @@ public abstract class ETSoapObject extends ETApiObject {
         }
     }
 
-    public class InternalObjectConverter implements Converter {
+    public static class InternalObjectConverter implements Converter {
         @SuppressWarnings("rawtypes")
         /**
          * @param type      The class type to convert
@@ -947,7 +1148,7 @@ public abstract class ETSoapObject extends ETApiObject {
         }
     }
 
-    public class DataExtensionRowConverter implements Converter {
+    public static class DataExtensionRowConverter implements Converter {
         @SuppressWarnings({ "rawtypes", "unchecked" })
         /**
          * @param type      The class type to convert
@@ -957,30 +1158,16 @@ public abstract class ETSoapObject extends ETApiObject {
         public Object convert(Class type, Object value) {
             if (type == Map.class) {
                 // we're converting from internal to external
-                ObjectExtension.Properties properties
-                    = (ObjectExtension.Properties) value;
-                Map<String, String> columns = new HashMap<String, String>();
-                for (APIProperty property : properties.getProperty()) {
-                    columns.put(property.getName(), property.getValue());
-                }
-                return columns;
+                return ETSoapMappers.toColumns((ObjectExtension.Properties) value);
             } else if (type == ObjectExtension.Properties.class) {
                 // we're converting from external to internal
-                Map<String, String> columns = (Map<String, String>) value;
-                ObjectExtension.Properties properties
-                    = new ObjectExtension.Properties();
-                for (String key : columns.keySet()) {
-                    APIProperty property = new APIProperty();
-                    property.setName(key); property.setValue(columns.get(key));
-                    properties.getProperty().add(property);
-                }
-                return properties;
+                return ETSoapMappers.toProperties((Map<String, String>) value);
             }
             return value;
         }
     }
 
-    public class EnumConverter implements Converter {
+    public static class EnumConverter implements Converter {
         @SuppressWarnings({ "rawtypes", "unchecked" })
         /**
          * @param type      The class type to convert
@@ -1003,10 +1190,45 @@ public abstract class ETSoapObject extends ETApiObject {
     {
         ETSoapObject externalObject = this; // for code readability
 
+        Class<? extends ETSoapObject> externalType = externalObject.getClass();
+
+        //
+        // Use the mapper generated at build time if there is one;
+        // reflection remains for types without one:
+        //
+
+        ETSoapMapper<ETSoapObject, APIObject> mapper = ETSoapMappers.getMapper(externalType);
+        if (mapper != null
+                && mapper.getInternalType().isInstance(internalObject)) {
+            try {
+                mapper.fromInternal(internalObject, externalObject);
+            } catch (RuntimeException ex) {
+                throw new ETSdkException("could not convert object "
+                        + internalObject, ex);
+            }
+            if (logger.isTraceEnabled()) {
+                traceMapped(internalObject, false);
+            }
+            // converting isn't modifying:
+            externalObject.clearModified();
+            return externalObject;
+        }
+
+        return fromInternalReflective(internalObject);
+    }
+
+    //
+    // Converts from internal representation field by field:
+    //
+
+    ETSoapObject fromInternalReflective(APIObject internalObject)
+        throws ETSdkException
+    {
+        ETSoapObject externalObject = this; // for code readability
+
         Class<? extends ETSoapObject> externalType = externalObject.getClass();
         String externalTypeName = externalType.getSimpleName();
-        Class<? extends APIObject> internalType = internalObject.getClass();
-        String internalTypeName = internalType.getSimpleName();
+        String internalTypeName = internalObject.getClass().getSimpleName();
 
         logger.trace("converting object from internal type "
                 + internalTypeName);
@@ -1014,134 +1236,209 @@ public abstract class ETSoapObject extends ETApiObject {
                 + externalTypeName);
 
         for (Field externalField : getAllFields(externalType)) {
-            //
-            // Skip this field if it doesn't have the @ExternalName
-            // annotation (it's an internal field):
-            //
+            fromInternal(internalObject, externalField);
+        }
 
-            ExternalName externalName =
-                    externalField.getAnnotation(ExternalName.class);
-            if (externalName == null) {
-                continue;
-            }
+        // converting isn't modifying:
+        externalObject.clearModified();
 
-            String externalFieldName = externalField.getName();
-            String internalFieldName = null;
+        return externalObject;
+    }
 
-            InternalName internalName =
-                    externalField.getAnnotation(InternalName.class);
+    //
+    // Converts a single field from internal representation; views
+    // use this to convert fields only when they are accessed:
+    //
 
-            if (internalName != null) {
-                internalFieldName = internalName.value();
-            } else {
-                // internal name is the same as external name
-                internalFieldName = externalFieldName;
-            }
+    void fromInternal(APIObject internalObject, Field externalField)
+        throws ETSdkException
+    {
+        ETSoapObject externalObject = this; // for code readability
 
-            Object internalFieldValue = null;
-            try {
-                internalFieldValue =
-                        PropertyUtils.getProperty(internalObject,
-                                                  internalFieldName);
-            } catch (Exception ex) {
-                throw new ETSdkException("could not get property \""
-                        + internalFieldName
-                        + "\" of object "
-                        + internalObject,
-                        ex);
-            }
+        Class<? extends ETSoapObject> externalType = externalObject.getClass();
+        String externalTypeName = externalType.getSimpleName();
+        Class<? extends APIObject> internalType = internalObject.getClass();
+        String internalTypeName = internalType.getSimpleName();
 
-            if (internalFieldValue == null) {
-                continue;
-            }
+        //
+        // Skip this field if it doesn't have the @ExternalName
+        // annotation (it's an internal field):
+        //
 
-            if (internalFieldValue instanceof List) {
-                externalField.setAccessible(true);
-
-                List<ETSoapObject> externalList = new ArrayList<ETSoapObject>();
-                @SuppressWarnings("unchecked")
-                List<APIObject> internalList
-                    = (List<APIObject>) internalFieldValue;
-
-                Type fieldType = externalField.getGenericType();
-                assert fieldType instanceof ParameterizedType;
-                ParameterizedType parameterizedType
-                    = (ParameterizedType) fieldType;
-                assert parameterizedType.getActualTypeArguments().length == 1;
-                Class<?> externalItemType
-                    = (Class<?>) parameterizedType.getActualTypeArguments()[0];
-
-                for (APIObject internalItem : internalList) {
-                    ETSoapObject externalItem = null;
-                    try {
-                        externalItem = (ETSoapObject) externalItemType.newInstance();
-                    } catch (Exception ex) {
-                        throw new ETSdkException("could not instantiate "
-                                + externalItemType.getName(), ex);
-                    }
-                    externalList.add(externalItem.fromInternal(internalItem));
-                }
+        ExternalName externalName =
+                externalField.getAnnotation(ExternalName.class);
+        if (externalName == null) {
+            return;
+        }
+
+        String externalFieldName = externalField.getName();
+        String internalFieldName = null;
+
+        InternalName internalName =
+                externalField.getAnnotation(InternalName.class);
+
+        if (internalName != null) {
+            internalFieldName = internalName.value();
+        } else {
+            // internal name is the same as external name
+            internalFieldName = externalFieldName;
+        }
+
+        Object internalFieldValue = null;
+        try {
+            internalFieldValue =
+                    PropertyUtils.getProperty(internalObject,
+                                              internalFieldName);
+        } catch (Exception ex) {
+            throw new ETSdkException("could not get property \""
+                    + internalFieldName
+                    + "\" of object "
+                    + internalObject,
+                    ex);
+        }
 
+        if (internalFieldValue == null) {
+            return;
+        }
+
+        if (internalFieldValue instanceof List) {
+            externalField.setAccessible(true);
+
+            List<ETSoapObject> externalList = new ArrayList<ETSoapObject>();
+            @SuppressWarnings("unchecked")
+            List<APIObject> internalList
+                = (List<APIObject>) internalFieldValue;
+
+            Type fieldType = externalField.getGenericType();
+            assert fieldType instanceof ParameterizedType;
+            ParameterizedType parameterizedType
+                = (ParameterizedType) fieldType;
+            assert parameterizedType.getActualTypeArguments().length == 1;
+            Class<?> externalItemType
+                = (Class<?>) parameterizedType.getActualTypeArguments()[0];
+
+            for (APIObject internalItem : internalList) {
+                ETSoapObject externalItem = null;
                 try {
-                    externalField.set(externalObject, externalList);
+                    externalItem = (ETSoapObject) externalItemType.newInstance();
                 } catch (Exception ex) {
-                    throw new ETSdkException("could not set field \""
-                            + externalFieldName
-                            + "\" of object "
-                            + externalObject,
-                            ex);
+                    throw new ETSdkException("could not instantiate "
+                            + externalItemType.getName(), ex);
                 }
-
-                continue;
+                externalList.add(externalItem.fromInternal(internalItem));
             }
 
             try {
-                BeanUtils.setProperty(externalObject,
-                                      externalFieldName,
-                                      internalFieldValue);
+                externalField.set(externalObject, externalList);
             } catch (Exception ex) {
-                throw new ETSdkException("could not set property \""
+                throw new ETSdkException("could not set field \""
                         + externalFieldName
                         + "\" of object "
                         + externalObject,
                         ex);
             }
 
-            if (logger.isTraceEnabled()) {
-                Field internalField = getField(internalType,
-                                               internalFieldName);
+            return;
+        }
 
-                Object externalFieldValue = null;
-                try {
-                    externalFieldValue =
-                            PropertyUtils.getProperty(externalObject,
-                                                      externalFieldName);
-                } catch (Exception ex) {
-                    throw new ETSdkException("could not get property \""
-                            + externalFieldName
-                            + "\" of object "
-                            + externalObject,
-                            ex);
-                }
+        try {
+            beanUtils.setProperty(externalObject,
+                                  externalFieldName,
+                                  internalFieldValue);
+        } catch (Exception ex) {
+            throw new ETSdkException("could not set property \""
+                    + externalFieldName
+                    + "\" of object "
+                    + externalObject,
+                    ex);
+        }
 
-                logger.trace("  converted field "
-                        + internalTypeName + "." + internalFieldName
-                        + " (type="
-                        + internalField.getType().getSimpleName()
-                        + ", value="
-                        + internalFieldValue
-                        + ")");
-                logger.trace("         to field "
-                        + externalTypeName + "." + externalFieldName
-                        + " (type="
-                        + externalField.getType().getSimpleName()
-                        + ", value="
-                        + externalFieldValue
-                        + ")");
+        if (logger.isTraceEnabled()) {
+            Field internalField = getField(internalType,
+                                           internalFieldName);
+
+            Object externalFieldValue = null;
+            try {
+                externalFieldValue =
+                        PropertyUtils.getProperty(externalObject,
+                                                  externalFieldName);
+            } catch (Exception ex) {
+                throw new ETSdkException("could not get property \""
+                        + externalFieldName
+                        + "\" of object "
+                        + externalObject,
+                        ex);
             }
+
+            logger.trace("  converted field "
+                    + internalTypeName + "." + internalFieldName
+                    + " (type="
+                    + internalField.getType().getSimpleName()
+                    + ", value="
+                    + internalFieldValue
+                    + ")");
+            logger.trace("         to field "
+                    + externalTypeName + "." + externalFieldName
+                    + " (type="
+                    + externalField.getType().getSimpleName()
+                    + ", value="
+                    + externalFieldValue
+                    + ")");
         }
+    }
 
-        return externalObject;
+    //
+    // Logs the fields a generated mapper converted, the way the
+    // reflective conversion logs them, so tracing doesn't change
+    // which conversion runs:
+    //
+
+    private void traceMapped(APIObject internalObject, boolean toInternal) {
+        String externalTypeName = getClass().getSimpleName();
+        String internalTypeName = internalObject.getClass().getSimpleName();
+
+        logger.trace("converted object from "
+                + (toInternal ? "external" : "internal") + " type "
+                + (toInternal ? externalTypeName : internalTypeName));
+        logger.trace("                 to "
+                + (toInternal ? "internal" : "external") + " type "
+                + (toInternal ? internalTypeName : externalTypeName)
+                + " with its generated mapper");
+
+        for (Field externalField : getAllFields(getClass())) {
+            if (externalField.getAnnotation(ExternalName.class) == null) {
+                continue;
+            }
+            String externalFieldName = externalField.getName();
+            InternalName internalName =
+                    externalField.getAnnotation(InternalName.class);
+            String internalFieldName = internalName != null
+                    ? internalName.value()
+                    : externalFieldName;
+            Object internalFieldValue = null;
+            Object externalFieldValue = null;
+            try {
+                internalFieldValue =
+                        PropertyUtils.getProperty(internalObject,
+                                                  internalFieldName);
+                externalFieldValue =
+                        PropertyUtils.getProperty(this,
+                                                  externalFieldName);
+            } catch (Exception ex) {
+                logger.trace("  could not read field " + externalFieldName, ex);
+                continue;
+            }
+            if (internalFieldValue == null && externalFieldValue == null) {
+                continue;
+            }
+            logger.trace("  converted field "
+                    + internalTypeName + "." + internalFieldName
+                    + " (value=" + internalFieldValue + ")"
+                    + (toInternal ? " from" : " to")
+                    + " field "
+                    + externalTypeName + "." + externalFieldName
+                    + " (value=" + externalFieldValue + ")");
+        }
     }
 
     /**
@@ -1156,6 +1453,35 @@ public abstract class ETSoapObject extends ETApiObject {
 
         Class<? extends ETSoapObject> externalType = externalObject.getClass();
 
+        ETSoapMapper<ETSoapObject, APIObject> mapper = ETSoapMappers.getMapper(externalType);
+        if (mapper != null) {
+            APIObject internalObject = null;
+            try {
+                internalObject = mapper.toInternal(externalObject);
+            } catch (RuntimeException ex) {
+                throw new ETSdkException("could not convert object "
+                        + externalObject, ex);
+            }
+            if (logger.isTraceEnabled()) {
+                traceMapped(internalObject, true);
+            }
+            return internalObject;
+        }
+
+        return toInternalReflective();
+    }
+
+    //
+    // Converts to internal representation field by field:
+    //
+
+    APIObject toInternalReflective()
+        throws ETSdkException
+    {
+        ETSoapObject externalObject = this; // for code readability
+
+        Class<? extends ETSoapObject> externalType = externalObject.getClass();
+
         //
         // Use the @SoapObject annotation to determine internalType:
         //
@@ -1183,160 +1509,232 @@ public abstract class ETSoapObject extends ETApiObject {
         }
 
         for (Field externalField : getAllFields(externalType)) {
-            //
-            // Skip this field if it doesn't have the @ExternalName
-            // annotation (it's an internal field):
-            //
+            toInternal(internalObject, externalField);
+        }
 
-            ExternalName externalName =
-                    externalField.getAnnotation(ExternalName.class);
-            if (externalName == null) {
-                continue;
-            }
+        return internalObject;
+    }
 
-            String externalFieldName = externalField.getName();
-            String internalFieldName = null;
+    //
+    // Converts only the fields that are modified, plus the fields
+    // identifying the object and lists (whose items can change
+    // without a setter), so updates send a sparse object; objects
+    // with no modified fields are converted in full:
+    //
 
-            InternalName internalName =
-                    externalField.getAnnotation(InternalName.class);
+    APIObject toInternalModified()
+        throws ETSdkException
+    {
+        if (!hasModifiedFields()) {
+            return toInternal();
+        }
 
-            if (internalName != null) {
-                internalFieldName = internalName.value();
-            } else {
-                // internal name is the same as external name
-                internalFieldName = externalFieldName;
-            }
+        Class<? extends ETSoapObject> externalType = getClass();
+        SoapObject internalTypeAnnotation
+            = externalType.getAnnotation(SoapObject.class);
+        assert internalTypeAnnotation != null;
+        Class<? extends APIObject> internalType = internalTypeAnnotation.internalType();
+        List<String> identity = Arrays.asList(internalTypeAnnotation.identity());
 
-            Object externalFieldValue = null;
-            try {
-                externalFieldValue =
-                        PropertyUtils.getProperty(externalObject,
-                                                  externalFieldName);
-            } catch (Exception ex) {
-                throw new ETSdkException("could not get property \""
-                        + externalFieldName
-                        + "\" of object "
-                        + externalObject,
-                        ex);
-            }
+        APIObject internalObject = null;
+        try {
+            internalObject = internalType.newInstance();
+        } catch (Exception ex) {
+            throw new ETSdkException("could not instantiate "
+                    + internalType.getName(), ex);
+        }
 
-            if (externalFieldValue == null) {
-                continue;
+        List<Field> externalFields =
+                ETObjectMetadata.get(externalType).getExternalFields();
+        for (int i = 0; i < externalFields.size(); i++) {
+            Field externalField = externalFields.get(i);
+            if (isFieldModified(i)
+                    || identity.contains(externalField.getAnnotation(ExternalName.class).value())
+                    || List.class.isAssignableFrom(externalField.getType())) {
+                toInternal(internalObject, externalField);
             }
+        }
 
-            if (externalFieldValue instanceof List) {
-                Field internalField = getField(internalType,
-                                               internalFieldName);
+        return internalObject;
+    }
 
-                internalField.setAccessible(true);
+    //
+    // Converts a single field to internal representation:
+    //
 
-                List<APIObject> internalList = new ArrayList<APIObject>();
-                @SuppressWarnings("unchecked")
-                List<ETSoapObject> externalList
-                    = (List<ETSoapObject>) externalFieldValue;
+    void toInternal(APIObject internalObject, Field externalField)
+        throws ETSdkException
+    {
+        ETSoapObject externalObject = this; // for code readability
 
-                for (ETSoapObject externalItem : externalList) {
-                    internalList.add(externalItem.toInternal());
-                }
+        Class<? extends ETSoapObject> externalType = externalObject.getClass();
+        String externalTypeName = externalType.getSimpleName();
+        Class<? extends APIObject> internalType = internalObject.getClass();
+        String internalTypeName = internalType.getSimpleName();
 
-                if (internalFieldName.equals("fields")) {
-                    //
-                    // This list contains data extension columns:
-                    //
+        //
+        // Skip this field if it doesn't have the @ExternalName
+        // annotation (it's an internal field):
+        //
 
-                    DataExtension.Fields fields = new DataExtension.Fields();
-                    for (APIObject field : internalList) {
-                        fields.getField().add((DataExtensionField) field);
-                    }
-                    try {
-                        internalField.set(internalObject, fields);
-                    } catch (Exception ex) {
-                        throw new ETSdkException("could not set field \""
-                                + internalFieldName
-                                + "\" of object "
-                                + internalObject,
-                                ex);
-                    }
-                } else {
-                    try {
-                        internalField.set(internalObject, internalList);
-                    } catch (Exception ex) {
-                        throw new ETSdkException("could not set field \""
-                                + internalFieldName
-                                + "\" of object "
-                                + internalObject,
-                                ex);
-                    }
-                }
+        ExternalName externalName =
+                externalField.getAnnotation(ExternalName.class);
+        if (externalName == null) {
+            return;
+        }
 
-                continue;
-            }
+        String externalFieldName = externalField.getName();
+        String internalFieldName = null;
 
-            try {
-                BeanUtils.setProperty(internalObject,
-                                      internalFieldName,
-                                      externalFieldValue);
-            } catch (Exception ex) {
-                //ex.printStackTrace();
-                throw new ETSdkException("could not set property \""
-                        + internalFieldName
-                        + "\" of object "
-                        + internalObject,
-                        ex);
+        InternalName internalName =
+                externalField.getAnnotation(InternalName.class);
+
+        if (internalName != null) {
+            internalFieldName = internalName.value();
+        } else {
+            // internal name is the same as external name
+            internalFieldName = externalFieldName;
+        }
+
+        Object externalFieldValue = null;
+        try {
+            externalFieldValue =
+                    PropertyUtils.getProperty(externalObject,
+                                              externalFieldName);
+        } catch (Exception ex) {
+            throw new ETSdkException("could not get property \""
+                    + externalFieldName
+                    + "\" of object "
+                    + externalObject,
+                    ex);
+        }
+
+        if (externalFieldValue == null) {
+            return;
+        }
+
+        if (externalFieldValue instanceof List) {
+            Field internalField = getField(internalType,
+                                           internalFieldName);
+
+            internalField.setAccessible(true);
+
+            List<APIObject> internalList = new ArrayList<APIObject>();
+            @SuppressWarnings("unchecked")
+            List<ETSoapObject> externalList
+                = (List<ETSoapObject>) externalFieldValue;
+
+            for (ETSoapObject externalItem : externalList) {
+                internalList.add(externalItem.toInternal());
             }
 
-            if (logger.isTraceEnabled()) {
-                Field internalField = getField(internalType,
-                                               internalFieldName);
+            if (internalFieldName.equals("fields")) {
+                //
+                // This list contains data extension columns:
+                //
 
-                Object internalFieldValue = null;
+                DataExtension.Fields fields = new DataExtension.Fields();
+                for (APIObject field : internalList) {
+                    fields.getField().add((DataExtensionField) field);
+                }
                 try {
-                    internalFieldValue =
-                            PropertyUtils.getProperty(internalObject,
-                                                      internalFieldName);
+                    internalField.set(internalObject, fields);
                 } catch (Exception ex) {
-                    throw new ETSdkException("could not get property \""
+                    throw new ETSdkException("could not set field \""
+                            + internalFieldName
+                            + "\" of object "
+                            + internalObject,
+                            ex);
+                }
+            } else {
+                try {
+                    internalField.set(internalObject, internalList);
+                } catch (Exception ex) {
+                    throw new ETSdkException("could not set field \""
                             + internalFieldName
                             + "\" of object "
                             + internalObject,
                             ex);
                 }
-
-                logger.trace("  converted field "
-                        + externalTypeName + "." + externalFieldName
-                        + " (type="
-                        + externalField.getType().getSimpleName()
-                        + ", value="
-                        + externalFieldValue
-                        + ")");
-                logger.trace("         to field "
-                        + internalTypeName + "." + internalFieldName
-                        + " (type="
-                        + internalField.getType().getSimpleName()
-                        + ", value="
-                        + internalFieldValue
-                        + ")");
             }
+
+            return;
         }
 
-        return internalObject;
+        try {
+            beanUtils.setProperty(internalObject,
+                                  internalFieldName,
+                                  externalFieldValue);
+        } catch (Exception ex) {
+            //ex.printStackTrace();
+            throw new ETSdkException("could not set property \""
+                    + internalFieldName
+                    + "\" of object "
+                    + internalObject,
+                    ex);
+        }
+
+        if (logger.isTraceEnabled()) {
+            Field internalField = getField(internalType,
+                                           internalFieldName);
+
+            Object internalFieldValue = null;
+            try {
+                internalFieldValue =
+                        PropertyUtils.getProperty(internalObject,
+                                                  internalFieldName);
+            } catch (Exception ex) {
+                throw new ETSdkException("could not get property \""
+                        + internalFieldName
+                        + "\" of object "
+                        + internalObject,
+                        ex);
+            }
+
+            logger.trace("  converted field "
+                    + externalTypeName + "." + externalFieldName
+                    + " (type="
+                    + externalField.getType().getSimpleName()
+                    + ", value="
+                    + externalFieldValue
+                    + ")");
+            logger.trace("         to field "
+                    + internalTypeName + "." + internalFieldName
+                    + " (type="
+                    + internalField.getType().getSimpleName()
+                    + ", value="
+                    + internalFieldValue
+                    + ")");
+        }
     }
 
     protected static String getInternalProperty(Class<? extends ETSoapObject> type,
                                                 String name)
         throws ETSdkException
     {
-        String internalProperty = null;
-
-        Class<? extends ETSoapObject> externalType = type; // for code readability
+        String internalProperty = ETObjectMetadata.get(type).getInternalProperty(name);
+        if (internalProperty != null) {
+            return internalProperty;
+        }
 
         Field externalField = null;
         try {
-            externalField = getField(externalType, name);
+            externalField = getField(type, name);
         } catch (ETSdkException ex) {
             return name; // XXX
         }
 
+        return resolveInternalProperty(type, externalField);
+    }
+
+    static String resolveInternalProperty(Class<? extends ETSoapObject> type,
+                                          Field externalField)
+        throws ETSdkException
+    {
+        String internalProperty = null;
+
+        Class<? extends ETSoapObject> externalType = type; // for code readability
+
         InternalProperty internalPropertyAnnotation =
                 externalField.getAnnotation(InternalProperty.class);
 
@@ -0,0 +1,190 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.lang.reflect.Field;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.exacttarget.fuelsdk.internal.APIObject;
+
+/**
+ * An <code>ETSoapObjectView</code> is a lightweight view of an
+ * object returned by a SOAP retrieve. It keeps the internal object
+ * the API returned and converts a property only when it is first
+ * accessed, so reading a few properties of many objects does a
+ * fraction of the work of converting every object. Lists are
+ * converted only when their property is accessed.
+ * <p>
+ * Like other SDK objects, views are not thread safe.
+ */
+
+public class ETSoapObjectView<T extends ETApiObject> {
+    private final ETClient client;
+    private final Class<T> type;
+    private final APIObject internalObject;
+
+    private T object = null;
+    private Set<String> converted = null;
+    private boolean complete = false;
+
+    /**
+    * Class constructor, Initializes a new instance of the class.
+    * @param client         The ETClient object
+    * @param type           The class type of the object
+    * @param internalObject The internal object
+    */
+    public ETSoapObjectView(ETClient client,
+                            Class<T> type,
+                            APIObject internalObject)
+    {
+        if (!ETSoapObject.class.isAssignableFrom(type)) {
+            throw new IllegalArgumentException(type.getName()
+                    + " is not a SOAP object");
+        }
+        this.client = client;
+        this.type = type;
+        this.internalObject = internalObject;
+    }
+
+    /**
+     * @return  The class type of the object
+     */
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * @return  The internal object the API returned
+     */
+    public APIObject getInternalObject() {
+        return internalObject;
+    }
+
+    /**
+     * Returns the value of a property, converting it from the
+     * internal object on first access.
+     * @param property  The (external) name of the property
+     * @return          The value of the property
+     * @throws ETSdkException
+     */
+    public Object get(String property)
+        throws ETSdkException
+    {
+        Field field = ETObjectMetadata.get(type).getFieldByExternalName(property);
+        if (field == null) {
+            throw new ETSdkException("property \""
+                    + property
+                    + "\" does not exist in class "
+                    + type.getName());
+        }
+        T object = getPartialObject();
+        if (!complete && !converted.contains(field.getName())) {
+            ((ETSoapObject) object).fromInternal(internalObject, field);
+            converted.add(field.getName());
+        }
+        try {
+            return field.get(object);
+        } catch (IllegalAccessException ex) {
+            throw new ETSdkException("could not get property \""
+                    + property
+                    + "\" of object "
+                    + object,
+                    ex);
+        }
+    }
+
+    /**
+     * Returns the value of a property, converting it from the
+     * internal object on first access.
+     * @param <V>       The type of the value
+     * @param property  The (external) name of the property
+     * @param valueType The class type of the value
+     * @return          The value of the property
+     * @throws ETSdkException
+     */
+    public <V> V get(String property, Class<V> valueType)
+        throws ETSdkException
+    {
+        Object value = get(property);
+        if (value != null && !valueType.isInstance(value)) {
+            throw new ETSdkException("property \""
+                    + property
+                    + "\" is of type "
+                    + value.getClass().getName()
+                    + ", not "
+                    + valueType.getName());
+        }
+        return valueType.cast(value);
+    }
+
+    /**
+     * Converts all properties from the internal object.
+     * @return  The converted object
+     * @throws ETSdkException
+     */
+    public T getObject()
+        throws ETSdkException
+    {
+        T object = getPartialObject();
+        if (!complete) {
+            ((ETSoapObject) object).fromInternal(internalObject);
+            complete = true;
+            converted = null;
+        }
+        return object;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + internalObject + "]";
+    }
+
+    private T getPartialObject()
+        throws ETSdkException
+    {
+        if (object == null) {
+            try {
+                object = type.newInstance();
+            } catch (Exception ex) {
+                throw new ETSdkException("could not instantiate "
+                        + type.getName(), ex);
+            }
+            object.setClient(client);
+            converted = new HashSet<String>();
+        }
+        return object;
+    }
+}
@@ -51,6 +51,8 @@ import com.exacttarget.fuelsdk.internal.Subscriber;
 
 @SoapObject(internalType = Subscriber.class, unretrievable = {
     "Attributes", "ModifiedDate"
+}, identity = {
+    "id", "key", "emailAddress"
 })
 public class ETSubscriber extends ETSoapObject {
     @ExternalName("id")
@@ -96,6 +98,7 @@ public class ETSubscriber extends ETSoapObject {
     @Override
     public void setId(String id) {
         this.id = id;
+        setModified("id", true);
     }
 
     /** 
@@ -110,6 +113,7 @@ public class ETSubscriber extends ETSoapObject {
     */      
     public void setKey(String key) {
         this.key = key;
+        setModified("key", true);
     }
 
     /** 
@@ -124,6 +128,7 @@ public class ETSubscriber extends ETSoapObject {
     */
     public void setCreatedDate(Date createdDate) {
         this.createdDate = createdDate;
+        setModified("createdDate", true);
     }
 
     /** 
@@ -138,6 +143,7 @@ public class ETSubscriber extends ETSoapObject {
     */    
     public void setModifiedDate(Date modifiedDate) {
         this.modifiedDate = modifiedDate;
+        setModified("modifiedDate", true);
     }
 
     /** 
@@ -152,6 +158,7 @@ public class ETSubscriber extends ETSoapObject {
     */    
     public void setEmailAddress(String emailAddress) {
         this.emailAddress = emailAddress;
+        setModified("emailAddress", true);
     }
 
     /** 
@@ -168,6 +175,7 @@ public class ETSubscriber extends ETSoapObject {
     */    
     public void setPreferredEmailType(ETEmail.Type preferredEmailType) {
         this.preferredEmailType = preferredEmailType;
+        setModified("preferredEmailType", true);
     }
 
     /** 
@@ -184,6 +192,7 @@ public class ETSubscriber extends ETSoapObject {
     */    
     public void setStatus(Status status) {
         this.status = status;
+        setModified("status", true);
     }
 
     /** 
@@ -198,6 +207,7 @@ public class ETSubscriber extends ETSoapObject {
     */    
     public void setUnsubscribedDate(Date unsubscribedDate) {
         this.unsubscribedDate = unsubscribedDate;
+        setModified("unsubscribedDate", true);
     }
 
     /** 
@@ -224,6 +234,7 @@ public class ETSubscriber extends ETSoapObject {
 //        if (attributes == null)
 //            attributes = new ArrayList<Attribute>();
         this.attributes = attribs;
+        setModified("attributes", true);
     }    
 
     /**
@@ -244,6 +255,23 @@ public class ETSubscriber extends ETSoapObject {
         setKey(subscriberKey);
     }
 
+    /**
+     * Updates the subscriber if it exists and creates it if
+     * it doesn't, in a single call.
+     * @return  The ETResponse of ETSubscriber
+     * @throws ETSdkException
+     */
+    public ETResponse<ETSubscriber> upsert()
+        throws ETSdkException
+    {
+        if (getClient() == null) {
+            throw new ETSdkException("subscriber has no client");
+        }
+        List<ETSubscriber> subscribers = new ArrayList<ETSubscriber>();
+        subscribers.add(this);
+        return upsert(getClient(), subscribers);
+    }
+
     /**
      *  Subscriber Status that can be used
      */
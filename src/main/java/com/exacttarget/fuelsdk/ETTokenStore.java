@@ -0,0 +1,94 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.concurrent.Callable;
+
+/**
+ * An <code>ETTokenStore</code> shares access tokens between
+ * <code>ETClient</code> instances (and, depending on the
+ * implementation, between processes), so that clients with the
+ * same credentials do not each request their own token.
+ * <p>
+ * Tokens are stored under a key derived from the authentication
+ * endpoint, <code>clientId</code>, a digest of the
+ * <code>clientSecret</code>, <code>accountId</code> and
+ * <code>scope</code>. Tokens are not shared unless the
+ * <code>tokenStore</code> property is set: to <code>memory</code>
+ * for the <code>ETMemoryTokenStore</code> shared by all clients in
+ * the JVM, or to the name of a class implementing this interface,
+ * e.g., <code>ETFileTokenStore</code> to share tokens between the
+ * processes on a host. Implementations must be
+ * thread safe and must provide either a public constructor taking
+ * an <code>ETConfiguration</code> or a public no-argument constructor.
+ */
+
+public interface ETTokenStore {
+    /**
+     * Returns the token stored under the specified key if it is
+     * valid for at least <code>minValidity</code> milliseconds;
+     * otherwise calls <code>request</code> to obtain a new token,
+     * stores it and returns it. Concurrent callers for the same
+     * key must not call <code>request</code> more than once.
+     * @param key           The key
+     * @param minValidity   The time in milliseconds the token must remain valid
+     * @param request       Obtains a new token from the authentication service
+     * @return              The ETAccessToken object
+     * @throws ETSdkException
+     */
+    public ETAccessToken getToken(String key,
+                                  long minValidity,
+                                  Callable<ETAccessToken> request)
+        throws ETSdkException;
+
+    /**
+     * Removes the token stored under the specified key,
+     * e.g., because it has been revoked.
+     * @param key           The key
+     * @throws ETSdkException
+     */
+    public void removeToken(String key)
+        throws ETSdkException;
+
+    /**
+     * @return  The number of tokens served from the store
+     */
+    public long getHits();
+
+    /**
+     * @return  The number of tokens requested from the authentication service
+     */
+    public long getMisses();
+}
@@ -452,7 +452,7 @@ public class ETTriggeredEmail extends ETSoapObject {
         // Get handle to the SOAP connection:
         //
 
-        ETSoapConnection connection = getClient().getSoapConnection();
+        ETSoapConnection connection = getClient().requireSoapConnection();
 
         //
         // Automatically refresh the token if necessary:
@@ -464,8 +464,6 @@ public class ETTriggeredEmail extends ETSoapObject {
         // Perform the SOAP create:
         //
 
-        Soap soap = connection.getSoap();
-
         CreateRequest createRequest = new CreateRequest();
         createRequest.setOptions(new CreateOptions());
         TriggeredSend triggeredSend = new TriggeredSend();
@@ -488,7 +486,13 @@ public class ETTriggeredEmail extends ETSoapObject {
 
         logger.trace("calling soap.create...");
 
-        CreateResponse createResponse = soap.create(createRequest);
+        Soap soap = connection.borrowSoap("create", "TriggeredSend");
+        CreateResponse createResponse = null;
+        try {
+            createResponse = soap.create(createRequest);
+        } finally {
+            connection.releaseSoap(soap);
+        }
 
         if (logger.isTraceEnabled()) {
             logger.trace("CreateResponse:");
@@ -0,0 +1,618 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk.annotations;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates an <code>ETSoapMapper</code> for every concrete class
+ * annotated with <code>@SoapObject</code>. The generated mapper
+ * copies the fields annotated with <code>@ExternalName</code> (and
+ * <code>@InternalName</code>) between the SDK object and its internal
+ * type with plain getter and setter calls, so that
+ * <code>ETSoapObject.fromInternal</code> and <code>toInternal</code>
+ * do not have to look up properties and converters at run time.
+ * <p>
+ * Properties the processor cannot map statically are copied with
+ * <code>ETSoapMappers.copyProperty</code>, which converts values the
+ * same way <code>ETSoapObject</code> always has.
+ * <p>
+ * The processor only refers to the annotations by name, so it can be
+ * compiled before the rest of the SDK (see the
+ * <code>compile-processor</code> execution in <code>pom.xml</code>).
+ */
+
+@SupportedAnnotationTypes(SoapMapperProcessor.SOAP_OBJECT)
+public class SoapMapperProcessor extends AbstractProcessor {
+    static final String SOAP_OBJECT =
+            "com.exacttarget.fuelsdk.annotations.SoapObject";
+    private static final String EXTERNAL_NAME =
+            "com.exacttarget.fuelsdk.annotations.ExternalName";
+    private static final String INTERNAL_NAME =
+            "com.exacttarget.fuelsdk.annotations.InternalName";
+    private static final String ET_SOAP_OBJECT =
+            "com.exacttarget.fuelsdk.ETSoapObject";
+    private static final String API_OBJECT =
+            "com.exacttarget.fuelsdk.internal.APIObject";
+    private static final String PROPERTIES =
+            "com.exacttarget.fuelsdk.internal.ObjectExtension.Properties";
+    private static final String MAPPERS =
+            "com.exacttarget.fuelsdk.ETSoapMappers";
+
+    /**
+     * The suffix appended to the (flattened) binary name
+     * of a type to form the name of its mapper.
+     */
+    public static final String SUFFIX = "SoapMapper";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations,
+                           RoundEnvironment roundEnvironment)
+    {
+        TypeElement soapObject =
+                processingEnv.getElementUtils().getTypeElement(SOAP_OBJECT);
+        if (soapObject == null) {
+            return false;
+        }
+        for (Element element : roundEnvironment.getElementsAnnotatedWith(soapObject)) {
+            if (element.getKind() != ElementKind.CLASS
+                    || element.getModifiers().contains(Modifier.ABSTRACT)) {
+                continue;
+            }
+            TypeElement externalType = (TypeElement) element;
+            try {
+                generate(externalType);
+            } catch (IOException ex) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "could not write mapper: " + ex, externalType);
+            }
+        }
+        return false;
+    }
+
+    private void generate(TypeElement externalType)
+        throws IOException
+    {
+        TypeElement internalType = getInternalType(externalType);
+        if (internalType == null) {
+            return;
+        }
+
+        String packageName = getPackage(externalType).getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils()
+                .getBinaryName(externalType).toString();
+        String mapperName = binaryName.substring(binaryName.lastIndexOf('.') + 1)
+                .replace('$', '_') + SUFFIX;
+        String external = externalType.getQualifiedName().toString();
+        String internal = internalType.getQualifiedName().toString();
+
+        List<String> fromInternal = new ArrayList<String>();
+        List<String> toInternal = new ArrayList<String>();
+        for (VariableElement field : getAllFields(externalType)) {
+            AnnotationMirror externalName = getAnnotation(field, EXTERNAL_NAME);
+            if (externalName == null) {
+                continue;
+            }
+            String externalFieldName = field.getSimpleName().toString();
+            String internalFieldName = externalFieldName;
+            AnnotationMirror internalName = getAnnotation(field, INTERNAL_NAME);
+            if (internalName != null) {
+                internalFieldName = (String) getValue(internalName, "value");
+            }
+            fromInternal.add(generateFromInternal(externalType, field,
+                    internalType, internalFieldName));
+            toInternal.add(generateToInternal(externalType, field,
+                    internalType, internalFieldName));
+        }
+
+        JavaFileObject file = processingEnv.getFiler()
+                .createSourceFile(packageName + "." + mapperName, externalType);
+        PrintWriter out = new PrintWriter(file.openWriter());
+        try {
+            out.println("package " + packageName + ";");
+            out.println();
+            out.println("@javax.annotation.Generated(\"" + getClass().getName() + "\")");
+            out.println("public final class " + mapperName);
+            out.println("    implements com.exacttarget.fuelsdk.ETSoapMapper<"
+                    + external + ", " + internal + ">");
+            out.println("{");
+            out.println("    public Class<" + external + "> getExternalType() {");
+            out.println("        return " + external + ".class;");
+            out.println("    }");
+            out.println();
+            out.println("    public Class<" + internal + "> getInternalType() {");
+            out.println("        return " + internal + ".class;");
+            out.println("    }");
+            out.println();
+            out.println("    public void fromInternal(" + internal + " internalObject,");
+            out.println("                             " + external + " externalObject)");
+            out.println("        throws com.exacttarget.fuelsdk.ETSdkException");
+            out.println("    {");
+            for (String statement : fromInternal) {
+                out.print(statement);
+            }
+            out.println("    }");
+            out.println();
+            out.println("    public " + internal + " toInternal(" + external + " externalObject)");
+            out.println("        throws com.exacttarget.fuelsdk.ETSdkException");
+            out.println("    {");
+            out.println("        " + internal + " internalObject = new " + internal + "();");
+            for (String statement : toInternal) {
+                out.print(statement);
+            }
+            out.println("        return internalObject;");
+            out.println("    }");
+            out.println("}");
+        } finally {
+            out.close();
+        }
+    }
+
+    //
+    // Copies one property from the internal to the external object:
+    //
+
+    private String generateFromInternal(TypeElement externalType,
+                                        VariableElement field,
+                                        TypeElement internalType,
+                                        String internalFieldName)
+    {
+        String externalFieldName = field.getSimpleName().toString();
+        ExecutableElement getter = getGetter(internalType, internalFieldName);
+        if (getter == null) {
+            return fallback("internalObject", internalFieldName,
+                            "externalObject", externalFieldName);
+        }
+        TypeMirror sourceType = getter.getReturnType();
+        String read = "internalObject." + getter.getSimpleName() + "()";
+
+        ExecutableElement setter = getSetter(externalType, externalFieldName);
+        TypeMirror targetType = setter != null
+                ? setter.getParameters().get(0).asType()
+                : field.asType();
+
+        if (isList(sourceType)) {
+            if (!isList(targetType)) {
+                return fallback("internalObject", internalFieldName,
+                                "externalObject", externalFieldName);
+            }
+
+            //
+            // Lists are assigned to the field directly when it is
+            // accessible, like ETSoapObject.fromInternal always has:
+            //
+
+            String assign = null;
+            if (isAccessible(field, externalType)) {
+                assign = "externalObject." + externalFieldName + " = list;";
+            } else if (setter != null) {
+                assign = "externalObject." + setter.getSimpleName() + "(list);";
+            }
+            TypeMirror targetItem = getItemType(targetType);
+            String body = addAll(sourceType, targetType, "list");
+            if (assign == null || body == null) {
+                return fallback("internalObject", internalFieldName,
+                                "externalObject", externalFieldName);
+            }
+            return copy(sourceType, read,
+                    "java.util.List<" + targetItem + "> list = new java.util.ArrayList<"
+                    + targetItem + ">(value.size());\n"
+                    + "                " + body + "\n"
+                    + "                " + assign);
+        }
+
+        String value = convert(sourceType, targetType, "value");
+        if (value == null || setter == null) {
+            return fallback("internalObject", internalFieldName,
+                            "externalObject", externalFieldName);
+        }
+        return copy(sourceType, read,
+                "externalObject." + setter.getSimpleName() + "(" + value + ");");
+    }
+
+    //
+    // Copies one property from the external to the internal object:
+    //
+
+    private String generateToInternal(TypeElement externalType,
+                                      VariableElement field,
+                                      TypeElement internalType,
+                                      String internalFieldName)
+    {
+        String externalFieldName = field.getSimpleName().toString();
+        ExecutableElement getter = getGetter(externalType, externalFieldName);
+        if (getter == null) {
+            return fallback("externalObject", externalFieldName,
+                            "internalObject", internalFieldName);
+        }
+        TypeMirror sourceType = getter.getReturnType();
+        String read = "externalObject." + getter.getSimpleName() + "()";
+
+        ExecutableElement internalGetter = getGetter(internalType, internalFieldName);
+        ExecutableElement setter = getSetter(internalType, internalFieldName);
+
+        if (isList(sourceType) && internalGetter != null) {
+            TypeMirror targetType = internalGetter.getReturnType();
+            if (isList(targetType)) {
+                // JAXB lists have no setter, add to the live list:
+                String body = addAll(sourceType, targetType,
+                        "internalObject." + internalGetter.getSimpleName() + "()");
+                if (body != null) {
+                    return copy(sourceType, read, body);
+                }
+            } else if (setter != null) {
+                // a wrapper holding the list (e.g., DataExtension.Fields):
+                ExecutableElement wrapped = getListGetter(asTypeElement(targetType));
+                if (wrapped != null) {
+                    String wrapper = erasure(targetType);
+                    String body = addAll(sourceType, wrapped.getReturnType(),
+                            "wrapper." + wrapped.getSimpleName() + "()");
+                    if (body != null) {
+                        return copy(sourceType, read,
+                                wrapper + " wrapper = new " + wrapper + "();\n"
+                                + "                " + body + "\n"
+                                + "                internalObject." + setter.getSimpleName()
+                                + "(wrapper);");
+                    }
+                }
+            }
+            return fallback("externalObject", externalFieldName,
+                            "internalObject", internalFieldName);
+        }
+
+        if (setter == null) {
+            return fallback("externalObject", externalFieldName,
+                            "internalObject", internalFieldName);
+        }
+        String value = convert(sourceType,
+                               setter.getParameters().get(0).asType(),
+                               "value");
+        if (value == null) {
+            return fallback("externalObject", externalFieldName,
+                            "internalObject", internalFieldName);
+        }
+        return copy(sourceType, read,
+                "internalObject." + setter.getSimpleName() + "(" + value + ");");
+    }
+
+    private String copy(TypeMirror sourceType, String read, String write) {
+        StringBuilder code = new StringBuilder();
+        code.append("        {\n");
+        code.append("            ").append(sourceType).append(" value = ")
+            .append(read).append(";\n");
+        if (sourceType.getKind().isPrimitive()) {
+            code.append("            ").append(write).append("\n");
+        } else {
+            code.append("            if (value != null) {\n");
+            code.append("                ").append(write).append("\n");
+            code.append("            }\n");
+        }
+        code.append("        }\n");
+        return code.toString();
+    }
+
+    private String fallback(String source, String sourceName,
+                            String target, String targetName)
+    {
+        return "        " + MAPPERS + ".copyProperty(" + source + ", \"" + sourceName
+            + "\", " + target + ", \"" + targetName + "\");\n";
+    }
+
+    private String addAll(TypeMirror sourceType,
+                          TypeMirror targetType,
+                          String target)
+    {
+        TypeMirror sourceItem = getItemType(sourceType);
+        TypeMirror targetItem = getItemType(targetType);
+        if (sourceItem == null || targetItem == null) {
+            return null;
+        }
+        String item = convert(sourceItem, targetItem, "item");
+        if (item == null) {
+            return null;
+        }
+        return "for (" + sourceItem + " item : value) { "
+            + target + ".add(" + item + "); }";
+    }
+
+    //
+    // Returns an expression converting expression from sourceType
+    // to targetType, or null if there is no static conversion. The
+    // conversions mirror the converters ETSoapObject registers with
+    // BeanUtils:
+    //
+
+    private String convert(TypeMirror sourceType,
+                           TypeMirror targetType,
+                           String expression)
+    {
+        if (processingEnv.getTypeUtils().isAssignable(sourceType, targetType)) {
+            return expression;
+        }
+        String source = erasure(sourceType);
+        String target = erasure(targetType);
+        if (target.equals("java.lang.String")
+                && (sourceType.getKind().isPrimitive()
+                    || isBoxed(sourceType)
+                    || isEnum(sourceType))) {
+            return "String.valueOf(" + expression + ")";
+        }
+        if (source.equals("java.lang.String")) {
+            if (target.equals("java.lang.Integer") || target.equals("int")) {
+                return "Integer.valueOf(" + expression + ".trim())";
+            }
+            if (target.equals("java.lang.Long") || target.equals("long")) {
+                return "Long.valueOf(" + expression + ".trim())";
+            }
+            if (isEnum(targetType)) {
+                return target + ".valueOf(" + expression + ")";
+            }
+        }
+        if (source.equals("java.lang.Long")
+                && (target.equals("java.lang.Integer") || target.equals("int"))) {
+            return MAPPERS + ".toInteger(" + expression + ")";
+        }
+        if ((source.equals("java.lang.Integer") || source.equals("int"))
+                && (target.equals("java.lang.Long") || target.equals("long"))) {
+            return "Long.valueOf(" + expression + ")";
+        }
+        if (isEnum(sourceType) && isEnum(targetType)) {
+            return target + ".valueOf(" + expression + ".toString())";
+        }
+        if (isSubtype(sourceType, API_OBJECT) && isSubtype(targetType, ET_SOAP_OBJECT)
+                && isInstantiable(targetType)) {
+            return "(" + target + ") new " + target + "().fromInternal(" + expression + ")";
+        }
+        if (isSubtype(sourceType, ET_SOAP_OBJECT) && isSubtype(targetType, API_OBJECT)) {
+            return "(" + target + ") " + expression + ".toInternal()";
+        }
+        if (source.equals(PROPERTIES) && target.equals("java.util.Map")) {
+            return MAPPERS + ".toColumns(" + expression + ")";
+        }
+        if (source.equals("java.util.Map") && target.equals(PROPERTIES)) {
+            return MAPPERS + ".toProperties(" + expression + ")";
+        }
+        return null;
+    }
+
+    private TypeElement getInternalType(TypeElement externalType) {
+        AnnotationMirror soapObject = getAnnotation(externalType, SOAP_OBJECT);
+        Object value = getValue(soapObject, "internalType");
+        if (!(value instanceof DeclaredType)) {
+            return null;
+        }
+        return (TypeElement) ((DeclaredType) value).asElement();
+    }
+
+    //
+    // Fields of superclasses come first, as in ETObject.getAllFields:
+    //
+
+    private List<VariableElement> getAllFields(TypeElement type) {
+        List<TypeElement> types = new ArrayList<TypeElement>();
+        for (TypeElement t = type; t != null; t = asTypeElement(t.getSuperclass())) {
+            types.add(t);
+        }
+        Collections.reverse(types);
+        List<VariableElement> fields = new ArrayList<VariableElement>();
+        for (TypeElement t : types) {
+            fields.addAll(ElementFilter.fieldsIn(t.getEnclosedElements()));
+        }
+        return fields;
+    }
+
+    private ExecutableElement getGetter(TypeElement type, String property) {
+        String suffix = capitalize(property);
+        ExecutableElement getter = getMethod(type, "get" + suffix, 0);
+        if (getter == null) {
+            getter = getMethod(type, "is" + suffix, 0);
+        }
+        return getter;
+    }
+
+    private ExecutableElement getSetter(TypeElement type, String property) {
+        return getMethod(type, "set" + capitalize(property), 1);
+    }
+
+    private ExecutableElement getListGetter(TypeElement type) {
+        if (type == null) {
+            return null;
+        }
+        ExecutableElement listGetter = null;
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            if (method.getSimpleName().toString().startsWith("get")
+                    && method.getParameters().isEmpty()
+                    && isList(method.getReturnType())) {
+                if (listGetter != null) {
+                    return null;
+                }
+                listGetter = method;
+            }
+        }
+        return listGetter;
+    }
+
+    private ExecutableElement getMethod(TypeElement type, String name, int parameters) {
+        for (ExecutableElement method : ElementFilter.methodsIn(
+                processingEnv.getElementUtils().getAllMembers(type))) {
+            if (method.getSimpleName().toString().equals(name)
+                    && method.getParameters().size() == parameters
+                    && method.getModifiers().contains(Modifier.PUBLIC)
+                    && !method.getModifiers().contains(Modifier.STATIC)) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    private boolean isAccessible(VariableElement field, TypeElement from) {
+        Set<Modifier> modifiers = field.getModifiers();
+        if (modifiers.contains(Modifier.PUBLIC)) {
+            return true;
+        }
+        if (modifiers.contains(Modifier.PRIVATE)) {
+            return false;
+        }
+        return getPackage(field).equals(getPackage(from));
+    }
+
+    private boolean isList(TypeMirror type) {
+        return erasure(type).equals("java.util.List");
+    }
+
+    private TypeMirror getItemType(TypeMirror listType) {
+        if (listType.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        List<? extends TypeMirror> arguments = ((DeclaredType) listType).getTypeArguments();
+        if (arguments.size() != 1 || arguments.get(0).getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        return arguments.get(0);
+    }
+
+    private boolean isBoxed(TypeMirror type) {
+        try {
+            processingEnv.getTypeUtils().unboxedType(type);
+            return true;
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+    }
+
+    private boolean isEnum(TypeMirror type) {
+        TypeElement element = asTypeElement(type);
+        return element != null && element.getKind() == ElementKind.ENUM;
+    }
+
+    private boolean isInstantiable(TypeMirror type) {
+        TypeElement element = asTypeElement(type);
+        if (element == null || element.getModifiers().contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(element.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty()
+                    && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isSubtype(TypeMirror type, String superType) {
+        TypeElement element = processingEnv.getElementUtils().getTypeElement(superType);
+        if (element == null || type.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        return processingEnv.getTypeUtils().isSubtype(
+                processingEnv.getTypeUtils().erasure(type),
+                processingEnv.getTypeUtils().erasure(element.asType()));
+    }
+
+    private String erasure(TypeMirror type) {
+        TypeMirror erased = processingEnv.getTypeUtils().erasure(type);
+        TypeElement element = asTypeElement(erased);
+        if (element != null) {
+            return element.getQualifiedName().toString();
+        }
+        return erased.toString();
+    }
+
+    private TypeElement asTypeElement(TypeMirror type) {
+        if (type == null || type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        return (TypeElement) ((DeclaredType) type).asElement();
+    }
+
+    private PackageElement getPackage(Element element) {
+        return processingEnv.getElementUtils().getPackageOf(element);
+    }
+
+    private static AnnotationMirror getAnnotation(Element element, String name) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            TypeElement type = (TypeElement) annotation.getAnnotationType().asElement();
+            if (type.getQualifiedName().contentEquals(name)) {
+                return annotation;
+            }
+        }
+        return null;
+    }
+
+    private static Object getValue(AnnotationMirror annotation, String name) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                : annotation.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return entry.getValue().getValue();
+            }
+        }
+        return null;
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+}
@@ -46,4 +46,6 @@ import java.lang.annotation.Target;
 public @interface SoapObject {
     Class<? extends APIObject> internalType();
     String[] unretrievable() default {};
+    // external properties always sent by sparse updates
+    String[] identity() default { "id", "key" };
 }
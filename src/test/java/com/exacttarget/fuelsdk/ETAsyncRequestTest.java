@@ -0,0 +1,211 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class ETAsyncRequestTest {
+    //
+    // Simulates the server: responses are returned in order,
+    // and the paths requested and waits are recorded:
+    //
+
+    private static class TestRequest extends ETAsyncRequest {
+        final LinkedList<String> responses = new LinkedList<String>();
+        final List<String> paths = new ArrayList<String>();
+        final List<Long> sleeps = new ArrayList<Long>();
+
+        TestRequest(List<ETDataExtensionRow> rows, String... responses) {
+            super(null, "request1", rows);
+            this.responses.addAll(Arrays.asList(responses));
+        }
+
+        @Override
+        JsonObject get(String path) {
+            paths.add(path);
+            return new JsonParser().parse(responses.removeFirst()).getAsJsonObject();
+        }
+
+        @Override
+        void sleep(long millis) {
+            sleeps.add(millis);
+        }
+    }
+
+    private static String status(String requestStatus, String resultStatus, boolean hasErrors) {
+        return "{\"requestStatus\":{\"requestStatus\":\"" + requestStatus
+                + "\",\"resultStatus\":\"" + resultStatus
+                + "\",\"hasErrors\":" + hasErrors + "}}";
+    }
+
+    private static List<ETDataExtensionRow> createRows(int count) {
+        List<ETDataExtensionRow> rows = new ArrayList<ETDataExtensionRow>();
+        for (int i = 0; i < count; i++) {
+            ETDataExtensionRow row = new ETDataExtensionRow();
+            row.setColumn("Id", Integer.toString(i));
+            row.setColumn("Name", i == 0 ? null : "name \"" + i + "\"");
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    @Test
+    public void testPath()
+        throws ETSdkException
+    {
+        assertEquals("/data/v1/async/dataextensions/key:test%20key/rows",
+                     ETDataExtension.getAsyncPath("test key"));
+    }
+
+    @Test
+    public void testPayload()
+        throws ETSdkException
+    {
+        assertEquals("{\"items\":[{\"id\":\"0\",\"name\":null},"
+                + "{\"id\":\"1\",\"name\":\"name \\\"1\\\"\"}]}",
+                ETDataExtension.toAsyncPayload(createRows(2)));
+    }
+
+    @Test
+    public void testAwait()
+        throws ETSdkException
+    {
+        List<ETDataExtensionRow> rows = createRows(3);
+        TestRequest request = new TestRequest(rows,
+                status("Pending", "", false),
+                status("Executing", "", false),
+                status("Executing", "", false),
+                status("Executing", "", false),
+                status("Complete", "OK", false));
+        request.setPollIntervals(100, 300);
+        assertTrue(request.await(60000));
+        assertTrue(request.isDone());
+        assertEquals(Arrays.asList(100L, 200L, 300L, 300L), request.sleeps);
+        assertEquals("/data/v1/async/request1/status", request.paths.get(0));
+
+        // no more polls once done:
+        assertTrue(request.poll());
+        assertEquals(5, request.paths.size());
+
+        ETResponse<ETDataExtensionRow> response = request.getResults();
+        assertEquals(ETResult.Status.OK, response.getStatus());
+        assertEquals(3, response.getResults().size());
+        assertSame(rows.get(2), response.getResults().get(2).getObject());
+    }
+
+    @Test
+    public void testTimeout()
+        throws ETSdkException
+    {
+        TestRequest request = new TestRequest(createRows(1),
+                status("Pending", "", false));
+        assertFalse(request.await(0));
+        try {
+            request.getResults();
+            fail();
+        } catch (ETSdkException ex) {
+            assertEquals("request request1 is not done", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testErrors()
+        throws ETSdkException
+    {
+        TestRequest request = new TestRequest(createRows(2),
+                status("Complete", "Error", true),
+                "{\"page\":1,\"pageSize\":2500,\"count\":1,\"items\":["
+                + "{\"status\":\"Error\",\"errorCode\":\"10006\","
+                + "\"message\":\"Unable to save rows\"}]}");
+        assertTrue(request.poll());
+        ETResponse<ETDataExtensionRow> response = request.getResults();
+        assertEquals(ETResult.Status.ERROR, response.getStatus());
+        assertEquals(1, response.getResults().size());
+        ETResult<ETDataExtensionRow> result = response.getResult();
+        assertEquals(ETResult.Status.ERROR, result.getStatus());
+        assertEquals(Integer.valueOf(10006), result.getErrorCode());
+        assertEquals("Unable to save rows", result.getResponseMessage());
+        assertEquals("/data/v1/async/request1/results?$page=1&$pagesize=2500",
+                     request.paths.get(1));
+    }
+
+    @Test
+    public void testErrorsMatchRows()
+        throws ETSdkException
+    {
+        List<ETDataExtensionRow> rows = createRows(3);
+        TestRequest request = new TestRequest(rows,
+                status("Complete", "Error", true),
+                "{\"page\":1,\"pageSize\":2500,\"count\":3,\"items\":["
+                + "{\"status\":\"Error\",\"message\":\"bad name\",\"keys\":{\"ID\":\"2\"}},"
+                + "{\"status\":\"Error\",\"message\":\"bad id\",\"index\":1},"
+                + "{\"status\":\"Error\",\"message\":\"unknown\",\"keys\":{\"id\":\"9\"}}]}");
+        assertTrue(request.poll());
+        ETResponse<ETDataExtensionRow> response = request.getResults();
+        assertEquals(3, response.getResults().size());
+        assertSame(rows.get(2), response.getResults().get(0).getObject());
+        assertSame(rows.get(1), response.getResults().get(1).getObject());
+        assertNull(response.getResults().get(2).getObject());
+    }
+
+    @Test
+    public void testRejected()
+        throws ETSdkException
+    {
+        List<ETDataExtensionRow> rows = createRows(2);
+        ETAsyncRequest request = ETAsyncRequest.rejected(null, rows, "413 Payload Too Large");
+        assertNull(request.getRequestId());
+        assertTrue(request.poll());
+        ETResponse<ETDataExtensionRow> response = request.getResults();
+        assertEquals(ETResult.Status.ERROR, response.getStatus());
+        assertEquals(2, response.getResults().size());
+        assertSame(rows.get(1), response.getResults().get(1).getObject());
+        assertEquals("413 Payload Too Large", response.getResults().get(1).getResponseMessage());
+    }
+}
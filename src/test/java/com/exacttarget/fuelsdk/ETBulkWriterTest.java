@@ -0,0 +1,210 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ETBulkWriterTest {
+    //
+    // Simulates the server: results echo the rows, and a chunk
+    // starting with a row whose "fail" column is set throws. If
+    // overlap is set, the first chunk doesn't finish until another
+    // chunk has, and the other chunks don't finish until the first
+    // has started, so chunks overlap and complete out of order:
+    //
+
+    private static class TestWriter extends ETBulkWriter {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final AtomicInteger chunks = new AtomicInteger();
+        CountDownLatch overlap = null;
+        final CountDownLatch firstStarted = new CountDownLatch(1);
+
+        TestWriter(int chunkSize, int chunkBytes, int concurrency) {
+            super(null, chunkSize, chunkBytes, concurrency);
+        }
+
+        @Override
+        <T extends ETSoapObject> ETResponse<T> writeChunk(Operation operation,
+                                                          List<T> chunk)
+            throws ETSdkException
+        {
+            int n = inFlight.incrementAndGet();
+            synchronized (maxInFlight) {
+                if (n > maxInFlight.get()) {
+                    maxInFlight.set(n);
+                }
+            }
+            chunks.incrementAndGet();
+            boolean first = "0".equals(((ETDataExtensionRow) chunk.get(0)).getColumn("id"));
+            try {
+                if (overlap != null && first) {
+                    firstStarted.countDown();
+                    if (!overlap.await(10, TimeUnit.SECONDS)) {
+                        throw new ETSdkException("no other chunk ran concurrently");
+                    }
+                }
+                if (overlap != null && !first
+                        && !firstStarted.await(10, TimeUnit.SECONDS)) {
+                    throw new ETSdkException("the first chunk never started");
+                }
+                if (((ETDataExtensionRow) chunk.get(0)).getColumn("fail") != null) {
+                    throw new ETSdkException("envelope too large");
+                }
+                ETResponse<T> response = new ETResponse<T>();
+                // named by the first row, as chunks may start out of order:
+                response.setRequestId("request"
+                        + ((ETDataExtensionRow) chunk.get(0)).getColumn("id"));
+                response.setStatus(ETResult.Status.OK);
+                response.setResponseCode("OK");
+                for (T object : chunk) {
+                    ETResult<T> result = new ETResult<T>();
+                    result.setStatus(ETResult.Status.OK);
+                    result.setObject(object);
+                    response.addResult(result);
+                }
+                return response;
+            } catch (InterruptedException ex) {
+                throw new ETSdkException("interrupted", ex);
+            } finally {
+                inFlight.decrementAndGet();
+                if (overlap != null && !first) {
+                    overlap.countDown();
+                }
+            }
+        }
+    }
+
+    private static List<ETDataExtensionRow> createRows(int count) {
+        List<ETDataExtensionRow> rows = new ArrayList<ETDataExtensionRow>();
+        for (int i = 0; i < count; i++) {
+            ETDataExtensionRow row = new ETDataExtensionRow();
+            row.setColumn("id", Integer.toString(i));
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    @Test
+    public void testSplitByCount() {
+        TestWriter writer = new TestWriter(100, Integer.MAX_VALUE, 1);
+        List<List<ETDataExtensionRow>> chunks = writer.split(createRows(250));
+        assertEquals(3, chunks.size());
+        assertEquals(100, chunks.get(0).size());
+        assertEquals(100, chunks.get(1).size());
+        assertEquals(50, chunks.get(2).size());
+    }
+
+    @Test
+    public void testSplitByBytes() {
+        List<ETDataExtensionRow> rows = createRows(10);
+        int size = ETBulkWriter.estimateSize(rows.get(0));
+        TestWriter writer = new TestWriter(100, size * 3, 1);
+        List<List<ETDataExtensionRow>> chunks = writer.split(rows);
+        assertEquals(4, chunks.size());
+        assertEquals(3, chunks.get(0).size());
+        assertEquals(1, chunks.get(3).size());
+
+        // a row larger than a chunk gets a chunk of its own:
+        writer.setChunkBytes(1);
+        assertEquals(10, writer.split(rows).size());
+    }
+
+    @Test
+    public void testEstimateSize() {
+        ETDataExtensionRow row = new ETDataExtensionRow();
+        int empty = ETBulkWriter.estimateSize(row);
+        row.setColumn("name", "0123456789");
+        assertTrue(ETBulkWriter.estimateSize(row) >= empty + 14);
+    }
+
+    @Test
+    public void testOrderAndConcurrency()
+        throws ETSdkException
+    {
+        TestWriter writer = new TestWriter(10, Integer.MAX_VALUE, 4);
+        writer.overlap = new CountDownLatch(1);
+        List<ETDataExtensionRow> rows = createRows(200);
+        ETResponse<ETDataExtensionRow> response = writer.create(rows);
+        assertEquals(ETResult.Status.OK, response.getStatus());
+        assertEquals(20, writer.chunks.get());
+        assertTrue(writer.maxInFlight.get() <= 4);
+        assertTrue(writer.maxInFlight.get() > 1);
+        assertEquals(200, response.getResults().size());
+        for (int i = 0; i < rows.size(); i++) {
+            assertSame(rows.get(i), response.getResults().get(i).getObject());
+        }
+        assertEquals("request0", response.getRequestId());
+    }
+
+    @Test
+    public void testSingleChunk()
+        throws ETSdkException
+    {
+        TestWriter writer = new TestWriter(10, Integer.MAX_VALUE, 4);
+        ETResponse<ETDataExtensionRow> response = writer.update(createRows(5));
+        assertEquals(1, writer.chunks.get());
+        assertEquals(5, response.getResults().size());
+        assertEquals(ETResult.Status.OK, writer.update(new ArrayList<ETDataExtensionRow>()).getStatus());
+    }
+
+    @Test
+    public void testFailedChunk()
+        throws ETSdkException
+    {
+        TestWriter writer = new TestWriter(10, Integer.MAX_VALUE, 2);
+        List<ETDataExtensionRow> rows = createRows(30);
+        rows.get(10).setColumn("fail", "true");
+        ETResponse<ETDataExtensionRow> response = writer.create(rows);
+        assertEquals(ETResult.Status.ERROR, response.getStatus());
+        assertEquals("envelope too large", response.getResponseMessage());
+        assertEquals(30, response.getResults().size());
+        for (int i = 0; i < rows.size(); i++) {
+            ETResult<ETDataExtensionRow> result = response.getResults().get(i);
+            assertSame(rows.get(i), result.getObject());
+            assertEquals(i >= 10 && i < 20 ? ETResult.Status.ERROR : ETResult.Status.OK,
+                         result.getStatus());
+        }
+    }
+}
@@ -34,7 +34,6 @@
 
 package com.exacttarget.fuelsdk;
 
-import java.lang.reflect.Field;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 
@@ -172,27 +171,17 @@ public class ETClientTest {
 
     @Test
     public void testSoapEndpointCaching()
-            throws ETSdkException, NoSuchFieldException, IllegalAccessException {
+            throws ETSdkException {
+        ETEndpointCache cache = ETEndpointCache.getDefault();
+        long misses = cache.getMisses();
+
         ETClient client1 = new ETClient("fuelsdk.properties");
         ETClient client2 = new ETClient("fuelsdk.properties");
 
-        long instance1SoapEndpointExpiration = getInstanceSoapEndpointExpiration(client1);
-        String instance1FetchedSoapEndpoint = getFetchedSoapEndpoint(client1);
-
-        long instance2SoapEndpointExpiration = getInstanceSoapEndpointExpiration(client2);
-        String instance2FetchedSoapEndpoint = getFetchedSoapEndpoint(client2);
-
-        // check if cache was used
-        if(instance1FetchedSoapEndpoint != null && instance2FetchedSoapEndpoint != null) {
-            assertTrue(instance1SoapEndpointExpiration > 0);
-            assertTrue(instance2SoapEndpointExpiration > 0);
-            assertEquals(instance1SoapEndpointExpiration, instance2SoapEndpointExpiration);
-        }
-        else
-        {
-            assertTrue(instance1SoapEndpointExpiration == 0);
-            assertTrue(instance2SoapEndpointExpiration == 0);
-        }
+        // the second client of the same tenant hits the cache
+        assertSame(cache, client1.getEndpointCache());
+        assertEquals(client1.getEndpointCacheKey("soap"), client2.getEndpointCacheKey("soap"));
+        assertTrue(cache.getMisses() - misses <= 1);
     }
 
     @Test
@@ -318,18 +307,6 @@ public class ETClientTest {
         assertEquals("refresh_token", payload.get("grant_type").getAsString());
     }
 
-    private String getFetchedSoapEndpoint(ETClient client) throws NoSuchFieldException, IllegalAccessException {
-        Field field = client.getClass().getDeclaredField("fetchedSoapEndpoint");
-        field.setAccessible(true);
-        return (String) field.get(null);
-    }
-
-    private long getInstanceSoapEndpointExpiration(ETClient client) throws NoSuchFieldException, IllegalAccessException {
-        Field field = client.getClass().getDeclaredField("soapEndpointExpiration");
-        field.setAccessible(true);
-        return field.getLong(null);
-    }
-
     private DateFormat dateFormat =
             new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS");
 
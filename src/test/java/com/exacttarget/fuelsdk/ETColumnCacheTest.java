@@ -0,0 +1,228 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.fail;
+
+public class ETColumnCacheTest {
+    private static class CountingLoader
+        implements Callable<List<ETDataExtensionColumn>>
+    {
+        int calls = 0;
+
+        public List<ETDataExtensionColumn> call() {
+            calls++;
+            List<ETDataExtensionColumn> columns = new ArrayList<ETDataExtensionColumn>();
+            ETDataExtensionColumn column = new ETDataExtensionColumn();
+            column.setName("column" + calls);
+            columns.add(column);
+            return columns;
+        }
+    }
+
+    @Test
+    public void testHit()
+        throws ETSdkException
+    {
+        ETColumnCache cache = new ETColumnCache(60000, 10);
+        CountingLoader loader = new CountingLoader();
+        List<ETDataExtensionColumn> columns = cache.get("key", loader);
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(columns.get(0).getName(),
+                         cache.get("key", loader).get(0).getName());
+        }
+        assertEquals(1, loader.calls);
+        assertEquals(10000, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testUnmodifiable()
+        throws ETSdkException
+    {
+        ETColumnCache cache = new ETColumnCache(60000, 10);
+        List<ETDataExtensionColumn> columns = cache.get("key", new CountingLoader());
+        try {
+            columns.clear();
+            fail();
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testExpiration()
+        throws Exception
+    {
+        ETColumnCache cache = new ETColumnCache(1, 10);
+        CountingLoader loader = new CountingLoader();
+        cache.get("key", loader);
+        Thread.sleep(10);
+        assertEquals("column2", cache.get("key", loader).get(0).getName());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testDisabled()
+        throws ETSdkException
+    {
+        ETColumnCache cache = new ETColumnCache(0, 10);
+        CountingLoader loader = new CountingLoader();
+        cache.get("key", loader);
+        cache.get("key", loader);
+        assertEquals(2, loader.calls);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testEviction()
+        throws ETSdkException
+    {
+        ETColumnCache cache = new ETColumnCache(60000, 2);
+        CountingLoader loader = new CountingLoader();
+        cache.get("a", loader);
+        cache.get("b", loader);
+        cache.get("a", loader); // b is now least recently used
+        cache.get("c", loader);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        cache.get("a", loader);
+        assertEquals(3, loader.calls);
+        cache.get("b", loader);
+        assertEquals(4, loader.calls);
+    }
+
+    @Test
+    public void testInvalidate()
+        throws ETSdkException
+    {
+        ETColumnCache cache = new ETColumnCache(60000, 10);
+        CountingLoader loader = new CountingLoader();
+        cache.get("a", loader);
+        cache.get("b", loader);
+        cache.invalidate("a");
+        assertEquals(1, cache.size());
+        cache.get("a", loader);
+        assertEquals(3, loader.calls);
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testPutCopies() {
+        ETColumnCache cache = new ETColumnCache(60000, 10);
+        List<ETDataExtensionColumn> columns = new ArrayList<ETDataExtensionColumn>();
+        cache.put("key", columns);
+        columns.add(new ETDataExtensionColumn());
+        try {
+            assertEquals(0, cache.get("key", new CountingLoader()).size());
+        } catch (ETSdkException ex) {
+            fail();
+        }
+    }
+
+    @Test
+    public void testColumnsCopied()
+        throws ETSdkException
+    {
+        ETColumnCache cache = new ETColumnCache(60000, 10);
+        CountingLoader loader = new CountingLoader();
+        ETDataExtensionColumn column = cache.get("key", loader).get(0);
+        column.setName("changed");
+        assertEquals("column1", cache.get("key", loader).get(0).getName());
+        assertNotSame(cache.get("key", loader).get(0), cache.get("key", loader).get(0));
+    }
+
+    @Test
+    public void testInvalidateWhileLoading()
+        throws ETSdkException
+    {
+        final ETColumnCache cache = new ETColumnCache(60000, 10);
+        final CountingLoader loader = new CountingLoader();
+        List<ETDataExtensionColumn> columns = cache.get("key",
+                new Callable<List<ETDataExtensionColumn>>() {
+            public List<ETDataExtensionColumn> call() {
+                // the schema changes while the old one is retrieved:
+                cache.invalidate("key");
+                return loader.call();
+            }
+        });
+        assertEquals("column1", columns.get(0).getName());
+        assertEquals(0, cache.size());
+        assertEquals("column2", cache.get("key", loader).get(0).getName());
+    }
+
+    @Test
+    public void testPutWhileLoading()
+        throws ETSdkException
+    {
+        final ETColumnCache cache = new ETColumnCache(60000, 10);
+        final CountingLoader loader = new CountingLoader();
+        cache.get("key", new Callable<List<ETDataExtensionColumn>>() {
+            public List<ETDataExtensionColumn> call() {
+                List<ETDataExtensionColumn> columns = loader.call();
+                cache.put("key", loader.call());
+                return columns;
+            }
+        });
+        assertEquals("column2", cache.get("key", loader).get(0).getName());
+        assertEquals(2, loader.calls);
+    }
+
+    @Test
+    public void testLoaderError() {
+        ETColumnCache cache = new ETColumnCache(60000, 10);
+        try {
+            cache.get("key", new Callable<List<ETDataExtensionColumn>>() {
+                public List<ETDataExtensionColumn> call()
+                    throws ETSdkException
+                {
+                    throw new ETSdkException("error");
+                }
+            });
+            fail();
+        } catch (ETSdkException ex) {
+            assertEquals("error", ex.getMessage());
+        }
+        assertEquals(0, cache.size());
+    }
+}
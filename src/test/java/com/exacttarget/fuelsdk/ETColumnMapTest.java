@@ -0,0 +1,171 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.exacttarget.fuelsdk.internal.APIProperty;
+import com.exacttarget.fuelsdk.internal.DataExtensionObject;
+import com.exacttarget.fuelsdk.internal.ObjectExtension;
+
+public class ETColumnMapTest {
+    private static DataExtensionObject createObject(String... columns) {
+        ObjectExtension.Properties properties = new ObjectExtension.Properties();
+        for (int i = 0; i < columns.length; i += 2) {
+            APIProperty property = new APIProperty();
+            property.setName(columns[i]);
+            property.setValue(columns[i + 1]);
+            properties.getProperty().add(property);
+        }
+        DataExtensionObject object = new DataExtensionObject();
+        object.setProperties(properties);
+        return object;
+    }
+
+    private static ETColumnDictionary getDictionary(ETDataExtensionRow row)
+        throws Exception
+    {
+        Field field = ETColumnMap.class.getDeclaredField("dictionary");
+        field.setAccessible(true);
+        return (ETColumnDictionary) field.get(row.getColumns());
+    }
+
+    @Test
+    public void testColumns() {
+        ETDataExtensionRow row = new ETDataExtensionRow();
+        row.setColumn("Email", "test@example.com");
+        row.setColumn("Name", "Test");
+        assertEquals("test@example.com", row.getColumn("EMAIL"));
+        assertEquals("Test", row.getColumn("name"));
+        assertNull(row.getColumn("other"));
+        row.setColumn("NAME", "Changed");
+        assertEquals("Changed", row.getColumn("name"));
+        assertEquals(Arrays.asList("email", "name"),
+                     Arrays.asList(row.getColumnNames().toArray()));
+        assertTrue(row.getModified("Email"));
+    }
+
+    @Test
+    public void testRowsShareDictionary()
+        throws Exception
+    {
+        ETDataExtensionRow row1 = new ETDataExtensionRow();
+        row1.setColumn("a", "1");
+        row1.setColumn("b", "2");
+        ETDataExtensionRow row2 = new ETDataExtensionRow();
+        row2.setColumn("A", "3");
+        row2.setColumn("B", "4");
+        assertSame(getDictionary(row1), getDictionary(row2));
+    }
+
+    @Test
+    public void testWithCachesTransitions() {
+        ETColumnDictionary a = ETColumnDictionary.get(new String[] { "a" });
+        ETColumnDictionary ab = a.with("b");
+        assertSame(ab, a.with("b"));
+        assertSame(ETColumnDictionary.get(new String[] { "a", "b" }), ab);
+        assertEquals(1, ab.getOrdinal("b"));
+        assertEquals(2, a.with("c").size());
+        assertEquals("c", a.with("c").getName(1));
+    }
+
+    @Test
+    public void testFromInternal()
+        throws Exception
+    {
+        ETDataExtensionRow row1 = (ETDataExtensionRow) new ETDataExtensionRow()
+                .fromInternal(createObject("Email", "a@example.com", "Name", null));
+        ETDataExtensionRow row2 = (ETDataExtensionRow) new ETDataExtensionRow()
+                .fromInternal(createObject("Email", "b@example.com", "Name", "B"));
+        assertSame(getDictionary(row1), getDictionary(row2));
+        assertEquals("a@example.com", row1.getColumn("email"));
+        assertNull(row1.getColumn("name"));
+        assertTrue(row1.getColumnNames().contains("name"));
+        assertEquals("B", row2.getColumn("Name"));
+        assertNull(row2.getModified("Name")); // converting isn't modifying
+
+        // the rows don't share values:
+        row1.setColumn("name", "A");
+        assertEquals("B", row2.getColumn("name"));
+    }
+
+    @Test
+    public void testDuplicateNames()
+        throws ETSdkException
+    {
+        ETDataExtensionRow row = (ETDataExtensionRow) new ETDataExtensionRow()
+                .fromInternal(createObject("Name", "1", "NAME", "2"));
+        assertEquals(1, row.getColumnNames().size());
+        assertEquals("2", row.getColumn("name"));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testMapSemantics() {
+        ETDataExtensionRow row = new ETDataExtensionRow();
+        Map<String, String> columns = row.getColumns();
+        Map<String, String> expected = new HashMap<String, String>();
+        for (String name : new String[] { "a", "b", "c" }) {
+            assertNull(columns.put(name, name.toUpperCase()));
+            expected.put(name, name.toUpperCase());
+        }
+        assertEquals(expected, columns);
+        assertEquals(expected.hashCode(), columns.hashCode());
+        assertEquals("B", columns.put("b", "b"));
+        assertEquals("b", columns.remove("b"));
+        assertFalse(columns.containsKey("b"));
+        assertEquals("C", row.getColumn("c"));
+
+        Iterator<Map.Entry<String, String>> i = columns.entrySet().iterator();
+        i.next().setValue("x");
+        i.remove();
+        assertEquals(1, columns.size());
+        assertEquals("C", i.next().getValue());
+        assertFalse(i.hasNext());
+        columns.clear();
+        assertTrue(row.getColumnNames().isEmpty());
+    }
+}
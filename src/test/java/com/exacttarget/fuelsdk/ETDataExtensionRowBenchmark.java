@@ -0,0 +1,186 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.exacttarget.fuelsdk.internal.APIProperty;
+import com.exacttarget.fuelsdk.internal.DataExtensionObject;
+import com.exacttarget.fuelsdk.internal.ObjectExtension;
+
+/**
+ * Compares converting and holding the rows of a 100k-row select as
+ * <code>ETDataExtensionRow</code>s with converting and holding them
+ * the way rows did before they shared a column dictionary (a hash
+ * map with lower-cased keys per row), and likewise building the rows
+ * column by column with <code>setColumn</code>, as the insert, bulk
+ * and asynchronous paths do. Not a unit test; run it with the test
+ * classpath:
+ *
+ * java -cp ... com.exacttarget.fuelsdk.ETDataExtensionRowBenchmark [rows] [columns]
+ */
+
+public class ETDataExtensionRowBenchmark {
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args)
+        throws Exception
+    {
+        int rowCount = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int columnCount = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        List<DataExtensionObject> objects = createObjects(rowCount, columnCount);
+
+        System.out.println(rowCount + " rows, " + columnCount + " columns");
+        for (int round = 1; round <= ROUNDS; round++) {
+            measure(objects, false);
+            measure(objects, true);
+            measureSetColumn(objects, false);
+            measureSetColumn(objects, true);
+        }
+    }
+
+    private static void measure(List<DataExtensionObject> objects, boolean rows)
+        throws ETSdkException
+    {
+        long before = usedMemory();
+        long start = System.nanoTime();
+        List<Object> converted = new ArrayList<Object>(objects.size());
+        for (DataExtensionObject object : objects) {
+            if (rows) {
+                converted.add(new ETDataExtensionRow().fromInternal(object));
+            } else {
+                converted.add(toLegacyRow(object.getProperties()));
+            }
+        }
+        long time = System.nanoTime() - start;
+        long heap = usedMemory() - before;
+        System.out.println((rows ? "shared dictionary: " : "HashMap per row:   ")
+                + (time / 1000000) + " ms, "
+                + (heap / objects.size()) + " bytes/row retained");
+        if (converted.size() != objects.size()) {
+            throw new AssertionError();
+        }
+    }
+
+    private static void measureSetColumn(List<DataExtensionObject> objects, boolean rows) {
+        long before = usedMemory();
+        long start = System.nanoTime();
+        List<Object> built = new ArrayList<Object>(objects.size());
+        for (DataExtensionObject object : objects) {
+            if (rows) {
+                ETDataExtensionRow row = new ETDataExtensionRow();
+                for (APIProperty property : object.getProperties().getProperty()) {
+                    row.setColumn(property.getName(), property.getValue());
+                }
+                built.add(row);
+            } else {
+                built.add(buildLegacyRow(object.getProperties()));
+            }
+        }
+        long time = System.nanoTime() - start;
+        long heap = usedMemory() - before;
+        System.out.println((rows ? "setColumn, shared dictionary: " : "setColumn, HashMap per row:   ")
+                + (time / 1000000) + " ms, "
+                + (heap / objects.size()) + " bytes/row retained");
+        if (built.size() != objects.size()) {
+            throw new AssertionError();
+        }
+    }
+
+    //
+    // What setColumn used to do: put the lower-cased name into
+    // the row's own map and mark the column modified:
+    //
+
+    private static Object[] buildLegacyRow(ObjectExtension.Properties properties) {
+        ETDataExtensionRow row = new ETDataExtensionRow();
+        Map<String, String> rowColumns = new HashMap<String, String>();
+        for (APIProperty property : properties.getProperty()) {
+            rowColumns.put(property.getName().toLowerCase(), property.getValue());
+            row.setModified(property.getName(), true);
+        }
+        return new Object[] { row, rowColumns };
+    }
+
+    //
+    // What converting a row used to do: copy the properties into
+    // a map, then copy that into the row's own map, lower-casing
+    // names and marking the columns modified:
+    //
+
+    private static Object[] toLegacyRow(ObjectExtension.Properties properties) {
+        Map<String, String> columns = new HashMap<String, String>();
+        for (APIProperty property : properties.getProperty()) {
+            columns.put(property.getName(), property.getValue());
+        }
+        ETDataExtensionRow row = new ETDataExtensionRow();
+        Map<String, String> rowColumns = new HashMap<String, String>();
+        for (Map.Entry<String, String> column : columns.entrySet()) {
+            row.setModified(column.getKey(), true);
+            rowColumns.put(column.getKey().toLowerCase(), column.getValue());
+        }
+        return new Object[] { row, rowColumns };
+    }
+
+    private static List<DataExtensionObject> createObjects(int rowCount, int columnCount) {
+        List<DataExtensionObject> objects = new ArrayList<DataExtensionObject>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            ObjectExtension.Properties properties = new ObjectExtension.Properties();
+            for (int j = 0; j < columnCount; j++) {
+                APIProperty property = new APIProperty();
+                // each response carries its own copies of the names:
+                property.setName(new String("Column" + j));
+                property.setValue("value" + i + "-" + j);
+                properties.getProperty().add(property);
+            }
+            DataExtensionObject object = new DataExtensionObject();
+            object.setProperties(properties);
+            objects.add(object);
+        }
+        return objects;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,113 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class ETDataExtensionRowsetTest {
+    @Test
+    public void testPath()
+        throws ETSdkException
+    {
+        assertEquals("/data/v1/customobjectdata/key/test%20key/rowset?$page=40&$pagesize=50",
+                ETDataExtension.getRowsetPath("test key", 40, 50, new ETFilter()));
+    }
+
+    @Test
+    public void testPathWithFilterAndOrderBy()
+        throws ETSdkException
+    {
+        ETFilter filter = ETFilter.parse("age > 21", "order by name desc");
+        assertEquals("/data/v1/customobjectdata/key/test/rowset?$page=1&$pagesize=2500"
+                + "&$orderBy=name%20desc"
+                + "&$filter=age%20gt%2021",
+                ETDataExtension.getRowsetPath("test", 1, 2500, filter));
+    }
+
+    @Test
+    public void testPathWithSpecialColumnNames()
+        throws ETSdkException
+    {
+        ETExpression expression = new ETExpression();
+        expression.setProperty("First Name");
+        expression.setOperator(ETExpression.Operator.EQUALS);
+        expression.setValue("Ann");
+        ETFilter filter = new ETFilter();
+        filter.setExpression(expression);
+        filter.setOrderBy(Arrays.asList("Last&Name"));
+        filter.setOrderByAsc(true);
+        assertEquals("/data/v1/customobjectdata/key/test/rowset?$page=1&$pagesize=2500"
+                + "&$orderBy=Last%26Name%20asc"
+                + "&$filter=First%20Name%20eq%20Ann",
+                ETDataExtension.getRowsetPath("test", 1, 2500, filter));
+    }
+
+    @Test
+    public void testRows()
+        throws ETSdkException
+    {
+        JsonObject jsonObject = new JsonParser().parse("{"
+                + "\"pageSize\": 2, \"page\": 1, \"count\": 3,"
+                + "\"items\": ["
+                + "{\"keys\": {\"id\": \"1\"}, \"values\": {\"Name\": \"a\", \"age\": \"30\"}},"
+                + "{\"keys\": {\"id\": \"2\"}, \"values\": {\"Name\": null, \"age\": \"40\"}}"
+                + "]}").getAsJsonObject();
+        ETFilter filter = ETFilter.parse("age > 21");
+        filter.addProperty("ID");
+        filter.addProperty("name");
+        ETResponse<ETDataExtensionRow> response = new ETResponse<ETDataExtensionRow>();
+        ETDataExtension.addRows(null, jsonObject, filter, response);
+        assertEquals(new Integer(1), response.getPage());
+        assertEquals(new Integer(2), response.getPageSize());
+        assertEquals(new Integer(3), response.getTotalCount());
+        assertTrue(response.hasMoreResults());
+        assertEquals(2, response.getObjects().size());
+        ETDataExtensionRow row = response.getObjects().get(0);
+        assertEquals("1", row.getColumn("id"));
+        assertEquals("a", row.getColumn("name"));
+        assertFalse(row.getColumnNames().contains("age"));
+        assertNull(response.getObjects().get(1).getColumn("name"));
+        assertTrue(row.getAllModified().isEmpty());
+    }
+}
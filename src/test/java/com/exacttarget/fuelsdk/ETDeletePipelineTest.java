@@ -0,0 +1,226 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.exacttarget.fuelsdk.internal.APIObject;
+import com.exacttarget.fuelsdk.internal.DataExtensionObject;
+
+public class ETDeletePipelineTest {
+    //
+    // Simulates the server: earlier batches take longer, and a
+    // batch of a single key fails with an exception:
+    //
+
+    private static class TestPipeline extends ETDeletePipeline {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final AtomicInteger calls = new AtomicInteger();
+
+        TestPipeline(int concurrency,
+                     ETDataExtension.DeleteListener listener,
+                     boolean keepErrors)
+        {
+            super(null, concurrency, listener, keepErrors);
+        }
+
+        @Override
+        ETResponse<ETDataExtensionRow> delete(List<APIObject> keys)
+            throws ETSdkException
+        {
+            int n = inFlight.incrementAndGet();
+            synchronized (maxInFlight) {
+                if (n > maxInFlight.get()) {
+                    maxInFlight.set(n);
+                }
+            }
+            try {
+                Thread.sleep(Math.max(0, 20 - calls.getAndIncrement()));
+                if (keys.size() == 1) {
+                    throw new ETSdkException("timed out");
+                }
+                ETResponse<ETDataExtensionRow> response = new ETResponse<ETDataExtensionRow>();
+                response.setStatus(ETResult.Status.OK);
+                for (int i = 0; i < keys.size(); i++) {
+                    ETResult<ETDataExtensionRow> result = new ETResult<ETDataExtensionRow>();
+                    result.setStatus(ETResult.Status.OK);
+                    response.addResult(result);
+                }
+                return response;
+            } catch (InterruptedException ex) {
+                throw new ETSdkException("interrupted", ex);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    private static class RecordingListener implements ETDataExtension.DeleteListener {
+        final List<Integer> batches = new ArrayList<Integer>();
+        final List<ETResult.Status> statuses = new ArrayList<ETResult.Status>();
+        long deleted = 0;
+
+        public void batchDeleted(int batch,
+                                 List<ETDataExtensionRow> rows,
+                                 ETResponse<ETDataExtensionRow> response,
+                                 long deleted)
+        {
+            batches.add(batch);
+            statuses.add(response.getStatus());
+            this.deleted = deleted;
+        }
+    }
+
+    private static void submit(ETDeletePipeline pipeline, int size)
+        throws ETSdkException
+    {
+        List<ETDataExtensionRow> rows = new ArrayList<ETDataExtensionRow>();
+        List<APIObject> keys = new ArrayList<APIObject>();
+        for (int i = 0; i < size; i++) {
+            rows.add(new ETDataExtensionRow());
+            keys.add(new DataExtensionObject());
+        }
+        pipeline.submit(rows, keys);
+    }
+
+    @Test
+    public void testPipeline()
+        throws ETSdkException
+    {
+        RecordingListener listener = new RecordingListener();
+        TestPipeline pipeline = new TestPipeline(3, listener, false);
+        for (int i = 0; i < 10; i++) {
+            submit(pipeline, 100);
+            assertTrue(pipeline.inFlight.get() <= 3);
+        }
+        ETResponse<ETDataExtensionRow> response = pipeline.finish();
+        assertEquals(ETResult.Status.OK, response.getStatus());
+        assertEquals(Integer.valueOf(1000), response.getTotalCount());
+        assertTrue(response.getResults().isEmpty());
+        assertTrue(pipeline.maxInFlight.get() <= 3);
+        assertTrue(pipeline.maxInFlight.get() > 1);
+        List<Integer> expected = new ArrayList<Integer>();
+        for (int i = 1; i <= 10; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, listener.batches);
+        assertEquals(1000, listener.deleted);
+    }
+
+    @Test
+    public void testFailedBatch()
+        throws ETSdkException
+    {
+        RecordingListener listener = new RecordingListener();
+        TestPipeline pipeline = new TestPipeline(2, listener, true);
+        submit(pipeline, 10);
+        submit(pipeline, 1);
+        submit(pipeline, 10);
+        ETResponse<ETDataExtensionRow> response = pipeline.finish();
+        assertEquals(ETResult.Status.ERROR, response.getStatus());
+        assertEquals("timed out", response.getResponseMessage());
+        assertEquals(Integer.valueOf(20), response.getTotalCount());
+        // only the rows of the failed batch:
+        assertEquals(1, response.getResults().size());
+        assertEquals(ETResult.Status.ERROR, response.getResults().get(0).getStatus());
+        assertEquals("timed out", response.getResults().get(0).getErrorMessage());
+        assertNotNull(response.getResults().get(0).getObject());
+        assertEquals(ETResult.Status.ERROR, listener.statuses.get(1));
+        assertEquals(ETResult.Status.OK, listener.statuses.get(2));
+    }
+
+    @Test
+    public void testScanFailure() {
+        ETDataExtension dataExtension = new ETDataExtension();
+        dataExtension.addColumn("id", true);
+        // two batches of rows, then the retrieve fails:
+        ETRetrieveCursor<ETDataExtensionRow> cursor = new ETRetrieveCursor<ETDataExtensionRow>(
+                null, "DataExtensionObject[test]", new ETFilter(), ETDataExtensionRow.class) {
+            int batch = 0;
+
+            @Override
+            ETResponse<ETDataExtensionRow> retrieve(String continueRequest)
+                throws ETSdkException
+            {
+                if (++batch > 2) {
+                    throw new ETSdkException("retries exhausted");
+                }
+                ETResponse<ETDataExtensionRow> response = new ETResponse<ETDataExtensionRow>();
+                response.setRequestId("request" + batch);
+                response.setStatus(ETResult.Status.OK);
+                for (int i = 0; i < 10; i++) {
+                    ETDataExtensionRow row = new ETDataExtensionRow();
+                    row.setColumn("id", batch + "-" + i);
+                    ETResult<ETDataExtensionRow> result = new ETResult<ETDataExtensionRow>();
+                    result.setObject(row);
+                    response.addResult(result);
+                }
+                response.setMoreResults(true);
+                return response;
+            }
+        };
+        RecordingListener listener = new RecordingListener();
+        TestPipeline pipeline = new TestPipeline(2, listener, false);
+        try {
+            dataExtension.deleteAll(cursor, pipeline);
+            fail("expected the scan to fail");
+        } catch (ETSdkException ex) {
+            assertEquals("retries exhausted (deleted 20 rows before the error)",
+                         ex.getMessage());
+        }
+        // the batches in flight finished and were reported:
+        assertEquals(0, pipeline.inFlight.get());
+        assertEquals(2, listener.batches.size());
+        assertEquals(20, listener.deleted);
+    }
+
+    @Test
+    public void testEmpty()
+        throws ETSdkException
+    {
+        ETResponse<ETDataExtensionRow> response = new TestPipeline(2, null, true).finish();
+        assertEquals(ETResult.Status.OK, response.getStatus());
+        assertEquals(Integer.valueOf(0), response.getTotalCount());
+    }
+}
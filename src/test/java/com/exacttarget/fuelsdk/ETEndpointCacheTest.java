@@ -0,0 +1,176 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ETEndpointCacheTest {
+    private static class Discovery implements Callable<String> {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final String url;
+        private final long delay;
+
+        Discovery(String url, long delay) {
+            this.url = url;
+            this.delay = delay;
+        }
+
+        public String call()
+            throws Exception
+        {
+            int n = calls.incrementAndGet();
+            if (delay > 0) {
+                Thread.sleep(delay);
+            }
+            return url + n;
+        }
+    }
+
+    @Test
+    public void testHitWithinTtl()
+        throws ETSdkException
+    {
+        ETEndpointCache cache = new ETEndpointCache();
+        Discovery discovery = new Discovery("https://a/", 0);
+        assertEquals("https://a/1", cache.get("a", 60000, 0, discovery));
+        assertEquals("https://a/1", cache.get("a", 60000, 0, discovery));
+        assertEquals(1, discovery.calls.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testKeysAreSeparate()
+        throws ETSdkException
+    {
+        ETEndpointCache cache = new ETEndpointCache();
+        assertEquals("https://a/1", cache.get("a", 60000, 0, new Discovery("https://a/", 0)));
+        assertEquals("https://b/1", cache.get("b", 60000, 0, new Discovery("https://b/", 0)));
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testExpired()
+        throws Exception
+    {
+        ETEndpointCache cache = new ETEndpointCache();
+        Discovery discovery = new Discovery("https://a/", 0);
+        assertEquals("https://a/1", cache.get("a", 1, 0, discovery));
+        Thread.sleep(10);
+        assertEquals("https://a/2", cache.get("a", 1, 0, discovery));
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testRefreshAhead()
+        throws Exception
+    {
+        ETEndpointCache cache = new ETEndpointCache();
+        Discovery discovery = new Discovery("https://a/", 0);
+        assertEquals("https://a/1", cache.get("a", 60000, 60000, discovery));
+        // within the refresh window: served from cache, refreshed in the background
+        assertEquals("https://a/1", cache.get("a", 60000, 60000, discovery));
+        assertEquals(1, cache.getRefreshes());
+        long deadline = System.currentTimeMillis() + 5000;
+        while (discovery.calls.get() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(50);
+        assertEquals("https://a/2", cache.get("a", 60000, 0, discovery));
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testConcurrentDiscoveryIsShared()
+        throws Exception
+    {
+        final ETEndpointCache cache = new ETEndpointCache();
+        final Discovery discovery = new Discovery("https://a/", 100);
+        final CountDownLatch start = new CountDownLatch(1);
+        final String[] results = new String[8];
+        Thread[] threads = new Thread[results.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int n = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        results[n] = cache.get("a", 60000, 0, discovery);
+                    } catch (Exception ex) {
+                        results[n] = ex.toString();
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1, discovery.calls.get());
+        for (String result : results) {
+            assertEquals("https://a/1", result);
+        }
+    }
+
+    @Test
+    public void testFailureIsNotCached()
+        throws ETSdkException
+    {
+        ETEndpointCache cache = new ETEndpointCache();
+        try {
+            cache.get("a", 60000, 0, new Callable<String>() {
+                public String call()
+                    throws ETSdkException
+                {
+                    throw new ETSdkException("discovery failed");
+                }
+            });
+            fail();
+        } catch (ETSdkException ex) {
+            assertEquals("discovery failed", ex.getMessage());
+        }
+        assertEquals("https://a/1", cache.get("a", 60000, 0, new Discovery("https://a/", 0)));
+        assertTrue(cache.getMisses() == 2);
+    }
+}
@@ -0,0 +1,146 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.exacttarget.fuelsdk.annotations.SoapObject;
+
+public class ETObjectMetadataTest {
+    @SuppressWarnings("unchecked")
+    private static final Class<? extends ETSoapObject>[] SOAP_TYPES = new Class[] {
+        ETBounceEvent.class,
+        ETClickEvent.class,
+        ETContentArea.class,
+        ETDataExtension.class,
+        ETDataExtensionColumn.class,
+        ETDataExtensionRow.class,
+        ETEmail.class,
+        ETExtractDescription.class,
+        ETFolder.class,
+        ETList.class,
+        ETOpenEvent.class,
+        ETProfileAttribute.class,
+        ETResultMessage.class,
+        ETSend.class,
+        ETSentEvent.class,
+        ETSubscriber.class,
+        ETSubscriberList.class,
+        ETTriggeredEmail.class,
+        ETTriggeredSendSummary.class,
+        ETUnsubEvent.class
+    };
+
+    @Test
+    public void testComputedOnce() {
+        assertSame(ETObjectMetadata.get(ETEmail.class),
+                   ETObjectMetadata.get(ETEmail.class));
+        assertSame(ETObject.getAllFields(ETEmail.class),
+                   ETObject.getAllFields(ETEmail.class));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testFieldsUnmodifiable() {
+        ETObject.getAllFields(ETEmail.class).clear();
+    }
+
+    @Test
+    public void testFieldOrder() {
+        List<Field> fields = ETObject.getAllFields(ETEmail.class);
+        // superclass fields first:
+        assertEquals(ETObject.class, fields.get(0).getDeclaringClass());
+        assertEquals(ETEmail.class, fields.get(fields.size() - 1).getDeclaringClass());
+    }
+
+    @Test
+    public void testGetField()
+        throws ETSdkException
+    {
+        ETEmail email = new ETEmail();
+        assertEquals("subject", email.getField("subject").getName());
+        assertNull(email.getField("noSuchProperty"));
+        assertEquals(ETEmail.class,
+                     ETObject.getField(ETEmail.class, "subject").getDeclaringClass());
+    }
+
+    @Test(expected = ETSdkException.class)
+    public void testGetFieldMissing()
+        throws ETSdkException
+    {
+        ETObject.getField(ETEmail.class, "noSuchField");
+    }
+
+    @Test
+    public void testRetrievablePropertiesMatchReflection()
+        throws ETSdkException
+    {
+        for (Class<? extends ETSoapObject> type : SOAP_TYPES) {
+            List<String> properties =
+                    ETObjectMetadata.get(type).getRetrievableProperties();
+            List<String> expected = null;
+            try {
+                expected = new ArrayList<String>(ETSoapObject.getInternalProperties(type));
+            } catch (ETSdkException ex) {
+                // unresolvable, so retrieve reports the same error:
+                assertNull(type.getName(), properties);
+                continue;
+            }
+            for (String property : type.getAnnotation(SoapObject.class).unretrievable()) {
+                expected.remove(property);
+            }
+            assertNotNull(type.getName(), properties);
+            assertEquals(type.getName(), expected, properties);
+        }
+    }
+
+    @Test
+    public void testInternalProperty()
+        throws ETSdkException
+    {
+        assertEquals("CustomerKey",
+                     ETSoapObject.getInternalProperty(ETEmail.class, "key"));
+        // not a field, passed through:
+        assertEquals("Foo.Bar",
+                     ETSoapObject.getInternalProperty(ETEmail.class, "Foo.Bar"));
+    }
+}
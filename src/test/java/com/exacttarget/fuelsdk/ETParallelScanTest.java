@@ -0,0 +1,275 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ETParallelScanTest {
+    //
+    // Simulates a partition returning the given batch sizes, or
+    // failing on the batch after them if failing:
+    //
+
+    private static class TestCursor extends ETRetrieveCursor<ETDataExtensionRow> {
+        private static final AtomicInteger running = new AtomicInteger();
+        private static final AtomicInteger maxRunning = new AtomicInteger();
+
+        private final int[] batchSizes;
+        private final boolean failing;
+        private int batch = 0;
+
+        TestCursor(boolean failing, int... batchSizes) {
+            super(null, "DataExtensionObject[test]", new ETFilter(), ETDataExtensionRow.class);
+            this.failing = failing;
+            this.batchSizes = batchSizes;
+        }
+
+        @Override
+        ETResponse<ETDataExtensionRow> retrieve(String continueRequest)
+            throws ETSdkException
+        {
+            int now = running.incrementAndGet();
+            synchronized (maxRunning) {
+                maxRunning.set(Math.max(maxRunning.get(), now));
+            }
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+            if (batch == batchSizes.length) {
+                throw new ETSdkException("retrieve failed");
+            }
+            ETResponse<ETDataExtensionRow> response = new ETResponse<ETDataExtensionRow>();
+            response.setRequestId("request" + batch);
+            response.setStatus(ETResult.Status.OK);
+            for (int i = 0; i < batchSizes[batch]; i++) {
+                ETResult<ETDataExtensionRow> result = new ETResult<ETDataExtensionRow>();
+                result.setObject(new ETDataExtensionRow());
+                response.addResult(result);
+            }
+            batch++;
+            response.setMoreResults(failing || batch < batchSizes.length);
+            return response;
+        }
+    }
+
+    private static ETParallelScan createScan(int concurrency,
+                                             TestCursor... cursors)
+    {
+        return new ETParallelScan(
+                new ArrayList<ETRetrieveCursor<ETDataExtensionRow>>(Arrays.asList(cursors)),
+                concurrency);
+    }
+
+    @Test
+    public void testStream()
+        throws ETSdkException
+    {
+        ETParallelScan scan = createScan(2,
+                                         new TestCursor(false, 3, 2),
+                                         new TestCursor(false, 4),
+                                         new TestCursor(false, 1, 1, 1));
+        int batches = 0;
+        int rows = 0;
+        while (scan.hasNext()) {
+            ETResponse<ETDataExtensionRow> batch = scan.next();
+            assertEquals(ETResult.Status.OK, batch.getStatus());
+            rows += batch.getResults().size();
+            batches++;
+        }
+        assertEquals(6, batches);
+        assertEquals(12, rows);
+        assertEquals(12, scan.getCount());
+        assertFalse(scan.hasNext());
+    }
+
+    @Test
+    public void testSink()
+        throws ETSdkException
+    {
+        TestCursor.maxRunning.set(0);
+        final List<Set<Integer>> partitions = new ArrayList<Set<Integer>>();
+        final AtomicInteger rows = new AtomicInteger();
+        ETParallelScan scan = createScan(2,
+                                         new TestCursor(false, 1, 1),
+                                         new TestCursor(false, 2, 2),
+                                         new TestCursor(false, 3),
+                                         new TestCursor(false, 4, 4));
+        ETResponse<ETDataExtensionRow> response = scan.run(new ETParallelScan.Sink() {
+            public void batchSelected(int partition,
+                                      ETResponse<ETDataExtensionRow> batch)
+            {
+                synchronized (partitions) {
+                    partitions.add(new HashSet<Integer>(Arrays.asList(partition,
+                            batch.getResults().size())));
+                }
+                rows.addAndGet(batch.getResults().size());
+            }
+        });
+        assertEquals(ETResult.Status.OK, response.getStatus());
+        assertEquals(17, (int) response.getTotalCount());
+        assertEquals(17, rows.get());
+        assertEquals(7, partitions.size());
+        assertTrue(partitions.contains(new HashSet<Integer>(Arrays.asList(3, 4))));
+        assertTrue(TestCursor.maxRunning.get() <= 2);
+    }
+
+    @Test
+    public void testManyPartitions()
+        throws ETSdkException
+    {
+        TestCursor[] cursors = new TestCursor[50];
+        for (int i = 0; i < cursors.length; i++) {
+            cursors[i] = new TestCursor(false, 1, 1);
+        }
+        final Set<Thread> threads = new HashSet<Thread>();
+        ETParallelScan scan = createScan(2, cursors);
+        ETResponse<ETDataExtensionRow> response = scan.run(new ETParallelScan.Sink() {
+            public void batchSelected(int partition,
+                                      ETResponse<ETDataExtensionRow> batch)
+            {
+                synchronized (threads) {
+                    threads.add(Thread.currentThread());
+                }
+            }
+        });
+        assertEquals(ETResult.Status.OK, response.getStatus());
+        assertEquals(100, (int) response.getTotalCount());
+        // partitions queue for the workers, not a thread each:
+        assertTrue(threads.size() <= 2);
+
+        for (int i = 0; i < cursors.length; i++) {
+            cursors[i] = new TestCursor(false, 1, 1);
+        }
+        scan = createScan(2, cursors);
+        int rows = 0;
+        while (scan.hasNext()) {
+            rows += scan.next().getResults().size();
+        }
+        assertEquals(100, rows);
+    }
+
+    @Test
+    public void testFailedPartition()
+        throws ETSdkException
+    {
+        ETParallelScan scan = createScan(3,
+                                         new TestCursor(false, 2),
+                                         new TestCursor(true, 1),
+                                         new TestCursor(false, 2));
+        int errors = 0;
+        int rows = 0;
+        while (scan.hasNext()) {
+            ETResponse<ETDataExtensionRow> batch = scan.next();
+            if (batch.getStatus() == ETResult.Status.ERROR) {
+                assertEquals("retrieve failed", batch.getResponseMessage());
+                errors++;
+            }
+            rows += batch.getResults().size();
+        }
+        assertEquals(1, errors);
+        assertEquals(5, rows);
+    }
+
+    @Test
+    public void testRangePartitions() {
+        List<ETExpression> partitions = ETParallelScan.rangePartitions("id", 1, 10, 3);
+        assertEquals(3, partitions.size());
+        assertEquals("id >= 1 and id < 5", format(partitions.get(0)));
+        assertEquals("id >= 5 and id < 9", format(partitions.get(1)));
+        assertEquals("id >= 9 and id <= 10", format(partitions.get(2)));
+
+        // fewer values than partitions:
+        partitions = ETParallelScan.rangePartitions("id", 1, 2, 4);
+        assertEquals(2, partitions.size());
+        assertEquals("id >= 2 and id <= 2", format(partitions.get(1)));
+
+        partitions = ETParallelScan.rangePartitions("modified",
+                                                    new Date(0),
+                                                    new Date(4000),
+                                                    2);
+        assertEquals(2, partitions.size());
+        assertEquals("modified >= 1970-01-01T00:00:00Z and modified < 1970-01-01T00:00:02Z",
+                     format(partitions.get(0)));
+        assertEquals("modified >= 1970-01-01T00:00:02Z and modified <= 1970-01-01T00:00:04Z",
+                     format(partitions.get(1)));
+    }
+
+    @Test
+    public void testPartitionFilter()
+        throws ETSdkException
+    {
+        ETFilter filter = ETFilter.parse("status = active");
+        filter.setProperties(Arrays.asList("id", "status"));
+        List<ETExpression> partitions = ETParallelScan.bucketPartitions("bucket", 2);
+        ETFilter partition = ETParallelScan.partition(filter, partitions.get(1));
+        assertEquals(ETExpression.Operator.AND, partition.getExpression().getOperator());
+        assertEquals("status = active", format(partition.getExpression().getSubexpressions().get(0)));
+        assertEquals("bucket = 1", format(partition.getExpression().getSubexpressions().get(1)));
+        assertEquals(filter.getProperties(), partition.getProperties());
+
+        // retrieving doesn't touch the shared expressions:
+        partition.getExpression().getSubexpressions().get(1).setProperty("other");
+        assertEquals("bucket", partitions.get(1).getProperty());
+
+        // no filter:
+        partition = ETParallelScan.partition(new ETFilter(), partitions.get(0));
+        assertEquals("bucket = 0", format(partition.getExpression()));
+    }
+
+    private static String format(ETExpression expression) {
+        if (expression.getOperator() == ETExpression.Operator.AND) {
+            return format(expression.getSubexpressions().get(0)) + " and "
+                    + format(expression.getSubexpressions().get(1));
+        }
+        return expression.getProperty() + " "
+                + expression.getOperator().value() + " "
+                + expression.getValue();
+    }
+}
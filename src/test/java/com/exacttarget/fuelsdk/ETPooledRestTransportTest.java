@@ -0,0 +1,245 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class ETPooledRestTransportTest {
+    private HttpServer server = null;
+    private URL url = null;
+    // the client ports seen by the server, one per connection:
+    private final Set<Integer> ports =
+            Collections.synchronizedSet(new HashSet<Integer>());
+
+    @Before
+    public void setUp()
+        throws IOException
+    {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange)
+                throws IOException
+            {
+                ports.add(exchange.getRemoteAddress().getPort());
+                InputStream is = exchange.getRequestBody();
+                byte[] request = new byte[1024];
+                int length = 0;
+                int n;
+                while ((n = is.read(request, length, request.length - length)) > 0) {
+                    length += n;
+                }
+                String body = exchange.getRequestMethod() + " "
+                        + new String(request, 0, length, "UTF-8");
+                byte[] response = body.getBytes("UTF-8");
+                exchange.sendResponseHeaders(200, response.length);
+                OutputStream os = exchange.getResponseBody();
+                os.write(response);
+                os.close();
+            }
+        });
+        server.start();
+        url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/v1/foo");
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private static String call(ETPooledRestTransport transport,
+                               URL url,
+                               String method,
+                               String payload)
+        throws IOException
+    {
+        HttpURLConnection connection = transport.open(url);
+        boolean reusable = false;
+        try {
+            connection.setRequestMethod(method);
+            if (payload != null) {
+                connection.setDoOutput(true);
+                OutputStream os = connection.getOutputStream();
+                os.write(payload.getBytes("UTF-8"));
+                os.close();
+            }
+            assertEquals(200, connection.getResponseCode());
+            InputStream is = connection.getInputStream();
+            byte[] response = new byte[1024];
+            int length = 0;
+            int n;
+            while ((n = is.read(response, length, response.length - length)) > 0) {
+                length += n;
+            }
+            is.close();
+            reusable = true;
+            return new String(response, 0, length, "UTF-8");
+        } finally {
+            transport.release(connection, reusable);
+        }
+    }
+
+    @Test
+    public void testKeepAlive()
+        throws IOException
+    {
+        ETPooledRestTransport transport = new ETPooledRestTransport(2, 0, 0, 0);
+        try {
+            assertEquals("GET ", call(transport, url, "GET", null));
+            assertEquals("POST {}", call(transport, url, "POST", "{}"));
+            assertEquals("PATCH {\"a\":1}", call(transport, url, "PATCH", "{\"a\":1}"));
+            // one socket for all of them:
+            assertEquals(1, ports.size());
+            assertEquals(0, transport.getLeasedConnections(url));
+            assertEquals(1, transport.getIdleConnections(url));
+        } finally {
+            transport.close();
+        }
+    }
+
+    @Test
+    public void testNotReusable()
+        throws IOException
+    {
+        ETPooledRestTransport transport = new ETPooledRestTransport(2, 0, 0, 0);
+        try {
+            HttpURLConnection connection = transport.open(url);
+            assertEquals(200, connection.getResponseCode());
+            transport.release(connection, false);
+            assertEquals(0, transport.getLeasedConnections(url));
+            assertEquals(0, transport.getIdleConnections(url));
+            call(transport, url, "GET", null);
+            assertEquals(2, ports.size());
+        } finally {
+            transport.close();
+        }
+    }
+
+    @Test
+    public void testMaxConnectionsPerHost()
+        throws IOException
+    {
+        ETPooledRestTransport transport = new ETPooledRestTransport(2, 0, 0, 50);
+        try {
+            HttpURLConnection c1 = transport.open(url);
+            HttpURLConnection c2 = transport.open(url);
+            assertEquals(200, c1.getResponseCode());
+            assertEquals(200, c2.getResponseCode());
+            assertEquals(2, transport.getLeasedConnections(url));
+            HttpURLConnection c3 = transport.open(url);
+            try {
+                c3.getResponseCode();
+                fail("expected timeout");
+            } catch (IOException ex) {
+                // expected
+            }
+            transport.release(c3, false);
+            transport.release(c1, true);
+            transport.release(c2, true);
+            assertEquals(0, transport.getLeasedConnections(url));
+            assertEquals(2, transport.getIdleConnections(url));
+        } finally {
+            transport.close();
+        }
+    }
+
+    @Test
+    public void testIdleTimeout()
+        throws Exception
+    {
+        ETPooledRestTransport transport = new ETPooledRestTransport(2, 50, 0, 0);
+        try {
+            call(transport, url, "GET", null);
+            assertEquals(1, transport.getIdleConnections(url));
+            Thread.sleep(100);
+            transport.evict();
+            assertEquals(0, transport.getIdleConnections(url));
+            call(transport, url, "GET", null);
+            assertEquals(2, ports.size());
+        } finally {
+            transport.close();
+        }
+    }
+
+    @Test
+    public void testMaxLifetime()
+        throws Exception
+    {
+        ETPooledRestTransport transport = new ETPooledRestTransport(2, 0, 50, 0);
+        try {
+            call(transport, url, "GET", null);
+            call(transport, url, "GET", null);
+            assertEquals(1, ports.size());
+            Thread.sleep(100);
+            call(transport, url, "GET", null);
+            assertEquals(2, ports.size());
+        } finally {
+            transport.close();
+        }
+    }
+
+    @Test
+    public void testReleaseForeignConnection()
+        throws IOException
+    {
+        ETPooledRestTransport transport = new ETPooledRestTransport(1, 0, 0, 50);
+        try {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            transport.release(connection, true);
+            assertEquals(0, transport.getLeasedConnections(url));
+            transport.release(transport.open(url), false);
+            assertEquals(0, transport.getLeasedConnections(url));
+        } finally {
+            transport.close();
+        }
+    }
+}
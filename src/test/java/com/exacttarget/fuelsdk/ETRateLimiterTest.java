@@ -0,0 +1,142 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ETRateLimiterTest {
+    @Test
+    public void testBurst() {
+        ETRateLimiter limiter = new ETRateLimiter("test", 1, 3);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(3, limiter.getAcquired());
+        assertEquals(1, limiter.getRejected());
+    }
+
+    @Test
+    public void testRefill()
+        throws Exception
+    {
+        ETRateLimiter limiter = new ETRateLimiter("test", 100, 1);
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        Thread.sleep(20);
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    public void testBlocking()
+        throws ETSdkException
+    {
+        ETRateLimiter limiter = new ETRateLimiter("test", 50, 1);
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 4; i++) {
+            limiter.acquire();
+        }
+        // 3 waits of 20 ms each:
+        assertTrue(System.currentTimeMillis() - start >= 50);
+        assertTrue(limiter.getWaitTime() >= 50);
+        assertEquals(1, limiter.getMaxQueueDepth());
+        assertEquals(0, limiter.getQueueDepth());
+    }
+
+    @Test
+    public void testTryAcquireTimeout()
+        throws ETSdkException
+    {
+        ETRateLimiter limiter = new ETRateLimiter("test", 10, 1);
+        assertTrue(limiter.tryAcquire(0));
+        assertFalse(limiter.tryAcquire(10));
+        assertTrue(limiter.tryAcquire(200));
+    }
+
+    @Test
+    public void testNonBlocking() {
+        ETRateLimiter limiter = new ETRateLimiter("test", 1, 1);
+        try {
+            limiter.acquire(false);
+            limiter.acquire(false);
+            fail("expected ETSdkException");
+        } catch (ETSdkException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testUnlimited() {
+        ETRateLimiter limiter = new ETRateLimiter("test", 0, 0);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+    }
+
+    @Test
+    public void testShared() {
+        ETRateLimiter limiter = ETRateLimiter.getInstance("client/account/rest", 1, 1);
+        assertSame(limiter, ETRateLimiter.getInstance("client/account/rest", 1, 1));
+        assertTrue(limiter != ETRateLimiter.getInstance("client/account/soap", 1, 1));
+        assertTrue(limiter.tryAcquire());
+        assertFalse(ETRateLimiter.getInstance("client/account/rest", 1, 1).tryAcquire());
+    }
+
+    @Test
+    public void testConfigurationChanged() {
+        ETRateLimiter limiter = ETRateLimiter.getInstance("client/changed/rest", 1, 1);
+        ETRateLimiter changed = ETRateLimiter.getInstance("client/changed/rest", 5, 5);
+        assertTrue(limiter != changed);
+        assertEquals(5, changed.getRate());
+        assertEquals(5, changed.getBurst());
+        // clients created from now on share the new limiter:
+        assertSame(changed, ETRateLimiter.getInstance("client/changed/rest", 5, 5));
+        assertEquals(1, limiter.getRate());
+    }
+
+    @Test
+    public void testUnlimitedNotRegistered() {
+        int registered = ETRateLimiter.getRegistered();
+        ETRateLimiter limiter = ETRateLimiter.getInstance("client/unlimited/rest", 0, 0);
+        assertTrue(limiter != ETRateLimiter.getInstance("client/unlimited/rest", 0, 0));
+        assertEquals(0, limiter.getRate());
+        assertTrue(ETRateLimiter.getRegistered() <= registered);
+    }
+}
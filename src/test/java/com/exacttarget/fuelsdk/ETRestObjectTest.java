@@ -0,0 +1,116 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ETRestObjectTest {
+    private static Gson gson = new GsonBuilder()
+        .excludeFieldsWithoutExposeAnnotation()
+        .setDateFormat("yyyy-MM-dd'T'HH:mm:ss")
+        .create();
+
+    private static ETResponse<ETCampaign> deserialize(String payload)
+        throws IOException
+    {
+        ETResponse<ETCampaign> response = new ETResponse<ETCampaign>();
+        ETRestObject.deserialize(null,
+                                 gson,
+                                 new StringReader(payload),
+                                 ETCampaign.class,
+                                 "count",
+                                 "items",
+                                 response);
+        return response;
+    }
+
+    @Test
+    public void testDeserializePage()
+        throws IOException
+    {
+        ETResponse<ETCampaign> response = deserialize("{"
+                + "\"count\":3,\"page\":1,\"pageSize\":2,"
+                + "\"items\":[{\"id\":\"1\",\"name\":\"a\",\"campaignCode\":\"x\"},"
+                + "{\"id\":\"2\",\"name\":\"b\",\"favorite\":true}]}");
+        assertEquals((Integer) 1, response.getPage());
+        assertEquals((Integer) 2, response.getPageSize());
+        assertEquals((Integer) 3, response.getTotalCount());
+        assertTrue(response.hasMoreResults());
+        assertEquals(2, response.getObjects().size());
+        assertEquals("1", response.getObjects().get(0).getId());
+        assertEquals("x", response.getObjects().get(0).getCode());
+        assertEquals("b", response.getObjects().get(1).getName());
+        assertTrue(response.getObjects().get(1).getFavorite());
+    }
+
+    @Test
+    public void testDeserializeCollectionBeforePage()
+        throws IOException
+    {
+        ETResponse<ETCampaign> response = deserialize("{"
+                + "\"items\":[{\"id\":\"1\"},{\"id\":\"2\"}],"
+                + "\"count\":2,\"page\":1,\"pageSize\":2}");
+        assertFalse(response.hasMoreResults());
+        assertEquals(2, response.getObjects().size());
+        assertEquals("2", response.getObjects().get(1).getId());
+    }
+
+    @Test
+    public void testDeserializeSingleObject()
+        throws IOException
+    {
+        ETResponse<ETCampaign> response = deserialize("{"
+                + "\"id\":\"1\",\"name\":\"a\",\"items\":[]}");
+        assertEquals(1, response.getObjects().size());
+        assertEquals("a", response.getObject().getName());
+    }
+
+    @Test
+    public void testDeserializeEmpty()
+        throws IOException
+    {
+        ETResponse<ETCampaign> response = deserialize("");
+        assertEquals(0, response.getObjects().size());
+    }
+}
@@ -0,0 +1,121 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ETRetrieveCursorTest {
+    //
+    // Simulates a server returning the given batch sizes, with
+    // each batch's request ID being "request" + its index:
+    //
+
+    private static class TestCursor extends ETRetrieveCursor<ETDataExtensionRow> {
+        private final int[] batchSizes;
+        private final List<String> continueRequests = new ArrayList<String>();
+
+        TestCursor(int... batchSizes) {
+            super(null, "DataExtensionObject[test]", new ETFilter(), ETDataExtensionRow.class);
+            this.batchSizes = batchSizes;
+        }
+
+        @Override
+        ETResponse<ETDataExtensionRow> retrieve(String continueRequest) {
+            int batch = continueRequests.size();
+            continueRequests.add(continueRequest);
+            ETResponse<ETDataExtensionRow> response = new ETResponse<ETDataExtensionRow>();
+            response.setRequestId("request" + batch);
+            response.setStatus(ETResult.Status.OK);
+            for (int i = 0; i < batchSizes[batch]; i++) {
+                ETDataExtensionRow row = new ETDataExtensionRow();
+                row.setColumn("batch", Integer.toString(batch));
+                ETResult<ETDataExtensionRow> result = new ETResult<ETDataExtensionRow>();
+                result.setObject(row);
+                response.addResult(result);
+            }
+            response.setMoreResults(batch < batchSizes.length - 1);
+            return response;
+        }
+    }
+
+    @Test
+    public void testContinues()
+        throws ETSdkException
+    {
+        TestCursor cursor = new TestCursor(2500, 2500, 10);
+        List<Integer> sizes = new ArrayList<Integer>();
+        while (cursor.hasNext()) {
+            sizes.add(cursor.next().getObjects().size());
+        }
+        assertEquals(Arrays.asList(2500, 2500, 10), sizes);
+        assertEquals(Arrays.asList(null, "request0", "request1"), cursor.continueRequests);
+        assertEquals(3, cursor.getBatches());
+        assertEquals(5010, cursor.getCount());
+    }
+
+    @Test
+    public void testSingleBatch()
+        throws ETSdkException
+    {
+        TestCursor cursor = new TestCursor(0);
+        assertTrue(cursor.hasNext());
+        assertTrue(cursor.next().getObjects().isEmpty());
+        assertFalse(cursor.hasNext());
+        assertNull(cursor.continueRequests.get(0));
+    }
+
+    @Test
+    public void testExhausted()
+        throws ETSdkException
+    {
+        TestCursor cursor = new TestCursor(1);
+        cursor.next();
+        try {
+            cursor.next();
+            fail();
+        } catch (ETSdkException ex) {
+            assertEquals("no more results", ex.getMessage());
+        }
+    }
+}
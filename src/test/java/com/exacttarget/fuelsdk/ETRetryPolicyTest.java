@@ -0,0 +1,162 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.Callable;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ETRetryPolicyTest {
+    private static ETRetryPolicy createPolicy(int maxRetries, int budgetReserve) {
+        ETConfiguration configuration = new ETConfiguration();
+        configuration.set("retryMaxRetries", Integer.toString(maxRetries));
+        configuration.set("retryInitialBackoff", "1");
+        configuration.set("retryMaxBackoff", "10");
+        configuration.set("retryBudgetPercent", "0");
+        configuration.set("retryBudgetReserve", Integer.toString(budgetReserve));
+        return new ETRetryPolicy(configuration);
+    }
+
+    private static class FailingCall implements Callable<String> {
+        private int failures;
+        private int calls = 0;
+
+        FailingCall(int failures) {
+            this.failures = failures;
+        }
+
+        public String call()
+            throws Exception
+        {
+            calls++;
+            if (calls <= failures) {
+                throw new ETSdkException("error reading",
+                        new SocketTimeoutException("Read timed out"));
+            }
+            return "OK";
+        }
+    }
+
+    @Test
+    public void testRetryTransient()
+        throws ETSdkException
+    {
+        ETRetryPolicy policy = createPolicy(3, 10);
+        FailingCall call = new FailingCall(2);
+        assertEquals("OK", policy.execute("soap.retrieve", call));
+        assertEquals(3, call.calls);
+        assertEquals(2, policy.getRetries());
+    }
+
+    @Test
+    public void testGiveUp() {
+        ETRetryPolicy policy = createPolicy(2, 10);
+        FailingCall call = new FailingCall(5);
+        try {
+            policy.execute("soap.retrieve", call);
+            fail("expected ETSdkException");
+        } catch (ETSdkException ex) {
+            // expected
+        }
+        assertEquals(3, call.calls);
+    }
+
+    @Test
+    public void testNonIdempotentNotRetried() {
+        ETRetryPolicy policy = createPolicy(3, 10);
+        FailingCall call = new FailingCall(1);
+        try {
+            policy.execute("soap.create", call);
+            fail("expected ETSdkException");
+        } catch (ETSdkException ex) {
+            // expected
+        }
+        assertEquals(1, call.calls);
+    }
+
+    @Test
+    public void testOverride()
+        throws ETSdkException
+    {
+        ETRetryPolicy policy = createPolicy(3, 10);
+        policy.setRetryable("soap.create", true);
+        policy.setMaxRetries("soap.retrieve", 0);
+        assertEquals("OK", policy.execute("soap.create", new FailingCall(1)));
+        assertFalse(policy.begin("soap.retrieve").shouldRetry(503, null));
+    }
+
+    @Test
+    public void testBudget() {
+        ETRetryPolicy policy = createPolicy(3, 2);
+        assertTrue(policy.begin("rest.GET").shouldRetry(503, null));
+        assertTrue(policy.begin("rest.GET").shouldRetry(429, null));
+        assertFalse(policy.begin("rest.GET").shouldRetry(503, null));
+        assertEquals(1, policy.getBudgetExhausted());
+    }
+
+    @Test
+    public void testStatusCodes() {
+        ETRetryPolicy policy = createPolicy(3, 10);
+        assertFalse(policy.begin("rest.GET").shouldRetry(400, null));
+        assertFalse(policy.begin("rest.GET").shouldRetry(500, null));
+        assertFalse(policy.begin("rest.POST").shouldRetry(503, null));
+        assertTrue(policy.begin("rest.DELETE").shouldRetry(503, null));
+    }
+
+    @Test
+    public void testRetryAfter() {
+        ETRetryPolicy policy = createPolicy(3, 10);
+        assertEquals(2000, ETRetryPolicy.parseRetryAfter("2"));
+        assertEquals(-1, ETRetryPolicy.parseRetryAfter("soon"));
+        assertEquals(-1, ETRetryPolicy.parseRetryAfter(null));
+        assertEquals(0, ETRetryPolicy.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT"));
+        // asks for a longer wait than retryMaxBackoff:
+        assertFalse(policy.begin("rest.GET").shouldRetry(429, "120"));
+    }
+
+    @Test
+    public void testBackoff() {
+        ETRetryPolicy policy = createPolicy(3, 10);
+        for (int attempt = 0; attempt < 40; attempt++) {
+            long backoff = policy.getBackoff(attempt);
+            assertTrue(backoff >= 0 && backoff <= 10);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.beanutils.BeanUtilsBean;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.exacttarget.fuelsdk.internal.APIObject;
+import com.exacttarget.fuelsdk.internal.ObjectExtension;
+
+public class ETSoapMapperTest {
+    private static final Logger soapObjectLogger = Logger.getLogger(ETSoapObject.class);
+
+    private final Level level = soapObjectLogger.getLevel();
+
+    public static class ETUnmappedEmail extends ETEmail {}
+
+    @After
+    public void tearDown() {
+        soapObjectLogger.setLevel(level);
+    }
+
+    private static String format(APIObject object) {
+        // toString() includes identity hash codes:
+        return object.toString().replaceAll("@[0-9a-f]+", "");
+    }
+
+    private static APIObject toInternal(ETSoapObject object, boolean reflective)
+        throws ETSdkException
+    {
+        return reflective ? object.toInternalReflective() : object.toInternal();
+    }
+
+    private static void assertSameInternal(ETSoapObject object)
+        throws ETSdkException
+    {
+        assertEquals(format(toInternal(object, true)),
+                     format(toInternal(object, false)));
+    }
+
+    @Test
+    public void testMapperGenerated() {
+        assertNotNull(ETSoapMappers.getMapper(ETEmail.class));
+        assertNotNull(ETSoapMappers.getMapper(ETDataExtensionRow.class));
+        assertEquals(ETEmail.class,
+                ETSoapMappers.getMapper(ETEmail.class).getExternalType());
+        // subclasses are not annotated and use reflection:
+        assertNull(ETSoapMappers.getMapper(ETUnmappedEmail.class));
+    }
+
+    @Test
+    public void testEmailMatchesReflection()
+        throws ETSdkException
+    {
+        ETEmail email = new ETEmail();
+        email.setKey("key");
+        email.setName("name");
+        email.setSubject("subject");
+        email.setHtmlBody("<b>body</b>");
+        email.setIsHtmlPaste(true);
+        email.setType(ETEmail.Type.HTML);
+        email.setFolderId(42);
+        email.setModifiedDate(new Date(0));
+        assertSameInternal(email);
+
+        ETEmail copy = (ETEmail) new ETEmail().fromInternal(toInternal(email, false));
+        assertEquals("key", copy.getKey());
+        assertEquals("subject", copy.getSubject());
+        assertEquals(ETEmail.Type.HTML, copy.getType());
+        assertEquals(new Integer(42), copy.getFolderId());
+    }
+
+    @Test
+    public void testTraceUsesMapper()
+        throws ETSdkException
+    {
+        ETEmail email = new ETEmail();
+        email.setKey("key");
+        email.setSubject("subject");
+        String expected = format(email.toInternal());
+        soapObjectLogger.setLevel(Level.TRACE);
+        APIObject internalObject = email.toInternal();
+        assertEquals(expected, format(internalObject));
+        ETEmail copy = (ETEmail) new ETEmail().fromInternal(internalObject);
+        assertEquals("subject", copy.getSubject());
+    }
+
+    @Test
+    public void testDataExtensionRowMatchesReflection()
+        throws ETSdkException
+    {
+        ETDataExtensionRow row = new ETDataExtensionRow();
+        row.setDataExtensionKey("de");
+        row.setColumn("email", "test@example.com");
+        row.setColumn("name", "Test");
+        assertSameInternal(row);
+
+        ETDataExtensionRow copy = (ETDataExtensionRow)
+                new ETDataExtensionRow().fromInternal(toInternal(row, false));
+        assertEquals("test@example.com", copy.getColumn("email"));
+        assertEquals("Test", copy.getColumn("name"));
+    }
+
+    @Test
+    public void testColumns() {
+        Map<String, String> columns = new HashMap<String, String>();
+        columns.put("a", "1");
+        columns.put("b", null);
+        ObjectExtension.Properties properties = ETSoapMappers.toProperties(columns);
+        assertEquals(2, properties.getProperty().size());
+        assertEquals(columns, ETSoapMappers.toColumns(properties));
+    }
+
+    @Test
+    public void testConvertersNotGlobal() {
+        new ETEmail();
+        assertNull(BeanUtilsBean.getInstance().getConvertUtils().lookup(ETEmail.class));
+        assertTrue(ETSoapObject.getBeanUtils().getConvertUtils().lookup(ETEmail.class)
+                instanceof ETSoapObject.ExternalObjectConverter);
+        assertSame(ETSoapObject.getBeanUtils(), ETSoapObject.getBeanUtils());
+    }
+}
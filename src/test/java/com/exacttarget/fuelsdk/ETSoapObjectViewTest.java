@@ -0,0 +1,125 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.exacttarget.fuelsdk.internal.Attribute;
+import com.exacttarget.fuelsdk.internal.Subscriber;
+import com.exacttarget.fuelsdk.internal.SubscriberStatus;
+
+public class ETSoapObjectViewTest {
+    private static Subscriber createSubscriber() {
+        Subscriber subscriber = new Subscriber();
+        subscriber.setSubscriberKey("key");
+        subscriber.setEmailAddress("test@example.com");
+        subscriber.setStatus(SubscriberStatus.ACTIVE);
+        Attribute attribute = new Attribute();
+        attribute.setName("name");
+        attribute.setValue("value");
+        subscriber.getAttributes().add(attribute);
+        return subscriber;
+    }
+
+    @Test
+    public void testConvertOnAccess()
+        throws ETSdkException
+    {
+        ETSoapObjectView<ETSubscriber> view = new ETSoapObjectView<ETSubscriber>(
+                null, ETSubscriber.class, createSubscriber());
+        assertEquals("test@example.com", view.get("emailAddress"));
+        assertEquals("key", view.get("key", String.class));
+        assertEquals(ETSubscriber.Status.ACTIVE,
+                     view.get("status", ETSubscriber.Status.class));
+        assertNull(view.get("unsubscribedDate"));
+
+        List<?> attributes = view.get("attributes", List.class);
+        assertEquals(1, attributes.size());
+        assertEquals("value", ((ETProfileAttribute) attributes.get(0)).getValue());
+    }
+
+    @Test
+    public void testOnlyAccessedPropertiesConverted()
+        throws ETSdkException
+    {
+        Subscriber subscriber = createSubscriber();
+        ETSoapObjectView<ETSubscriber> view = new ETSoapObjectView<ETSubscriber>(
+                null, ETSubscriber.class, subscriber);
+        assertEquals("test@example.com", view.get("emailAddress"));
+
+        // not yet accessed, so later changes to the internal object show:
+        subscriber.setSubscriberKey("changed");
+        assertEquals("changed", view.get("key"));
+
+        // converted properties are not converted again:
+        subscriber.setEmailAddress("other@example.com");
+        assertEquals("test@example.com", view.get("emailAddress"));
+    }
+
+    @Test
+    public void testGetObject()
+        throws ETSdkException
+    {
+        ETSoapObjectView<ETSubscriber> view = new ETSoapObjectView<ETSubscriber>(
+                null, ETSubscriber.class, createSubscriber());
+        assertEquals("key", view.get("key"));
+        ETSubscriber subscriber = view.getObject();
+        assertSame(subscriber, view.getObject());
+        assertEquals("key", subscriber.getKey());
+        assertEquals("test@example.com", subscriber.getEmailAddress());
+        assertEquals(1, subscriber.getAttributes().size());
+    }
+
+    @Test(expected = ETSdkException.class)
+    public void testUnknownProperty()
+        throws ETSdkException
+    {
+        new ETSoapObjectView<ETSubscriber>(null, ETSubscriber.class, createSubscriber())
+                .get("noSuchProperty");
+    }
+
+    @Test(expected = ETSdkException.class)
+    public void testWrongValueType()
+        throws ETSdkException
+    {
+        new ETSoapObjectView<ETSubscriber>(null, ETSubscriber.class, createSubscriber())
+                .get("emailAddress", Integer.class);
+    }
+}
@@ -0,0 +1,188 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.exacttarget.fuelsdk.internal.APIProperty;
+import com.exacttarget.fuelsdk.internal.DataExtensionObject;
+import com.exacttarget.fuelsdk.internal.Subscriber;
+import com.exacttarget.fuelsdk.internal.SubscriberStatus;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+
+public class ETSparseUpdateTest {
+    private static Subscriber createSubscriber() {
+        Subscriber subscriber = new Subscriber();
+        subscriber.setId(1234);
+        subscriber.setSubscriberKey("key");
+        subscriber.setEmailAddress("test@example.com");
+        subscriber.setStatus(SubscriberStatus.ACTIVE);
+        return subscriber;
+    }
+
+    @Test
+    public void testFieldFlags() {
+        ETSubscriber subscriber = new ETSubscriber();
+        assertNull(subscriber.getModified("status"));
+        assertFalse(subscriber.hasModifiedFields());
+        subscriber.setStatus(ETSubscriber.Status.UNSUBSCRIBED);
+        assertTrue(subscriber.getModified("status"));
+        assertTrue(subscriber.hasModifiedFields());
+        assertTrue(subscriber.setModified("status", false));
+        assertFalse(subscriber.getModified("status"));
+        assertFalse(subscriber.hasModifiedFields());
+        assertNull(subscriber.setModified("test", true));
+        subscriber.setKey("key");
+        assertEquals(Arrays.asList("key", "test"), subscriber.getAllModified());
+        subscriber.clearModified();
+        assertNull(subscriber.getModified("key"));
+        assertNull(subscriber.getModified("test"));
+        assertTrue(subscriber.getAllModified().isEmpty());
+    }
+
+    @Test
+    public void testFromInternalIsNotModified()
+        throws ETSdkException
+    {
+        ETSubscriber subscriber = new ETSubscriber();
+        subscriber.fromInternal(createSubscriber());
+        assertEquals("key", subscriber.getKey());
+        assertTrue(subscriber.getAllModified().isEmpty());
+    }
+
+    @Test
+    public void testSparseSubscriber()
+        throws ETSdkException
+    {
+        ETSubscriber subscriber = new ETSubscriber();
+        subscriber.fromInternal(createSubscriber());
+        subscriber.setStatus(ETSubscriber.Status.UNSUBSCRIBED);
+        Subscriber internalSubscriber = (Subscriber) subscriber.toInternalModified();
+        assertEquals(SubscriberStatus.UNSUBSCRIBED, internalSubscriber.getStatus());
+        assertEquals("key", internalSubscriber.getSubscriberKey());
+        assertEquals("test@example.com", internalSubscriber.getEmailAddress());
+        assertEquals(new Integer(1234), internalSubscriber.getId());
+        assertNull(internalSubscriber.getEmailTypePreference());
+    }
+
+    @Test
+    public void testUnmodifiedSubscriberIsSentInFull()
+        throws ETSdkException
+    {
+        ETSubscriber subscriber = new ETSubscriber();
+        subscriber.fromInternal(createSubscriber());
+        Subscriber internalSubscriber = (Subscriber) subscriber.toInternalModified();
+        assertEquals(SubscriberStatus.ACTIVE, internalSubscriber.getStatus());
+    }
+
+    private static ETDataExtensionRow createRow() {
+        ETDataExtensionRow row = new ETDataExtensionRow();
+        row.setDataExtensionKey("dataExtension");
+        row.setColumn("Id", "1", false);
+        row.setColumn("Name", "name", false);
+        row.setColumn("Status", "active", false);
+        return row;
+    }
+
+    @Test
+    public void testColumnFlags() {
+        ETDataExtensionRow row = createRow();
+        assertNull(row.getModified("Status"));
+        assertFalse(row.hasUnmodifiedColumns());
+        row.setColumn("Status", "held");
+        assertTrue(row.getModified("status"));
+        assertTrue(row.hasUnmodifiedColumns());
+        assertEquals(Arrays.asList("status"), row.getAllModified());
+        row.getColumns().remove("name");
+        assertTrue(row.getModified("Status"));
+        assertNull(row.getModified("Id"));
+        row.clearModified();
+        assertNull(row.getModified("Status"));
+    }
+
+    @Test
+    public void testSparseRow()
+        throws ETSdkException
+    {
+        ETDataExtensionRow row = createRow();
+        row.setColumn("Status", "held");
+        row.setKeyColumns(new HashSet<String>(Arrays.asList("id")));
+        DataExtensionObject internalRow = (DataExtensionObject) row.toInternalModified();
+        assertEquals("dataExtension", internalRow.getCustomerKey());
+        List<APIProperty> properties = internalRow.getProperties().getProperty();
+        assertEquals(2, properties.size());
+        assertEquals("id", properties.get(0).getName());
+        assertEquals("1", properties.get(0).getValue());
+        assertEquals("status", properties.get(1).getName());
+        assertEquals("held", properties.get(1).getValue());
+    }
+
+    @Test
+    public void testRowWithoutKeyColumnsIsSentInFull()
+        throws ETSdkException
+    {
+        ETDataExtensionRow row = createRow();
+        row.setColumn("Status", "held");
+        DataExtensionObject internalRow = (DataExtensionObject) row.toInternalModified();
+        assertEquals(3, internalRow.getProperties().getProperty().size());
+    }
+
+    @Test
+    public void testSparsePatch()
+        throws ETSdkException
+    {
+        Gson gson = new GsonBuilder()
+            .excludeFieldsWithoutExposeAnnotation()
+            .create();
+        ETCampaign campaign = new ETCampaign();
+        campaign.setId("1");
+        campaign.setName("name");
+        campaign.setCode("code");
+        campaign.setModified("code", true);
+        JsonObject jsonObject = ETRestObject.toModifiedJson(gson, campaign);
+        assertEquals(1, jsonObject.entrySet().size());
+        assertEquals("code", jsonObject.get("campaignCode").getAsString());
+    }
+}
@@ -0,0 +1,244 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ETTokenStoreTest {
+    private static final long HOUR = 60 * 60 * 1000;
+
+    private File directory = null;
+
+    private static class TokenRequest implements Callable<ETAccessToken> {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final long lifetime;
+
+        TokenRequest(long lifetime) {
+            this.lifetime = lifetime;
+        }
+
+        public ETAccessToken call() {
+            int n = calls.incrementAndGet();
+            return new ETAccessToken("token" + n,
+                                     "refresh" + n,
+                                     null,
+                                     (int) (lifetime / 1000),
+                                     System.currentTimeMillis() + lifetime,
+                                     "https://rest.example.com/",
+                                     "https://soap.example.com/");
+        }
+    }
+
+    @Before
+    public void setUp() {
+        directory = new File(System.getProperty("java.io.tmpdir"),
+                "fuelsdk-tokens-test-" + System.nanoTime());
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private static void assertShared(ETTokenStore store)
+        throws ETSdkException
+    {
+        TokenRequest request = new TokenRequest(HOUR);
+        ETAccessToken first = store.getToken("a", 60000, request);
+        ETAccessToken second = store.getToken("a", 60000, request);
+        assertEquals("token1", first.getAccessToken());
+        assertEquals("token1", second.getAccessToken());
+        assertEquals(1, request.calls.get());
+        assertEquals(1, store.getHits());
+        assertEquals(1, store.getMisses());
+
+        // different key, different token:
+        assertEquals("token2", store.getToken("b", 60000, request).getAccessToken());
+
+        // not valid long enough:
+        assertEquals("token3", store.getToken("a", 2 * HOUR, request).getAccessToken());
+
+        store.removeToken("a");
+        assertEquals("token4", store.getToken("a", 60000, request).getAccessToken());
+        assertEquals(4, store.getMisses());
+    }
+
+    @Test
+    public void testMemoryStore()
+        throws ETSdkException
+    {
+        assertShared(new ETMemoryTokenStore());
+    }
+
+    @Test
+    public void testFileStore()
+        throws ETSdkException
+    {
+        assertShared(new ETFileTokenStore(directory));
+    }
+
+    @Test
+    public void testFileStoreSharedBetweenInstances()
+        throws ETSdkException
+    {
+        TokenRequest request = new TokenRequest(HOUR);
+        ETAccessToken stored = new ETFileTokenStore(directory).getToken("a", 60000, request);
+        ETFileTokenStore store = new ETFileTokenStore(directory);
+        ETAccessToken token = store.getToken("a", 60000, request);
+        assertNotSame(stored, token);
+        assertEquals(1, request.calls.get());
+        assertEquals(1, store.getHits());
+        assertEquals(stored.getAccessToken(), token.getAccessToken());
+        assertEquals(stored.getRefreshToken(), token.getRefreshToken());
+        assertEquals(stored.getExpirationTime(), token.getExpirationTime());
+        assertEquals(stored.getRestInstanceUrl(), token.getRestInstanceUrl());
+        assertEquals(stored.getSoapInstanceUrl(), token.getSoapInstanceUrl());
+    }
+
+    @Test
+    public void testFileStoreOwnerOnly()
+        throws ETSdkException
+    {
+        ETFileTokenStore store = new ETFileTokenStore(directory);
+        String key = "v1|https://auth.example.com|clientId||";
+        store.getToken(key, 60000, new TokenRequest(HOUR));
+        File file = store.getFile(key);
+        assertTrue(file.isFile());
+        assertFalse(file.getName().contains("clientId"));
+        assertTrue(file.canRead());
+        assertTrue(file.canWrite());
+    }
+
+    @Test
+    public void testFileStoreOwnerOnlyPermissions()
+        throws Exception
+    {
+        ETFileTokenStore store = new ETFileTokenStore(directory);
+        store.getToken("a", 60000, new TokenRequest(HOUR));
+        assertEquals(PosixFilePermissions.fromString("rwx------"),
+                     Files.getPosixFilePermissions(directory.toPath()));
+        assertEquals(PosixFilePermissions.fromString("rw-------"),
+                     Files.getPosixFilePermissions(store.getFile("a").toPath()));
+    }
+
+    @Test
+    public void testFileStoreRefusesSharedDirectory()
+        throws Exception
+    {
+        assertTrue(directory.mkdirs());
+        Files.setPosixFilePermissions(directory.toPath(),
+                PosixFilePermissions.fromString("rwxrwxrwx"));
+        try {
+            new ETFileTokenStore(directory);
+            fail("expected the directory to be refused");
+        } catch (ETSdkException ex) {
+            assertTrue(ex.getMessage().contains("writable by other users"));
+        }
+    }
+
+    @Test
+    public void testFileStoreRefusesSymbolicLink()
+        throws Exception
+    {
+        ETFileTokenStore store = new ETFileTokenStore(directory);
+        File target = new File(directory, "target");
+        assertTrue(target.createNewFile());
+        Files.createSymbolicLink(store.getFile("a").toPath(), target.toPath());
+        try {
+            store.getToken("a", 60000, new TokenRequest(HOUR));
+            fail("expected the token file to be refused");
+        } catch (ETSdkException ex) {
+            assertTrue(ex.getMessage().contains("symbolic link"));
+        }
+        assertEquals(0, target.length());
+    }
+
+    @Test
+    public void testSingleRequestUnderContention()
+        throws Exception
+    {
+        final ETTokenStore store = new ETFileTokenStore(directory);
+        final TokenRequest request = new TokenRequest(HOUR) {
+            @Override
+            public ETAccessToken call() {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.call();
+            }
+        };
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        store.getToken("a", 60000, request);
+                    } catch (ETSdkException ex) {
+                        throw new RuntimeException(ex);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1, request.calls.get());
+        assertEquals(7, store.getHits());
+        assertEquals(1, store.getMisses());
+    }
+}
@@ -0,0 +1,111 @@
+//
+// This file is part of the Fuel Java SDK.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import com.exacttarget.fuelsdk.internal.APIProperty;
+import com.exacttarget.fuelsdk.internal.DataExtensionObject;
+import com.exacttarget.fuelsdk.internal.ObjectExtension;
+import com.exacttarget.fuelsdk.internal.SaveAction;
+import com.exacttarget.fuelsdk.internal.SaveOption;
+import com.exacttarget.fuelsdk.internal.UpdateRequest;
+
+public class ETUpsertTest {
+    private static ETDataExtensionRow createRow()
+        throws ETSdkException
+    {
+        ObjectExtension.Properties properties = new ObjectExtension.Properties();
+        for (String name : new String[] { "id", "name", "age" }) {
+            APIProperty property = new APIProperty();
+            property.setName(name);
+            property.setValue(name + "-value");
+            properties.getProperty().add(property);
+        }
+        DataExtensionObject object = new DataExtensionObject();
+        object.setProperties(properties);
+        ETDataExtensionRow row = (ETDataExtensionRow) new ETDataExtensionRow().fromInternal(object);
+        row.setDataExtensionKey("key");
+        row.setKeyColumns(new HashSet<String>(Arrays.asList("id")));
+        row.setColumn("name", "changed");
+        return row;
+    }
+
+    private static int countProperties(UpdateRequest request) {
+        return ((DataExtensionObject) request.getObjects().get(0))
+                .getProperties().getProperty().size();
+    }
+
+    @Test
+    public void testUpsertRequest()
+        throws ETSdkException
+    {
+        List<ETDataExtensionRow> rows = Arrays.asList(createRow());
+        UpdateRequest request = ETSoapObject.createUpdateRequest(rows, SaveAction.UPDATE_ADD);
+        List<SaveOption> saveOptions = request.getOptions().getSaveOptions().getSaveOption();
+        assertEquals(1, saveOptions.size());
+        assertEquals("*", saveOptions.get(0).getPropertyName());
+        assertEquals(SaveAction.UPDATE_ADD, saveOptions.get(0).getSaveAction());
+        // a row that may be created is sent in full:
+        assertEquals(3, countProperties(request));
+    }
+
+    @Test
+    public void testUpdateRequest()
+        throws ETSdkException
+    {
+        List<ETDataExtensionRow> rows = Arrays.asList(createRow());
+        UpdateRequest request = ETSoapObject.createUpdateRequest(rows, null);
+        assertNull(request.getOptions().getSaveOptions());
+        assertEquals(2, countProperties(request));
+    }
+
+    @Test
+    public void testSubscriberWithoutClient() {
+        try {
+            new ETSubscriber().upsert();
+            fail();
+        } catch (ETSdkException ex) {
+            assertEquals("subscriber has no client", ex.getMessage());
+        }
+    }
+}